@@ -0,0 +1,709 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.isdastandardmodel;
+
+import static com.opengamma.analytics.financial.credit.isdastandardmodel.DoublesScheduleGenerator.getIntegrationsPoints;
+import static com.opengamma.analytics.financial.credit.isdastandardmodel.DoublesScheduleGenerator.truncateSetInclusive;
+import static com.opengamma.analytics.math.utilities.Epsilon.epsilon;
+import static com.opengamma.analytics.math.utilities.Epsilon.epsilonP;
+import static com.opengamma.analytics.math.utilities.Epsilon.epsilonPP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Prices a book of CDSs in one call. The trades are grouped by credit curve (i.e. by name). For each name the yield and credit curves (and, for the
+ * sensitivities, the credit curve node sensitivities) are evaluated once at all the times needed by the trades on that name - the integration points
+ * of the legs, the coupon and payment times - and every trade on the name is priced from these values. When a fork-join pool is given, the names are
+ * priced in parallel.
+ * <p>
+ * The calculations are those of {@link AnalyticCDSPricer}, at the same times, so the results are identical to pricing the trades one by one.
+ */
+public class BatchAnalyticCDSPricer {
+
+  private static final double HALFDAY = 1 / 730.;
+  /** Default value for determining if results consistent with ISDA model versions 1.8.2 or lower are to be calculated */
+  private static final AccrualOnDefaultFormulae DEFAULT_FORMULA = AccrualOnDefaultFormulae.OrignalISDA;
+  /** True if results consistent with ISDA model versions 1.8.2 or lower are to be calculated */
+  private final AccrualOnDefaultFormulae _formula;
+  private final double _omega;
+  /** The pool the names are priced on; null to price them on the calling thread */
+  private final ForkJoinPool _pool;
+
+  /**
+   * For consistency with the ISDA model version 1.8.2 and lower, a bug in the accrual on default calculation
+   * has been reproduced. The names are priced on the calling thread.
+   */
+  public BatchAnalyticCDSPricer() {
+    this(DEFAULT_FORMULA, null);
+  }
+
+  /**
+   * @param formula Which formula to use for the accrued on default calculation
+   * @param pool The pool to price the names on, null to price them on the calling thread
+   */
+  public BatchAnalyticCDSPricer(final AccrualOnDefaultFormulae formula, final ForkJoinPool pool) {
+    ArgumentChecker.notNull(formula, "formula");
+    _formula = formula;
+    if (_formula == AccrualOnDefaultFormulae.OrignalISDA) {
+      _omega = HALFDAY;
+    } else {
+      _omega = 0.0;
+    }
+    _pool = pool;
+  }
+
+  /**
+   * CDS values for the payer of premiums (i.e. the buyer of protection) at the cash-settle date, as
+   * {@link AnalyticCDSPricer#pv(CDSAnalytic, ISDACompliantYieldCurve, ISDACompliantCreditCurve, double, PriceType)}
+   * @param cds analytic descriptions of the CDSs of the book
+   * @param yieldCurve The yield (or discount) curve, common to the book
+   * @param creditCurves the credit (or survival) curve of each CDS. Trades on the same name should share the same curve object
+   * @param fractionalSpreads The <b>fraction</b> spread of each CDS
+   * @param cleanOrDirty Clean or dirty price
+   * @return Values of unit notional payer CDSs on the cash-settle date
+   */
+  public double[] pv(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve[] creditCurves, final double[] fractionalSpreads,
+      final PriceType cleanOrDirty) {
+    ArgumentChecker.notNull(cds, "cds");
+    ArgumentChecker.notNull(fractionalSpreads, "fractionalSpreads");
+    ArgumentChecker.notNull(cleanOrDirty, "cleanOrDirty");
+    ArgumentChecker.isTrue(cds.length == fractionalSpreads.length, "fractionalSpreads wrong length. Should be {}, but is {}", cds.length, fractionalSpreads.length);
+    final double[] res = new double[cds.length];
+    run(cds, yieldCurve, creditCurves, false, new TradeMeasure() {
+      @Override
+      public void evaluate(final int index, final TradeSchedule trade, final NameCurveValues values) {
+        if (trade._expired) {
+          return;
+        }
+        final double csTime = trade._cds.getCashSettleTime();
+        final double rpv01 = annuity(trade, values, cleanOrDirty, csTime);
+        final double proLeg = protectionLeg(trade, values, csTime);
+        res[index] = proLeg - fractionalSpreads[index] * rpv01;
+      }
+    });
+    return res;
+  }
+
+  /**
+   * The par spreads for the given yield and credit curves, as {@link AnalyticCDSPricer#parSpread(CDSAnalytic, ISDACompliantYieldCurve, ISDACompliantCreditCurve)}
+   * @param cds analytic descriptions of the CDSs of the book
+   * @param yieldCurve The yield (or discount) curve, common to the book
+   * @param creditCurves the credit (or survival) curve of each CDS. Trades on the same name should share the same curve object
+   * @return the par spreads
+   */
+  public double[] parSpread(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve[] creditCurves) {
+    final double[] res = new double[cds.length];
+    run(cds, yieldCurve, creditCurves, false, new TradeMeasure() {
+      @Override
+      public void evaluate(final int index, final TradeSchedule trade, final NameCurveValues values) {
+        if (trade._expired) {
+          throw new IllegalArgumentException("CDSs has expired - cannot compute a par spread for it");
+        }
+        final double rpv01 = annuity(trade, values, PriceType.CLEAN, 0.0);
+        final double proLeg = protectionLeg(trade, values, 0.0);
+        res[index] = proLeg / rpv01;
+      }
+    });
+    return res;
+  }
+
+  /**
+   * Sensitivities of the present values (for the payer of premiums, i.e. the buyer of protection) to the zero hazard rates of all the nodes (knots) of
+   * the credit curves, as {@link AnalyticCDSPricer#pvCreditSensitivity(CDSAnalytic, ISDACompliantYieldCurve, ISDACompliantCreditCurve, double, int)}.
+   * This is per unit of notional
+   * @param cds analytic descriptions of the CDSs of the book
+   * @param yieldCurve The yield (or discount) curve, common to the book
+   * @param creditCurves the credit (or survival) curve of each CDS. Trades on the same name should share the same curve object
+   * @param fractionalSpreads The <b>fraction</b> spread of each CDS
+   * @return For each CDS, the PV sensitivity to each node of its credit curve
+   */
+  public double[][] pvCreditSensitivity(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve[] creditCurves,
+      final double[] fractionalSpreads) {
+    ArgumentChecker.notNull(cds, "cds");
+    ArgumentChecker.notNull(fractionalSpreads, "fractionalSpreads");
+    ArgumentChecker.isTrue(cds.length == fractionalSpreads.length, "fractionalSpreads wrong length. Should be {}, but is {}", cds.length, fractionalSpreads.length);
+    final double[][] res = new double[cds.length][];
+    run(cds, yieldCurve, creditCurves, true, new TradeMeasure() {
+      @Override
+      public void evaluate(final int index, final TradeSchedule trade, final NameCurveValues values) {
+        final int nNodes = values._creditCurve.getNumberOfKnots();
+        res[index] = new double[nNodes];
+        if (trade._expired) {
+          return;
+        }
+        for (int node = 0; node < nNodes; node++) {
+          final double rpv01Sense = pvPremiumLegCreditSensitivity(trade, values, node);
+          final double proLegSense = protectionLegCreditSensitivity(trade, values, node);
+          res[index][node] = proLegSense - fractionalSpreads[index] * rpv01Sense;
+        }
+      }
+    });
+    return res;
+  }
+
+  //****************************************************************************************************************************
+  // Grouping by name
+  //****************************************************************************************************************************
+
+  private void run(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve[] creditCurves, final boolean sensitivity,
+      final TradeMeasure measure) {
+    ArgumentChecker.noNulls(cds, "cds");
+    ArgumentChecker.notNull(yieldCurve, "null yieldCurve");
+    ArgumentChecker.noNulls(creditCurves, "creditCurves");
+    ArgumentChecker.isTrue(cds.length == creditCurves.length, "creditCurves wrong length. Should be {}, but is {}", cds.length, creditCurves.length);
+
+    final Map<ISDACompliantCreditCurve, List<Integer>> byName = new IdentityHashMap<>();
+    for (int i = 0; i < cds.length; i++) {
+      List<Integer> trades = byName.get(creditCurves[i]);
+      if (trades == null) {
+        trades = new ArrayList<>();
+        byName.put(creditCurves[i], trades);
+      }
+      trades.add(i);
+    }
+    final double[] yieldKnots = yieldCurve.getKnotTimes();
+    final List<NameTask> tasks = new ArrayList<>(byName.size());
+    for (final Map.Entry<ISDACompliantCreditCurve, List<Integer>> entry : byName.entrySet()) {
+      final List<Integer> trades = entry.getValue();
+      final int[] indices = new int[trades.size()];
+      for (int k = 0; k < indices.length; k++) {
+        indices[k] = trades.get(k);
+      }
+      tasks.add(new NameTask(cds, indices, yieldCurve, yieldKnots, entry.getKey(), sensitivity, measure));
+    }
+
+    if (_pool == null || tasks.size() < 2) {
+      for (final NameTask task : tasks) {
+        task.invoke();
+      }
+    } else {
+      _pool.invoke(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    }
+  }
+
+  /**
+   * A quantity computed for one trade, and stored by the trade index. Called concurrently for different names.
+   */
+  private interface TradeMeasure {
+    void evaluate(int index, TradeSchedule trade, NameCurveValues values);
+  }
+
+  /**
+   * Prices all the trades on one name.
+   */
+  private static final class NameTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CDSAnalytic[] _cds;
+    private final int[] _trades;
+    private final ISDACompliantYieldCurve _yieldCurve;
+    private final double[] _yieldKnots;
+    private final ISDACompliantCreditCurve _creditCurve;
+    private final boolean _sensitivity;
+    private final TradeMeasure _measure;
+
+    private NameTask(final CDSAnalytic[] cds, final int[] trades, final ISDACompliantYieldCurve yieldCurve, final double[] yieldKnots,
+        final ISDACompliantCreditCurve creditCurve, final boolean sensitivity, final TradeMeasure measure) {
+      _cds = cds;
+      _trades = trades;
+      _yieldCurve = yieldCurve;
+      _yieldKnots = yieldKnots;
+      _creditCurve = creditCurve;
+      _sensitivity = sensitivity;
+      _measure = measure;
+    }
+
+    @SuppressWarnings("synthetic-access")
+    @Override
+    protected void compute() {
+      final double[] creditKnots = _creditCurve.getKnotTimes();
+      final int n = _trades.length;
+      final TradeSchedule[] schedules = new TradeSchedule[n];
+      int nTimes = 0;
+      for (int k = 0; k < n; k++) {
+        schedules[k] = new TradeSchedule(_cds[_trades[k]], _yieldKnots, creditKnots);
+        nTimes += schedules[k].getNumTimes();
+      }
+      final double[] times = new double[nTimes];
+      int pos = 0;
+      for (int k = 0; k < n; k++) {
+        pos = schedules[k].copyTimes(times, pos);
+      }
+      final NameCurveValues values = new NameCurveValues(times, _yieldCurve, _creditCurve, _sensitivity);
+      for (int k = 0; k < n; k++) {
+        _measure.evaluate(_trades[k], schedules[k], values);
+      }
+    }
+  }
+
+  /**
+   * The integration points of one CDS, as used by {@link AnalyticCDSPricer}.
+   */
+  private static final class TradeSchedule {
+
+    private final CDSAnalytic _cds;
+    private final boolean _expired;
+    /** The integration points of the protection leg */
+    private final double[] _protectionSchedule;
+    /** The integration points of the accrual on default of each coupon, null when there is no accrual on default or the coupon has expired */
+    private final double[][] _accrualKnots;
+
+    private TradeSchedule(final CDSAnalytic cds, final double[] yieldKnots, final double[] creditKnots) {
+      _cds = cds;
+      _expired = cds.getProtectionEnd() <= 0.0;
+      final int nCoupons = cds.getNumPayments();
+      _accrualKnots = new double[nCoupons][];
+      if (_expired) {
+        _protectionSchedule = new double[0];
+        return;
+      }
+      _protectionSchedule = getIntegrationsPoints(cds.getEffectiveProtectionStart(), cds.getProtectionEnd(), yieldKnots, creditKnots);
+      if (cds.isPayAccOnDefault()) {
+        final double start = nCoupons == 1 ? cds.getEffectiveProtectionStart() : cds.getAccStart();
+        final double[] integrationSchedule = getIntegrationsPoints(start, cds.getProtectionEnd(), yieldKnots, creditKnots);
+        for (int i = 0; i < nCoupons; i++) {
+          final CDSCoupon coupon = cds.getCoupon(i);
+          final double couponStart = Math.max(coupon.getEffStart(), cds.getEffectiveProtectionStart());
+          if (couponStart < coupon.getEffEnd()) {
+            _accrualKnots[i] = truncateSetInclusive(couponStart, coupon.getEffEnd(), integrationSchedule);
+          }
+        }
+      }
+    }
+
+    private int getNumTimes() {
+      if (_expired) {
+        return 0;
+      }
+      int n = _protectionSchedule.length + 2 * _cds.getNumPayments() + 3;
+      for (final double[] knots : _accrualKnots) {
+        if (knots != null) {
+          n += knots.length;
+        }
+      }
+      return n;
+    }
+
+    private int copyTimes(final double[] times, final int from) {
+      if (_expired) {
+        return from;
+      }
+      int pos = from;
+      System.arraycopy(_protectionSchedule, 0, times, pos, _protectionSchedule.length);
+      pos += _protectionSchedule.length;
+      for (final double[] knots : _accrualKnots) {
+        if (knots != null) {
+          System.arraycopy(knots, 0, times, pos, knots.length);
+          pos += knots.length;
+        }
+      }
+      for (final CDSCoupon coupon : _cds.getCoupons()) {
+        times[pos++] = coupon.getEffEnd();
+        times[pos++] = coupon.getPaymentTime();
+      }
+      times[pos++] = _cds.getCashSettleTime();
+      times[pos++] = _cds.getEffectiveProtectionStart();
+      times[pos++] = 0.0;
+      return pos;
+    }
+  }
+
+  /**
+   * The curves of one name evaluated at the times needed by its trades.
+   */
+  private static final class NameCurveValues {
+
+    private final ISDACompliantCreditCurve _creditCurve;
+    private final double[] _times;
+    private final double[] _ht;
+    private final double[] _rt;
+    /** The sensitivity of the survival probability to each node of the credit curve, by node then time. Null if not required */
+    private final double[][] _dqdh;
+
+    private NameCurveValues(final double[] times, final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve creditCurve, final boolean sensitivity) {
+      _creditCurve = creditCurve;
+      Arrays.sort(times);
+      int n = 0;
+      for (int i = 0; i < times.length; i++) {
+        // Double.compare, as the sort and the binary search, so that 0.0 and -0.0 are kept apart
+        if (n == 0 || Double.compare(times[n - 1], times[i]) != 0) {
+          times[n++] = times[i];
+        }
+      }
+      _times = Arrays.copyOf(times, n);
+      _ht = new double[n];
+      _rt = new double[n];
+      for (int i = 0; i < n; i++) {
+        _ht[i] = creditCurve.getRT(_times[i]);
+        _rt[i] = yieldCurve.getRT(_times[i]);
+      }
+      if (sensitivity) {
+        final int nNodes = creditCurve.getNumberOfKnots();
+        _dqdh = new double[nNodes][n];
+        for (int node = 0; node < nNodes; node++) {
+          for (int i = 0; i < n; i++) {
+            // the sensitivities are only used at the integration and coupon times, which are not negative
+            if (_times[i] >= 0.0) {
+              _dqdh[node][i] = creditCurve.getSingleNodeDiscountFactorSensitivity(_times[i], node);
+            }
+          }
+        }
+      } else {
+        _dqdh = null;
+      }
+    }
+
+    private int index(final double t) {
+      return Arrays.binarySearch(_times, t);
+    }
+  }
+
+  //****************************************************************************************************************************
+  // Legs, from the values of the curves
+  //****************************************************************************************************************************
+
+  private double protectionLeg(final TradeSchedule trade, final NameCurveValues values, final double valuationTime) {
+    final double[] integrationSchedule = trade._protectionSchedule;
+    final double[] ht = values._ht;
+    final double[] rt = values._rt;
+
+    int k = values.index(integrationSchedule[0]);
+    double ht0 = ht[k];
+    double rt0 = rt[k];
+    double b0 = Math.exp(-ht0 - rt0); // risky discount factor
+
+    double pv = 0.0;
+    final int n = integrationSchedule.length;
+    for (int i = 1; i < n; ++i) {
+      k = values.index(integrationSchedule[i]);
+      final double ht1 = ht[k];
+      final double rt1 = rt[k];
+      final double b1 = Math.exp(-ht1 - rt1);
+
+      final double dht = ht1 - ht0;
+      final double drt = rt1 - rt0;
+      final double dhrt = dht + drt;
+
+      double dPV;
+      if (Math.abs(dhrt) < 1e-5) {
+        dPV = dht * b0 * epsilon(-dhrt);
+      } else {
+        dPV = (b0 - b1) * dht / dhrt;
+      }
+
+      pv += dPV;
+      ht0 = ht1;
+      rt0 = rt1;
+      b0 = b1;
+    }
+    pv *= trade._cds.getLGD();
+
+    // roll to the valuation date
+    final double df = Math.exp(-rt[values.index(valuationTime)]);
+    pv /= df;
+
+    return pv;
+  }
+
+  private double dirtyAnnuity(final TradeSchedule trade, final NameCurveValues values) {
+    final CDSAnalytic cds = trade._cds;
+    double pv = 0.0;
+    for (final CDSCoupon coupon : cds.getCoupons()) {
+      final double q = Math.exp(-values._ht[values.index(coupon.getEffEnd())]);
+      final double p = Math.exp(-values._rt[values.index(coupon.getPaymentTime())]);
+      pv += coupon.getYearFrac() * p * q;
+    }
+
+    if (cds.isPayAccOnDefault()) {
+      double accPV = 0.0;
+      final int nCoupons = cds.getNumPayments();
+      for (int i = 0; i < nCoupons; i++) {
+        accPV += calculateSinglePeriodAccrualOnDefault(cds.getCoupon(i), trade._accrualKnots[i], values);
+      }
+      pv += accPV;
+    }
+
+    return pv;
+  }
+
+  private double annuity(final TradeSchedule trade, final NameCurveValues values, final PriceType cleanOrDirty, final double valuationTime) {
+    final CDSAnalytic cds = trade._cds;
+    double pv = dirtyAnnuity(trade, values);
+    final double valDF = Math.exp(-values._rt[values.index(valuationTime)]);
+
+    if (cleanOrDirty == PriceType.CLEAN) {
+      final double csTime = cds.getCashSettleTime();
+      final double protStart = cds.getEffectiveProtectionStart();
+      final double csDF = valuationTime == csTime ? valDF : Math.exp(-values._rt[values.index(csTime)]);
+      final double q = protStart == 0 ? 1.0 : Math.exp(-values._ht[values.index(protStart)]);
+      final double acc = cds.getAccruedYearFraction();
+      pv -= acc * csDF * q; //subtract the accrued risky discounted to today
+    }
+
+    pv /= valDF; //roll forward to valuation date
+    return pv;
+  }
+
+  private double calculateSinglePeriodAccrualOnDefault(final CDSCoupon coupon, final double[] knots, final NameCurveValues values) {
+    if (knots == null) {
+      return 0.0; //this coupon has already expired
+    }
+    final double[] ht = values._ht;
+    final double[] rt = values._rt;
+
+    double t = knots[0];
+    int k = values.index(t);
+    double ht0 = ht[k];
+    double rt0 = rt[k];
+    double b0 = Math.exp(-rt0 - ht0); // this is the risky discount factor
+
+    double t0 = t - coupon.getEffStart() + _omega;
+    double pv = 0.0;
+    final int nItems = knots.length;
+    for (int j = 1; j < nItems; ++j) {
+      t = knots[j];
+      k = values.index(t);
+      final double ht1 = ht[k];
+      final double rt1 = rt[k];
+      final double b1 = Math.exp(-rt1 - ht1);
+
+      final double dt = knots[j] - knots[j - 1];
+
+      final double dht = ht1 - ht0;
+      final double drt = rt1 - rt0;
+      final double dhrt = dht + drt;
+
+      double tPV;
+      if (_formula == AccrualOnDefaultFormulae.MarkitFix) {
+        if (Math.abs(dhrt) < 1e-5) {
+          tPV = dht * dt * b0 * epsilonP(-dhrt);
+        } else {
+          tPV = dht * dt / dhrt * ((b0 - b1) / dhrt - b1);
+        }
+      } else {
+        final double t1 = t - coupon.getEffStart() + _omega;
+        if (Math.abs(dhrt) < 1e-5) {
+          tPV = dht * b0 * (t0 * epsilon(-dhrt) + dt * epsilonP(-dhrt));
+        } else {
+          tPV = dht / dhrt * (t0 * b0 - t1 * b1 + dt / dhrt * (b0 - b1));
+        }
+        t0 = t1;
+      }
+
+      pv += tPV;
+      ht0 = ht1;
+      rt0 = rt1;
+      b0 = b1;
+    }
+    return coupon.getYFRatio() * pv;
+  }
+
+  //****************************************************************************************************************************
+  // Credit sensitivities, from the values of the curves
+  //****************************************************************************************************************************
+
+  private double pvPremiumLegCreditSensitivity(final TradeSchedule trade, final NameCurveValues values, final int creditCurveNode) {
+    final CDSAnalytic cds = trade._cds;
+    final double[] dqdhNode = values._dqdh[creditCurveNode];
+    final int n = cds.getNumPayments();
+    double pvSense = 0.0;
+    for (int i = 0; i < n; i++) {
+      final CDSCoupon c = cds.getCoupon(i);
+      final double dqdh = dqdhNode[values.index(c.getEffEnd())];
+      if (dqdh == 0) {
+        continue;
+      }
+      final double p = Math.exp(-values._rt[values.index(c.getPaymentTime())]);
+      pvSense += c.getYearFrac() * p * dqdh;
+    }
+
+    if (cds.isPayAccOnDefault()) {
+      double accPVSense = 0.0;
+      for (int i = 0; i < n; i++) {
+        accPVSense += calculateSinglePeriodAccrualOnDefaultCreditSensitivity(cds.getCoupon(i), trade._accrualKnots[i], values, dqdhNode);
+      }
+      pvSense += accPVSense;
+    }
+
+    final double df = Math.exp(-values._rt[values.index(cds.getCashSettleTime())]);
+    pvSense /= df;
+    return pvSense;
+  }
+
+  private double calculateSinglePeriodAccrualOnDefaultCreditSensitivity(final CDSCoupon coupon, final double[] knots, final NameCurveValues values,
+      final double[] dqdhNode) {
+    if (knots == null) {
+      return 0.0;
+    }
+    final double[] ht = values._ht;
+    final double[] rt = values._rt;
+
+    double t = knots[0];
+    int k = values.index(t);
+    double ht0 = ht[k];
+    double rt0 = rt[k];
+    double p0 = Math.exp(-rt0);
+    double q0 = Math.exp(-ht0);
+    double b0 = p0 * q0; // this is the risky discount factor
+    double dqdr0 = dqdhNode[k];
+
+    double t0 = t - coupon.getEffStart() + _omega;
+    double pvSense = 0.0;
+    final int nItems = knots.length;
+    for (int j = 1; j < nItems; ++j) {
+      t = knots[j];
+      k = values.index(t);
+      final double ht1 = ht[k];
+      final double rt1 = rt[k];
+      final double p1 = Math.exp(-rt1);
+      final double q1 = Math.exp(-ht1);
+      final double b1 = p1 * q1;
+      final double dqdr1 = dqdhNode[k];
+
+      final double dt = knots[j] - knots[j - 1];
+
+      final double dht = ht1 - ht0;
+      final double drt = rt1 - rt0;
+      final double dhrt = dht + drt + 1e-50; // to keep consistent with ISDA c code
+
+      double tPvSense;
+      if (_formula == AccrualOnDefaultFormulae.MarkitFix) {
+        if (Math.abs(dhrt) < 1e-5) {
+          final double eP = epsilonP(-dhrt);
+          final double ePP = epsilonPP(-dhrt);
+          final double dPVdq0 = p0 * dt * ((1 + dht) * eP - dht * ePP);
+          final double dPVdq1 = b0 * dt / q1 * (-eP + dht * ePP);
+          tPvSense = dPVdq0 * dqdr0 + dPVdq1 * dqdr1;
+        } else {
+          final double w1 = (b0 - b1) / dhrt;
+          final double w2 = w1 - b1;
+          final double w3 = dht / dhrt;
+          final double w4 = dt / dhrt;
+          final double w5 = (1 - w3) * w2;
+          final double dPVdq0 = w4 / q0 * (w5 + w3 * (b0 - w1));
+          final double dPVdq1 = w4 / q1 * (w5 + w3 * (b1 * (1 + dhrt) - w1));
+          tPvSense = dPVdq0 * dqdr0 - dPVdq1 * dqdr1;
+        }
+      } else {
+        final double t1 = t - coupon.getEffStart() + _omega;
+        if (Math.abs(dhrt) < 1e-5) {
+          final double e = epsilon(-dhrt);
+          final double eP = epsilonP(-dhrt);
+          final double ePP = epsilonPP(-dhrt);
+          final double w1 = t0 * e + dt * eP;
+          final double w2 = t0 * eP + dt * ePP;
+          final double dPVdq0 = p0 * ((1 + dht) * w1 - dht * w2);
+          final double dPVdq1 = b0 / q1 * (-w1 + dht * w2);
+          tPvSense = dPVdq0 * dqdr0 + dPVdq1 * dqdr1;
+        } else {
+          final double w1 = dt / dhrt;
+          final double w2 = dht / dhrt;
+          final double w3 = (t0 + w1) * b0 - (t1 + w1) * b1;
+          final double w4 = (1 - w2) / dhrt;
+          final double w5 = w1 / dhrt * (b0 - b1);
+          final double dPVdq0 = w4 * w3 / q0 + w2 * ((t0 + w1) * p0 - w5 / q0);
+          final double dPVdq1 = w4 * w3 / q1 + w2 * ((t1 + w1) * p1 - w5 / q1);
+          tPvSense = dPVdq0 * dqdr0 - dPVdq1 * dqdr1;
+        }
+        t0 = t1;
+      }
+
+      pvSense += tPvSense;
+      ht0 = ht1;
+      rt0 = rt1;
+      p0 = p1;
+      q0 = q1;
+      b0 = b1;
+      dqdr0 = dqdr1;
+    }
+    return coupon.getYFRatio() * pvSense;
+  }
+
+  private double protectionLegCreditSensitivity(final TradeSchedule trade, final NameCurveValues values, final int creditCurveNode) {
+    final CDSAnalytic cds = trade._cds;
+    final ISDACompliantCreditCurve creditCurve = values._creditCurve;
+    if ((creditCurveNode != 0 && cds.getProtectionEnd() <= creditCurve.getTimeAtIndex(creditCurveNode - 1)) ||
+        (creditCurveNode != creditCurve.getNumberOfKnots() - 1 && cds.getEffectiveProtectionStart() >= creditCurve.getTimeAtIndex(creditCurveNode + 1))) {
+      return 0.0; // can't have any sensitivity in this case
+    }
+    final double[] integrationSchedule = trade._protectionSchedule;
+    final double[] ht = values._ht;
+    final double[] rt = values._rt;
+    final double[] dqdhNode = values._dqdh[creditCurveNode];
+
+    int k = values.index(integrationSchedule[0]);
+    double ht0 = ht[k];
+    double rt0 = rt[k];
+    double dqdr0 = dqdhNode[k];
+    double q0 = Math.exp(-ht0);
+    double p0 = Math.exp(-rt0);
+    double pvSense = 0.0;
+    final int n = integrationSchedule.length;
+    for (int i = 1; i < n; ++i) {
+      k = values.index(integrationSchedule[i]);
+      final double ht1 = ht[k];
+      final double dqdr1 = dqdhNode[k];
+      final double rt1 = rt[k];
+      final double q1 = Math.exp(-ht1);
+      final double p1 = Math.exp(-rt1);
+
+      if (dqdr0 == 0.0 && dqdr1 == 0.0) {
+        ht0 = ht1;
+        rt0 = rt1;
+        p0 = p1;
+        q0 = q1;
+        continue;
+      }
+
+      final double hBar = ht1 - ht0;
+      final double fBar = rt1 - rt0;
+      final double fhBar = hBar + fBar;
+
+      double dPVSense;
+      if (Math.abs(fhBar) < 1e-5) {
+        final double e = epsilon(-fhBar);
+        final double eP = epsilonP(-fhBar);
+        final double dPVdq0 = p0 * ((1 + hBar) * e - hBar * eP);
+        final double dPVdq1 = -p0 * q0 / q1 * (e - hBar * eP);
+        dPVSense = dPVdq0 * dqdr0 + dPVdq1 * dqdr1;
+      } else {
+        final double w = fBar / fhBar * (p0 * q0 - p1 * q1);
+        dPVSense = ((w / q0 + hBar * p0) / fhBar) * dqdr0 - ((w / q1 + hBar * p1) / fhBar) * dqdr1;
+      }
+
+      pvSense += dPVSense;
+
+      ht0 = ht1;
+      dqdr0 = dqdr1;
+      rt0 = rt1;
+      p0 = p1;
+      q0 = q1;
+    }
+    pvSense *= cds.getLGD();
+
+    final double df = Math.exp(-rt[values.index(cds.getCashSettleTime())]);
+    pvSense /= df;
+
+    return pvSense;
+  }
+
+}
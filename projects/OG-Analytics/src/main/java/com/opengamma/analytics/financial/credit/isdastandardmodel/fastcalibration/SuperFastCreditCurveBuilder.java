@@ -5,11 +5,17 @@
  */
 package com.opengamma.analytics.financial.credit.isdastandardmodel.fastcalibration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import com.opengamma.analytics.financial.credit.isdastandardmodel.AccrualOnDefaultFormulae;
 import com.opengamma.analytics.financial.credit.isdastandardmodel.CDSAnalytic;
 import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantCreditCurve;
 import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantCreditCurveBuilder;
 import com.opengamma.analytics.financial.credit.isdastandardmodel.ISDACompliantYieldCurve;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * 
@@ -36,4 +42,52 @@ public class SuperFastCreditCurveBuilder extends ISDACompliantCreditCurveBuilder
     return calibrator.calibrate(premiums, pointsUpfront);
   }
 
+  /**
+   * Bootstraps the credit curves of many names quoted on the same calibration CDSs (e.g. the standard tenors on a trade date). The leg elements,
+   * which hold the coupons and the yield curve values at the integration points, depend only on the CDSs and the yield curve, so they are built
+   * once and shared by all the names.
+   * @param calibrationCDSs The market CDSs, common to all the names
+   * @param premiums The premiums (as fractions) for each name, by name then CDS
+   * @param yieldCurve The yield (or discount) curve
+   * @param pointsUpfront The points up-front (as fractions of notional) for each name, by name then CDS
+   * @param pool The pool to calibrate the names on, null to calibrate them on the calling thread
+   * @return The credit curve of each name
+   */
+  public ISDACompliantCreditCurve[] calibrateCreditCurves(final CDSAnalytic[] calibrationCDSs, final double[][] premiums, final ISDACompliantYieldCurve yieldCurve,
+      final double[][] pointsUpfront, final ForkJoinPool pool) {
+    ArgumentChecker.noNulls(premiums, "premiums");
+    ArgumentChecker.noNulls(pointsUpfront, "pointsUpfront");
+    final int nNames = premiums.length;
+    ArgumentChecker.isTrue(nNames == pointsUpfront.length, "pointsUpfront wrong length. Should be {}, but is {}", nNames, pointsUpfront.length);
+    final CreditCurveCalibrator calibrator = new CreditCurveCalibrator(calibrationCDSs, yieldCurve, getAccOnDefaultFormula(), getArbHanding());
+    final ISDACompliantCreditCurve[] res = new ISDACompliantCreditCurve[nNames];
+    if (pool == null || nNames < 2) {
+      for (int i = 0; i < nNames; i++) {
+        res[i] = calibrator.calibrate(premiums[i], pointsUpfront[i]);
+      }
+      return res;
+    }
+    final List<RecursiveAction> tasks = new ArrayList<>(nNames);
+    for (int i = 0; i < nNames; i++) {
+      final int name = i;
+      tasks.add(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          res[name] = calibrator.calibrate(premiums[name], pointsUpfront[name]);
+        }
+      });
+    }
+    pool.invoke(new RecursiveAction() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void compute() {
+        invokeAll(tasks);
+      }
+    });
+    return res;
+  }
+
 }
@@ -5,6 +5,8 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import java.util.List;
+
 /**
  * Solver for convection-diffusion type partial differential equations (PDEs), i.e.
  * $\frac{\partial f}{\partial t} + a(t,x) \frac{\partial^2 f}{\partial x^2} + b(t,x) \frac{\partial f}{\partial x} + (t,x)f = 0$
@@ -17,4 +19,12 @@ public interface ConvectionDiffusionPDESolver extends PDE1DSolver<ConvectionDiff
 
   @Override
   PDEResults1D solve(PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData);
+
+  /**
+   * Solves several PDEs on the same grid, e.g. the same model for many strikes or expiries. The data taken from the grid and the work arrays are shared by
+   * all the PDEs, so this is faster than solving them one by one, and gives the same results.
+   * @param pdeData The PDEs, all on the same grid
+   * @return The results, in the order of the PDEs
+   */
+  List<PDEResults1D> solve(List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> pdeData);
 }
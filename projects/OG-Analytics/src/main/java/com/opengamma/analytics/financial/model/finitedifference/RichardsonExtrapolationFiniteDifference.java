@@ -5,6 +5,9 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.lang.Validate;
 
 /**
@@ -26,6 +29,32 @@ public class RichardsonExtrapolationFiniteDifference implements ConvectionDiffus
     final PDEResults1D res1 = _baseSolver.solve(pdeData);
     final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData2 = pdeData.withGrid(grid2);
     final PDEResults1D res2 = _baseSolver.solve(pdeData2);
+    return extrapolate(grid, res1, res2);
+  }
+
+  @Override
+  public List<PDEResults1D> solve(final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> pdeData) {
+    Validate.noNullElements(pdeData, "null pdeData");
+    final List<PDEResults1D> res = new ArrayList<>(pdeData.size());
+    if (pdeData.isEmpty()) {
+      return res;
+    }
+    // the base solver checks that the grids are the same; the grid with double time steps is built once so that the second batch shares it too
+    final PDEGrid1D grid = pdeData.get(0).getGrid();
+    final PDEGrid1D grid2 = grid.withDoubleTimeSteps();
+    final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> pdeData2 = new ArrayList<>(pdeData.size());
+    for (final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> data : pdeData) {
+      pdeData2.add(data.withGrid(grid2));
+    }
+    final List<PDEResults1D> res1 = _baseSolver.solve(pdeData);
+    final List<PDEResults1D> res2 = _baseSolver.solve(pdeData2);
+    for (int i = 0; i < pdeData.size(); i++) {
+      res.add(extrapolate(grid, res1.get(i), res2.get(i)));
+    }
+    return res;
+  }
+
+  private static PDEResults1D extrapolate(final PDEGrid1D grid, final PDEResults1D res1, final PDEResults1D res2) {
     final int n = res1.getNumberSpaceNodes();
     if (res1 instanceof PDEFullResults1D) {
       final PDEFullResults1D full1 = (PDEFullResults1D) res1;
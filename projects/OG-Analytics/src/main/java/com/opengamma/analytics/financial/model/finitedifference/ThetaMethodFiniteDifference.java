@@ -7,7 +7,9 @@ package com.opengamma.analytics.financial.model.finitedifference;
 
 import static com.opengamma.analytics.math.linearalgebra.TridiagonalSolver.solvTriDag;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.commons.lang.NotImplementedException;
 
@@ -23,12 +25,17 @@ import com.opengamma.util.ArgumentChecker;
 /**
  * A theta (i.e. weighted between explicit and implicit time stepping) scheme using SOR algorithm to solve the matrix system at each time step
  * This uses the exponentially fitted scheme of duffy
+ * <p>
+ * The systems of PDEs with standard coefficients are solved at each time step by the tridiagonal (Thomas) algorithm in work arrays reused from step to step.
+ * The systems of PDEs with full coefficients are solved by an LU decomposition, or by the tridiagonal algorithm when the solver is constructed to do so and
+ * the boundary conditions keep the system tridiagonal. Several PDEs on the same grid can be solved in one call, sharing the grid data and the work arrays.
  */
 public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver {
   private static final Decomposition<?> DCOMP = new LUDecompositionCommons();
   // private static final DEFAULT
   private final double _theta;
   private final boolean _showFullResults;
+  private final boolean _tridiagonalSolver;
 
   /**
    * Sets up a standard Crank-Nicolson scheme
@@ -36,6 +43,7 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
   public ThetaMethodFiniteDifference() {
     _theta = 0.5;
     _showFullResults = false;
+    _tridiagonalSolver = false;
   }
 
   /**
@@ -47,25 +55,70 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     ArgumentChecker.isTrue(theta >= 0 && theta <= 1.0, "theta must be in the range 0 to 1");
     _theta = theta;
     _showFullResults = showFullResults;
+    _tridiagonalSolver = false;
+  }
+
+  /**
+   * Sets up a scheme that is the weighted average of an explicit and an implicit scheme
+   * @param theta The weight. theta = 0 - fully explicit, theta = 0.5 - Crank-Nicolson, theta = 1.0 - fully implicit
+   * @param showFullResults Show the full results
+   * @param tridiagonalSolver Solve the systems of PDEs with full coefficients by the tridiagonal algorithm, in order n operations, rather than by an LU
+   * decomposition of the full matrix. The LU decomposition is still used when a boundary condition has more than two terms.
+   */
+  public ThetaMethodFiniteDifference(final double theta, final boolean showFullResults, final boolean tridiagonalSolver) {
+    ArgumentChecker.isTrue(theta >= 0 && theta <= 1.0, "theta must be in the range 0 to 1");
+    _theta = theta;
+    _showFullResults = showFullResults;
+    _tridiagonalSolver = tridiagonalSolver;
   }
 
   public double getTheta() {
     return _theta;
   }
 
+  /**
+   * Gets the tridiagonal solver flag.
+   * @return true if the systems of PDEs with full coefficients are solved by the tridiagonal algorithm
+   */
+  public boolean isTridiagonalSolver() {
+    return _tridiagonalSolver;
+  }
+
   @Override
   //TODO This is so ugly
   public PDEResults1D solve(final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData) {
     ArgumentChecker.notNull(pdeData, "pde data");
+    return solve(pdeData, new Workspace(pdeData.getGrid()));
+  }
+
+  @Override
+  public List<PDEResults1D> solve(final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> pdeData) {
+    ArgumentChecker.noNulls(pdeData, "pde data");
+    final List<PDEResults1D> res = new ArrayList<>(pdeData.size());
+    if (pdeData.isEmpty()) {
+      return res;
+    }
+    final PDEGrid1D grid = pdeData.get(0).getGrid();
+    for (final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> data : pdeData) {
+      ArgumentChecker.isTrue(data.getGrid() == grid || data.getGrid().equals(grid), "All the PDEs must be on the same grid");
+    }
+    final Workspace work = new Workspace(grid);
+    for (final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> data : pdeData) {
+      res.add(solve(data, work));
+    }
+    return res;
+  }
+
+  private PDEResults1D solve(final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData, final Workspace work) {
     final ConvectionDiffusionPDE1DCoefficients coeff = pdeData.getCoefficients();
     if (coeff instanceof ConvectionDiffusionPDE1DStandardCoefficients) {
       final PDE1DDataBundle<ConvectionDiffusionPDE1DStandardCoefficients> temp = convertPDE1DDataBundle(pdeData);
-      final SolverImpl solver = new SolverImpl(temp);
+      final SolverImpl solver = new SolverImpl(temp, work);
       return solver.solve();
     } else if (coeff instanceof ConvectionDiffusionPDE1DFullCoefficients) {
       final ConvectionDiffusionPDE1DFullCoefficients temp = (ConvectionDiffusionPDE1DFullCoefficients) coeff;
       final ExtendedSolverImpl solver = new ExtendedSolverImpl(temp, pdeData.getInitialCondition(), pdeData.getLowerBoundary(), pdeData.getUpperBoundary(),
-          pdeData.getFreeBoundary(), pdeData.getGrid());
+          pdeData.getFreeBoundary(), pdeData.getGrid(), work);
       return solver.solve();
     }
     throw new IllegalArgumentException(coeff.getClass() + " not handled");
@@ -88,6 +141,65 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     psor;
   }
 
+  /**
+   * The data taken from the grid and the work arrays of the time stepping. It is created once for a grid and reused for every time step, and for every PDE
+   * of a batch on that grid. The arrays are overwritten by each solve, so the results never refer to them.
+   */
+  private static final class Workspace {
+    // grid
+    private final double[] _dt;
+    private final double[][] _x1st;
+    private final double[][] _x2nd;
+    private final double[] _dx;
+    // PDE coefficients at the internal nodes
+    private final double[] _cDag;
+    private final double[] _lDag;
+    private final double[] _uDag;
+    // system of the time step
+    private final double[] _y;
+    private final double[] _d;
+    private final double[] _u;
+    private final double[] _l;
+    private final double[][] _h;
+    // tridiagonal and PSOR work arrays
+    private final double[] _dWork;
+    private final double[] _yWork;
+    private final double[] _free;
+    private final double[] _invD;
+
+    private Workspace(final PDEGrid1D grid) {
+      ArgumentChecker.notNull(grid, "grid");
+      final int nNodesX = grid.getNumSpaceNodes();
+      final int nNodesT = grid.getNumTimeNodes();
+      _x1st = new double[nNodesX - 2][];
+      _x2nd = new double[nNodesX - 2][];
+      for (int ii = 0; ii < nNodesX - 2; ii++) {
+        _x1st[ii] = grid.getFirstDerivativeCoefficients(ii + 1);
+        _x2nd[ii] = grid.getSecondDerivativeCoefficients(ii + 1);
+      }
+      _dx = new double[nNodesX - 1];
+      for (int ii = 0; ii < nNodesX - 1; ii++) {
+        _dx[ii] = grid.getSpaceStep(ii);
+      }
+      _dt = new double[nNodesT - 1];
+      for (int jj = 0; jj < nNodesT - 1; jj++) {
+        _dt[jj] = grid.getTimeStep(jj);
+      }
+      _cDag = new double[nNodesX - 2];
+      _lDag = new double[nNodesX - 2];
+      _uDag = new double[nNodesX - 2];
+      _y = new double[nNodesX];
+      _d = new double[nNodesX];
+      _u = new double[nNodesX - 1];
+      _l = new double[nNodesX - 1];
+      _h = new double[2][nNodesX];
+      _dWork = new double[nNodesX];
+      _yWork = new double[nNodesX];
+      _free = new double[nNodesX];
+      _invD = new double[nNodesX];
+    }
+  }
+
   class SolverImpl {
 
     // grid
@@ -107,8 +219,15 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     //free boundary problems
     private final SolverMode _mode;
     private final Surface<Double, Double, Double> _freeB;
+    //work arrays
+    private final Workspace _work;
 
     public SolverImpl(final PDE1DDataBundle<ConvectionDiffusionPDE1DStandardCoefficients> pdeData) {
+      this(pdeData, new Workspace(pdeData.getGrid()));
+    }
+
+    @SuppressWarnings("synthetic-access")
+    private SolverImpl(final PDE1DDataBundle<ConvectionDiffusionPDE1DStandardCoefficients> pdeData, final Workspace work) {
 
       //unpack pdeData
       _grid = pdeData.getGrid();
@@ -119,22 +238,13 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       _nNodesX = _grid.getNumSpaceNodes();
       _nNodesT = _grid.getNumTimeNodes();
 
-      _x1st = new double[_nNodesX - 2][];
-      _x2nd = new double[_nNodesX - 2][];
-      for (int ii = 0; ii < _nNodesX - 2; ii++) {
-        _x1st[ii] = _grid.getFirstDerivativeCoefficients(ii + 1);
-        _x2nd[ii] = _grid.getSecondDerivativeCoefficients(ii + 1);
-      }
-      _dx = new double[_nNodesX - 1];
-      for (int ii = 0; ii < _nNodesX - 1; ii++) {
-        _dx[ii] = _grid.getSpaceStep(ii);
-      }
+      _work = work;
+      _x1st = work._x1st;
+      _x2nd = work._x2nd;
+      _dx = work._dx;
 
       _initial = pdeData.getInitialCondition();
-      _dt = new double[_nNodesT - 1];
-      for (int jj = 0; jj < _nNodesT - 1; jj++) {
-        _dt[jj] = _grid.getTimeStep(jj);
-      }
+      _dt = work._dt;
 
       //free boundary
       _freeB = pdeData.getFreeBoundary();
@@ -159,9 +269,15 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
 
       double[] topRow = _lower.getLeftMatrixCondition(_coeff, _grid, t);
       double[] bottomRow = _upper.getLeftMatrixCondition(_coeff, _grid, t);
-      final double[] cDag = new double[_nNodesX - 2];
-      final double[] lDag = new double[_nNodesX - 2];
-      final double[] uDag = new double[_nNodesX - 2];
+      final double[] cDag = _work._cDag;
+      final double[] lDag = _work._lDag;
+      final double[] uDag = _work._uDag;
+      //RHS and LHS of the system, reused for every time step
+      final double[] y = _work._y;
+      final double[] d = _work._d; //main diag
+      final double[] u = _work._u; //upper
+      final double[] l = _work._l; //lower
+      int next = 0;
       for (int ii = 0; ii < _nNodesX - 2; ii++) { //tri-diagonal form
         final double x = _grid.getSpaceNode(ii + 1);
         final double a = _coeff.getA(t, x);
@@ -176,7 +292,6 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
         final double dt = _dt[jj];
 
         //RHS of system
-        final double[] y = new double[_nNodesX];
         //main part of RHS
         for (int ii = 1; ii < _nNodesX - 1; ii++) { //tri-diagonal form
           y[ii] = (1 - (1 - _theta) * dt * cDag[ii - 1]) * h[ii] - (1 - _theta) * dt * (lDag[ii - 1] * h[ii - 1] + +uDag[ii - 1] * h[ii + 1]);
@@ -188,9 +303,6 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
         y[_nNodesX - 1] = _upper.getConstant(_coeff, t);
 
         //put the LHS of system in tri-diagonal form
-        final double[] d = new double[_nNodesX]; //main diag
-        final double[] u = new double[_nNodesX - 1]; //upper
-        final double[] l = new double[_nNodesX - 1]; //lower
         //lower boundary conditions
         topRow = _lower.getLeftMatrixCondition(_coeff, _grid, t);
         final int p2 = topRow.length;
@@ -199,6 +311,8 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
           u[0] = topRow[1];
           //Review do we need this?
           ArgumentChecker.isFalse(p2 > 2, "Boundary condition means that system is not tri-diagonal");
+        } else {
+          u[0] = 0.0;
         }
         bottomRow = _upper.getLeftMatrixCondition(_coeff, _grid, t);
         final int q2 = bottomRow.length;
@@ -206,6 +320,8 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
         if (q2 > 1) {
           l[_nNodesX - 2] = bottomRow[q2 - 2];
           ArgumentChecker.isFalse(q2 > 2, "Boundary condition means that system is not tri-diagonal");
+        } else {
+          l[_nNodesX - 2] = 0.0;
         }
 
         for (int ii = 0; ii < _nNodesX - 2; ii++) { //tri-diagonal form
@@ -226,28 +342,30 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
           u[ii] = _theta * dt * uDag[ii - 1];
           l[ii - 1] = _theta * dt * lDag[ii - 1];
         }
-        final TridiagonalMatrix lhs = new TridiagonalMatrix(d, u, l);
 
-        //solve the system (update h)
+        //solve the system (update h). The solution goes in the work array not holding the current h
+        final double[] hNext = _work._h[next];
+        next = 1 - next;
         switch (_mode) {
           case tridiagonal:
-            h = solvTriDag(lhs, y);
+            solvTriDag(d, u, l, y, hNext, _work._dWork, _work._yWork);
             break;
           case luDecomp:
-            h = solveLU(lhs, y);
+            System.arraycopy(solveLU(new TridiagonalMatrix(d, u, l), y), 0, hNext, 0, _nNodesX);
             break;
           case psor:
-            h = solvTriDag(lhs, y);
-            final double[] free = new double[_nNodesX];
+            solvTriDag(d, u, l, y, hNext, _work._dWork, _work._yWork);
+            final double[] free = _work._free;
             for (int ii = 0; ii < _nNodesX; ii++) {
               final double x = _grid.getSpaceNode(ii);
               free[ii] = _freeB.getZValue(t, x);
             }
-            h = solvePSOR(lhs, y, h, free);
+            solvePSOR(d, u, l, y, hNext, free);
             break;
           default:
             throw new NotImplementedException("SolverMode " + _mode.toString() + " not implemented");
         }
+        h = hNext;
 
         if (_showFullResults && full != null) {
           full[jj + 1] = Arrays.copyOf(h, _nNodesX);
@@ -257,7 +375,8 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       if (_showFullResults) {
         res = new PDEFullResults1D(_grid, full);
       } else {
-        res = new PDETerminalResults1D(_grid, h);
+        //the work arrays are reused by the next solve
+        res = new PDETerminalResults1D(_grid, h == _initial ? h : Arrays.copyOf(h, _nNodesX));
       }
       return res;
     }
@@ -268,15 +387,12 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       return res.solve(y);
     }
 
-    private double[] solvePSOR(final TridiagonalMatrix lM, final double[] b, final double[] x, final double[] minVal) {
-
-      final double[] d = lM.getDiagonalData();
-      final double[] u = lM.getUpperSubDiagonalData();
-      final double[] l = lM.getLowerSubDiagonalData();
+    @SuppressWarnings("synthetic-access")
+    private double[] solvePSOR(final double[] d, final double[] u, final double[] l, final double[] b, final double[] x, final double[] minVal) {
 
       final int maxInt = 100000;
       final double omega = 1.0;
-      final double[] invD = new double[_nNodesX];
+      final double[] invD = _work._invD;
       for (int ii = 0; ii < _nNodesX; ii++) {
         if (d[ii] == 0.0) {
           throw new MathException("Cannot solve by PSOR - zero on diagonal");
@@ -376,6 +492,12 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
 
     private final double[] _q;
     private final double[][] _m;
+    // the LHS matrix by its three diagonals, in place of _m when it is solved by the tridiagonal algorithm
+    private final boolean _banded;
+    private final double[] _mDiag;
+    private final double[] _mUpper;
+    private final double[] _mLower;
+    private final Workspace _work;
 
     private final double[] _rho;
     private final double[] _a;
@@ -388,6 +510,13 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     @SuppressWarnings("synthetic-access")
     public SolverImplDeprecated(final ConvectionDiffusionPDE1DStandardCoefficients coeff, final double[] initialCondition, final BoundaryCondition lowerBoundary,
         final BoundaryCondition upperBoundary, final Surface<Double, Double, Double> freeBoundary, final PDEGrid1D grid) {
+      this(coeff, initialCondition, lowerBoundary, upperBoundary, freeBoundary, grid, new Workspace(grid));
+    }
+
+    @SuppressWarnings("synthetic-access")
+    private SolverImplDeprecated(final ConvectionDiffusionPDE1DStandardCoefficients coeff, final double[] initialCondition,
+        final BoundaryCondition lowerBoundary, final BoundaryCondition upperBoundary, final Surface<Double, Double, Double> freeBoundary, final PDEGrid1D grid,
+        final Workspace work) {
       _coefficients = coeff;
       _initialCondition = initialCondition;
       _lowerBoundary = lowerBoundary;
@@ -404,7 +533,21 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       }
 
       _q = new double[xNodes];
-      _m = new double[xNodes][xNodes];
+      _work = work;
+      final double t0 = grid.getTimeNode(0);
+      _banded = _tridiagonalSolver && lowerBoundary.getLeftMatrixCondition(coeff, grid, t0).length <= 2
+          && upperBoundary.getLeftMatrixCondition(coeff, grid, t0).length <= 2;
+      if (_banded) {
+        _m = null;
+        _mDiag = new double[xNodes];
+        _mUpper = new double[xNodes - 1];
+        _mLower = new double[xNodes - 1];
+      } else {
+        _m = new double[xNodes][xNodes];
+        _mDiag = null;
+        _mUpper = null;
+        _mLower = null;
+      }
       _rho = new double[xNodes - 2];
       _a = new double[xNodes - 2];
       _b = new double[xNodes - 2];
@@ -540,7 +683,11 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       //   @SuppressWarnings("unused")
       //NOTE get this working again with dynamic omega
       //final int count = solveBySOR(omega);
-      solveByLU();
+      if (_banded) {
+        solveByTridiagonal();
+      } else {
+        solveByLU();
+      }
       //      if (oldCount > 0) {
       //        if ((omegaIncrease && count > oldCount) || (!omegaIncrease && count < oldCount)) {
       //          omega = Math.max(1.0, omega * 0.9);
@@ -564,6 +711,11 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       }
     }
 
+    @SuppressWarnings({"synthetic-access" })
+    private void solveByTridiagonal() {
+      solvTriDag(_mDiag, _mUpper, _mLower, _q, _f, _work._dWork, _work._yWork);
+    }
+
     @SuppressWarnings("unused")
     private int solveBySOR(final double omega) {
 
@@ -662,10 +814,31 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     }
 
     public double getM(final int i, final int j) {
+      if (_banded) {
+        if (i == j) {
+          return _mDiag[i];
+        } else if (j == i + 1) {
+          return _mUpper[i];
+        } else if (j == i - 1) {
+          return _mLower[j];
+        }
+        return 0.0;
+      }
       return _m[i][j];
     }
 
     public void setM(final int i, final int j, final double value) {
+      if (_banded) {
+        if (i == j) {
+          _mDiag[i] = value;
+        } else if (j == i + 1) {
+          _mUpper[i] = value;
+        } else {
+          ArgumentChecker.isFalse(j != i - 1, "Boundary condition means that system is not tri-diagonal");
+          _mLower[j] = value;
+        }
+        return;
+      }
       _m[i][j] = value;
     }
 
@@ -718,9 +891,11 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
     private final double[] _alpha;
     private final double[] _beta;
 
+    @SuppressWarnings("synthetic-access")
     public ExtendedSolverImpl(final ConvectionDiffusionPDE1DFullCoefficients coeff, final double[] initialCondition,
-        final BoundaryCondition lowerBoundary, final BoundaryCondition upperBoundary, final Surface<Double, Double, Double> freeBoundary, final PDEGrid1D grid) {
-      super(coeff.getStandardCoefficients(), initialCondition, lowerBoundary, upperBoundary, freeBoundary, grid);
+        final BoundaryCondition lowerBoundary, final BoundaryCondition upperBoundary, final Surface<Double, Double, Double> freeBoundary, final PDEGrid1D grid,
+        final Workspace work) {
+      super(coeff.getStandardCoefficients(), initialCondition, lowerBoundary, upperBoundary, freeBoundary, grid, work);
       _coeff = coeff;
       final int xNodes = grid.getNumSpaceNodes();
       _alpha = new double[xNodes];
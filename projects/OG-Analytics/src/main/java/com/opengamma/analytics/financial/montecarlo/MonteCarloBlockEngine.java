@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.random.NormalBlockGenerator;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Runs a Monte Carlo simulation block by block, the blocks on a fork-join pool when one is provided.
+ * <p>
+ * The paths are split in blocks of a fixed size. Each task prices a range of consecutive blocks in one {@link MonteCarloPathBuffer}. The results of the
+ * blocks are kept by block and summed in the order of the blocks once all are priced, so with an indexed generator the result does not depend on the
+ * number of threads. A generator that is not indexed is used on the calling thread, in the order of the paths.
+ */
+public class MonteCarloBlockEngine {
+
+  /**
+   * The number of tasks per thread of the pool, to balance the load when the blocks do not all take the same time.
+   */
+  private static final int TASKS_PER_THREAD = 4;
+
+  /**
+   * The number of paths in one block.
+   */
+  private final int _blockSize;
+  /**
+   * The pool. Null to run on the calling thread.
+   */
+  private final ForkJoinPool _pool;
+
+  /**
+   * Constructor.
+   * @param blockSize The number of paths in one block.
+   * @param pool The pool to run the blocks on, null to run them on the calling thread.
+   */
+  public MonteCarloBlockEngine(final int blockSize, final ForkJoinPool pool) {
+    ArgumentChecker.isTrue(blockSize > 0, "block size should be positive");
+    _blockSize = blockSize;
+    _pool = pool;
+  }
+
+  /**
+   * Runs the simulation.
+   * @param generator The generator of the normal numbers.
+   * @param dimension The number of normal numbers per path.
+   * @param nbPath The number of paths.
+   * @param pricer The pricer of a block.
+   * @return The sums over all the paths of the quantities estimated by the pricer.
+   */
+  public double[] run(final NormalBlockGenerator generator, final int dimension, final int nbPath, final MonteCarloBlockPricer pricer) {
+    Validate.notNull(generator, "generator");
+    Validate.notNull(pricer, "pricer");
+    ArgumentChecker.isTrue(nbPath > 0, "number of paths should be positive");
+    final int nbBlock = (int) Math.round(Math.ceil(nbPath / ((double) _blockSize)));
+    final double[][] blockResults = new double[nbBlock][];
+    if (_pool == null || !generator.isIndexed() || nbBlock == 1) {
+      new BlockTask(generator, dimension, nbPath, pricer, blockResults, 0, nbBlock, nbBlock).compute();
+    } else {
+      final int blocksPerTask = Math.max(1, nbBlock / (_pool.getParallelism() * TASKS_PER_THREAD));
+      _pool.invoke(new BlockTask(generator, dimension, nbPath, pricer, blockResults, 0, nbBlock, blocksPerTask));
+    }
+    final double[] result = new double[blockResults[0].length];
+    for (final double[] block : blockResults) {
+      for (int loopres = 0; loopres < result.length; loopres++) {
+        result[loopres] += block[loopres];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the number of paths in one block.
+   * @return The block size.
+   */
+  public int getBlockSize() {
+    return _blockSize;
+  }
+
+  /**
+   * Prices a range of blocks, splitting it until it has at most the given number of blocks.
+   */
+  private final class BlockTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final NormalBlockGenerator _generator;
+    private final int _dimension;
+    private final int _nbPath;
+    private final MonteCarloBlockPricer _pricer;
+    private final double[][] _blockResults;
+    private final int _fromBlock;
+    private final int _toBlock;
+    private final int _blocksPerTask;
+
+    private BlockTask(final NormalBlockGenerator generator, final int dimension, final int nbPath, final MonteCarloBlockPricer pricer,
+        final double[][] blockResults, final int fromBlock, final int toBlock, final int blocksPerTask) {
+      _generator = generator;
+      _dimension = dimension;
+      _nbPath = nbPath;
+      _pricer = pricer;
+      _blockResults = blockResults;
+      _fromBlock = fromBlock;
+      _toBlock = toBlock;
+      _blocksPerTask = blocksPerTask;
+    }
+
+    @Override
+    protected void compute() {
+      if (_toBlock - _fromBlock <= _blocksPerTask) {
+        final MonteCarloPathBuffer buffer = new MonteCarloPathBuffer(_dimension, _blockSize);
+        for (int loopblock = _fromBlock; loopblock < _toBlock; loopblock++) {
+          final long firstPath = (long) loopblock * _blockSize;
+          buffer.fill(_generator, firstPath, (int) Math.min(_blockSize, _nbPath - firstPath));
+          _blockResults[loopblock] = _pricer.price(buffer);
+        }
+      } else {
+        final int mid = (_fromBlock + _toBlock) >>> 1;
+        invokeAll(new BlockTask(_generator, _dimension, _nbPath, _pricer, _blockResults, _fromBlock, mid, _blocksPerTask),
+            new BlockTask(_generator, _dimension, _nbPath, _pricer, _blockResults, mid, _toBlock, _blocksPerTask));
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,22 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+/**
+ * Prices one block of Monte Carlo paths for a {@link MonteCarloBlockEngine}.
+ * <p>
+ * The engine may call the pricer from several threads at once, each with its own buffer, so implementations should only read shared data.
+ */
+public interface MonteCarloBlockPricer {
+
+  /**
+   * Prices a block.
+   * @param buffer The block, with its normal numbers filled.
+   * @return The sums over the paths of the block of the quantities estimated. The same length for every block.
+   */
+  double[] price(MonteCarloPathBuffer buffer);
+
+}
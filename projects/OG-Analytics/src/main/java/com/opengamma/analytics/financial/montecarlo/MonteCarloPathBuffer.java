@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.analytics.math.random.NormalBlockGenerator;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The arrays of a block of Monte Carlo paths, allocated once and reused for the successive blocks priced by one task.
+ * <p>
+ * The arrays are stored by coordinate (one array per coordinate or per simulated quantity, indexed by path). They have the capacity of a full block; only
+ * the first {@link #getNbPath()} elements of each belong to the current block.
+ */
+public final class MonteCarloPathBuffer {
+
+  /**
+   * The normal numbers of the block. Dimension/path.
+   */
+  private final double[][] _normals;
+  /**
+   * The maximal number of paths in a block.
+   */
+  private final int _capacity;
+  /**
+   * The work arrays, by index.
+   */
+  private final List<double[][]> _workspaces = new ArrayList<>();
+  /**
+   * The index of the first path of the current block.
+   */
+  private long _firstPath;
+  /**
+   * The number of paths of the current block.
+   */
+  private int _nbPath;
+
+  /**
+   * Constructor.
+   * @param dimension The number of normal numbers per path.
+   * @param capacity The maximal number of paths in a block.
+   */
+  public MonteCarloPathBuffer(final int dimension, final int capacity) {
+    ArgumentChecker.notNegative(dimension, "dimension");
+    ArgumentChecker.isTrue(capacity > 0, "capacity should be positive");
+    _normals = new double[dimension][capacity];
+    _capacity = capacity;
+  }
+
+  /**
+   * Fills the normal numbers of a block.
+   * @param generator The generator.
+   * @param firstPath The index of the first path of the block.
+   * @param nbPath The number of paths of the block, at most the capacity.
+   */
+  public void fill(final NormalBlockGenerator generator, final long firstPath, final int nbPath) {
+    ArgumentChecker.isTrue(nbPath <= _capacity, "block of {} paths larger than the capacity {}", nbPath, _capacity);
+    _firstPath = firstPath;
+    _nbPath = nbPath;
+    generator.fill(firstPath, _normals, nbPath);
+  }
+
+  /**
+   * Gets the normal numbers of the current block.
+   * @return The numbers. Dimension/path.
+   */
+  public double[][] getNormals() {
+    return _normals;
+  }
+
+  /**
+   * Gets a work array with the capacity of a block, allocated on the first request and returned again for the following blocks.
+   * The content is that left by the previous block; it is not cleared.
+   * @param index The index of the work array.
+   * @param rows The number of rows, which should be the same for every request with the index.
+   * @return The array. Row/path.
+   */
+  public double[][] getWorkspace(final int index, final int rows) {
+    while (_workspaces.size() <= index) {
+      _workspaces.add(null);
+    }
+    double[][] workspace = _workspaces.get(index);
+    if (workspace == null || workspace.length != rows) {
+      workspace = new double[rows][_capacity];
+      _workspaces.set(index, workspace);
+    }
+    return workspace;
+  }
+
+  /**
+   * Gets the index of the first path of the current block.
+   * @return The index.
+   */
+  public long getFirstPath() {
+    return _firstPath;
+  }
+
+  /**
+   * Gets the number of paths of the current block.
+   * @return The number of paths.
+   */
+  public int getNbPath() {
+    return _nbPath;
+  }
+
+  /**
+   * Gets the maximal number of paths in a block.
+   * @return The capacity.
+   */
+  public int getCapacity() {
+    return _capacity;
+  }
+
+}
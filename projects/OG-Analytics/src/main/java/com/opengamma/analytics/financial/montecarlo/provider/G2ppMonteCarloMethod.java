@@ -5,17 +5,23 @@
  */
 package com.opengamma.analytics.financial.montecarlo.provider;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.model.interestrate.G2ppPiecewiseConstantModel;
 import com.opengamma.analytics.financial.model.interestrate.definition.G2ppPiecewiseConstantParameters;
 import com.opengamma.analytics.financial.montecarlo.DecisionSchedule;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloBlockPricer;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorCalculator;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDataBundle;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloPathBuffer;
 import com.opengamma.analytics.financial.provider.description.interestrate.G2ppProviderInterface;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionCommons;
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionResult;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.random.NormalBlockGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
@@ -59,10 +65,19 @@ public class G2ppMonteCarloMethod extends MonteCarloMethod {
     super(numberGenerator, nbPath);
   }
 
+  /**
+   * @param blockGenerator The generator of the normal numbers of the blocks of paths.
+   * @param nbPath The number of paths.
+   * @param pool The pool on which the blocks are priced, null to price them on the calling thread.
+   */
+  public G2ppMonteCarloMethod(final NormalBlockGenerator blockGenerator, final int nbPath, final ForkJoinPool pool) {
+    super(blockGenerator, nbPath, pool);
+  }
+
   /**
    * Computes the present value in the G2++ two factors model by Monte-Carlo.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
-   * block price is the total price. 
+   * block price is the total price. The blocks are run on the pool of the method, if any.
    * @param instrument The swaption.
    * @param ccy The currency
    * @param g2Data The G2++ data (curves and G2++ parameters).
@@ -119,56 +134,44 @@ public class G2ppMonteCarloMethod extends MonteCarloMethod {
     final CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
     final CholeskyDecompositionResult cdr = cd.evaluate(new DoubleMatrix2D(cov));
     final double[][] covCD = cdr.getL().getData();
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
     final double[][] impactAmount = decision.getImpactAmount();
-    double pv = 0;
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(2 * nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[2 * nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
+    final double[] pvSum = getEngine(BLOCK_SIZE).run(getBlockGenerator(), 2 * nbJump, getNbPath(), new MonteCarloBlockPricer() {
+      @Override
+      public double[] price(final MonteCarloPathBuffer buffer) {
+        final int nbPath = buffer.getNbPath();
+        final double[][] x = buffer.getNormals();
+        final double[][] y = buffer.getWorkspace(0, 2 * nbJump); // jump/path
         for (int i = 0; i < 2 * nbJump; i++) {
+          final double[] yi = y[i];
+          Arrays.fill(yi, 0, nbPath, 0.0);
           for (int j = 0; j < 2 * nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
+            final double c = covCD[i][j];
+            final double[] xj = x[j];
+            for (int looppath = 0; looppath < nbPath; looppath++) {
+              yi[looppath] += xj[looppath] * c;
+            }
           }
         }
+        final Double[][][] pD = pathGeneratorDiscount(pDI, y, nbPath, h, tau2);
+        return new double[] {instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath };
       }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, tau2);
-      pv += instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath2[loopblock];
-    }
+    });
+    double pv = pvSum[0];
     pv *= pDN / getNbPath(); // Multiply by the numeraire.
     return MultipleCurrencyAmount.of(ccy, pv);
   }
 
-  /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
-   * @param nbPath The number of paths.
-   * @return The array of variables.
-   */
-  private double[][] getNormalArray(final int nbJump, final int nbPath) {
-    final double[][] result = new double[nbJump][nbPath];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = getNumberGenerator().getVector(nbPath);
-    }
-    return result;
-  }
-
   /**
    * Construct the discount factors on the simulated paths from the random variables and the model constants.
    * @param initDiscountFactor The initial discount factors. jump/cf
    * @param y The correlated random variables. jump0+jump1/path.
+   * @param nbPath The number of paths.
    * @param h The H parameters. factor/jump/cf
    * @param tau2 The square of total volatilities. jump/cf 
    * @return The discount factor paths (path/jump/cf).
    */
-  private Double[][][] pathGeneratorDiscount(final double[][] initDiscountFactor, final double[][] y, final double[][][] h, final double[][] tau2) {
+  private Double[][][] pathGeneratorDiscount(final double[][] initDiscountFactor, final double[][] y, final int nbPath, final double[][][] h, final double[][] tau2) {
     final int nbJump = y.length / 2;
-    final int nbPath = y[0].length;
     final Double[][][] pD = new Double[nbPath][nbJump][];
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       final int nbCF = h[0][loopjump].length;
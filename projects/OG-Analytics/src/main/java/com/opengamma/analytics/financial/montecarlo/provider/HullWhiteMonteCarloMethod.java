@@ -6,18 +6,22 @@
 package com.opengamma.analytics.financial.montecarlo.provider;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.model.interestrate.HullWhiteOneFactorPiecewiseConstantInterestRateModel;
 import com.opengamma.analytics.financial.model.interestrate.definition.HullWhiteOneFactorPiecewiseConstantParameters;
 import com.opengamma.analytics.financial.montecarlo.DecisionSchedule;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloBlockPricer;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorCalculator;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDataBundle;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDerivativeCalculator;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDerivativeDataBundle;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloPathBuffer;
 import com.opengamma.analytics.financial.provider.description.interestrate.HullWhiteOneFactorProviderInterface;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
@@ -25,6 +29,7 @@ import com.opengamma.analytics.financial.provider.sensitivity.multicurve.Multipl
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionCommons;
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionResult;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.random.NormalBlockGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
@@ -69,10 +74,19 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     super(numberGenerator, nbPath);
   }
 
+  /**
+   * @param blockGenerator The generator of the normal numbers of the blocks of paths.
+   * @param nbPath The number of paths.
+   * @param pool The pool on which the blocks are priced, null to price them on the calling thread.
+   */
+  public HullWhiteMonteCarloMethod(final NormalBlockGenerator blockGenerator, final int nbPath, final ForkJoinPool pool) {
+    super(blockGenerator, nbPath, pool);
+  }
+
   /**
    * Computes the present value in the Hull-White one factor model by Monte-Carlo.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
-   * block price is the total price.
+   * block price is the total price. The blocks are run on the pool of the method, if any.
    * @param instrument The swaption.
    * @param ccy The currency.
    * @param hwData The Hull-White data (curves and Hull-White parameters).
@@ -136,27 +150,17 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
         covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
       }
     }
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
     final double[][] impactAmount = decision.getImpactAmount();
-    double pv = 0;
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
-        }
+    final double[] pvSum = getEngine(BLOCK_SIZE).run(getBlockGenerator(), nbJump, getNbPath(), new MonteCarloBlockPricer() {
+      @Override
+      public double[] price(final MonteCarloPathBuffer buffer) {
+        final int nbPath = buffer.getNbPath();
+        final double[][] y = correlate(buffer.getNormals(), covCD, buffer.getWorkspace(0, nbJump), nbPath);
+        final Double[][][] pD = pathGeneratorDiscount(pDI, y, nbPath, h, h2, gamma);
+        return new double[] {instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath };
       }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
-      pv += instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath2[loopblock];
-    }
+    });
+    double pv = pvSum[0];
     pv *= pDN / getNbPath(); // Multiply by the numeraire.
     return MultipleCurrencyAmount.of(ccy, pv);
   }
@@ -252,17 +256,11 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       pDIBar[loopjump] = new double[impactAmount[loopjump].length];
     }
+    final MonteCarloPathBuffer buffer = new MonteCarloPathBuffer(nbJump, BLOCK_SIZE);
     for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
-        }
-      }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
+      buffer.fill(getBlockGenerator(), (long) loopblock * BLOCK_SIZE, nbPath2[loopblock]);
+      final double[][] y = correlate(buffer.getNormals(), covCD, new double[nbJump][nbPath2[loopblock]], nbPath2[loopblock]); // jump/path
+      final Double[][][] pD = pathGeneratorDiscount(pDI, y, nbPath2[loopblock], h, h2, gamma);
       final MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
       pvBlock[loopblock] = instrument.accept(MCDC, mcdDB) * nbPath2[loopblock];
       pv += pvBlock[loopblock];
@@ -321,31 +319,42 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
   }
 
   /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
+   * Correlates independent normally distributed variables.
+   * @param x The independent variables. jump/path
+   * @param covCD The Cholesky decomposition of their covariance.
+   * @param y The array for the correlated variables, at least nbPath long. jump/path
    * @param nbPath The number of paths.
-   * @return The array of variables.
+   * @return The correlated variables, in y.
    */
-  private double[][] getNormalArray(final int nbJump, final int nbPath) {
-    final double[][] result = new double[nbJump][nbPath];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = getNumberGenerator().getVector(nbPath);
+  private static double[][] correlate(final double[][] x, final double[][] covCD, final double[][] y, final int nbPath) {
+    final int nbJump = y.length;
+    for (int i = 0; i < nbJump; i++) {
+      final double[] yi = y[i];
+      Arrays.fill(yi, 0, nbPath, 0.0);
+      for (int j = 0; j < nbJump; j++) {
+        final double c = covCD[i][j];
+        final double[] xj = x[j];
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          yi[looppath] += xj[looppath] * c;
+        }
+      }
     }
-    return result;
+    return y;
   }
 
   /**
    * Construct the discount factors on the simulated paths from the random variables and the model constants.
    * @param initDiscountFactor The initial discount factors.
    * @param y The correlated random variables. jump/path
+   * @param nbPath The number of paths.
    * @param h The H parameters. jump/cf
    * @param h2 The H^2 parameters.
    * @param gamma The gamma parameters.
    * @return The discount factor paths (path/jump/cf).
    */
-  private Double[][][] pathGeneratorDiscount(final double[][] initDiscountFactor, final double[][] y, final double[][] h, final double[][] h2, final double[] gamma) {
+  private Double[][][] pathGeneratorDiscount(final double[][] initDiscountFactor, final double[][] y, final int nbPath, final double[][] h, final double[][] h2,
+      final double[] gamma) {
     final int nbJump = y.length;
-    final int nbPath = y[0].length;
     final Double[][][] pD = new Double[nbPath][nbJump][];
     double[] h2gamma;
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
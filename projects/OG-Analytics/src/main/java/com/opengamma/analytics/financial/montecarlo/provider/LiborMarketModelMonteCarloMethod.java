@@ -6,16 +6,20 @@
 package com.opengamma.analytics.financial.montecarlo.provider;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.model.interestrate.definition.LiborMarketModelDisplacedDiffusionParameters;
 import com.opengamma.analytics.financial.montecarlo.DecisionSchedule;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloBlockPricer;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloIborRateDataBundle;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloPathBuffer;
 import com.opengamma.analytics.financial.provider.description.interestrate.LiborMarketModelDisplacedDiffusionProvider;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
 import com.opengamma.analytics.math.matrix.CommonsMatrixAlgebra;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
 import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.random.NormalBlockGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
@@ -68,6 +72,18 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
     _maxJump = maxJump;
   }
 
+  /**
+   * Constructor.
+   * @param blockGenerator The generator of the normal numbers of the blocks of paths.
+   * @param nbPath The number of paths.
+   * @param maxJump The maximum length of a jump in the path generation.
+   * @param pool The pool on which the blocks are priced, null to price them on the calling thread.
+   */
+  public LiborMarketModelMonteCarloMethod(final NormalBlockGenerator blockGenerator, final int nbPath, final double maxJump, final ForkJoinPool pool) {
+    super(blockGenerator, nbPath, pool);
+    _maxJump = maxJump;
+  }
+
   public MultipleCurrencyAmount presentValue(final InstrumentDerivative instrument, final Currency ccy, final LiborMarketModelDisplacedDiffusionProvider lmmData) {
     final MulticurveProviderInterface multicurves = lmmData.getMulticurveProvider();
     final LiborMarketModelDisplacedDiffusionParameters parameters = lmmData.getLMMParameters();
@@ -86,24 +102,24 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
       initL[loopper] = (dfL[loopper] / dfL[loopper + 1] - 1.0) / deltaLMM[loopper];
     }
 
-    final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    final int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
+    final double[][] jumpTimes = jumpTimes(decision.getDecisionTime());
+    int nbStep = 0;
+    for (final double[] jumpIn : jumpTimes) {
+      nbStep += jumpIn.length - 1;
     }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
-
-    double price = 0.0;
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] initLPath = new double[nbPeriodLMM][nbPath2[loopblock]];
-      for (int loopper = 0; loopper < nbPeriodLMM; loopper++) {
-        for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-          initLPath[loopper][looppath] = initL[loopper];
+    final double[] priceSum = getEngine(BLOCK_SIZE).run(getBlockGenerator(), nbStep * parameters.getNbFactor(), getNbPath(), new MonteCarloBlockPricer() {
+      @Override
+      public double[] price(final MonteCarloPathBuffer buffer) {
+        final int nbPath = buffer.getNbPath();
+        final double[][] initLPath = new double[nbPeriodLMM][nbPath];
+        for (int loopper = 0; loopper < nbPeriodLMM; loopper++) {
+          Arrays.fill(initLPath[loopper], initL[loopper]);
         }
+        final double[][][] pathIbor = pathgeneratorlibor(jumpTimes, initLPath, parameters, buffer.getNormals());
+        return new double[] {instrument.accept(MCC, new MonteCarloIborRateDataBundle(pathIbor, deltaLMM, decision.getImpactAmount(), impactIndex)) };
       }
-      final double[][][] pathIbor = pathgeneratorlibor(decision.getDecisionTime(), initLPath, parameters);
-      price += instrument.accept(MCC, new MonteCarloIborRateDataBundle(pathIbor, deltaLMM, decision.getImpactAmount(), impactIndex));
-    }
+    });
+    double price = priceSum[0];
     price *= multicurves.getDiscountFactor(ccy, parameters.getIborTime()[parameters.getIborTime().length - 1]) / getNbPath();
     return MultipleCurrencyAmount.of(ccy, price);
   }
@@ -123,9 +139,13 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
    * Create one step in the LMM diffusion. The step is done through several jump times. The diffusion is approximated with a predictor-corrector approach.
    * @param jumpTime The jump times.
    * @param initIbor Rate at the start of the period. Size: nbPeriodLMM x nbPath.
+   * @param lmm The LMM parameters.
+   * @param normals The normal numbers of the paths. Size: dimension x nbPath (at least).
+   * @param offset The index of the normal numbers of the first jump. The jump j uses the numbers offset + j * nbFactor to offset + (j + 1) * nbFactor - 1.
    * @return The Ibor rates at the end of the jump period. Size: nbPeriodLMM x nbPath.
    */
-  private double[][] stepPC(final double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
+  private double[][] stepPC(final double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm, final double[][] normals,
+      final int offset) {
     final double amr = lmm.getMeanReversion();
     final double[] iborTime = lmm.getIborTime();
     final double[] almm = lmm.getDisplacement();
@@ -164,7 +184,7 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
       }
       final DoubleMatrix2D salpha2 = new DoubleMatrix2D(salpha2Array);
       // Random seed
-      final double[][] dw = getNormalArray(nbFactorLMM, nbPath);
+      final double[][] dw = Arrays.copyOfRange(normals, offset + loopjump * nbFactorLMM, offset + (loopjump + 1) * nbFactorLMM);
       // Common figures
       final double[] dr1 = new double[nI];
       for (int loopn = 0; loopn < nI; loopn++) {
@@ -213,57 +233,60 @@ public class LiborMarketModelMonteCarloMethod extends MonteCarloMethod {
   }
 
   /**
-   *
+   * Splits the periods between the mandatory jumps in intermediary jumps no longer than the maximum jump.
    * @param jumpTime The time of the mandatory jumps.
-   * @param initIbor The Ibor rates at the start. nbPeriodLMM x nbPath
-   * @param lmm The LMM parameters.
-   * @return The paths. Size: nbJump x nbPeriodLMM x nbPath
+   * @return For each mandatory jump, the times of its intermediary jumps, starting with the time of the previous jump.
    */
-  private double[][][] pathgeneratorlibor(final double[] jumpTime, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm) {
-    final int nbPeriod = initIbor.length;
-    final int nbPath = initIbor[0].length;
+  private double[][] jumpTimes(final double[] jumpTime) {
     final int nbJump = jumpTime.length;
-    double[][] initTmp = new double[nbPeriod][nbPath];
-    for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
-      System.arraycopy(initIbor[loop1], 0, initTmp[loop1], 0, nbPath);
-    }
     final double[] jumpTimeA = new double[nbJump + 1];
     jumpTimeA[0] = 0;
     System.arraycopy(jumpTime, 0, jumpTimeA, 1, nbJump);
-    final double[][][] result = new double[nbJump][nbPeriod][nbPath];
+    final double[][] result = new double[nbJump][];
     // TODO: add intermediary jump dates if necessary
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       // Intermediary jumps
-      double[] jumpIn;
       if (jumpTimeA[loopjump + 1] - jumpTimeA[loopjump] < _maxJump) {
-        jumpIn = new double[] {jumpTimeA[loopjump], jumpTimeA[loopjump + 1]};
+        result[loopjump] = new double[] {jumpTimeA[loopjump], jumpTimeA[loopjump + 1]};
       } else {
         final double jump = jumpTimeA[loopjump + 1] - jumpTimeA[loopjump];
         final int nbJumpIn = (int) Math.ceil(jump / _maxJump);
-        jumpIn = new double[nbJumpIn + 1];
+        final double[] jumpIn = new double[nbJumpIn + 1];
         jumpIn[0] = jumpTimeA[loopjump];
         for (int loopJumpIn = 1; loopJumpIn <= nbJumpIn; loopJumpIn++) {
           jumpIn[loopJumpIn] = jumpTimeA[loopjump] + loopJumpIn * jump / nbJumpIn;
         }
-      }
-      initTmp = stepPC(jumpIn, initTmp, lmm);
-      for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
-        System.arraycopy(initTmp[loop1], 0, result[loopjump][loop1], 0, nbPath);
+        result[loopjump] = jumpIn;
       }
     }
     return result;
   }
 
   /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
-   * @param nbPath The number of paths.
-   * @return The array of variables.
+   *
+   * @param jumpTimes The times of the intermediary jumps of each mandatory jump, as returned by {@link #jumpTimes}.
+   * @param initIbor The Ibor rates at the start. nbPeriodLMM x nbPath
+   * @param lmm The LMM parameters.
+   * @param normals The normal numbers of the paths, nbFactor per intermediary jump in time order. dimension x nbPath (at least)
+   * @return The paths. Size: nbJump x nbPeriodLMM x nbPath
    */
-  private double[][] getNormalArray(final int nbJump, final int nbPath) {
-    final double[][] result = new double[nbJump][nbPath];
+  private double[][][] pathgeneratorlibor(final double[][] jumpTimes, final double[][] initIbor, final LiborMarketModelDisplacedDiffusionParameters lmm,
+      final double[][] normals) {
+    final int nbPeriod = initIbor.length;
+    final int nbPath = initIbor[0].length;
+    final int nbJump = jumpTimes.length;
+    double[][] initTmp = new double[nbPeriod][nbPath];
+    for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
+      System.arraycopy(initIbor[loop1], 0, initTmp[loop1], 0, nbPath);
+    }
+    final double[][][] result = new double[nbJump][nbPeriod][nbPath];
+    int offset = 0;
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = getNumberGenerator().getVector(nbPath);
+      initTmp = stepPC(jumpTimes[loopjump], initTmp, lmm, normals, offset);
+      offset += (jumpTimes[loopjump].length - 1) * lmm.getNbFactor();
+      for (int loop1 = 0; loop1 < nbPeriod; loop1++) {
+        System.arraycopy(initTmp[loop1], 0, result[loopjump][loop1], 0, nbPath);
+      }
     }
     return result;
   }
@@ -5,10 +5,19 @@
  */
 package com.opengamma.analytics.financial.montecarlo.provider;
 
+import java.util.concurrent.ForkJoinPool;
+
+import com.opengamma.analytics.financial.montecarlo.MonteCarloBlockEngine;
+import com.opengamma.analytics.math.random.NormalBlockGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.analytics.math.random.SequentialNormalBlockGenerator;
 
 /**
  * Generic Monte-Carlo pricing method.
+ * <p>
+ * The paths are generated by blocks from a {@link NormalBlockGenerator}. A method created with a {@link RandomNumberGenerator} draws the numbers in the
+ * order of the paths on the calling thread. A method created with an indexed block generator and a pool prices the blocks concurrently, with results that
+ * do not depend on the number of threads.
  */
 public abstract class MonteCarloMethod {
 
@@ -16,6 +25,14 @@ public abstract class MonteCarloMethod {
    * The random number generator.
    */
   private final RandomNumberGenerator _numberGenerator;
+  /**
+   * The generator of the normal numbers of the blocks of paths.
+   */
+  private final NormalBlockGenerator _blockGenerator;
+  /**
+   * The pool on which the blocks are priced. Null to price them on the calling thread.
+   */
+  private final ForkJoinPool _pool;
   /**
    * The number of paths.
    */
@@ -28,17 +45,57 @@ public abstract class MonteCarloMethod {
    */
   public MonteCarloMethod(RandomNumberGenerator numberGenerator, int nbPath) {
     _numberGenerator = numberGenerator;
+    _blockGenerator = new SequentialNormalBlockGenerator(numberGenerator);
+    _pool = null;
+    _nbPath = nbPath;
+  }
+
+  /**
+   * Constructor.
+   * @param blockGenerator The generator of the normal numbers of the blocks of paths.
+   * @param nbPath The number of paths.
+   * @param pool The pool on which the blocks are priced, null to price them on the calling thread.
+   */
+  public MonteCarloMethod(NormalBlockGenerator blockGenerator, int nbPath, ForkJoinPool pool) {
+    _numberGenerator = null;
+    _blockGenerator = blockGenerator;
+    _pool = pool;
     _nbPath = nbPath;
   }
 
   /**
    * Gets the _numberGenerator field.
-   * @return the _numberGenerator
+   * @return the _numberGenerator, null if the method was created with a block generator
    */
   public RandomNumberGenerator getNumberGenerator() {
     return _numberGenerator;
   }
 
+  /**
+   * Gets the _blockGenerator field.
+   * @return the _blockGenerator
+   */
+  public NormalBlockGenerator getBlockGenerator() {
+    return _blockGenerator;
+  }
+
+  /**
+   * Gets the _pool field.
+   * @return the _pool, null if the blocks are priced on the calling thread
+   */
+  public ForkJoinPool getPool() {
+    return _pool;
+  }
+
+  /**
+   * Creates the engine running the blocks of paths.
+   * @param blockSize The number of paths in one block.
+   * @return The engine.
+   */
+  protected MonteCarloBlockEngine getEngine(final int blockSize) {
+    return new MonteCarloBlockEngine(blockSize, _pool);
+  }
+
   /**
    * Gets the _nbPath field.
    * @return the _nbPath
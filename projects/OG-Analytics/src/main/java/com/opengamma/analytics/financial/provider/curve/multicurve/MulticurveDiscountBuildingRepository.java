@@ -8,12 +8,22 @@ package com.opengamma.analytics.financial.provider.curve.multicurve;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Multimap;
 import com.opengamma.analytics.financial.curve.interestrate.generator.GeneratorYDCurve;
@@ -29,6 +39,7 @@ import com.opengamma.analytics.financial.provider.description.interestrate.Multi
 import com.opengamma.analytics.financial.provider.description.interestrate.ParameterProviderInterface;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.ParameterSensitivityMulticurveUnderlyingMatrixCalculator;
+import com.opengamma.analytics.math.MathException;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.linearalgebra.DecompositionFactory;
 import com.opengamma.analytics.math.matrix.CommonsMatrixAlgebra;
@@ -40,14 +51,23 @@ import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.tuple.ObjectsPair;
 import com.opengamma.util.tuple.Pair;
-import com.opengamma.util.tuple.Pairs;
 
 /**
  * Functions to build curves.
+ * <p>
+ * By default the units of a block are calibrated one after the other on the calling thread. When constructed with a fork-join pool, units which do
+ * not depend on each other's curves are calibrated concurrently and the rows of each Jacobian are computed concurrently; the curves and the
+ * CurveBuildingBlockBundle produced are the same as in the sequential mode. The curves are not modified while they are shared between threads; the
+ * cubic spline and double quadratic interpolator data bundles compute their caches on first use and publish them through volatile fields, so at worst
+ * two threads compute the same cache. When constructed with warm start, each unit's calibration starts from the parameters found for its curves by
+ * the previous calibration with this repository, which takes few iterations when only a few quotes have moved.
  */
 // TODO: REVIEW: Embed in a better object.
 public class MulticurveDiscountBuildingRepository {
 
+  /** The logger */
+  private static final Logger s_logger = LoggerFactory.getLogger(MulticurveDiscountBuildingRepository.class);
+
   /**
    * The absolute tolerance for the root finder.
    */
@@ -68,6 +88,14 @@ public class MulticurveDiscountBuildingRepository {
    * The matrix algebra used for matrix inversion.
    */
   private static final MatrixAlgebra MATRIX_ALGEBRA = new CommonsMatrixAlgebra();
+  /**
+   * The pool used to calibrate independent units and compute the rows of the Jacobians. Null to do everything on the calling thread.
+   */
+  private final ForkJoinPool _pool;
+  /**
+   * The parameters found by the last calibration of each curve, by curve name. Null if calibrations do not start from the previous ones.
+   */
+  private final ConcurrentMap<String, double[]> _previousParameters;
 
   /**
    * Constructor.
@@ -76,12 +104,28 @@ public class MulticurveDiscountBuildingRepository {
    * @param stepMaximum The maximum number of step for the root finder.
    */
   public MulticurveDiscountBuildingRepository(final double toleranceAbs, final double toleranceRel, final int stepMaximum) {
+    this(toleranceAbs, toleranceRel, stepMaximum, null, false);
+  }
+
+  /**
+   * Constructor.
+   * @param toleranceAbs The absolute tolerance for the root finder.
+   * @param toleranceRel The relative tolerance for the root finder.
+   * @param stepMaximum The maximum number of step for the root finder.
+   * @param pool The pool used to calibrate independent units and compute the rows of the Jacobians concurrently, null to use only the calling thread.
+   * @param warmStart True to start the calibration of each curve from the parameters found by the previous calibration of a curve with the same name
+   * and number of parameters, if any. If the root finder fails from there, the unit is calibrated again from the starting point of its bundle.
+   */
+  public MulticurveDiscountBuildingRepository(final double toleranceAbs, final double toleranceRel, final int stepMaximum, final ForkJoinPool pool,
+      final boolean warmStart) {
     _toleranceAbs = toleranceAbs;
     _toleranceRel = toleranceRel;
     _stepMaximum = stepMaximum;
     _rootFinder = new BroydenVectorRootFinder(_toleranceAbs, _toleranceRel, _stepMaximum, DecompositionFactory.getDecomposition(DecompositionFactory.SV_COLT_NAME));
     // TODO: [PLAT-5761] make the root finder flexible.
     // TODO: create a way to select the SensitivityMatrixMulticurve calculator (with underlying curve or not)
+    _pool = pool;
+    _previousParameters = warmStart ? new ConcurrentHashMap<String, double[]>() : null;
   }
 
   /**
@@ -95,9 +139,9 @@ public class MulticurveDiscountBuildingRepository {
    * @param generatorsMap The generators map.
    * @param calculator The calculator of the value on which the calibration is done (usually ParSpreadMarketQuoteCalculator (recommended) or converted present value).
    * @param sensitivityCalculator The parameter sensitivity calculator.
-   * @return The new curves and the calibrated parameters.
+   * @return The calibrated parameters.
    */
-  private MulticurveProviderDiscount makeUnit(final InstrumentDerivative[] instruments, final double[] initGuess, 
+  private double[] makeUnit(final InstrumentDerivative[] instruments, final double[] initGuess, 
       final MulticurveProviderDiscount knownData,
       final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, 
       final LinkedHashMap<String, IndexON[]> forwardONMap,
@@ -107,10 +151,58 @@ public class MulticurveDiscountBuildingRepository {
     final MulticurveDiscountBuildingData data = new MulticurveDiscountBuildingData(instruments, generator);
     final Function1D<DoubleMatrix1D, DoubleMatrix1D> curveCalculator = new MulticurveDiscountFinderFunction(calculator, data);
     final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator = new MulticurveDiscountFinderJacobian(
-        new ParameterSensitivityMulticurveUnderlyingMatrixCalculator(sensitivityCalculator), data);
-    final double[] parameters = _rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess)).getData();
-    final MulticurveProviderDiscount newCurves = data.getGeneratorMarket().evaluate(new DoubleMatrix1D(parameters));
-    return newCurves;
+        new ParameterSensitivityMulticurveUnderlyingMatrixCalculator(sensitivityCalculator), data, _pool);
+    final double[] previousGuess = getPreviousParameters(generatorsMap, initGuess);
+    if (previousGuess != null) {
+      try {
+        return _rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(previousGuess)).getData();
+      } catch (final MathException e) {
+        s_logger.debug("Calibration of {} from the previous parameters failed; starting again from the initial guess", generatorsMap.keySet());
+      }
+    }
+    return _rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess)).getData();
+  }
+
+  /**
+   * Returns the initial guess for a unit with the parameters of the previous calibration substituted for those of each curve calibrated before.
+   * @param generatorsMap The generators map.
+   * @param initGuess The initial parameters guess.
+   * @return The guess, or null if no curve of the unit has previous parameters.
+   */
+  private double[] getPreviousParameters(final LinkedHashMap<String, GeneratorYDCurve> generatorsMap, final double[] initGuess) {
+    if (_previousParameters == null) {
+      return null;
+    }
+    final double[] guess = initGuess.clone();
+    boolean found = false;
+    int start = 0;
+    for (final Map.Entry<String, GeneratorYDCurve> entry : generatorsMap.entrySet()) {
+      final int nbParameters = entry.getValue().getNumberOfParameter();
+      final double[] previous = _previousParameters.get(entry.getKey());
+      if ((previous != null) && (previous.length == nbParameters)) {
+        System.arraycopy(previous, 0, guess, start, nbParameters);
+        found = true;
+      }
+      start += nbParameters;
+    }
+    return found ? guess : null;
+  }
+
+  /**
+   * Keeps the calibrated parameters of each curve of a unit for the next calibration.
+   * @param generatorsMap The generators map.
+   * @param parameters The calibrated parameters.
+   */
+  private void storePreviousParameters(final LinkedHashMap<String, GeneratorYDCurve> generatorsMap, final double[] parameters) {
+    if (_previousParameters == null) {
+      return;
+    }
+    int start = 0;
+    for (final Map.Entry<String, GeneratorYDCurve> entry : generatorsMap.entrySet()) {
+      final int nbParameters = entry.getValue().getNumberOfParameter();
+      _previousParameters.put(entry.getKey(), Arrays.copyOfRange(parameters, start, start + nbParameters));
+      start += nbParameters;
+    }
   }
 
   /**
@@ -163,11 +255,8 @@ public class MulticurveDiscountBuildingRepository {
     }
     // Sensitivity to parameters
     final int nbIns = instruments.length;
-    final double[][] res = new double[nbParametersCurrentTotal][];
-    for (int loopinstrument = 0; loopinstrument < nbIns; loopinstrument++) {
-      res[loopinstrument] = parameterSensitivityCalculator.calculateSensitivity(instruments[loopinstrument], multicurves, allCurveName).getData();
-      // The sensitivity is to all parameters in the order provided by the allCurveName
-    }
+    // The sensitivity is to all parameters in the order provided by the allCurveName
+    final double[][] res = ParameterSensitivityRowsTask.calculate(parameterSensitivityCalculator, instruments, multicurves, allCurveName, _pool);
 
     final int nbParametersAllCurvesTotal = res[0].length;
     // Jacobian direct
@@ -349,14 +438,66 @@ public class MulticurveDiscountBuildingRepository {
     ArgumentChecker.notNull(calculator, "calculator");
     ArgumentChecker.notNull(sensitivityCalculator, "sensitivity calculator");
     final int nbUnits = curveBundles.length;
+    final InstrumentDerivative[][] instrumentsUnits = new InstrumentDerivative[nbUnits][];
+    final double[][] parametersGuessUnits = new double[nbUnits][];
+    final List<LinkedHashMap<String, GeneratorYDCurve>> generatorsUnits = new ArrayList<>(nbUnits);
+    splitUnits(curveBundles, instrumentsUnits, parametersGuessUnits, generatorsUnits);
+    // With a pool all the units are calibrated first; the curves and the inverse Jacobians are then built in order exactly as in the sequential mode
+    final double[][] parametersUnits = (_pool == null) ? null : makeUnitsConcurrently(instrumentsUnits, parametersGuessUnits, generatorsUnits, knownData,
+        discountingMap, forwardIborMap, forwardONMap, calculator, sensitivityCalculator);
     MulticurveProviderDiscount knownSoFarData = knownData.copy();
     final CurveBuildingBlockBundle totalBundle = new CurveBuildingBlockBundle();
     totalBundle.addAll(knownBlockBundle);
+    for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+      final LinkedHashMap<String, GeneratorYDCurve> gen = generatorsUnits.get(iUnits);
+      final double[] parameters = (parametersUnits == null) ? makeUnit(instrumentsUnits[iUnits], parametersGuessUnits[iUnits], knownSoFarData,
+          discountingMap, forwardIborMap, forwardONMap, gen, calculator, sensitivityCalculator) : parametersUnits[iUnits];
+      storePreviousParameters(gen, parameters);
+      knownSoFarData = new GeneratorMulticurveProviderDiscount(knownSoFarData, discountingMap, forwardIborMap, forwardONMap, gen).evaluate(new DoubleMatrix1D(parameters));
+      updateBlockBundle(instrumentsUnits[iUnits], knownSoFarData, curveBundles[iUnits].getNames(), totalBundle, sensitivityCalculator);
+    }
+    return ObjectsPair.of(knownSoFarData, totalBundle);
+  }
 
-    final List<InstrumentDerivative> instrumentsSoFar = new ArrayList<>();
-    final LinkedHashMap<String, GeneratorYDCurve> generatorsSoFar = new LinkedHashMap<>();
-    final LinkedHashMap<String, Pair<Integer, Integer>> unitMap = new LinkedHashMap<>();
-    int startUnit = 0;
+  /**
+   * Finds, for each unit of a block, the earlier units it depends on. With a pool, a unit is calibrated as soon as the units it depends on have been,
+   * concurrently with the units it does not depend on.
+   * @param curveBundles The bundles of curve data used in construction.
+   * @param knownData The known data (fx rates, other curves, model parameters, ...)
+   * @param discountingMap The discounting curves names map.
+   * @param forwardIborMap The forward curves names map.
+   * @param forwardONMap The forward curves names map.
+   * @param sensitivityCalculator The parameter sensitivity calculator.
+   * @return For each unit, the indices of the units it depends on, directly or through other units, in increasing order.
+   */
+  public int[][] getUnitDependencies(final MultiCurveBundle<GeneratorYDCurve>[] curveBundles, final MulticurveProviderDiscount knownData,
+      final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, final LinkedHashMap<String, IndexON[]> forwardONMap,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+    ArgumentChecker.notNull(curveBundles, "curve bundles");
+    ArgumentChecker.notNull(knownData, "known data");
+    ArgumentChecker.notNull(discountingMap, "discounting map");
+    ArgumentChecker.notNull(forwardIborMap, "forward ibor map");
+    ArgumentChecker.notNull(forwardONMap, "forward overnight map");
+    ArgumentChecker.notNull(sensitivityCalculator, "sensitivity calculator");
+    final int nbUnits = curveBundles.length;
+    final InstrumentDerivative[][] instrumentsUnits = new InstrumentDerivative[nbUnits][];
+    final double[][] parametersGuessUnits = new double[nbUnits][];
+    final List<LinkedHashMap<String, GeneratorYDCurve>> generatorsUnits = new ArrayList<>(nbUnits);
+    splitUnits(curveBundles, instrumentsUnits, parametersGuessUnits, generatorsUnits);
+    return getUnitDependencies(instrumentsUnits, parametersGuessUnits, generatorsUnits, knownData, discountingMap, forwardIborMap, forwardONMap,
+        sensitivityCalculator);
+  }
+
+  /**
+   * Gathers the instruments, initial guess and final generators of each unit of a block.
+   * @param curveBundles The bundles of curve data used in construction.
+   * @param instrumentsUnits Filled with the instruments of each unit.
+   * @param parametersGuessUnits Filled with the initial parameters guess of each unit.
+   * @param generatorsUnits Filled with the generators of each unit.
+   */
+  private static void splitUnits(final MultiCurveBundle<GeneratorYDCurve>[] curveBundles, final InstrumentDerivative[][] instrumentsUnits,
+      final double[][] parametersGuessUnits, final List<LinkedHashMap<String, GeneratorYDCurve>> generatorsUnits) {
+    final int nbUnits = curveBundles.length;
     for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
       final MultiCurveBundle<GeneratorYDCurve> curveBundle = curveBundles[iUnits];
       final int nbCurve = curveBundle.size();
@@ -369,7 +510,6 @@ public class MulticurveDiscountBuildingRepository {
         startCurve[iCurve] = nbInsUnit;
         nbIns[iCurve] = singleCurve.size();
         nbInsUnit += nbIns[iCurve];
-        instrumentsSoFar.addAll(Arrays.asList(singleCurve.getDerivatives()));
       }
       final InstrumentDerivative[] instrumentsUnit = new InstrumentDerivative[nbInsUnit];
       final double[] parametersGuess = new double[nbInsUnit];
@@ -381,15 +521,132 @@ public class MulticurveDiscountBuildingRepository {
         final GeneratorYDCurve tmp = singleCurve.getCurveGenerator().finalGenerator(derivatives);
         final String curveName = singleCurve.getCurveName();
         gen.put(curveName, tmp);
-        generatorsSoFar.put(curveName, tmp);
-        unitMap.put(curveName, Pairs.of(startUnit + startCurve[iCurve], nbIns[iCurve]));
       }
-      knownSoFarData = makeUnit(instrumentsUnit, parametersGuess, knownSoFarData,
-          discountingMap, forwardIborMap, forwardONMap, gen, calculator, sensitivityCalculator);
-      updateBlockBundle(instrumentsUnit, knownSoFarData, curveBundle.getNames(), totalBundle, sensitivityCalculator);
-      startUnit = startUnit + nbInsUnit;
+      instrumentsUnits[iUnits] = instrumentsUnit;
+      parametersGuessUnits[iUnits] = parametersGuess;
+      generatorsUnits.add(gen);
     }
-    return ObjectsPair.of(knownSoFarData, totalBundle);
+  }
+
+  /**
+   * Calibrates the units of a block on the pool. A unit is calibrated once the units it depends on have been, with their curves added to the known data.
+   * @param instruments The instruments of each unit.
+   * @param initGuess The initial parameters guess of each unit.
+   * @param generators The generators of each unit.
+   * @param knownData The known data (fx rates, other curves, model parameters, ...)
+   * @param discountingMap The discounting curves names map.
+   * @param forwardIborMap The forward curves names map.
+   * @param forwardONMap The forward curves names map.
+   * @param calculator The calculator of the value on which the calibration is done.
+   * @param sensitivityCalculator The parameter sensitivity calculator.
+   * @return The calibrated parameters of each unit.
+   */
+  private double[][] makeUnitsConcurrently(final InstrumentDerivative[][] instruments, final double[][] initGuess,
+      final List<LinkedHashMap<String, GeneratorYDCurve>> generators, final MulticurveProviderDiscount knownData,
+      final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap,
+      final LinkedHashMap<String, IndexON[]> forwardONMap, final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+    final int nbUnits = instruments.length;
+    final int[][] dependencies = getUnitDependencies(instruments, initGuess, generators, knownData, discountingMap, forwardIborMap, forwardONMap,
+        sensitivityCalculator);
+    final List<RecursiveTask<double[]>> tasks = new ArrayList<>(nbUnits);
+    for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+      final int unit = iUnits;
+      tasks.add(new RecursiveTask<double[]>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected double[] compute() {
+          // A unit only depends on earlier units, so waiting for them can't deadlock
+          MulticurveProviderDiscount unitKnownData = knownData;
+          for (final int dependency : dependencies[unit]) {
+            final double[] parameters = tasks.get(dependency).join();
+            unitKnownData = new GeneratorMulticurveProviderDiscount(unitKnownData, discountingMap, forwardIborMap, forwardONMap, generators.get(dependency))
+                .evaluate(new DoubleMatrix1D(parameters));
+          }
+          return makeUnit(instruments[unit], initGuess[unit], unitKnownData, discountingMap, forwardIborMap, forwardONMap, generators.get(unit),
+              calculator, sensitivityCalculator);
+        }
+      });
+    }
+    _pool.invoke(new RecursiveAction() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void compute() {
+        invokeAll(tasks);
+      }
+    });
+    final double[][] parameters = new double[nbUnits][];
+    for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+      parameters[iUnits] = tasks.get(iUnits).join();
+    }
+    return parameters;
+  }
+
+  /**
+   * Finds the earlier units of a block that each unit depends on, directly or through other units. A unit depends on another if its instruments are
+   * sensitive to, or its curves are built on, a curve of the other unit. The sensitivities are computed with all the curves at their initial guess.
+   * @param instruments The instruments of each unit.
+   * @param initGuess The initial parameters guess of each unit.
+   * @param generators The generators of each unit.
+   * @param knownData The known data (fx rates, other curves, model parameters, ...)
+   * @param discountingMap The discounting curves names map.
+   * @param forwardIborMap The forward curves names map.
+   * @param forwardONMap The forward curves names map.
+   * @param sensitivityCalculator The parameter sensitivity calculator.
+   * @return For each unit, the indices of the units it depends on in increasing order.
+   */
+  private static int[][] getUnitDependencies(final InstrumentDerivative[][] instruments, final double[][] initGuess,
+      final List<LinkedHashMap<String, GeneratorYDCurve>> generators, final MulticurveProviderDiscount knownData,
+      final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap,
+      final LinkedHashMap<String, IndexON[]> forwardONMap, final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+    final int nbUnits = instruments.length;
+    MulticurveProviderDiscount multicurves = knownData;
+    for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+      multicurves = new GeneratorMulticurveProviderDiscount(multicurves, discountingMap, forwardIborMap, forwardONMap, generators.get(iUnits))
+          .evaluate(new DoubleMatrix1D(initGuess[iUnits]));
+    }
+    final Set<String> allNames = multicurves.getAllNames();
+    final boolean[][] dependsOn = new boolean[nbUnits][nbUnits];
+    final int[][] dependencies = new int[nbUnits][];
+    for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
+      final Set<String> curves = new HashSet<>(generators.get(iUnits).keySet());
+      for (final InstrumentDerivative instrument : instruments[iUnits]) {
+        final MulticurveSensitivity sensitivity = instrument.accept(sensitivityCalculator, multicurves);
+        curves.addAll(sensitivity.getYieldDiscountingSensitivities().keySet());
+        curves.addAll(sensitivity.getForwardSensitivities().keySet());
+      }
+      final Set<String> underlyingCurves = new HashSet<>();
+      for (final String name : curves) {
+        if (allNames.contains(name)) {
+          underlyingCurves.addAll(multicurves.getUnderlyingCurvesNames(name));
+        }
+      }
+      curves.addAll(underlyingCurves);
+      int nbDependencies = 0;
+      for (int jUnits = 0; jUnits < iUnits; jUnits++) {
+        if (!Collections.disjoint(curves, generators.get(jUnits).keySet())) {
+          dependsOn[iUnits][jUnits] = true;
+          for (int kUnits = 0; kUnits < jUnits; kUnits++) {
+            dependsOn[iUnits][kUnits] |= dependsOn[jUnits][kUnits];
+          }
+        }
+      }
+      for (int jUnits = 0; jUnits < iUnits; jUnits++) {
+        if (dependsOn[iUnits][jUnits]) {
+          nbDependencies++;
+        }
+      }
+      dependencies[iUnits] = new int[nbDependencies];
+      nbDependencies = 0;
+      for (int jUnits = 0; jUnits < iUnits; jUnits++) {
+        if (dependsOn[iUnits][jUnits]) {
+          dependencies[iUnits][nbDependencies++] = jUnits;
+        }
+      }
+    }
+    return dependencies;
   }
 
 }
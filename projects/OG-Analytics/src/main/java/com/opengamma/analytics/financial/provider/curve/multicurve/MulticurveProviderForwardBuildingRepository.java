@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.lang.ArrayUtils;
 
@@ -60,6 +61,10 @@ public class MulticurveProviderForwardBuildingRepository {
    * The matrix algebra used for matrix inversion.
    */
   private static final MatrixAlgebra MATRIX_ALGEBRA = new CommonsMatrixAlgebra();
+  /**
+   * The pool used to compute the rows of the Jacobians. Null to compute them on the calling thread.
+   */
+  private final ForkJoinPool _pool;
 
   /**
    * Constructor.
@@ -68,11 +73,23 @@ public class MulticurveProviderForwardBuildingRepository {
    * @param stepMaximum The maximum number of step for the root finder.
    */
   public MulticurveProviderForwardBuildingRepository(final double toleranceAbs, final double toleranceRel, final int stepMaximum) {
+    this(toleranceAbs, toleranceRel, stepMaximum, null);
+  }
+
+  /**
+   * Constructor. The units are calibrated one after the other, as the Jacobian of each unit is for all the instruments of the units so far.
+   * @param toleranceAbs The absolute tolerance for the root finder.
+   * @param toleranceRel The relative tolerance for the root finder.
+   * @param stepMaximum The maximum number of step for the root finder.
+   * @param pool The pool used to compute the rows of the Jacobians concurrently, null to compute them on the calling thread.
+   */
+  public MulticurveProviderForwardBuildingRepository(final double toleranceAbs, final double toleranceRel, final int stepMaximum, final ForkJoinPool pool) {
     _toleranceAbs = toleranceAbs;
     _toleranceRel = toleranceRel;
     _stepMaximum = stepMaximum;
     _rootFinder = new BroydenVectorRootFinder(_toleranceAbs, _toleranceRel, _stepMaximum, DecompositionFactory.getDecomposition(DecompositionFactory.SV_COLT_NAME));
     // TODO: make the root finder flexible.
+    _pool = pool;
   }
 
   /**
@@ -96,7 +113,7 @@ public class MulticurveProviderForwardBuildingRepository {
     final MulticurveProviderForwardBuildingData data = new MulticurveProviderForwardBuildingData(instruments, generator);
     final Function1D<DoubleMatrix1D, DoubleMatrix1D> curveCalculator = new MulticurveProviderForwardFinderFunction(calculator, data);
     final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator = new MulticurveProviderForwardFinderJacobian(
-        new ParameterSensitivityMulticurveMatrixCalculator(sensitivityCalculator), data);
+        new ParameterSensitivityMulticurveMatrixCalculator(sensitivityCalculator), data, _pool);
     final double[] parameters = _rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess)).getData();
     final MulticurveProviderForward newCurves = data.getGeneratorMarket().evaluate(new DoubleMatrix1D(parameters));
     return Pairs.of(newCurves, ArrayUtils.toObject(parameters));
@@ -126,7 +143,7 @@ public class MulticurveProviderForwardBuildingRepository {
     final GeneratorMulticurveProviderForward generator = new GeneratorMulticurveProviderForward(knownData, discountingMap, forwardIborMap, forwardONMap, generatorsMap);
     final MulticurveProviderForwardBuildingData data = new MulticurveProviderForwardBuildingData(instruments, generator);
     final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator = new MulticurveProviderForwardFinderJacobian(
-        new ParameterSensitivityMulticurveMatrixCalculator(sensitivityCalculator), data);
+        new ParameterSensitivityMulticurveMatrixCalculator(sensitivityCalculator), data, _pool);
     final DoubleMatrix2D jacobian = jacobianCalculator.evaluate(new DoubleMatrix1D(parameters));
     final DoubleMatrix2D inverseJacobian = MATRIX_ALGEBRA.getInverse(jacobian);
     final double[][] matrixTotal = inverseJacobian.getData();
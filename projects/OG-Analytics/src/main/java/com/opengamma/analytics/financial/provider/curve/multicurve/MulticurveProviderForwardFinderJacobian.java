@@ -6,8 +6,8 @@
 package com.opengamma.analytics.financial.provider.curve.multicurve;
 
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
-import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderForward;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.ParameterSensitivityMulticurveMatrixAbstractCalculator;
 import com.opengamma.analytics.math.function.Function1D;
@@ -27,6 +27,10 @@ public class MulticurveProviderForwardFinderJacobian extends Function1D<DoubleMa
    * The data required for curve building.
    */
   private final MulticurveProviderForwardBuildingData _data;
+  /**
+   * The pool used to compute the rows of the Jacobian. Null to compute them on the calling thread.
+   */
+  private final ForkJoinPool _pool;
 
   /**
    * Constructor.
@@ -35,8 +39,20 @@ public class MulticurveProviderForwardFinderJacobian extends Function1D<DoubleMa
    */
   public MulticurveProviderForwardFinderJacobian(final ParameterSensitivityMulticurveMatrixAbstractCalculator parameterSensitivityCalculator,
       final MulticurveProviderForwardBuildingData data) {
+    this(parameterSensitivityCalculator, data, null);
+  }
+
+  /**
+   * Constructor computing the rows of the Jacobian, one per instrument, concurrently.
+   * @param parameterSensitivityCalculator The instrument parameter sensitivity calculator.
+   * @param data The data required for curve building.
+   * @param pool The pool used to compute the rows of the Jacobian, null to compute them on the calling thread.
+   */
+  public MulticurveProviderForwardFinderJacobian(final ParameterSensitivityMulticurveMatrixAbstractCalculator parameterSensitivityCalculator,
+      final MulticurveProviderForwardBuildingData data, final ForkJoinPool pool) {
     _parameterSensitivityCalculator = parameterSensitivityCalculator;
     _data = data;
+    _pool = pool;
   }
 
   @Override
@@ -45,12 +61,7 @@ public class MulticurveProviderForwardFinderJacobian extends Function1D<DoubleMa
     final MulticurveProviderForward newCurves = _data.getGeneratorMarket().evaluate(x);
     final Set<String> curvesSet = _data.getGeneratorMarket().getCurvesList();
     bundle.setAll(newCurves);
-    final int nbParameters = _data.getNumberOfInstruments();
-    final double[][] res = new double[nbParameters][nbParameters];
-    for (int loopinstrument = 0; loopinstrument < _data.getNumberOfInstruments(); loopinstrument++) {
-      final InstrumentDerivative deriv = _data.getInstrument(loopinstrument);
-      res[loopinstrument] = _parameterSensitivityCalculator.calculateSensitivity(deriv, bundle, curvesSet).getData();
-    }
+    final double[][] res = ParameterSensitivityRowsTask.calculate(_parameterSensitivityCalculator, _data.getInstruments(), bundle, curvesSet, _pool);
     return new DoubleMatrix2D(res);
   }
 
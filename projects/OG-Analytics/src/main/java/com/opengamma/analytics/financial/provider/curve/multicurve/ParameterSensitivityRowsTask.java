@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.curve.multicurve;
+
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.ParameterSensitivityMulticurveMatrixAbstractCalculator;
+
+/**
+ * Computes the parameter sensitivities of a set of instruments, one row of a Jacobian matrix per instrument.
+ * <p>
+ * The rows are independent, so with a pool the instruments are split between its threads. The curves are shared between the threads but not
+ * modified; the only state written is the caches the interpolator data bundles compute on first use, which are safely published.
+ */
+/* package */final class ParameterSensitivityRowsTask extends RecursiveAction {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The number of instruments below which a task computes its rows itself rather than splitting them further.
+   */
+  private static final int THRESHOLD = 4;
+
+  private final ParameterSensitivityMulticurveMatrixAbstractCalculator _calculator;
+  private final InstrumentDerivative[] _instruments;
+  private final MulticurveProviderInterface _multicurves;
+  private final Set<String> _curves;
+  private final double[][] _rows;
+  private final int _from;
+  private final int _to;
+
+  private ParameterSensitivityRowsTask(final ParameterSensitivityMulticurveMatrixAbstractCalculator calculator, final InstrumentDerivative[] instruments,
+      final MulticurveProviderInterface multicurves, final Set<String> curves, final double[][] rows, final int from, final int to) {
+    _calculator = calculator;
+    _instruments = instruments;
+    _multicurves = multicurves;
+    _curves = curves;
+    _rows = rows;
+    _from = from;
+    _to = to;
+  }
+
+  /**
+   * Computes the sensitivities.
+   * @param calculator The parameter sensitivity calculator.
+   * @param instruments The instruments.
+   * @param multicurves The multi-curve provider.
+   * @param curves The curves for which the sensitivity is computed, in the order of the output.
+   * @param pool The pool to compute the rows in, null to compute them on the calling thread.
+   * @return The sensitivities, one row per instrument.
+   */
+  /* package */static double[][] calculate(final ParameterSensitivityMulticurveMatrixAbstractCalculator calculator, final InstrumentDerivative[] instruments,
+      final MulticurveProviderInterface multicurves, final Set<String> curves, final ForkJoinPool pool) {
+    final double[][] rows = new double[instruments.length][];
+    final ParameterSensitivityRowsTask task = new ParameterSensitivityRowsTask(calculator, instruments, multicurves, curves, rows, 0, instruments.length);
+    if ((pool == null) || (instruments.length <= THRESHOLD)) {
+      task.computeRows();
+    } else {
+      pool.invoke(task);
+    }
+    return rows;
+  }
+
+  private void computeRows() {
+    for (int loopinstrument = _from; loopinstrument < _to; loopinstrument++) {
+      _rows[loopinstrument] = _calculator.calculateSensitivity(_instruments[loopinstrument], _multicurves, _curves).getData();
+    }
+  }
+
+  @Override
+  protected void compute() {
+    if (_to - _from <= THRESHOLD) {
+      computeRows();
+    } else {
+      final int mid = (_from + _to) >>> 1;
+      invokeAll(new ParameterSensitivityRowsTask(_calculator, _instruments, _multicurves, _curves, _rows, _from, mid),
+          new ParameterSensitivityRowsTask(_calculator, _instruments, _multicurves, _curves, _rows, mid, _to));
+    }
+  }
+
+}
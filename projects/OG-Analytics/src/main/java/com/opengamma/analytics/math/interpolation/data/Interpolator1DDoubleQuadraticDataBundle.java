@@ -13,12 +13,15 @@ import com.opengamma.analytics.math.function.RealPolynomialFunction1D;
 import com.opengamma.util.ArgumentChecker;
 
 /**
- * 
+ * Data bundle for a double quadratic interpolation.
+ * <p>
+ * The quadratics and their first derivatives are computed when first needed. The computation only reads the data, so a bundle that is not being
+ * modified can be read by several threads: they may compute the same quadratics twice, but the volatile fields publish them safely.
  */
 public class Interpolator1DDoubleQuadraticDataBundle implements Interpolator1DDataBundle, Serializable {
   private final Interpolator1DDataBundle _underlyingData;
-  private RealPolynomialFunction1D[] _quadratics;
-  private RealPolynomialFunction1D[] _quadraticsFirstDerivative;
+  private volatile RealPolynomialFunction1D[] _quadratics;
+  private volatile RealPolynomialFunction1D[] _quadraticsFirstDerivative;
 
   public Interpolator1DDoubleQuadraticDataBundle(final Interpolator1DDataBundle underlyingData) {
     ArgumentChecker.notNull(underlyingData, "underlying data");
@@ -85,10 +88,12 @@ public class Interpolator1DDoubleQuadraticDataBundle implements Interpolator1DDa
   }
 
   public RealPolynomialFunction1D getQuadratic(final int index) {
-    if (_quadratics == null) {
-      _quadratics = getQuadratics();
+    RealPolynomialFunction1D[] quadratics = _quadratics;
+    if (quadratics == null) {
+      quadratics = getQuadratics();
+      _quadratics = quadratics;
     }
-    return _quadratics[index];
+    return quadratics[index];
   }
 
   /**
@@ -96,10 +101,12 @@ public class Interpolator1DDoubleQuadraticDataBundle implements Interpolator1DDa
    * @return First derivative of the quadratic function at the index
    */
   public RealPolynomialFunction1D getQuadraticFirstDerivative(final int index) {
-    if (_quadraticsFirstDerivative == null) {
-      _quadraticsFirstDerivative = getQuadraticsFirstDerivative();
+    RealPolynomialFunction1D[] quadraticsFirstDerivative = _quadraticsFirstDerivative;
+    if (quadraticsFirstDerivative == null) {
+      quadraticsFirstDerivative = getQuadraticsFirstDerivative();
+      _quadraticsFirstDerivative = quadraticsFirstDerivative;
     }
-    return _quadraticsFirstDerivative[index];
+    return quadraticsFirstDerivative[index];
   }
 
   @Override
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+
+/**
+ * OpenGamma implementation of the Cholesky decomposition, working on a row-major {@link FlatDoubleMatrix2D}.
+ * <p>
+ * The factor is computed row by row, each element being a dot product of two contiguous row segments of $\mathbf{L}$. The symmetry and positivity checks
+ * are those of {@link CholeskyDecompositionOpenGamma}.
+ */
+public class CholeskyDecompositionFlat extends Decomposition<CholeskyDecompositionResult> {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public CholeskyDecompositionResult evaluate(final DoubleMatrix2D x) {
+    Validate.notNull(x, "Matrix null");
+    return evaluate(FlatDoubleMatrix2D.of(x));
+  }
+
+  /**
+   * Performs the decomposition of a flat matrix with the default thresholds. The matrix is not modified.
+   * @param x The matrix to decompose, not null
+   * @return The decomposition
+   */
+  public CholeskyDecompositionFlatResult evaluate(final FlatDoubleMatrix2D x) {
+    return evaluate(x, CholeskyDecompositionOpenGamma.DEFAULT_SYMMETRY_THRESHOLD, CholeskyDecompositionOpenGamma.DEFAULT_POSITIVITY_THRESHOLD);
+  }
+
+  /**
+   * Performs the decomposition of a flat matrix with a given symmetry and positivity threshold. The matrix is not modified.
+   * @param matrix The matrix to decompose, not null
+   * @param symmetryThreshold The symmetry threshold
+   * @param positivityThreshold The positivity threshold
+   * @return The decomposition
+   */
+  public CholeskyDecompositionFlatResult evaluate(final FlatDoubleMatrix2D matrix, final double symmetryThreshold, final double positivityThreshold) {
+    Validate.notNull(matrix, "Matrix null");
+    final int n = matrix.getNumberOfRows();
+    Validate.isTrue(n == matrix.getNumberOfColumns(), "Matrix not square");
+    final double[] a = matrix.getData();
+    final double[] l = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      final int iRow = i * n;
+      final int aRow = matrix.index(i, 0);
+      for (int j = 0; j <= i; j++) {
+        final double aij = a[aRow + j];
+        final double aji = matrix.get(j, i);
+        final double maxValue = Math.max(Math.abs(aij), Math.abs(aji));
+        Validate.isTrue(Math.abs(aij - aji) <= maxValue * symmetryThreshold, "Matrix not symmetrical");
+        final int jRow = j * n;
+        double sum = aij;
+        for (int k = 0; k < j; k++) {
+          sum -= l[iRow + k] * l[jRow + k];
+        }
+        if (i == j) {
+          Validate.isTrue(sum > positivityThreshold, "Matrix not positive");
+          l[iRow + i] = Math.sqrt(sum);
+        } else {
+          l[iRow + j] = sum / l[jRow + j];
+        }
+      }
+    }
+    return new CholeskyDecompositionFlatResult(new FlatDoubleMatrix2D(l, n, n));
+  }
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+
+/**
+ * Results of the flat OpenGamma implementation of Cholesky decomposition ({@link CholeskyDecompositionFlat}).
+ */
+public class CholeskyDecompositionFlatResult implements CholeskyDecompositionResult, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final FlatDoubleMatrix2D _l;
+  private final double _determinant;
+
+  /**
+   * @param l The lower triangular factor, not null
+   */
+  public CholeskyDecompositionFlatResult(final FlatDoubleMatrix2D l) {
+    Validate.notNull(l, "l");
+    Validate.isTrue(l.isContiguous(), "l must be contiguous");
+    _l = l;
+    double determinant = 1.0;
+    for (int i = 0; i < l.getNumberOfRows(); i++) {
+      determinant *= l.get(i, i) * l.get(i, i);
+    }
+    _determinant = determinant;
+  }
+
+  /**
+   * Returns the factor $\mathbf{L}$ without copying it.
+   * @return The lower triangular factor, not null
+   */
+  public FlatDoubleMatrix2D getFlatL() {
+    return _l;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getL() {
+    return _l.toDoubleMatrix2D();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getLT() {
+    final int n = _l.getNumberOfRows();
+    final double[][] lT = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j <= i; j++) {
+        lT[j][i] = _l.get(i, j);
+      }
+    }
+    return new DoubleMatrix2D(lT);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getDeterminant() {
+    return _determinant;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix1D solve(final DoubleMatrix1D b) {
+    Validate.notNull(b);
+    return new DoubleMatrix1D(solve(b.getData()));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double[] solve(final double[] b) {
+    Validate.notNull(b);
+    final int n = _l.getNumberOfRows();
+    Validate.isTrue(b.length == n, "b array of incorrect size");
+    final double[] l = _l.getData();
+    final double[] x = b.clone();
+    // L y = b (y stored in x)
+    for (int i = 0; i < n; i++) {
+      final int row = i * n;
+      double sum = x[i];
+      for (int j = 0; j < i; j++) {
+        sum -= l[row + j] * x[j];
+      }
+      x[i] = sum / l[row + i];
+    }
+    // L^T x = y, taking each row of L as a column of L^T
+    for (int i = n - 1; i >= 0; i--) {
+      final int row = i * n;
+      x[i] /= l[row + i];
+      final double xi = x[i];
+      for (int j = 0; j < i; j++) {
+        x[j] -= xi * l[row + j];
+      }
+    }
+    return x;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D solve(final DoubleMatrix2D b) {
+    Validate.notNull(b);
+    return solve(FlatDoubleMatrix2D.of(b)).toDoubleMatrix2D();
+  }
+
+  /**
+   * Solves $\mathbf{A}x = \mathbf{B}$ for a flat matrix $\mathbf{B}$, working on whole rows of the right hand side at a time.
+   * @param b The matrix, not null
+   * @return The matrix x
+   */
+  public FlatDoubleMatrix2D solve(final FlatDoubleMatrix2D b) {
+    Validate.notNull(b);
+    final int n = _l.getNumberOfRows();
+    Validate.isTrue(b.getNumberOfRows() == n, "b array of incorrect size");
+    final int m = b.getNumberOfColumns();
+    final double[] l = _l.getData();
+    final double[] x = b.toFlatArray();
+    // L Y = B (Y stored in x)
+    for (int k = 0; k < n; k++) {
+      final int kRow = k * m;
+      final double diagonal = l[k * n + k];
+      for (int j = 0; j < m; j++) {
+        x[kRow + j] /= diagonal;
+      }
+      for (int i = k + 1; i < n; i++) {
+        final double factor = l[i * n + k];
+        if (factor != 0.0) {
+          final int iRow = i * m;
+          for (int j = 0; j < m; j++) {
+            x[iRow + j] -= factor * x[kRow + j];
+          }
+        }
+      }
+    }
+    // L^T X = Y
+    for (int k = n - 1; k >= 0; k--) {
+      final int kRow = k * m;
+      final double diagonal = l[k * n + k];
+      for (int j = 0; j < m; j++) {
+        x[kRow + j] /= diagonal;
+      }
+      for (int i = 0; i < k; i++) {
+        final double factor = l[k * n + i];
+        if (factor != 0.0) {
+          final int iRow = i * m;
+          for (int j = 0; j < m; j++) {
+            x[iRow + j] -= factor * x[kRow + j];
+          }
+        }
+      }
+    }
+    return new FlatDoubleMatrix2D(x, n, m);
+  }
+
+}
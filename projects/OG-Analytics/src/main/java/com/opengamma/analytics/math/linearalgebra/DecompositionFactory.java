@@ -20,6 +20,10 @@ public final class DecompositionFactory {
   public static final String SV_COLT_NAME = "SV_COLT";
   /** Commons SV decomposition */
   public static final String SV_COMMONS_NAME = "SV_COMMONS";
+  /** OpenGamma flat LU decomposition */
+  public static final String LU_FLAT_NAME = "LU_FLAT";
+  /** OpenGamma flat QR decomposition */
+  public static final String QR_FLAT_NAME = "QR_FLAT";
   /** {@link LUDecompositionCommons} */
   public static final Decomposition<?> LU_COMMONS = new LUDecompositionCommons();
   /** {@link QRDecompositionCommons} */
@@ -28,6 +32,10 @@ public final class DecompositionFactory {
   public static final Decomposition<?> SV_COLT = new SVDecompositionColt();
   /** {@link SVDecompositionCommons} */
   public static final Decomposition<?> SV_COMMONS = new SVDecompositionCommons();
+  /** {@link LUDecompositionFlat} */
+  public static final Decomposition<?> LU_FLAT = new LUDecompositionFlat();
+  /** {@link QRDecompositionFlat} */
+  public static final Decomposition<?> QR_FLAT = new QRDecompositionFlat();
   private static final Map<String, Decomposition<?>> s_staticInstances;
   private static final Map<Class<?>, String> s_instanceNames;
 
@@ -37,11 +45,15 @@ public final class DecompositionFactory {
     s_staticInstances.put(QR_COMMONS_NAME, QR_COMMONS);
     s_staticInstances.put(SV_COLT_NAME, SV_COLT);
     s_staticInstances.put(SV_COMMONS_NAME, SV_COMMONS);
+    s_staticInstances.put(LU_FLAT_NAME, LU_FLAT);
+    s_staticInstances.put(QR_FLAT_NAME, QR_FLAT);
     s_instanceNames = new HashMap<>();
     s_instanceNames.put(LU_COMMONS.getClass(), LU_COMMONS_NAME);
     s_instanceNames.put(QR_COMMONS.getClass(), QR_COMMONS_NAME);
     s_instanceNames.put(SV_COLT.getClass(), SV_COLT_NAME);
     s_instanceNames.put(SV_COMMONS.getClass(), SV_COMMONS_NAME);
+    s_instanceNames.put(LU_FLAT.getClass(), LU_FLAT_NAME);
+    s_instanceNames.put(QR_FLAT.getClass(), QR_FLAT_NAME);
   }
 
   private DecompositionFactory() {
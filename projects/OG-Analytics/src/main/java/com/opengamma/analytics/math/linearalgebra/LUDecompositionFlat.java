@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+
+/**
+ * OpenGamma implementation of LU decomposition with partial pivoting, working on a row-major {@link FlatDoubleMatrix2D}.
+ * <p>
+ * The factors are computed in a single flat array, updating the trailing rows one row at a time so that the inner loop runs along contiguous memory.
+ */
+public class LUDecompositionFlat extends Decomposition<LUDecompositionResult> {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * A pivot smaller than this in absolute value means the matrix is considered singular, as for {@link LUDecompositionCommons}.
+   */
+  public static final double DEFAULT_SINGULARITY_THRESHOLD = 1.0E-11;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public LUDecompositionResult evaluate(final DoubleMatrix2D x) {
+    Validate.notNull(x);
+    return evaluate(FlatDoubleMatrix2D.of(x));
+  }
+
+  /**
+   * Performs the decomposition of a flat matrix. The matrix is not modified.
+   * @param x The matrix to decompose, not null. It must be square
+   * @return The decomposition
+   */
+  public LUDecompositionFlatResult evaluate(final FlatDoubleMatrix2D x) {
+    Validate.notNull(x);
+    final int n = x.getNumberOfRows();
+    Validate.isTrue(n == x.getNumberOfColumns(), "Matrix not square");
+    final double[] lu = x.toFlatArray();
+    final int[] pivot = new int[n];
+    for (int i = 0; i < n; i++) {
+      pivot[i] = i;
+    }
+    boolean even = true;
+    for (int k = 0; k < n; k++) {
+      // Find the largest element in column k on or below the diagonal
+      int max = k;
+      double largest = Math.abs(lu[k * n + k]);
+      for (int i = k + 1; i < n; i++) {
+        final double value = Math.abs(lu[i * n + k]);
+        if (value > largest) {
+          largest = value;
+          max = i;
+        }
+      }
+      Validate.isTrue(largest >= DEFAULT_SINGULARITY_THRESHOLD, "Matrix is singular; could not perform LU decomposition");
+      if (max != k) {
+        for (int j = 0; j < n; j++) {
+          final double tmp = lu[k * n + j];
+          lu[k * n + j] = lu[max * n + j];
+          lu[max * n + j] = tmp;
+        }
+        final int tmp = pivot[k];
+        pivot[k] = pivot[max];
+        pivot[max] = tmp;
+        even = !even;
+      }
+      final double diagonal = lu[k * n + k];
+      final int kRow = k * n;
+      for (int i = k + 1; i < n; i++) {
+        final int iRow = i * n;
+        final double factor = lu[iRow + k] / diagonal;
+        lu[iRow + k] = factor;
+        if (factor != 0.0) {
+          for (int j = k + 1; j < n; j++) {
+            lu[iRow + j] -= factor * lu[kRow + j];
+          }
+        }
+      }
+    }
+    double determinant = even ? 1.0 : -1.0;
+    for (int i = 0; i < n; i++) {
+      determinant *= lu[i * n + i];
+    }
+    return new LUDecompositionFlatResult(new FlatDoubleMatrix2D(lu, n, n), pivot, determinant);
+  }
+
+}
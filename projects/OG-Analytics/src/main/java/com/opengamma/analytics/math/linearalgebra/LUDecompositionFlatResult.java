@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+
+/**
+ * Results of the flat OpenGamma implementation of LU decomposition ({@link LUDecompositionFlat}).
+ * <p>
+ * $\mathbf{L}$ (with an implicit unit diagonal) and $\mathbf{U}$ are held together in one row-major array. The matrix accessors build copies; the solvers
+ * work on the packed factors directly.
+ */
+public class LUDecompositionFlatResult implements LUDecompositionResult, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final FlatDoubleMatrix2D _lu;
+  private final int[] _pivot;
+  private final double _determinant;
+
+  /**
+   * @param lu The packed factors, not null
+   * @param pivot The row permutation, not null
+   * @param determinant The determinant of the decomposed matrix
+   */
+  public LUDecompositionFlatResult(final FlatDoubleMatrix2D lu, final int[] pivot, final double determinant) {
+    Validate.notNull(lu, "lu");
+    Validate.notNull(pivot, "pivot");
+    Validate.isTrue(lu.isContiguous(), "lu must be contiguous");
+    _lu = lu;
+    _pivot = pivot;
+    _determinant = determinant;
+  }
+
+  /**
+   * Returns the packed factors. The strictly lower triangle is $\mathbf{L}$ without its unit diagonal, the rest is $\mathbf{U}$.
+   * @return The packed factors, not null
+   */
+  public FlatDoubleMatrix2D getLU() {
+    return _lu;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getDeterminant() {
+    return _determinant;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getL() {
+    final int n = _pivot.length;
+    final double[][] l = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < i; j++) {
+        l[i][j] = _lu.get(i, j);
+      }
+      l[i][i] = 1.0;
+    }
+    return new DoubleMatrix2D(l);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getU() {
+    final int n = _pivot.length;
+    final double[][] u = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = i; j < n; j++) {
+        u[i][j] = _lu.get(i, j);
+      }
+    }
+    return new DoubleMatrix2D(u);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getP() {
+    final int n = _pivot.length;
+    final double[][] p = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      p[i][_pivot[i]] = 1.0;
+    }
+    return new DoubleMatrix2D(p);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int[] getPivot() {
+    return _pivot.clone();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix1D solve(final DoubleMatrix1D b) {
+    Validate.notNull(b);
+    return new DoubleMatrix1D(solve(b.getData()));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double[] solve(final double[] b) {
+    Validate.notNull(b);
+    final int n = _pivot.length;
+    Validate.isTrue(b.length == n, "b array of incorrect size");
+    final double[] lu = _lu.getData();
+    final double[] x = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = b[_pivot[i]];
+    }
+    // L y = P b (y stored in x)
+    for (int i = 1; i < n; i++) {
+      final int row = i * n;
+      double sum = x[i];
+      for (int j = 0; j < i; j++) {
+        sum -= lu[row + j] * x[j];
+      }
+      x[i] = sum;
+    }
+    // U x = y
+    for (int i = n - 1; i >= 0; i--) {
+      final int row = i * n;
+      double sum = x[i];
+      for (int j = i + 1; j < n; j++) {
+        sum -= lu[row + j] * x[j];
+      }
+      x[i] = sum / lu[row + i];
+    }
+    return x;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D solve(final DoubleMatrix2D b) {
+    Validate.notNull(b);
+    return solve(FlatDoubleMatrix2D.of(b)).toDoubleMatrix2D();
+  }
+
+  /**
+   * Solves $\mathbf{A}x = \mathbf{B}$ for a flat matrix $\mathbf{B}$, working on whole rows of the right hand side at a time.
+   * @param b The matrix, not null
+   * @return The matrix x
+   */
+  public FlatDoubleMatrix2D solve(final FlatDoubleMatrix2D b) {
+    Validate.notNull(b);
+    final int n = _pivot.length;
+    Validate.isTrue(b.getNumberOfRows() == n, "b array of incorrect size");
+    final int m = b.getNumberOfColumns();
+    final double[] lu = _lu.getData();
+    final double[] bData = b.getData();
+    final double[] x = new double[n * m];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(bData, b.index(_pivot[i], 0), x, i * m, m);
+    }
+    // L Y = P B (Y stored in x)
+    for (int k = 0; k < n; k++) {
+      final int kRow = k * m;
+      for (int i = k + 1; i < n; i++) {
+        final double factor = lu[i * n + k];
+        if (factor != 0.0) {
+          final int iRow = i * m;
+          for (int j = 0; j < m; j++) {
+            x[iRow + j] -= factor * x[kRow + j];
+          }
+        }
+      }
+    }
+    // U X = Y
+    for (int k = n - 1; k >= 0; k--) {
+      final int kRow = k * m;
+      final double diagonal = lu[k * n + k];
+      for (int j = 0; j < m; j++) {
+        x[kRow + j] /= diagonal;
+      }
+      for (int i = 0; i < k; i++) {
+        final double factor = lu[i * n + k];
+        if (factor != 0.0) {
+          final int iRow = i * m;
+          for (int j = 0; j < m; j++) {
+            x[iRow + j] -= factor * x[kRow + j];
+          }
+        }
+      }
+    }
+    return new FlatDoubleMatrix2D(x, n, m);
+  }
+
+}
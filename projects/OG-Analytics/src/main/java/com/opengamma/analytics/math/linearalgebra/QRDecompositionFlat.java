@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.OGMatrixAlgebra;
+
+/**
+ * OpenGamma implementation of QR decomposition by Householder reflections, working on a row-major {@link FlatDoubleMatrix2D}.
+ * <p>
+ * As in the Commons implementation, the decomposition works on the transpose of the matrix so that each Householder vector, and each column it is applied
+ * to, is a contiguous row of the working array.
+ */
+public class QRDecompositionFlat extends Decomposition<QRDecompositionResult> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final OGMatrixAlgebra ALGEBRA = new OGMatrixAlgebra();
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public QRDecompositionResult evaluate(final DoubleMatrix2D x) {
+    Validate.notNull(x);
+    return evaluate(FlatDoubleMatrix2D.of(x));
+  }
+
+  /**
+   * Performs the decomposition of a flat matrix. The matrix is not modified.
+   * @param x The matrix to decompose, not null
+   * @return The decomposition
+   */
+  public QRDecompositionFlatResult evaluate(final FlatDoubleMatrix2D x) {
+    Validate.notNull(x);
+    final int m = x.getNumberOfRows();
+    final int n = x.getNumberOfColumns();
+    // n rows of m elements; row j is column j of x
+    final FlatDoubleMatrix2D qrtMatrix = ALGEBRA.getTranspose(x);
+    final double[] qrt = qrtMatrix.getData();
+    final double[] rDiag = new double[Math.min(m, n)];
+    for (int minor = 0; minor < rDiag.length; minor++) {
+      final int minorRow = minor * m;
+      double xNormSqr = 0.0;
+      for (int row = minor; row < m; row++) {
+        final double c = qrt[minorRow + row];
+        xNormSqr += c * c;
+      }
+      final double a = (qrt[minorRow + minor] > 0) ? -Math.sqrt(xNormSqr) : Math.sqrt(xNormSqr);
+      rDiag[minor] = a;
+      if (a != 0.0) {
+        qrt[minorRow + minor] -= a;
+        final double scale = a * qrt[minorRow + minor];
+        for (int col = minor + 1; col < n; col++) {
+          final int colRow = col * m;
+          double alpha = 0.0;
+          for (int row = minor; row < m; row++) {
+            alpha -= qrt[colRow + row] * qrt[minorRow + row];
+          }
+          alpha /= scale;
+          for (int row = minor; row < m; row++) {
+            qrt[colRow + row] -= alpha * qrt[minorRow + row];
+          }
+        }
+      }
+    }
+    return new QRDecompositionFlatResult(qrtMatrix, rDiag);
+  }
+
+}
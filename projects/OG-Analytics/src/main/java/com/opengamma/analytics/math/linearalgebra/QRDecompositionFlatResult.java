@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+
+/**
+ * Results of the flat OpenGamma implementation of QR decomposition ({@link QRDecompositionFlat}).
+ * <p>
+ * The Householder vectors and the strict upper triangle of $\mathbf{R}$ are held together, transposed, in one row-major array. The matrix accessors build
+ * copies; the solvers work on the packed form directly. As with the Commons implementation, a system with more rows than columns is solved in the least
+ * squares sense.
+ */
+public class QRDecompositionFlatResult implements QRDecompositionResult, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final FlatDoubleMatrix2D _qrt;
+  private final double[] _rDiag;
+  private final int _rows;
+  private final int _columns;
+
+  /**
+   * @param qrt The packed, transposed, decomposition, not null
+   * @param rDiag The diagonal of $\mathbf{R}$, not null
+   */
+  public QRDecompositionFlatResult(final FlatDoubleMatrix2D qrt, final double[] rDiag) {
+    Validate.notNull(qrt, "qrt");
+    Validate.notNull(rDiag, "rDiag");
+    Validate.isTrue(qrt.isContiguous(), "qrt must be contiguous");
+    _qrt = qrt;
+    _rDiag = rDiag;
+    _rows = qrt.getNumberOfColumns();
+    _columns = qrt.getNumberOfRows();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getR() {
+    final double[][] r = new double[_rows][_columns];
+    for (int row = 0; row < _rDiag.length; row++) {
+      r[row][row] = _rDiag[row];
+      for (int col = row + 1; col < _columns; col++) {
+        r[row][col] = _qrt.get(col, row);
+      }
+    }
+    return new DoubleMatrix2D(r);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getQ() {
+    final double[][] qt = getQTArray();
+    final double[][] q = new double[_rows][_rows];
+    for (int i = 0; i < _rows; i++) {
+      for (int j = 0; j < _rows; j++) {
+        q[i][j] = qt[j][i];
+      }
+    }
+    return new DoubleMatrix2D(q);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getQT() {
+    return new DoubleMatrix2D(getQTArray());
+  }
+
+  private double[][] getQTArray() {
+    final int m = _rows;
+    final double[] qrt = _qrt.getData();
+    final double[][] qt = new double[m][m];
+    for (int minor = m - 1; minor >= _rDiag.length; minor--) {
+      qt[minor][minor] = 1.0;
+    }
+    for (int minor = _rDiag.length - 1; minor >= 0; minor--) {
+      final int minorRow = minor * m;
+      qt[minor][minor] = 1.0;
+      if (qrt[minorRow + minor] != 0.0) {
+        final double scale = _rDiag[minor] * qrt[minorRow + minor];
+        for (int col = minor; col < m; col++) {
+          final double[] qtCol = qt[col];
+          double alpha = 0.0;
+          for (int row = minor; row < m; row++) {
+            alpha -= qtCol[row] * qrt[minorRow + row];
+          }
+          alpha /= scale;
+          for (int row = minor; row < m; row++) {
+            qtCol[row] -= alpha * qrt[minorRow + row];
+          }
+        }
+      }
+    }
+    return qt;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getH() {
+    final double[][] h = new double[_rows][_columns];
+    for (int i = 0; i < _rows; i++) {
+      for (int j = 0; j < Math.min(i + 1, _columns); j++) {
+        h[i][j] = _qrt.get(j, i) / -_rDiag[j];
+      }
+    }
+    return new DoubleMatrix2D(h);
+  }
+
+  private void checkSolvable() {
+    Validate.isTrue(_rows >= _columns, "Matrix has fewer rows than columns");
+    for (final double diagonal : _rDiag) {
+      Validate.isTrue(diagonal != 0.0, "Matrix is singular");
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix1D solve(final DoubleMatrix1D b) {
+    Validate.notNull(b);
+    return new DoubleMatrix1D(solve(b.getData()));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double[] solve(final double[] b) {
+    Validate.notNull(b);
+    Validate.isTrue(b.length == _rows, "b array of incorrect size");
+    checkSolvable();
+    final int m = _rows;
+    final double[] qrt = _qrt.getData();
+    final double[] y = b.clone();
+    // y = Q^T b
+    for (int minor = 0; minor < _rDiag.length; minor++) {
+      final int minorRow = minor * m;
+      double dotProduct = 0.0;
+      for (int row = minor; row < m; row++) {
+        dotProduct += y[row] * qrt[minorRow + row];
+      }
+      dotProduct /= _rDiag[minor] * qrt[minorRow + minor];
+      for (int row = minor; row < m; row++) {
+        y[row] += dotProduct * qrt[minorRow + row];
+      }
+    }
+    // R x = y
+    final double[] x = new double[_columns];
+    for (int row = _rDiag.length - 1; row >= 0; row--) {
+      y[row] /= _rDiag[row];
+      final double yRow = y[row];
+      final int qrtRow = row * m;
+      x[row] = yRow;
+      for (int i = 0; i < row; i++) {
+        y[i] -= yRow * qrt[qrtRow + i];
+      }
+    }
+    return x;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D solve(final DoubleMatrix2D b) {
+    Validate.notNull(b);
+    return solve(FlatDoubleMatrix2D.of(b)).toDoubleMatrix2D();
+  }
+
+  /**
+   * Solves $\mathbf{A}x = \mathbf{B}$ for a flat matrix $\mathbf{B}$, working on whole rows of the right hand side at a time.
+   * @param b The matrix, not null
+   * @return The matrix x
+   */
+  public FlatDoubleMatrix2D solve(final FlatDoubleMatrix2D b) {
+    Validate.notNull(b);
+    Validate.isTrue(b.getNumberOfRows() == _rows, "b array of incorrect size");
+    checkSolvable();
+    final int m = _rows;
+    final int k = b.getNumberOfColumns();
+    final double[] qrt = _qrt.getData();
+    final double[] y = b.toFlatArray();
+    final double[] w = new double[k];
+    // Y = Q^T B
+    for (int minor = 0; minor < _rDiag.length; minor++) {
+      final int minorRow = minor * m;
+      Arrays.fill(w, 0.0);
+      for (int row = minor; row < m; row++) {
+        final double v = qrt[minorRow + row];
+        final int yRow = row * k;
+        for (int j = 0; j < k; j++) {
+          w[j] += v * y[yRow + j];
+        }
+      }
+      final double scale = _rDiag[minor] * qrt[minorRow + minor];
+      for (int j = 0; j < k; j++) {
+        w[j] /= scale;
+      }
+      for (int row = minor; row < m; row++) {
+        final double v = qrt[minorRow + row];
+        final int yRow = row * k;
+        for (int j = 0; j < k; j++) {
+          y[yRow + j] += w[j] * v;
+        }
+      }
+    }
+    // R X = Y
+    for (int row = _rDiag.length - 1; row >= 0; row--) {
+      final int yRow = row * k;
+      final double diagonal = _rDiag[row];
+      for (int j = 0; j < k; j++) {
+        y[yRow + j] /= diagonal;
+      }
+      final int qrtRow = row * m;
+      for (int i = 0; i < row; i++) {
+        final double factor = qrt[qrtRow + i];
+        final int iRow = i * k;
+        for (int j = 0; j < k; j++) {
+          y[iRow + j] -= factor * y[yRow + j];
+        }
+      }
+    }
+    final double[] x = new double[_columns * k];
+    System.arraycopy(y, 0, x, 0, x.length);
+    return new FlatDoubleMatrix2D(x, _columns, k);
+  }
+
+}
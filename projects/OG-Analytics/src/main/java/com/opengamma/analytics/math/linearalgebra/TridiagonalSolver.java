@@ -5,8 +5,6 @@
  */
 package com.opengamma.analytics.math.linearalgebra;
 
-import java.util.Arrays;
-
 import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
 import com.opengamma.util.ArgumentChecker;
 
@@ -26,28 +24,43 @@ public class TridiagonalSolver {
 
     ArgumentChecker.notNull(aM, "null matrix");
     ArgumentChecker.notNull(b, "null vector");
-    final double[] d = aM.getDiagonal(); //b is modified, so get copy of diagonal
+    final double[] d = aM.getDiagonalData();
     final int n = d.length;
     ArgumentChecker.isTrue(n == b.length, "vector y wrong length for matrix");
-    final double[] y = Arrays.copyOf(b, n);
+    final double[] x = new double[n];
+    solvTriDag(d, aM.getUpperSubDiagonalData(), aM.getLowerSubDiagonalData(), b, x, new double[n], new double[n]);
+    return x;
+  }
 
-    final double[] l = aM.getLowerSubDiagonalData();
-    final double[] u = aM.getUpperSubDiagonalData();
+  /**
+   * Solves the system Ax = y for the unknown vector x, where A is a tridiagonal matrix and y is a vector, without allocating. The elimination is done in work
+   * arrays provided by the caller, so the same arrays can be used for a sequence of systems (e.g. the time steps of a PDE solver). The operations are those of
+   * {@link #solvTriDag(TridiagonalMatrix, double[])}, so the results are identical.
+   * @param d the diagonal of the matrix, length n. Not modified
+   * @param u the upper sub-diagonal, length n-1. Not modified
+   * @param l the lower sub-diagonal, length n-1. Not modified
+   * @param b known vector, length n. Not modified
+   * @param x the array for the solution, length n. It can be the same array as b
+   * @param dWork work array, length at least n
+   * @param yWork work array, length at least n
+   */
+  public static void solvTriDag(final double[] d, final double[] u, final double[] l, final double[] b, final double[] x, final double[] dWork,
+      final double[] yWork) {
+    final int n = d.length;
+    System.arraycopy(d, 0, dWork, 0, n);
+    System.arraycopy(b, 0, yWork, 0, n);
 
-    final double[] x = new double[n];
     for (int i = 1; i < n; i++) {
-      final double m = l[i - 1] / d[i - 1];
-      d[i] = d[i] - m * u[i - 1];
-      y[i] = y[i] - m * y[i - 1];
+      final double m = l[i - 1] / dWork[i - 1];
+      dWork[i] = dWork[i] - m * u[i - 1];
+      yWork[i] = yWork[i] - m * yWork[i - 1];
     }
 
-    x[n - 1] = y[n - 1] / d[n - 1];
+    x[n - 1] = yWork[n - 1] / dWork[n - 1];
 
     for (int i = n - 2; i >= 0; i--) {
-      x[i] = (y[i] - u[i] * x[i + 1]) / d[i];
+      x[i] = (yWork[i] - u[i] * x[i + 1]) / dWork[i];
     }
-
-    return x;
   }
 
   /**
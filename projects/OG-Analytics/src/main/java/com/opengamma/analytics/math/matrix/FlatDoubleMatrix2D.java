@@ -0,0 +1,305 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A 2D matrix of doubles stored in a single row-major array.
+ * <p>
+ * Element $(i, j)$ is held at {@code data[offset + i * rowStride + j]}. A matrix created by {@link #getView} shares the array of the matrix it was taken from,
+ * so a block of a larger matrix (for example one row block of a Jacobian) can be read and written in place. The kernels in {@link OGMatrixAlgebra} and the
+ * flat decompositions in {@code com.opengamma.analytics.math.linearalgebra} work on this storage directly rather than on an array of row arrays.
+ */
+public class FlatDoubleMatrix2D implements Matrix<Double>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final double[] _data;
+  private final int _offset;
+  private final int _rowStride;
+  private final int _rows;
+  private final int _columns;
+
+  /**
+   * Sets up a matrix of zeros.
+   * @param rows Number of rows
+   * @param columns Number of columns
+   */
+  public FlatDoubleMatrix2D(final int rows, final int columns) {
+    Validate.isTrue(rows > 0, "row number cannot be negative or zero");
+    Validate.isTrue(columns > 0, "column number cannot be negative or zero");
+    _data = new double[rows * columns];
+    _offset = 0;
+    _rowStride = columns;
+    _rows = rows;
+    _columns = columns;
+  }
+
+  /**
+   * Wraps an array of elements in row-major order. The array is not copied; changes to it will be seen by the matrix.
+   * @param data The elements, not null. The length must be rows * columns
+   * @param rows Number of rows
+   * @param columns Number of columns
+   */
+  public FlatDoubleMatrix2D(final double[] data, final int rows, final int columns) {
+    Validate.notNull(data, "data");
+    Validate.isTrue(rows > 0, "row number cannot be negative or zero");
+    Validate.isTrue(columns > 0, "column number cannot be negative or zero");
+    ArgumentChecker.isTrue(data.length == rows * columns, "data length {} does not match {} by {}", data.length, rows, columns);
+    _data = data;
+    _offset = 0;
+    _rowStride = columns;
+    _rows = rows;
+    _columns = columns;
+  }
+
+  private FlatDoubleMatrix2D(final double[] data, final int offset, final int rowStride, final int rows, final int columns) {
+    _data = data;
+    _offset = offset;
+    _rowStride = rowStride;
+    _rows = rows;
+    _columns = columns;
+  }
+
+  /**
+   * Creates a matrix holding a copy of the elements of another.
+   * @param matrix The matrix, not null and not empty
+   * @return The matrix
+   */
+  public static FlatDoubleMatrix2D of(final DoubleMatrix2D matrix) {
+    Validate.notNull(matrix, "matrix");
+    return of(matrix.getData());
+  }
+
+  /**
+   * Creates a matrix holding a copy of the elements of an array of rows.
+   * @param data The data, not null and not empty. The data is expected in row-column form.
+   * @return The matrix
+   * @throws IllegalArgumentException If the matrix is not rectangular
+   */
+  public static FlatDoubleMatrix2D of(final double[][] data) {
+    Validate.notNull(data, "data");
+    Validate.isTrue(data.length > 0, "data is empty");
+    final int rows = data.length;
+    final int columns = data[0].length;
+    final double[] flat = new double[rows * columns];
+    for (int i = 0; i < rows; i++) {
+      Validate.isTrue(data[i].length == columns, "Matrix is not rectangular");
+      System.arraycopy(data[i], 0, flat, i * columns, columns);
+    }
+    return new FlatDoubleMatrix2D(flat, rows, columns);
+  }
+
+  /**
+   * Returns a view of a block of this matrix. No elements are copied; changes made through the view are changes to this matrix.
+   * @param firstRow The first row of the block
+   * @param firstColumn The first column of the block
+   * @param rows Number of rows in the block
+   * @param columns Number of columns in the block
+   * @return The view
+   */
+  public FlatDoubleMatrix2D getView(final int firstRow, final int firstColumn, final int rows, final int columns) {
+    ArgumentChecker.isTrue((firstRow >= 0) && (rows > 0) && (firstRow + rows <= _rows), "rows {} to {} out of range", firstRow, firstRow + rows);
+    ArgumentChecker.isTrue((firstColumn >= 0) && (columns > 0) && (firstColumn + columns <= _columns), "columns {} to {} out of range",
+        firstColumn, firstColumn + columns);
+    return new FlatDoubleMatrix2D(_data, index(firstRow, firstColumn), _rowStride, rows, columns);
+  }
+
+  /**
+   * Returns the position of an element in the underlying array.
+   * @param row The row
+   * @param column The column
+   * @return The array index
+   */
+  public int index(final int row, final int column) {
+    return _offset + row * _rowStride + column;
+  }
+
+  /**
+   * Returns an element.
+   * @param row The row
+   * @param column The column
+   * @return The element
+   */
+  public double get(final int row, final int column) {
+    return _data[index(row, column)];
+  }
+
+  /**
+   * Sets an element.
+   * @param row The row
+   * @param column The column
+   * @param value The new value
+   */
+  public void set(final int row, final int column, final double value) {
+    _data[index(row, column)] = value;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getEntry(final int... index) {
+    ArgumentChecker.notNull(index, "indices");
+    ArgumentChecker.isTrue(index[0] < _rows, "x index {} is greater than number of rows {}", index[0], _rows);
+    ArgumentChecker.isTrue(index[1] < _columns, "y index {} is greater than number of columns {}", index[1], _columns);
+    return get(index[0], index[1]);
+  }
+
+  /**
+   * Returns the underlying array. If this is changed so is the matrix. Only the elements addressed by {@link #index} belong to this matrix.
+   * @return The array
+   */
+  public double[] getData() {
+    return _data;
+  }
+
+  /**
+   * @return The position of element (0, 0) in the underlying array
+   */
+  public int getOffset() {
+    return _offset;
+  }
+
+  /**
+   * @return The distance in the underlying array between the first elements of consecutive rows
+   */
+  public int getRowStride() {
+    return _rowStride;
+  }
+
+  /**
+   * @return True if the elements of the matrix are the whole of the underlying array, with no gaps between rows
+   */
+  public boolean isContiguous() {
+    return (_offset == 0) && (_rowStride == _columns) && (_data.length == _rows * _columns);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getNumberOfElements() {
+    return _rows * _columns;
+  }
+
+  /**
+   * @return The number of rows in this matrix
+   */
+  public int getNumberOfRows() {
+    return _rows;
+  }
+
+  /**
+   * @return The number of columns in this matrix
+   */
+  public int getNumberOfColumns() {
+    return _columns;
+  }
+
+  /**
+   * Copies the elements of this matrix into a new, contiguous, array.
+   * @return The elements in row-major order
+   */
+  public double[] toFlatArray() {
+    if (isContiguous()) {
+      return _data.clone();
+    }
+    final double[] res = new double[_rows * _columns];
+    for (int i = 0; i < _rows; i++) {
+      System.arraycopy(_data, index(i, 0), res, i * _columns, _columns);
+    }
+    return res;
+  }
+
+  /**
+   * @return An independent copy of this matrix, not sharing its array
+   */
+  public FlatDoubleMatrix2D copy() {
+    return new FlatDoubleMatrix2D(toFlatArray(), _rows, _columns);
+  }
+
+  /**
+   * Copies the elements of this matrix into an array of rows.
+   * @return The elements
+   */
+  public double[][] toArray() {
+    final double[][] res = new double[_rows][_columns];
+    for (int i = 0; i < _rows; i++) {
+      System.arraycopy(_data, index(i, 0), res[i], 0, _columns);
+    }
+    return res;
+  }
+
+  /**
+   * Copies the elements of this matrix into a {@link DoubleMatrix2D}.
+   * @return The matrix
+   */
+  @SuppressWarnings("deprecation")
+  public DoubleMatrix2D toDoubleMatrix2D() {
+    // The array of rows is not referenced anywhere else, so needn't be copied again
+    return DoubleMatrix2D.noCopy(toArray());
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + _columns;
+    result = prime * result + _rows;
+    final int count = Math.min(10, _rows * _columns);
+    for (int i = 0; i < count; i++) {
+      result = prime * result + Double.valueOf(get(i / _columns, i % _columns)).hashCode();
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    final FlatDoubleMatrix2D other = (FlatDoubleMatrix2D) obj;
+    if (_columns != other._columns) {
+      return false;
+    }
+    if (_rows != other._rows) {
+      return false;
+    }
+    for (int i = 0; i < _rows; i++) {
+      for (int j = 0; j < _columns; j++) {
+        if (Double.doubleToLongBits(get(i, j)) != Double.doubleToLongBits(other.get(i, j))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuffer sb = new StringBuffer();
+    for (int i = 0; i < _rows; i++) {
+      for (int j = 0; j < _columns; j++) {
+        sb.append(get(i, j));
+        sb.append(j == _columns - 1 ? "\n" : "\t");
+      }
+    }
+    return sb.toString();
+  }
+
+}
@@ -5,6 +5,8 @@
  */
 package com.opengamma.analytics.math.matrix;
 
+import java.util.Arrays;
+
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.commons.lang.Validate;
 
@@ -14,9 +16,18 @@ import com.opengamma.util.ArgumentChecker;
 /**
  * An absolutely minimal implementation of matrix algebra - only various multiplications covered. For more advanced
  * stuff (e.g. calculating the inverse) use {@link ColtMatrixAlgebra} or {@link CommonsMatrixAlgebra}
+ * <p>
+ * Multiplication and transposition of {@link FlatDoubleMatrix2D} are cache-blocked and work on the row-major arrays
+ * directly, so are preferable to the {@link DoubleMatrix2D} forms for large matrices.
  */
 public class OGMatrixAlgebra extends MatrixAlgebra {
 
+  /**
+   * The side of the square blocks used by the flat matrix kernels. Three 64 by 64 blocks of doubles fit comfortably in a
+   * typical L2 cache.
+   */
+  private static final int BLOCK_SIZE = 64;
+
   /**
    * {@inheritDoc}
    * @throws NotImplementedException
@@ -215,6 +226,15 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
       throw new IllegalArgumentException("can only handle  DoubleMatrix2D or DoubleMatrix1D by IdentityMatrix, have " +
           m1.getClass() + " and " + m2.getClass());
     }
+    if (m1 instanceof FlatDoubleMatrix2D) {
+      if (m2 instanceof FlatDoubleMatrix2D) {
+        return multiply((FlatDoubleMatrix2D) m1, (FlatDoubleMatrix2D) m2);
+      } else if (m2 instanceof DoubleMatrix1D) {
+        return multiply((FlatDoubleMatrix2D) m1, (DoubleMatrix1D) m2);
+      }
+      throw new IllegalArgumentException("can only handle FlatDoubleMatrix2D by FlatDoubleMatrix2D or DoubleMatrix1D, have " +
+          m1.getClass() + " and " + m2.getClass());
+    }
     if (m1 instanceof TridiagonalMatrix && m2 instanceof DoubleMatrix1D) {
       return multiply((TridiagonalMatrix) m1, (DoubleMatrix1D) m2);
     } else if (m1 instanceof DoubleMatrix1D && m2 instanceof TridiagonalMatrix) {
@@ -240,6 +260,143 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
     throw new NotImplementedException();
   }
 
+  /**
+   * Returns the transpose of a flat matrix, copying it block by block so that both the reads and writes stay within the cache.
+   * @param m The matrix, not null
+   * @return The transpose
+   */
+  public FlatDoubleMatrix2D getTranspose(final FlatDoubleMatrix2D m) {
+    Validate.notNull(m, "m");
+    final int rows = m.getNumberOfRows();
+    final int cols = m.getNumberOfColumns();
+    final double[] data = m.getData();
+    final double[] res = new double[rows * cols];
+    for (int i0 = 0; i0 < rows; i0 += BLOCK_SIZE) {
+      final int i1 = Math.min(i0 + BLOCK_SIZE, rows);
+      for (int j0 = 0; j0 < cols; j0 += BLOCK_SIZE) {
+        final int j1 = Math.min(j0 + BLOCK_SIZE, cols);
+        for (int i = i0; i < i1; i++) {
+          final int row = m.index(i, 0);
+          for (int j = j0; j < j1; j++) {
+            res[j * rows + i] = data[row + j];
+          }
+        }
+      }
+    }
+    return new FlatDoubleMatrix2D(res, cols, rows);
+  }
+
+  /**
+   * Multiplies two flat matrices, returning $\mathbf{C} = \mathbf{AB}$.
+   * @param m1 The first matrix, not null
+   * @param m2 The second matrix, not null
+   * @return The product
+   */
+  public FlatDoubleMatrix2D multiply(final FlatDoubleMatrix2D m1, final FlatDoubleMatrix2D m2) {
+    Validate.notNull(m1, "m1");
+    Validate.notNull(m2, "m2");
+    final FlatDoubleMatrix2D res = new FlatDoubleMatrix2D(m1.getNumberOfRows(), m2.getNumberOfColumns());
+    multiply(m1, m2, res);
+    return res;
+  }
+
+  /**
+   * Multiplies two flat matrices, writing $\mathbf{C} = \mathbf{AB}$ into an existing matrix or view. The product is
+   * accumulated one block at a time, with the inner loop running along rows of $\mathbf{B}$ and $\mathbf{C}$.
+   * @param m1 The first matrix, not null
+   * @param m2 The second matrix, not null
+   * @param result The matrix to write the product to, not null. This must not share storage with either of the others
+   */
+  public void multiply(final FlatDoubleMatrix2D m1, final FlatDoubleMatrix2D m2, final FlatDoubleMatrix2D result) {
+    Validate.notNull(m1, "m1");
+    Validate.notNull(m2, "m2");
+    Validate.notNull(result, "result");
+    final int m = m1.getNumberOfRows();
+    final int p = m1.getNumberOfColumns();
+    final int n = m2.getNumberOfColumns();
+    Validate.isTrue(
+        m2.getNumberOfRows() == p,
+        "Matrix size mismatch. m1 is " + m + " by " + p + ", but m2 is " + m2.getNumberOfRows() + " by " + n);
+    Validate.isTrue(result.getNumberOfRows() == m && result.getNumberOfColumns() == n, "Result matrix size mismatch");
+    Validate.isTrue(result.getData() != m1.getData() && result.getData() != m2.getData(), "Result must not share storage with m1 or m2");
+    final double[] a = m1.getData();
+    final double[] b = m2.getData();
+    final double[] c = result.getData();
+    for (int i = 0; i < m; i++) {
+      final int row = result.index(i, 0);
+      Arrays.fill(c, row, row + n, 0.0);
+    }
+    for (int i0 = 0; i0 < m; i0 += BLOCK_SIZE) {
+      final int i1 = Math.min(i0 + BLOCK_SIZE, m);
+      for (int k0 = 0; k0 < p; k0 += BLOCK_SIZE) {
+        final int k1 = Math.min(k0 + BLOCK_SIZE, p);
+        for (int j0 = 0; j0 < n; j0 += BLOCK_SIZE) {
+          final int j1 = Math.min(j0 + BLOCK_SIZE, n);
+          for (int i = i0; i < i1; i++) {
+            final int aRow = m1.index(i, 0);
+            final int cRow = result.index(i, 0);
+            for (int k = k0; k < k1; k++) {
+              final double aik = a[aRow + k];
+              final int bRow = m2.index(k, 0);
+              for (int j = j0; j < j1; j++) {
+                c[cRow + j] += aik * b[bRow + j];
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Multiplies a flat matrix by a vector, returning $\mathbf{A}b$. Four rows are taken at a time so that each element of
+   * the vector is loaded once for all four.
+   * @param matrix The matrix, not null
+   * @param vector The vector, not null
+   * @return The product
+   */
+  public DoubleMatrix1D multiply(final FlatDoubleMatrix2D matrix, final DoubleMatrix1D vector) {
+    Validate.notNull(matrix, "matrix");
+    Validate.notNull(vector, "vector");
+    final double[] a = matrix.getData();
+    final double[] b = vector.getData();
+    final int n = b.length;
+    Validate.isTrue(matrix.getNumberOfColumns() == n, "Matrix/vector size mismatch");
+    final int m = matrix.getNumberOfRows();
+    final double[] res = new double[m];
+    int i = 0;
+    for (; i + 3 < m; i += 4) {
+      final int r0 = matrix.index(i, 0);
+      final int r1 = matrix.index(i + 1, 0);
+      final int r2 = matrix.index(i + 2, 0);
+      final int r3 = matrix.index(i + 3, 0);
+      double s0 = 0.0;
+      double s1 = 0.0;
+      double s2 = 0.0;
+      double s3 = 0.0;
+      for (int j = 0; j < n; j++) {
+        final double bj = b[j];
+        s0 += a[r0 + j] * bj;
+        s1 += a[r1 + j] * bj;
+        s2 += a[r2 + j] * bj;
+        s3 += a[r3 + j] * bj;
+      }
+      res[i] = s0;
+      res[i + 1] = s1;
+      res[i + 2] = s2;
+      res[i + 3] = s3;
+    }
+    for (; i < m; i++) {
+      final int row = matrix.index(i, 0);
+      double sum = 0.0;
+      for (int j = 0; j < n; j++) {
+        sum += a[row + j] * b[j];
+      }
+      res[i] = sum;
+    }
+    return new DoubleMatrix1D(res);
+  }
+
   private DoubleMatrix2D multiply(final IdentityMatrix idet, final DoubleMatrix2D m) {
     ArgumentChecker.isTrue(idet.getSize() == m.getNumberOfRows(),
         "size of identity matrix ({}) does not match number or rows of m ({})", idet.getSize(), m.getNumberOfRows());
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Brownian bridge construction of a Brownian motion on a time grid from independent standard normal numbers.
+ * <p>
+ * The first number gives the value at the last time, the second the value at the middle time conditional on the first, and so on by bisection. The
+ * construction is returned as the normalised increments (W(t_i) - W(t_{i-1})) / sqrt(t_i - t_{i-1}), which are again independent standard normals, so it
+ * can be put in front of any path generation that takes the increments in time order. With quasi-random numbers it concentrates the variance of the paths
+ * on the first, best distributed, coordinates.
+ */
+public class BrownianBridge {
+
+  /**
+   * The times.
+   */
+  private final double[] _times;
+  /**
+   * The square roots of the time steps.
+   */
+  private final double[] _sqrtStep;
+  /**
+   * The time index set by each step of the construction.
+   */
+  private final int[] _bridgeIndex;
+  /**
+   * The index after the time of the left point of each step (0 for the origin).
+   */
+  private final int[] _leftIndex;
+  /**
+   * The time index of the right point of each step.
+   */
+  private final int[] _rightIndex;
+  private final double[] _leftWeight;
+  private final double[] _rightWeight;
+  private final double[] _stdDev;
+
+  /**
+   * Constructor.
+   * @param times The times of the grid, positive and increasing. The motion starts at 0 at time 0.
+   */
+  public BrownianBridge(final double[] times) {
+    Validate.notNull(times, "times");
+    final int n = times.length;
+    ArgumentChecker.isTrue(n > 0, "at least one time required");
+    _times = times.clone();
+    _sqrtStep = new double[n];
+    for (int loopt = 0; loopt < n; loopt++) {
+      final double step = times[loopt] - (loopt == 0 ? 0.0 : times[loopt - 1]);
+      ArgumentChecker.isTrue(step > 0, "times should be positive and increasing");
+      _sqrtStep[loopt] = Math.sqrt(step);
+    }
+    _bridgeIndex = new int[n];
+    _leftIndex = new int[n];
+    _rightIndex = new int[n];
+    _leftWeight = new double[n];
+    _rightWeight = new double[n];
+    _stdDev = new double[n];
+    final boolean[] set = new boolean[n];
+    set[n - 1] = true;
+    _bridgeIndex[0] = n - 1;
+    _stdDev[0] = Math.sqrt(times[n - 1]);
+    int j = 0;
+    for (int loopstep = 1; loopstep < n; loopstep++) {
+      // The first unset time, the next set one and the time in the middle
+      while (set[j]) {
+        j++;
+      }
+      int k = j;
+      while (!set[k]) {
+        k++;
+      }
+      final int l = j + ((k - 1 - j) >> 1);
+      set[l] = true;
+      _bridgeIndex[loopstep] = l;
+      _leftIndex[loopstep] = j;
+      _rightIndex[loopstep] = k;
+      final double tLeft = j == 0 ? 0.0 : times[j - 1];
+      _leftWeight[loopstep] = (times[k] - times[l]) / (times[k] - tLeft);
+      _rightWeight[loopstep] = (times[l] - tLeft) / (times[k] - tLeft);
+      _stdDev[loopstep] = Math.sqrt((times[l] - tLeft) * (times[k] - times[l]) / (times[k] - tLeft));
+      j = k + 1;
+      if (j >= n) {
+        j = 0;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of times.
+   * @return The number of times.
+   */
+  public int getNbTimes() {
+    return _times.length;
+  }
+
+  /**
+   * Gets the times.
+   * @return The times.
+   */
+  public double[] getTimes() {
+    return _times;
+  }
+
+  /**
+   * Transforms a block of normal vectors into the normalised increments of the Brownian paths they construct.
+   * @param normals The normal numbers, in the order of the construction: normals[i][p] for path p. At least getNbTimes() arrays.
+   * @param increments The normalised increments, in time order: increments[i][p]. At least getNbTimes() arrays, distinct from those of normals.
+   * @param nbPath The number of paths.
+   */
+  public void transform(final double[][] normals, final double[][] increments, final int nbPath) {
+    final int n = _times.length;
+    // The motion is built in the increments arrays, then differenced in place
+    final double[] last = increments[n - 1];
+    final double[] first = normals[0];
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      last[looppath] = _stdDev[0] * first[looppath];
+    }
+    for (int loopstep = 1; loopstep < n; loopstep++) {
+      final double[] w = increments[_bridgeIndex[loopstep]];
+      final double[] right = increments[_rightIndex[loopstep]];
+      final double[] z = normals[loopstep];
+      final double rightWeight = _rightWeight[loopstep];
+      final double stdDev = _stdDev[loopstep];
+      if (_leftIndex[loopstep] == 0) {
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          w[looppath] = rightWeight * right[looppath] + stdDev * z[looppath];
+        }
+      } else {
+        final double[] left = increments[_leftIndex[loopstep] - 1];
+        final double leftWeight = _leftWeight[loopstep];
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          w[looppath] = leftWeight * left[looppath] + rightWeight * right[looppath] + stdDev * z[looppath];
+        }
+      }
+    }
+    for (int loopt = n - 1; loopt > 0; loopt--) {
+      final double[] w = increments[loopt];
+      final double[] previous = increments[loopt - 1];
+      final double sqrtStep = _sqrtStep[loopt];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        w[looppath] = (w[looppath] - previous[looppath]) / sqrtStep;
+      }
+    }
+    final double[] w0 = increments[0];
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      w0[looppath] /= _sqrtStep[0];
+    }
+  }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Reorders the vectors of another generator by a {@link BrownianBridge} on an equally spaced grid.
+ * <p>
+ * The coordinates of a path are read as the normalised increments of nbFactor independent Brownian motions, step by step: coordinate s * nbFactor + f is
+ * the increment of factor f over step s, the layout used by the Hull-White and LMM Monte Carlo methods. The first nbFactor coordinates of the underlying
+ * generator give the values at the last step, the next ones the values at the middle step, and so on. The number of steps is the dimension divided by the
+ * number of factors.
+ */
+public class BrownianBridgeNormalBlockGenerator implements NormalBlockGenerator {
+
+  /**
+   * The generator of the normal numbers fed into the bridge.
+   */
+  private final NormalBlockGenerator _underlying;
+  /**
+   * The number of factors.
+   */
+  private final int _nbFactor;
+  /**
+   * The bridges, by number of steps.
+   */
+  private final ConcurrentMap<Integer, BrownianBridge> _bridges = new ConcurrentHashMap<>();
+  /**
+   * The buffer of the underlying numbers of each thread, reused between blocks.
+   */
+  private final ThreadLocal<double[][]> _buffer = new ThreadLocal<>();
+
+  /**
+   * Constructor.
+   * @param underlying The generator of the normal numbers fed into the bridge.
+   * @param nbFactor The number of factors.
+   */
+  public BrownianBridgeNormalBlockGenerator(final NormalBlockGenerator underlying, final int nbFactor) {
+    Validate.notNull(underlying, "underlying");
+    ArgumentChecker.isTrue(nbFactor > 0, "number of factors should be positive");
+    _underlying = underlying;
+    _nbFactor = nbFactor;
+  }
+
+  @Override
+  public void fill(final long firstPath, final double[][] result, final int nbPath) {
+    Validate.notNull(result, "result");
+    final int dimension = result.length;
+    ArgumentChecker.isTrue(dimension % _nbFactor == 0, "dimension {} is not a multiple of the number of factors {}", dimension, _nbFactor);
+    final int nbStep = dimension / _nbFactor;
+    if (nbStep == 0) {
+      return;
+    }
+    final double[][] normals = getBuffer(dimension, nbPath);
+    _underlying.fill(firstPath, normals, nbPath);
+    final BrownianBridge bridge = getBridge(nbStep);
+    final double[][] factorNormals = new double[nbStep][];
+    final double[][] factorIncrements = new double[nbStep][];
+    for (int loopfact = 0; loopfact < _nbFactor; loopfact++) {
+      for (int loopstep = 0; loopstep < nbStep; loopstep++) {
+        factorNormals[loopstep] = normals[loopstep * _nbFactor + loopfact];
+        factorIncrements[loopstep] = result[loopstep * _nbFactor + loopfact];
+      }
+      bridge.transform(factorNormals, factorIncrements, nbPath);
+    }
+  }
+
+  @Override
+  public boolean isIndexed() {
+    return _underlying.isIndexed();
+  }
+
+  private double[][] getBuffer(final int dimension, final int nbPath) {
+    double[][] buffer = _buffer.get();
+    if (buffer == null || buffer.length != dimension || buffer[0].length < nbPath) {
+      buffer = new double[dimension][nbPath];
+      _buffer.set(buffer);
+    }
+    return buffer;
+  }
+
+  private BrownianBridge getBridge(final int nbStep) {
+    BrownianBridge bridge = _bridges.get(nbStep);
+    if (bridge == null) {
+      final double[] times = new double[nbStep];
+      for (int loopstep = 0; loopstep < nbStep; loopstep++) {
+        times[loopstep] = loopstep + 1;
+      }
+      bridge = new BrownianBridge(times);
+      _bridges.putIfAbsent(nbStep, bridge);
+    }
+    return bridge;
+  }
+
+}
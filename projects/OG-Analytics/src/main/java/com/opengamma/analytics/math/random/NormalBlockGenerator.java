@@ -0,0 +1,30 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+/**
+ * Generates standard normal vectors for blocks of Monte Carlo paths.
+ * <p>
+ * A block is stored by coordinate: one array per coordinate, indexed by path, so that the path generation loops run over contiguous arrays.
+ */
+public interface NormalBlockGenerator {
+
+  /**
+   * Fills a block of paths.
+   * @param firstPath The index of the first path of the block, from zero.
+   * @param result The array to fill: result[i][p] is the coordinate i of the path firstPath + p. The dimension is result.length.
+   * @param nbPath The number of paths to fill. The arrays of result may be longer.
+   */
+  void fill(long firstPath, double[][] result, int nbPath);
+
+  /**
+   * Returns true if the vector of a path depends only on its index. The blocks can then be generated concurrently and in any order, with the same result.
+   * Otherwise the blocks must be filled one after the other, in the order of the paths.
+   * @return True if the vectors depend only on the path index.
+   */
+  boolean isIndexed();
+
+}
@@ -37,10 +37,21 @@ public class NormalRandomNumberGenerator implements RandomNumberGenerator {
   public double[] getVector(final int dimension) {
     ArgumentChecker.notNegative(dimension, "dimension");
     final double[] result = new double[dimension];
-    for (int i = 0; i < dimension; i++) {
+    fill(result, 0, dimension);
+    return result;
+  }
+
+  /**
+   * Fills part of an array with random numbers. The numbers are those that would be returned by {@link #getVector} for the same state of the engine.
+   * @param result The array to fill, not null
+   * @param from The first index to fill
+   * @param to The index after the last one to fill
+   */
+  public void fill(final double[] result, final int from, final int to) {
+    Validate.notNull(result, "result");
+    for (int i = from; i < to; i++) {
       result[i] = _normal.nextRandom();
     }
-    return result;
   }
 
   @Override
@@ -52,12 +63,9 @@ public class NormalRandomNumberGenerator implements RandomNumberGenerator {
       throw new IllegalArgumentException("Number of values must be greater than zero");
     }
     final List<double[]> result = new ArrayList<>(n);
-    double[] x;
     for (int i = 0; i < n; i++) {
-      x = new double[dimension];
-      for (int j = 0; j < dimension; j++) {
-        x[j] = _normal.nextRandom();
-      }
+      final double[] x = new double[dimension];
+      fill(x, 0, dimension);
       result.add(x);
     }
     return result;
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Generates pseudo-random standard normal vectors, the vector of each path from its own stream split from a seeded {@link SplittableRandomStream}.
+ * The paths are the same whatever the block size, the number of threads or the order of generation.
+ */
+public class PseudoRandomNormalBlockGenerator implements NormalBlockGenerator {
+
+  /**
+   * The stream from which the stream of each path is split. It is not used directly, so its state never changes.
+   */
+  private final SplittableRandomStream _root;
+
+  /**
+   * Constructor.
+   * @param seed The seed.
+   */
+  public PseudoRandomNormalBlockGenerator(final long seed) {
+    _root = new SplittableRandomStream(seed);
+  }
+
+  @Override
+  public void fill(final long firstPath, final double[][] result, final int nbPath) {
+    Validate.notNull(result, "result");
+    final int dimension = result.length;
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      final SplittableRandomStream stream = _root.split(firstPath + looppath);
+      for (int loopdim = 0; loopdim < dimension; loopdim++) {
+        result[loopdim][looppath] = stream.nextNormal();
+      }
+    }
+  }
+
+  @Override
+  public boolean isIndexed() {
+    return true;
+  }
+
+}
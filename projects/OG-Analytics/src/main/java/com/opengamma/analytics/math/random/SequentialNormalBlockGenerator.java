@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Fills blocks of paths from a {@link RandomNumberGenerator} of standard normal numbers, one coordinate after the other.
+ * <p>
+ * The generator has a state, so the blocks must be filled in the order of the paths; the path index is ignored. The numbers are drawn in the order of the
+ * former block by block Monte Carlo methods, which therefore give the same results.
+ */
+public class SequentialNormalBlockGenerator implements NormalBlockGenerator {
+
+  /**
+   * The generator.
+   */
+  private final RandomNumberGenerator _generator;
+
+  /**
+   * Constructor.
+   * @param generator The random number generator. Generate Normally distributed numbers.
+   */
+  public SequentialNormalBlockGenerator(final RandomNumberGenerator generator) {
+    Validate.notNull(generator, "generator");
+    _generator = generator;
+  }
+
+  /**
+   * Gets the generator.
+   * @return The generator.
+   */
+  public RandomNumberGenerator getGenerator() {
+    return _generator;
+  }
+
+  @Override
+  public void fill(final long firstPath, final double[][] result, final int nbPath) {
+    Validate.notNull(result, "result");
+    if (_generator instanceof NormalRandomNumberGenerator) {
+      final NormalRandomNumberGenerator normal = (NormalRandomNumberGenerator) _generator;
+      for (final double[] coordinate : result) {
+        normal.fill(coordinate, 0, nbPath);
+      }
+    } else {
+      for (final double[] coordinate : result) {
+        System.arraycopy(_generator.getVector(nbPath), 0, coordinate, 0, nbPath);
+      }
+    }
+  }
+
+  @Override
+  public boolean isIndexed() {
+    return false;
+  }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+import cern.jet.stat.Probability;
+
+/**
+ * Generates quasi-random standard normal vectors: the inverse normal cumulative distribution of the points of a Sobol sequence.
+ * <p>
+ * Path n uses the point n + 1 of the sequence (the origin is skipped). The coordinates beyond {@link SobolSequenceGenerator#MAX_DIMENSION} are padded with
+ * pseudo-random numbers from a stream split by path index. As the first coordinates are the most evenly distributed, the generator is best combined with
+ * a {@link BrownianBridgeNormalBlockGenerator}, which uses them for the coarse structure of the paths.
+ */
+public class SobolNormalBlockGenerator implements NormalBlockGenerator {
+
+  /**
+   * The Sobol sequence.
+   */
+  private final SobolSequenceGenerator _sobol = new SobolSequenceGenerator(SobolSequenceGenerator.MAX_DIMENSION);
+  /**
+   * The stream from which the padding of each path is split.
+   */
+  private final SplittableRandomStream _padding;
+
+  /**
+   * Constructor.
+   * @param paddingSeed The seed of the pseudo-random numbers used beyond the dimension of the Sobol sequence.
+   */
+  public SobolNormalBlockGenerator(final long paddingSeed) {
+    _padding = new SplittableRandomStream(paddingSeed);
+  }
+
+  @Override
+  public void fill(final long firstPath, final double[][] result, final int nbPath) {
+    Validate.notNull(result, "result");
+    final int dimension = result.length;
+    final int sobolDimension = Math.min(dimension, _sobol.getDimension());
+    _sobol.fill(firstPath + 1, sobolDimension == dimension ? result : Arrays.copyOf(result, sobolDimension), nbPath);
+    for (int loopdim = 0; loopdim < sobolDimension; loopdim++) {
+      final double[] coordinate = result[loopdim];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        coordinate[looppath] = Probability.normalInverse(coordinate[looppath]);
+      }
+    }
+    if (dimension > sobolDimension) {
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        final SplittableRandomStream stream = _padding.split(firstPath + looppath);
+        for (int loopdim = sobolDimension; loopdim < dimension; loopdim++) {
+          result[loopdim][looppath] = stream.nextNormal();
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean isIndexed() {
+    return true;
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Generates the points of a Sobol low-discrepancy sequence in the unit hypercube, in Gray code order.
+ * <p>
+ * The direction numbers are those of S. Joe and F. Y. Kuo, "Constructing Sobol sequences with better two-dimensional projections" (2008), for the first
+ * {@link #MAX_DIMENSION} dimensions. The point of any index can be generated directly, so blocks of points can be generated independently.
+ * Point 0 is the origin; the other points are in the open hypercube (0, 1)^d.
+ */
+public class SobolSequenceGenerator {
+
+  /**
+   * The maximum dimension.
+   */
+  public static final int MAX_DIMENSION = 21;
+  /**
+   * The number of bits of the points. The maximal index is 2^BITS - 1.
+   */
+  private static final int BITS = 32;
+  /**
+   * 2^-32, to convert the integer points to doubles.
+   */
+  private static final double SCALE = 1.0 / (1L << BITS);
+  /**
+   * The direction numbers of the dimensions 2 to MAX_DIMENSION: degree s of the primitive polynomial, its coefficients a, then the initial numbers m_1 to m_s.
+   */
+  private static final int[][] DIRECTION_NUMBERS = new int[][] {
+    {1, 0, 1 }, {2, 1, 1, 3 }, {3, 1, 1, 3, 1 }, {3, 2, 1, 1, 1 }, {4, 1, 1, 1, 3, 3 }, {4, 4, 1, 3, 5, 13 }, {5, 2, 1, 1, 5, 5, 17 },
+    {5, 4, 1, 1, 5, 5, 5 }, {5, 7, 1, 1, 7, 11, 19 }, {5, 11, 1, 1, 5, 1, 1 }, {5, 13, 1, 1, 1, 3, 11 }, {5, 14, 1, 3, 5, 5, 31 },
+    {6, 1, 1, 3, 3, 9, 7, 49 }, {6, 13, 1, 1, 1, 15, 21, 21 }, {6, 16, 1, 3, 1, 13, 27, 49 }, {6, 19, 1, 1, 1, 15, 7, 5 }, {6, 22, 1, 3, 1, 15, 13, 25 },
+    {6, 25, 1, 1, 5, 5, 19, 61 }, {7, 1, 1, 3, 7, 11, 23, 15, 103 }, {7, 4, 1, 3, 7, 13, 13, 15, 69 } };
+
+  /**
+   * The direction vectors, scaled to BITS bits. Dimension/bit.
+   */
+  private final int[][] _direction;
+
+  /**
+   * Constructor.
+   * @param dimension The dimension, between 1 and {@link #MAX_DIMENSION}.
+   */
+  public SobolSequenceGenerator(final int dimension) {
+    ArgumentChecker.isTrue(dimension > 0 && dimension <= MAX_DIMENSION, "dimension {} should be between 1 and {}", dimension, MAX_DIMENSION);
+    _direction = new int[dimension][BITS];
+    for (int loopbit = 0; loopbit < BITS; loopbit++) {
+      _direction[0][loopbit] = 1 << (BITS - 1 - loopbit);
+    }
+    for (int loopdim = 1; loopdim < dimension; loopdim++) {
+      final int[] numbers = DIRECTION_NUMBERS[loopdim - 1];
+      final int s = numbers[0];
+      final int a = numbers[1];
+      final int[] v = _direction[loopdim];
+      for (int loopbit = 0; loopbit < s; loopbit++) {
+        v[loopbit] = numbers[2 + loopbit] << (BITS - 1 - loopbit);
+      }
+      for (int loopbit = s; loopbit < BITS; loopbit++) {
+        v[loopbit] = v[loopbit - s] ^ (v[loopbit - s] >>> s);
+        for (int k = 1; k < s; k++) {
+          v[loopbit] ^= ((a >>> (s - 1 - k)) & 1) * v[loopbit - k];
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the dimension.
+   * @return The dimension.
+   */
+  public int getDimension() {
+    return _direction.length;
+  }
+
+  /**
+   * Fills a block of consecutive points.
+   * @param firstIndex The index of the first point, from zero.
+   * @param result The array to fill: result[i][p] is the coordinate i of the point firstIndex + p. The length of result should not exceed the dimension.
+   * @param nbPoints The number of points.
+   */
+  public void fill(final long firstIndex, final double[][] result, final int nbPoints) {
+    Validate.notNull(result, "result");
+    ArgumentChecker.isTrue(result.length <= _direction.length, "{} coordinates requested from a sequence of dimension {}", result.length, _direction.length);
+    ArgumentChecker.isTrue(firstIndex >= 0 && firstIndex + nbPoints <= (1L << BITS), "indices {} to {} out of range", firstIndex, firstIndex + nbPoints);
+    if (nbPoints == 0) {
+      return;
+    }
+    final int dimension = result.length;
+    final int[] x = new int[dimension];
+    // The point of index n is the xor of the direction vectors of the bits set in the Gray code of n
+    final long gray = firstIndex ^ (firstIndex >>> 1);
+    for (int loopdim = 0; loopdim < dimension; loopdim++) {
+      for (int loopbit = 0; loopbit < BITS; loopbit++) {
+        if (((gray >>> loopbit) & 1) != 0) {
+          x[loopdim] ^= _direction[loopdim][loopbit];
+        }
+      }
+      result[loopdim][0] = (x[loopdim] & 0xffffffffL) * SCALE;
+    }
+    // Consecutive Gray codes differ by the bit of the lowest zero of the index
+    for (int looppt = 1; looppt < nbPoints; looppt++) {
+      final int bit = Long.numberOfTrailingZeros(~(firstIndex + looppt - 1));
+      for (int loopdim = 0; loopdim < dimension; loopdim++) {
+        x[loopdim] ^= _direction[loopdim][bit];
+        result[loopdim][looppt] = (x[loopdim] & 0xffffffffL) * SCALE;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+/**
+ * A stream of pseudo-random numbers from which independent streams can be derived by index (SplitMix64 generator).
+ * <p>
+ * The stream derived for an index depends only on the seed of this stream and on the index. A Monte Carlo simulation that takes the numbers of path n from
+ * the stream {@code split(n)} gives the same paths whatever the number of threads and the order in which the paths are generated.
+ * The state is not synchronized; a stream should be used by one thread at a time, but {@link #split} does not change the state and can be called from several.
+ */
+public final class SplittableRandomStream {
+
+  /**
+   * The increment of the state (odd, close to 2^64 / golden ratio).
+   */
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  /**
+   * 2^-53, to convert 53 random bits to a double in [0, 1).
+   */
+  private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+  private long _state;
+  private double _nextNormal;
+  private boolean _hasNextNormal;
+
+  /**
+   * Creates a stream.
+   * @param seed The seed.
+   */
+  public SplittableRandomStream(final long seed) {
+    _state = seed;
+  }
+
+  /**
+   * Returns a stream independent of this one and of the streams for the other indices.
+   * @param index The index.
+   * @return The stream.
+   */
+  public SplittableRandomStream split(final long index) {
+    return new SplittableRandomStream(mix64(_state + (index + 1) * GOLDEN_GAMMA));
+  }
+
+  /**
+   * @return The next 64 random bits.
+   */
+  public long nextLong() {
+    _state += GOLDEN_GAMMA;
+    return mix64(_state);
+  }
+
+  /**
+   * @return The next number uniformly distributed in [0, 1).
+   */
+  public double nextDouble() {
+    return (nextLong() >>> 11) * DOUBLE_UNIT;
+  }
+
+  /**
+   * Returns the next standard normal number. The numbers are generated in pairs by the polar method.
+   * @return The number.
+   */
+  public double nextNormal() {
+    if (_hasNextNormal) {
+      _hasNextNormal = false;
+      return _nextNormal;
+    }
+    double u;
+    double v;
+    double s;
+    do {
+      u = 2.0 * nextDouble() - 1.0;
+      v = 2.0 * nextDouble() - 1.0;
+      s = u * u + v * v;
+    } while (s >= 1.0 || s == 0.0);
+    final double factor = Math.sqrt(-2.0 * Math.log(s) / s);
+    _nextNormal = v * factor;
+    _hasNextNormal = true;
+    return u * factor;
+  }
+
+  private static long mix64(final long x) {
+    long z = x;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+}
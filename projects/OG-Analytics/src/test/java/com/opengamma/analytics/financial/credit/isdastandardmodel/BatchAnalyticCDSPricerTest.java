@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.isdastandardmodel;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.Month;
+import org.threeten.bp.Period;
+
+import com.opengamma.analytics.financial.credit.isdastandardmodel.fastcalibration.SuperFastCreditCurveBuilder;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test the batch pricing of a book of CDSs against the CDSs priced one by one.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BatchAnalyticCDSPricerTest extends ISDABaseTest {
+
+  private static final ForkJoinPool POOL = new ForkJoinPool(3);
+  private static final CDSAnalyticFactory FACTORY = new CDSAnalyticFactory();
+  private static final LocalDate TRADE_DATE = LocalDate.of(2013, Month.AUGUST, 30);
+  private static final Period[] TENORS = new Period[] {Period.ofMonths(6), Period.ofYears(1), Period.ofYears(3), Period.ofYears(5), Period.ofYears(7), Period.ofYears(10) };
+  private static final CDSAnalytic[] PILLARS = FACTORY.makeIMMCDS(TRADE_DATE, TENORS);
+
+  private static final ISDACompliantYieldCurve YIELD_CURVE;
+  private static final ISDACompliantCreditCurve[] NAMES;
+  /** The book: every pillar CDS, plus a forward starting CDS and a CDS without accrual on default, on every name */
+  private static final CDSAnalytic[] BOOK;
+  private static final ISDACompliantCreditCurve[] BOOK_CURVES;
+  private static final double[] BOOK_SPREADS;
+
+  static {
+    final double[] yieldCurveNodes = new double[] {1 / 365., 1 / 52., 1 / 12., 1 / 4., 1 / 2., 1., 2., 3., 4., 5., 7., 10, 15, 20, 30 };
+    final double[] zeroRates = new double[] {0.01, 0.011, 0.013, 0.015, 0.02, 0.03, 0.035, 0.04, 0.04, 0.06, 0.06, 0.057, 0.055, 0.05, 0.05 };
+    YIELD_CURVE = new ISDACompliantYieldCurve(yieldCurveNodes, zeroRates);
+    final double[] creditCurveNodes = new double[] {1 / 2., 1, 2, 3, 5, 7, 10 };
+    final double[][] zeroHazardRates = new double[][] { {0.0015, 0.002, 0.0023, 0.0025, 0.0024, 0.0023, 0.002 }, {0.01, 0.012, 0.015, 0.02, 0.022, 0.025, 0.03 },
+      {0.05, 0.045, 0.04, 0.038, 0.035, 0.035, 0.034 } };
+    NAMES = new ISDACompliantCreditCurve[zeroHazardRates.length];
+    for (int i = 0; i < NAMES.length; i++) {
+      NAMES[i] = new ISDACompliantCreditCurve(creditCurveNodes, zeroHazardRates[i]);
+    }
+
+    final CDSAnalytic forwardStart = FACTORY.makeCDS(TRADE_DATE, LocalDate.of(2014, Month.MARCH, 20), LocalDate.of(2018, Month.SEPTEMBER, 20));
+    final CDSAnalytic noAccOnDefault = FACTORY.withPayAccOnDefault(false).makeIMMCDS(TRADE_DATE, Period.ofYears(4));
+    final int nTrades = PILLARS.length + 2;
+    BOOK = new CDSAnalytic[nTrades * NAMES.length];
+    BOOK_CURVES = new ISDACompliantCreditCurve[BOOK.length];
+    BOOK_SPREADS = new double[BOOK.length];
+    // interleave the names, as in a real book
+    for (int i = 0; i < nTrades; i++) {
+      for (int j = 0; j < NAMES.length; j++) {
+        final int k = i * NAMES.length + j;
+        BOOK[k] = i < PILLARS.length ? PILLARS[i] : (i == PILLARS.length ? forwardStart : noAccOnDefault);
+        BOOK_CURVES[k] = NAMES[j];
+        BOOK_SPREADS[k] = j == 2 ? 0.05 : 0.01;
+      }
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    POOL.shutdown();
+  }
+
+  @Test
+  public void pvAndParSpread() {
+    final AccrualOnDefaultFormulae[] formulae = new AccrualOnDefaultFormulae[] {ORIGINAL_ISDA, MARKIT_FIX, OG_FIX };
+    for (final AccrualOnDefaultFormulae formula : formulae) {
+      final AnalyticCDSPricer single = new AnalyticCDSPricer(formula);
+      final BatchAnalyticCDSPricer[] batches = new BatchAnalyticCDSPricer[] {new BatchAnalyticCDSPricer(formula, null), new BatchAnalyticCDSPricer(formula, POOL) };
+      for (final BatchAnalyticCDSPricer batch : batches) {
+        final double[] clean = batch.pv(BOOK, YIELD_CURVE, BOOK_CURVES, BOOK_SPREADS, PriceType.CLEAN);
+        final double[] dirty = batch.pv(BOOK, YIELD_CURVE, BOOK_CURVES, BOOK_SPREADS, PriceType.DIRTY);
+        final double[] parSpread = batch.parSpread(BOOK, YIELD_CURVE, BOOK_CURVES);
+        for (int k = 0; k < BOOK.length; k++) {
+          //These are identical calculations, so the match should be exact
+          assertEquals("clean pv " + k, single.pv(BOOK[k], YIELD_CURVE, BOOK_CURVES[k], BOOK_SPREADS[k], PriceType.CLEAN), clean[k], 0.0);
+          assertEquals("dirty pv " + k, single.pv(BOOK[k], YIELD_CURVE, BOOK_CURVES[k], BOOK_SPREADS[k], PriceType.DIRTY), dirty[k], 0.0);
+          assertEquals("par spread " + k, single.parSpread(BOOK[k], YIELD_CURVE, BOOK_CURVES[k]), parSpread[k], 0.0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void creditSensitivity() {
+    final AccrualOnDefaultFormulae[] formulae = new AccrualOnDefaultFormulae[] {ORIGINAL_ISDA, MARKIT_FIX };
+    for (final AccrualOnDefaultFormulae formula : formulae) {
+      final AnalyticCDSPricer single = new AnalyticCDSPricer(formula);
+      final double[][] sense = new BatchAnalyticCDSPricer(formula, POOL).pvCreditSensitivity(BOOK, YIELD_CURVE, BOOK_CURVES, BOOK_SPREADS);
+      for (int k = 0; k < BOOK.length; k++) {
+        final int nNodes = BOOK_CURVES[k].getNumberOfKnots();
+        assertEquals("nodes", nNodes, sense[k].length);
+        for (int node = 0; node < nNodes; node++) {
+          assertEquals("credit sensitivity " + k + " " + node, single.pvCreditSensitivity(BOOK[k], YIELD_CURVE, BOOK_CURVES[k], BOOK_SPREADS[k], node), sense[k][node], 0.0);
+        }
+      }
+    }
+  }
+
+  @Test
+  /**
+   * The credit curves calibrated in one call are those calibrated name by name.
+   */
+  public void calibrateCreditCurves() {
+    final SuperFastCreditCurveBuilder builder = new SuperFastCreditCurveBuilder();
+    final double[][] spreads = new double[NAMES.length][];
+    final double[][] puf = new double[NAMES.length][PILLARS.length];
+    final BatchAnalyticCDSPricer batch = new BatchAnalyticCDSPricer();
+    for (int j = 0; j < NAMES.length; j++) {
+      final ISDACompliantCreditCurve[] curves = new ISDACompliantCreditCurve[PILLARS.length];
+      Arrays.fill(curves, NAMES[j]);
+      spreads[j] = batch.parSpread(PILLARS, YIELD_CURVE, curves);
+    }
+    final ISDACompliantCreditCurve[] sequential = builder.calibrateCreditCurves(PILLARS, spreads, YIELD_CURVE, puf, null);
+    final ISDACompliantCreditCurve[] pool = builder.calibrateCreditCurves(PILLARS, spreads, YIELD_CURVE, puf, POOL);
+    for (int j = 0; j < NAMES.length; j++) {
+      final ISDACompliantCreditCurve single = builder.calibrateCreditCurve(PILLARS, spreads[j], YIELD_CURVE, puf[j]);
+      for (int i = 0; i < single.getNumberOfKnots(); i++) {
+        assertEquals("calibration " + j, single.getRTAtIndex(i), sequential[j].getRTAtIndex(i), 0.0);
+        assertEquals("calibration pool " + j, single.getRTAtIndex(i), pool[j].getRTAtIndex(i), 0.0);
+      }
+    }
+  }
+
+}
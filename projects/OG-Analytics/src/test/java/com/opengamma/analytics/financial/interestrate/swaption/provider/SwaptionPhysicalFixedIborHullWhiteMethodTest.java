@@ -8,6 +8,7 @@ package com.opengamma.analytics.financial.interestrate.swaption.provider;
 import static org.testng.AssertJUnit.assertEquals;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.annotations.Test;
 import org.threeten.bp.Period;
@@ -49,7 +50,10 @@ import com.opengamma.analytics.financial.provider.sensitivity.multicurve.Multipl
 import com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterCalculator;
 import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
 import com.opengamma.analytics.financial.util.AssertSensitivityObjects;
+import com.opengamma.analytics.math.random.BrownianBridgeNormalBlockGenerator;
+import com.opengamma.analytics.math.random.NormalBlockGenerator;
 import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.analytics.math.random.SobolNormalBlockGenerator;
 import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
 import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
 import com.opengamma.financial.convention.calendar.Calendar;
@@ -271,6 +275,26 @@ public class SwaptionPhysicalFixedIborHullWhiteMethodTest {
     assertEquals("Swaption physical - Hull-White - Monte Carlo - payer/receiver/swap parity", pvReceiverLongMC.getAmount(EUR) + pvPayerShortMC.getAmount(EUR), pvSwap.getAmount(EUR), 1.0E+5);
   }
 
+  @Test
+  /**
+   * Compare explicit formula with Monte-Carlo on quasi-random paths priced on a pool, and the result on the pool with the one on the calling thread.
+   */
+  public void presentValueMonteCarloQuasiRandomPool() {
+    final NormalBlockGenerator generator = new BrownianBridgeNormalBlockGenerator(new SobolNormalBlockGenerator(0), 1);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final HullWhiteMonteCarloMethod methodPool = new HullWhiteMonteCarloMethod(generator, NB_PATH, pool);
+      final HullWhiteMonteCarloMethod methodSequential = new HullWhiteMonteCarloMethod(generator, NB_PATH, null);
+      final MultipleCurrencyAmount pvPayerLongExplicit = METHOD_HW.presentValue(SWAPTION_LONG_PAYER, HW_MULTICURVES);
+      final MultipleCurrencyAmount pvPayerLongPool = methodPool.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo quasi-random", pvPayerLongExplicit.getAmount(EUR), pvPayerLongPool.getAmount(EUR), 1.0E+4);
+      final MultipleCurrencyAmount pvPayerLongSequential = methodSequential.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+      assertEquals("Swaption physical - Hull-White - Monte Carlo quasi-random - pool", pvPayerLongSequential.getAmount(EUR), pvPayerLongPool.getAmount(EUR), 0.0);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   @Test
   /**
    * Tests the Hull-White parameters sensitivity for the explicit formula.
@@ -120,4 +120,18 @@ public class FokkerPlankPDETest {
     assertEquals("Option price test", bs_price, price, 2e-2 * bs_price);//TODO This is not very accurate 
 
   }
+
+  @Test
+  /**
+   * The tridiagonal algorithm gives the same density as the LU decomposition of the full matrix, to rounding.
+   */
+  public void tridiagonalSolver() {
+    final PDEFullResults1D lu = (PDEFullResults1D) new ThetaMethodFiniteDifference(1.0, true).solve(PDE_DATA_BUNDLE);
+    final PDEFullResults1D tridiagonal = (PDEFullResults1D) new ThetaMethodFiniteDifference(1.0, true, true).solve(PDE_DATA_BUNDLE);
+    for (int j = 0; j < T_NODES; j++) {
+      for (int i = 0; i < X_NODES; i++) {
+        assertEquals("Tridiagonal solver", lu.getFunctionValue(i, j), tridiagonal.getFunctionValue(i, j), 1e-10 * (1.0 + Math.abs(lu.getFunctionValue(i, j))));
+      }
+    }
+  }
 }
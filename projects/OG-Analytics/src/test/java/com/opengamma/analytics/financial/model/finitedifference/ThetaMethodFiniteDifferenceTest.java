@@ -5,10 +5,17 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 
+import com.opengamma.analytics.financial.model.finitedifference.applications.InitialConditionsProvider;
+import com.opengamma.analytics.financial.model.finitedifference.applications.PDE1DCoefficientsProvider;
 import com.opengamma.util.monitor.OperationTimer;
 import com.opengamma.util.test.TestGroup;
 
@@ -20,6 +27,8 @@ public class ThetaMethodFiniteDifferenceTest {
 
   private static final ConvectionDiffusionPDESolverTestCase TESTER = new ConvectionDiffusionPDESolverTestCase();
   private static final ThetaMethodFiniteDifference SOLVER = new ThetaMethodFiniteDifference(0.5, false);
+  private static final PDE1DCoefficientsProvider PDE_PROVIDER = new PDE1DCoefficientsProvider();
+  private static final InitialConditionsProvider INITIAL_CONDITION_PROVIDER = new InitialConditionsProvider();
 
   @Test
   public void testBlackScholesEquation1() {
@@ -116,4 +125,46 @@ public class ThetaMethodFiniteDifferenceTest {
     TESTER.testAmericanPrice(SOLVER, timeSteps, priceSteps, lowerMoneyness, upperMoneyness, print);
   }
 
+  /**
+   * Puts on several strikes, on the same grid.
+   */
+  private static List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> getPutBatch(final PDEGrid1D grid) {
+    final ConvectionDiffusionPDE1DStandardCoefficients coeff = PDE_PROVIDER.getBlackScholes(0.05, 0.02, 0.3);
+    final double[] strikes = new double[] {70, 90, 100, 110, 140 };
+    final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> batch = new ArrayList<>();
+    for (final double strike : strikes) {
+      batch.add(new PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>(coeff, INITIAL_CONDITION_PROVIDER.getEuropeanPayoff(strike, false),
+          new DirichletBoundaryCondition(strike, grid.getSpaceNode(0)), new DirichletBoundaryCondition(0.0, grid.getSpaceNode(grid.getNumSpaceNodes() - 1)), grid));
+    }
+    return batch;
+  }
+
+  @Test
+  /**
+   * Solving the PDEs in a batch gives the same results as solving them one by one.
+   */
+  public void testBatch() {
+    final PDEGrid1D grid = new PDEGrid1D(21, 101, 2.0, 0.0, 400.0);
+    final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> batch = getPutBatch(grid);
+    final ConvectionDiffusionPDESolver[] solvers = new ConvectionDiffusionPDESolver[] {SOLVER, new ThetaMethodFiniteDifference(0.5, true),
+      new RichardsonExtrapolationFiniteDifference(SOLVER) };
+    for (final ConvectionDiffusionPDESolver solver : solvers) {
+      final List<PDEResults1D> res = solver.solve(batch);
+      assertEquals("Batch - size", batch.size(), res.size());
+      for (int loopk = 0; loopk < batch.size(); loopk++) {
+        final PDEResults1D single = solver.solve(batch.get(loopk));
+        for (int i = 0; i < grid.getNumSpaceNodes(); i++) {
+          assertEquals("Batch - strike " + loopk, single.getFunctionValue(i), res.get(loopk).getFunctionValue(i), 0.0);
+        }
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBatchDifferentGrids() {
+    final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> batch = getPutBatch(new PDEGrid1D(21, 101, 2.0, 0.0, 400.0));
+    batch.addAll(getPutBatch(new PDEGrid1D(11, 101, 2.0, 0.0, 400.0)));
+    SOLVER.solve(batch);
+  }
+
 }
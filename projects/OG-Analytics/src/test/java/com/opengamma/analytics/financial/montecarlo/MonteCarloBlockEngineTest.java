@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister;
+
+import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.analytics.math.random.PseudoRandomNormalBlockGenerator;
+import com.opengamma.analytics.math.random.SequentialNormalBlockGenerator;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the block by block Monte Carlo engine.
+ */
+@Test(groups = TestGroup.UNIT)
+public class MonteCarloBlockEngineTest {
+
+  private static final int BLOCK_SIZE = 100;
+  private static final int NB_PATH = 10050;
+  private static final int DIMENSION = 3;
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  /**
+   * Sums the number of paths, the first coordinate, the square of the last and the product of the first two.
+   */
+  private static final MonteCarloBlockPricer PRICER = new MonteCarloBlockPricer() {
+    @Override
+    public double[] price(final MonteCarloPathBuffer buffer) {
+      final double[][] x = buffer.getNormals();
+      final double[] result = new double[4];
+      for (int looppath = 0; looppath < buffer.getNbPath(); looppath++) {
+        result[0] += 1.0;
+        result[1] += x[0][looppath];
+        result[2] += x[DIMENSION - 1][looppath] * x[DIMENSION - 1][looppath];
+        result[3] += x[0][looppath] * x[1][looppath];
+      }
+      return result;
+    }
+  };
+
+  @AfterClass
+  public void tearDown() {
+    POOL.shutdown();
+  }
+
+  @Test
+  /**
+   * The result with an indexed generator is the same on the pool as on the calling thread, and whatever the parallelism.
+   */
+  public void poolSameAsSequential() {
+    final PseudoRandomNormalBlockGenerator generator = new PseudoRandomNormalBlockGenerator(42);
+    final double[] sequential = new MonteCarloBlockEngine(BLOCK_SIZE, null).run(generator, DIMENSION, NB_PATH, PRICER);
+    final double[] pool = new MonteCarloBlockEngine(BLOCK_SIZE, POOL).run(generator, DIMENSION, NB_PATH, PRICER);
+    final ForkJoinPool pool2 = new ForkJoinPool(2);
+    try {
+      final double[] poolOther = new MonteCarloBlockEngine(BLOCK_SIZE, pool2).run(generator, DIMENSION, NB_PATH, PRICER);
+      for (int loopres = 0; loopres < sequential.length; loopres++) {
+        assertEquals("Monte Carlo engine - pool", sequential[loopres], pool[loopres], 0.0);
+        assertEquals("Monte Carlo engine - pool", sequential[loopres], poolOther[loopres], 0.0);
+      }
+    } finally {
+      pool2.shutdown();
+    }
+    assertEquals("Monte Carlo engine - number of paths", NB_PATH, sequential[0], 0.0);
+    assertEquals("Monte Carlo engine - mean", 0.0, sequential[1] / NB_PATH, 0.05);
+    assertEquals("Monte Carlo engine - variance", 1.0, sequential[2] / NB_PATH, 0.05);
+    assertEquals("Monte Carlo engine - covariance", 0.0, sequential[3] / NB_PATH, 0.05);
+  }
+
+  @Test
+  /**
+   * A generator which is not indexed is used in the order of the paths, even with a pool, as by the former block loops.
+   */
+  public void sequentialGenerator() {
+    final double[] engine = new MonteCarloBlockEngine(BLOCK_SIZE, POOL).run(new SequentialNormalBlockGenerator(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister())),
+        DIMENSION, NB_PATH, PRICER);
+    final NormalRandomNumberGenerator generator = new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister());
+    double sum = 0;
+    for (int firstPath = 0; firstPath < NB_PATH; firstPath += BLOCK_SIZE) {
+      final int nbPath = Math.min(BLOCK_SIZE, NB_PATH - firstPath);
+      double blockSum = 0;
+      final double[] x0 = generator.getVector(nbPath);
+      for (int loopdim = 1; loopdim < DIMENSION; loopdim++) {
+        generator.getVector(nbPath);
+      }
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        blockSum += x0[looppath];
+      }
+      sum += blockSum;
+    }
+    assertEquals("Monte Carlo engine - sequential generator", sum, engine[1], 0.0);
+  }
+
+}
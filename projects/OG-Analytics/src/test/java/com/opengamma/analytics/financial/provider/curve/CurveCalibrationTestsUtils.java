@@ -198,7 +198,6 @@ public class CurveCalibrationTestsUtils {
     }
   }
 
-  @SuppressWarnings("unchecked")
   public static Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> makeCurvesFromDefinitionsMulticurve(
       ZonedDateTime calibrationDate, final InstrumentDefinition<?>[][][] definitions,
       final GeneratorYDCurve[][] curveGenerators, final String[][] curveNames, final MulticurveProviderDiscount knownData,
@@ -208,6 +207,17 @@ public class CurveCalibrationTestsUtils {
       MulticurveDiscountBuildingRepository repository,
       ZonedDateTimeDoubleTimeSeries[] htsFixedOisWithToday, ZonedDateTimeDoubleTimeSeries[] htsFixedOisWithoutToday,
       ZonedDateTimeDoubleTimeSeries[] htsFixedIborWithToday, ZonedDateTimeDoubleTimeSeries[] htsFixedIborWithoutToday) {
+    final MultiCurveBundle<GeneratorYDCurve>[] curveBundles = makeCurveBundles(calibrationDate, definitions, curveGenerators, curveNames, withToday,
+        htsFixedOisWithToday, htsFixedOisWithoutToday, htsFixedIborWithToday, htsFixedIborWithoutToday);
+    return repository.makeCurvesFromDerivatives(curveBundles, knownData, dscMap, fwdIborMap, fwdOnMap, calculator, sensitivityCalculator);
+  }
+
+  @SuppressWarnings("unchecked")
+  public static MultiCurveBundle<GeneratorYDCurve>[] makeCurveBundles(
+      ZonedDateTime calibrationDate, final InstrumentDefinition<?>[][][] definitions,
+      final GeneratorYDCurve[][] curveGenerators, final String[][] curveNames, final boolean withToday,
+      ZonedDateTimeDoubleTimeSeries[] htsFixedOisWithToday, ZonedDateTimeDoubleTimeSeries[] htsFixedOisWithoutToday,
+      ZonedDateTimeDoubleTimeSeries[] htsFixedIborWithToday, ZonedDateTimeDoubleTimeSeries[] htsFixedIborWithoutToday) {
     final int nUnits = definitions.length;
     final MultiCurveBundle<GeneratorYDCurve>[] curveBundles = new MultiCurveBundle[nUnits];
     for (int i = 0; i < nUnits; i++) {
@@ -228,7 +238,7 @@ public class CurveCalibrationTestsUtils {
       }
       curveBundles[i] = new MultiCurveBundle<>(singleCurves);
     }
-    return repository.makeCurvesFromDerivatives(curveBundles, knownData, dscMap, fwdIborMap, fwdOnMap, calculator, sensitivityCalculator);
+    return curveBundles;
   }
 
   @SuppressWarnings("unchecked")
@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.curve;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.analytics.financial.curve.interestrate.generator.GeneratorYDCurve;
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.instrument.InstrumentDefinition;
+import com.opengamma.analytics.financial.instrument.index.GeneratorAttribute;
+import com.opengamma.analytics.financial.instrument.index.GeneratorAttributeIR;
+import com.opengamma.analytics.financial.instrument.index.GeneratorInstrument;
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.index.IndexIborMaster;
+import com.opengamma.analytics.financial.instrument.index.IndexON;
+import com.opengamma.analytics.financial.instrument.index.IndexONMaster;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.provider.calculator.discounting.ParSpreadMarketQuoteCurveSensitivityDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.calculator.discounting.ParSpreadMarketQuoteDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.curve.multicurve.MulticurveDiscountBuildingRepository;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.timeseries.precise.zdt.ImmutableZonedDateTimeDoubleTimeSeries;
+import com.opengamma.timeseries.precise.zdt.ZonedDateTimeDoubleTimeSeries;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Tests the calibration of independent units of curves on a fork-join pool and the warm start from the previous calibration.
+ */
+@Test(groups = TestGroup.UNIT)
+public class MulticurveBuildingDiscountingParallelTest {
+
+  /** Curve calibration date */
+  private static final ZonedDateTime CALIBRATION_DATE = DateUtils.getUTCDate(2011, 9, 28);
+
+  /** Index and curve names */
+  private static final Currency USD = Currency.USD;
+  private static final Currency EUR = Currency.EUR;
+  private static final FXMatrix FX_MATRIX = new FXMatrix(EUR, USD, 1.30);
+  private static final IndexON FEDFUND = IndexONMaster.getInstance().getIndex("FED FUND");
+  private static final IndexON EONIA = IndexONMaster.getInstance().getIndex("EONIA");
+  private static final IborIndex USDLIBOR3M = IndexIborMaster.getInstance().getIndex("USDLIBOR3M");
+  private static final IborIndex EURIBOR6M = IndexIborMaster.getInstance().getIndex("EURIBOR6M");
+  private static final String CURVE_NAME_DSC_USD = "USD Dsc";
+  private static final String CURVE_NAME_FWD3_USD = "USD Fwd 3M";
+  private static final String CURVE_NAME_DSC_EUR = "EUR Dsc";
+  private static final String CURVE_NAME_FWD6_EUR = "EUR Fwd 6M";
+
+  /** Market values, generators and tenors for the dsc USD curve */
+  private static final double[] DSC_USD_MARKET_QUOTES = new double[] {0.0400, 0.0400, 0.0400, 0.0400, 0.0400, 0.0400, 0.0400, 0.0400, 0.0400, 0.0400, 0.0400, 0.0400 };
+  private static final GeneratorInstrument<? extends GeneratorAttribute>[] DSC_USD_GENERATORS = CurveCalibrationConventionDataSets.generatorUsdOnOisFfs(1, 11, 0);
+  private static final GeneratorAttributeIR[] DSC_USD_ATTR = attributes(new Period[] {Period.ofDays(0),
+    Period.ofMonths(1), Period.ofMonths(2), Period.ofMonths(3), Period.ofMonths(6), Period.ofMonths(9), Period.ofYears(1),
+    Period.ofYears(2), Period.ofYears(3), Period.ofYears(4), Period.ofYears(5), Period.ofYears(10) });
+
+  /** Market values, generators and tenors for the Fwd 3M USD curve */
+  private static final double[] FWD3_USD_MARKET_QUOTES = new double[] {0.0420, 0.0420, 0.0420, 0.0430, 0.0470, 0.0540, 0.0570, 0.0600 };
+  private static final GeneratorInstrument<? extends GeneratorAttribute>[] FWD3_USD_GENERATORS = CurveCalibrationConventionDataSets.generatorUsdIbor3Fra3Irs3(1, 0, 7);
+  private static final GeneratorAttributeIR[] FWD3_USD_ATTR = attributes(new Period[] {Period.ofMonths(0),
+    Period.ofMonths(6), Period.ofYears(1), Period.ofYears(2), Period.ofYears(3), Period.ofYears(5), Period.ofYears(7), Period.ofYears(10) });
+
+  /** Market values, generators and tenors for the dsc EUR curve */
+  private static final double[] DSC_EUR_MARKET_QUOTES = new double[] {0.0050, 0.0050, 0.0051, 0.0051, 0.0062, 0.0071, 0.0076, 0.0100, 0.0110, 0.0110, 0.0150 };
+  private static final GeneratorInstrument<? extends GeneratorAttribute>[] DSC_EUR_GENERATORS = CurveCalibrationConventionDataSets.generatorEurOnOis(1, 10);
+  private static final GeneratorAttributeIR[] DSC_EUR_ATTR = attributes(new Period[] {Period.ofDays(0),
+    Period.ofMonths(1), Period.ofMonths(2), Period.ofMonths(3), Period.ofMonths(6), Period.ofMonths(9), Period.ofYears(1),
+    Period.ofYears(2), Period.ofYears(3), Period.ofYears(5), Period.ofYears(10) });
+  private static final int DSC_EUR_BUMPED_NODE = 9;
+
+  /** Market values, generators and tenors for the Fwd 6M EUR curve */
+  private static final double[] FWD6_EUR_MARKET_QUOTES = new double[] {0.0150, 0.0150, 0.0150, 0.0150, 0.0150, 0.0150, 0.0175, 0.0175 };
+  private static final GeneratorInstrument<? extends GeneratorAttribute>[] FWD6_EUR_GENERATORS = CurveCalibrationConventionDataSets.generatorEurIbor6Fra6Irs6(1, 2, 5);
+  private static final GeneratorAttributeIR[] FWD6_EUR_ATTR = attributes(new Period[] {Period.ofMonths(0), Period.ofMonths(9), Period.ofMonths(12),
+    Period.ofYears(2), Period.ofYears(3), Period.ofYears(5), Period.ofYears(7), Period.ofYears(10) });
+
+  /** Units of curves: the EUR units do not depend on the USD units */
+  private static final GeneratorYDCurve[][] GENERATORS_UNITS;
+  /** The same units interpolated with natural cubic splines, whose data bundles compute their second derivatives on first use */
+  private static final GeneratorYDCurve[][] GENERATORS_UNITS_NCS;
+  /** The units each unit depends on: the forward curves on the discounting curve of their currency */
+  private static final int[][] UNIT_DEPENDENCIES = new int[][] { {}, {}, {0 }, {1 } };
+  private static final String[][] NAMES_UNITS = new String[][] { {CURVE_NAME_DSC_USD }, {CURVE_NAME_DSC_EUR }, {CURVE_NAME_FWD3_USD }, {CURVE_NAME_FWD6_EUR } };
+  private static final MulticurveProviderDiscount KNOWN_DATA = new MulticurveProviderDiscount(FX_MATRIX);
+  private static final LinkedHashMap<String, Currency> DSC_MAP = new LinkedHashMap<>();
+  private static final LinkedHashMap<String, IndexON[]> FWD_ON_MAP = new LinkedHashMap<>();
+  private static final LinkedHashMap<String, IborIndex[]> FWD_IBOR_MAP = new LinkedHashMap<>();
+
+  static {
+    final GeneratorYDCurve genIntLin = CurveCalibrationConventionDataSets.generatorYDMatLin();
+    GENERATORS_UNITS = new GeneratorYDCurve[][] { {genIntLin }, {genIntLin }, {genIntLin }, {genIntLin } };
+    final GeneratorYDCurve genIntNcs = CurveCalibrationConventionDataSets.generatorYDMatNcs();
+    GENERATORS_UNITS_NCS = new GeneratorYDCurve[][] { {genIntNcs }, {genIntNcs }, {genIntNcs }, {genIntNcs } };
+    DSC_MAP.put(CURVE_NAME_DSC_USD, USD);
+    DSC_MAP.put(CURVE_NAME_DSC_EUR, EUR);
+    FWD_ON_MAP.put(CURVE_NAME_DSC_USD, new IndexON[] {FEDFUND });
+    FWD_ON_MAP.put(CURVE_NAME_DSC_EUR, new IndexON[] {EONIA });
+    FWD_IBOR_MAP.put(CURVE_NAME_FWD3_USD, new IborIndex[] {USDLIBOR3M });
+    FWD_IBOR_MAP.put(CURVE_NAME_FWD6_EUR, new IborIndex[] {EURIBOR6M });
+  }
+
+  /** Calculators and repositories used in curve calibration and testing */
+  private static final ParSpreadMarketQuoteDiscountingCalculator PSMQDC = ParSpreadMarketQuoteDiscountingCalculator.getInstance();
+  private static final ParSpreadMarketQuoteCurveSensitivityDiscountingCalculator PSMQCSDC = ParSpreadMarketQuoteCurveSensitivityDiscountingCalculator.getInstance();
+  private static final double TOLERANCE_ROOT = 1.0E-10;
+  private static final int STEP_MAX = 100;
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+  private static final MulticurveDiscountBuildingRepository SEQUENTIAL_REPOSITORY = new MulticurveDiscountBuildingRepository(TOLERANCE_ROOT, TOLERANCE_ROOT, STEP_MAX);
+
+  private static final double TOLERANCE_CAL = 1.0E-9;
+  private static final double TOLERANCE_DF = 1.0E-8;
+  private static final double TOLERANCE_MATRIX = 1.0E-6;
+  private static final double[] TIMES = new double[] {0.25, 0.5, 1.0, 2.0, 5.0, 10.0 };
+
+  @AfterClass
+  public void tearDown() {
+    POOL.shutdown();
+  }
+
+  @Test
+  /** Tests that the units which do not depend on each other are found, so that they can be calibrated concurrently */
+  public void unitDependencies() {
+    final MulticurveDiscountBuildingRepository repository = new MulticurveDiscountBuildingRepository(TOLERANCE_ROOT, TOLERANCE_ROOT, STEP_MAX, POOL, false);
+    final GeneratorYDCurve[][][] generators = new GeneratorYDCurve[][][] {GENERATORS_UNITS, GENERATORS_UNITS_NCS };
+    for (final GeneratorYDCurve[][] generatorsUnits : generators) {
+      final int[][] dependencies = repository.getUnitDependencies(CurveCalibrationTestsUtils.makeCurveBundles(CALIBRATION_DATE, getDefinitions(0.0),
+          generatorsUnits, NAMES_UNITS, false, TS_FIXED_OIS_WITH_TODAY, TS_FIXED_OIS_WITHOUT_TODAY, TS_FIXED_IBOR_WITH_TODAY, TS_FIXED_IBOR_WITHOUT_TODAY),
+          KNOWN_DATA, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, PSMQCSDC);
+      assertEquals("Units", UNIT_DEPENDENCIES.length, dependencies.length);
+      for (int loopunit = 0; loopunit < UNIT_DEPENDENCIES.length; loopunit++) {
+        assertTrue("Dependencies of unit " + loopunit + ": " + Arrays.toString(dependencies[loopunit]), Arrays.equals(UNIT_DEPENDENCIES[loopunit], dependencies[loopunit]));
+      }
+    }
+  }
+
+  @Test
+  /** Tests that the curves and Jacobians calibrated on the pool are those calibrated sequentially */
+  public void parallelSameAsSequential() {
+    assertParallelSameAsSequential(GENERATORS_UNITS);
+  }
+
+  @Test
+  /** Tests that the curves and Jacobians calibrated on the pool are those calibrated sequentially when the interpolator caches are shared by the threads */
+  public void parallelSameAsSequentialCubicSpline() {
+    assertParallelSameAsSequential(GENERATORS_UNITS_NCS);
+  }
+
+  private static void assertParallelSameAsSequential(final GeneratorYDCurve[][] generators) {
+    final InstrumentDefinition<?>[][][] definitions = getDefinitions(0.0);
+    final Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> sequential = calibrate(definitions, generators, SEQUENTIAL_REPOSITORY);
+    final Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> parallel = calibrate(definitions, generators,
+        new MulticurveDiscountBuildingRepository(TOLERANCE_ROOT, TOLERANCE_ROOT, STEP_MAX, POOL, false));
+    assertSameCurves(sequential.getFirst(), parallel.getFirst(), TOLERANCE_DF);
+    for (final String[] names : NAMES_UNITS) {
+      final Pair<CurveBuildingBlock, DoubleMatrix2D> expected = sequential.getSecond().getBlock(names[0]);
+      final Pair<CurveBuildingBlock, DoubleMatrix2D> actual = parallel.getSecond().getBlock(names[0]);
+      assertEquals("Block " + names[0], expected.getFirst(), actual.getFirst());
+      final double[][] expectedMatrix = expected.getSecond().getData();
+      final double[][] actualMatrix = actual.getSecond().getData();
+      assertEquals("Jacobian rows " + names[0], expectedMatrix.length, actualMatrix.length);
+      for (int i = 0; i < expectedMatrix.length; i++) {
+        assertEquals("Jacobian columns " + names[0], expectedMatrix[i].length, actualMatrix[i].length);
+        for (int j = 0; j < expectedMatrix[i].length; j++) {
+          assertEquals("Jacobian " + names[0] + " " + i + " " + j, expectedMatrix[i][j], actualMatrix[i][j], TOLERANCE_MATRIX);
+        }
+      }
+    }
+    assertRepriced(definitions, parallel.getFirst());
+  }
+
+  @Test
+  /** Tests that starting from the previous calibration after a quote has moved gives the curves calibrated from the initial guess */
+  public void warmStart() {
+    final MulticurveDiscountBuildingRepository warmRepository = new MulticurveDiscountBuildingRepository(TOLERANCE_ROOT, TOLERANCE_ROOT, STEP_MAX, POOL, true);
+    final InstrumentDefinition<?>[][][] definitions = getDefinitions(0.0);
+    assertSameCurves(calibrate(definitions, GENERATORS_UNITS, SEQUENTIAL_REPOSITORY).getFirst(), calibrate(definitions, GENERATORS_UNITS, warmRepository).getFirst(),
+        TOLERANCE_DF);
+    final InstrumentDefinition<?>[][][] bumpedDefinitions = getDefinitions(0.0001);
+    final MulticurveProviderDiscount warm = calibrate(bumpedDefinitions, GENERATORS_UNITS, warmRepository).getFirst();
+    assertSameCurves(calibrate(bumpedDefinitions, GENERATORS_UNITS, SEQUENTIAL_REPOSITORY).getFirst(), warm, TOLERANCE_DF);
+    assertRepriced(bumpedDefinitions, warm);
+  }
+
+  private static Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> calibrate(final InstrumentDefinition<?>[][][] definitions,
+      final GeneratorYDCurve[][] generators, final MulticurveDiscountBuildingRepository repository) {
+    return CurveCalibrationTestsUtils.makeCurvesFromDefinitionsMulticurve(CALIBRATION_DATE, definitions, generators, NAMES_UNITS, KNOWN_DATA, PSMQDC, PSMQCSDC,
+        false, DSC_MAP, FWD_ON_MAP, FWD_IBOR_MAP, repository, TS_FIXED_OIS_WITH_TODAY, TS_FIXED_OIS_WITHOUT_TODAY, TS_FIXED_IBOR_WITH_TODAY, TS_FIXED_IBOR_WITHOUT_TODAY);
+  }
+
+  private static void assertSameCurves(final MulticurveProviderDiscount expected, final MulticurveProviderDiscount actual, final double tolerance) {
+    for (final String[] names : NAMES_UNITS) {
+      for (final double time : TIMES) {
+        assertEquals("Curve " + names[0] + " at " + time, expected.getCurve(names[0]).getDiscountFactor(time), actual.getCurve(names[0]).getDiscountFactor(time),
+            tolerance);
+      }
+    }
+  }
+
+  private static void assertRepriced(final InstrumentDefinition<?>[][][] definitions, final MulticurveProviderDiscount curves) {
+    for (int loopunit = 0; loopunit < definitions.length; loopunit++) {
+      for (final InstrumentDefinition<?> definition : definitions[loopunit][0]) {
+        final InstrumentDerivative derivative = CurveCalibrationTestsUtils.convert(definition, false, CALIBRATION_DATE, TS_FIXED_OIS_WITH_TODAY, TS_FIXED_OIS_WITHOUT_TODAY,
+            TS_FIXED_IBOR_WITH_TODAY, TS_FIXED_IBOR_WITHOUT_TODAY);
+        assertEquals("Curve construction: unit " + loopunit, 0, derivative.accept(PSMQDC, curves), TOLERANCE_CAL);
+      }
+    }
+  }
+
+  /**
+   * Returns the instruments of each unit, with one EUR discounting quote moved.
+   * @param bump The amount added to the quote
+   * @return The instruments
+   */
+  private static InstrumentDefinition<?>[][][] getDefinitions(final double bump) {
+    final double[] dscEurQuotes = DSC_EUR_MARKET_QUOTES.clone();
+    dscEurQuotes[DSC_EUR_BUMPED_NODE] += bump;
+    return new InstrumentDefinition<?>[][][] {
+      {CurveCalibrationTestsUtils.getDefinitions(CALIBRATION_DATE, 1.0, DSC_USD_MARKET_QUOTES, DSC_USD_GENERATORS, DSC_USD_ATTR) },
+      {CurveCalibrationTestsUtils.getDefinitions(CALIBRATION_DATE, 1.0, dscEurQuotes, DSC_EUR_GENERATORS, DSC_EUR_ATTR) },
+      {CurveCalibrationTestsUtils.getDefinitions(CALIBRATION_DATE, 1.0, FWD3_USD_MARKET_QUOTES, FWD3_USD_GENERATORS, FWD3_USD_ATTR) },
+      {CurveCalibrationTestsUtils.getDefinitions(CALIBRATION_DATE, 1.0, FWD6_EUR_MARKET_QUOTES, FWD6_EUR_GENERATORS, FWD6_EUR_ATTR) } };
+  }
+
+  private static GeneratorAttributeIR[] attributes(final Period[] tenors) {
+    final GeneratorAttributeIR[] attributes = new GeneratorAttributeIR[tenors.length];
+    for (int loopins = 0; loopins < tenors.length; loopins++) {
+      attributes[loopins] = new GeneratorAttributeIR(tenors[loopins]);
+    }
+    return attributes;
+  }
+
+  /** Fixings: the instruments all start after the calibration date, so the same series are used for both currencies */
+  private static final ZonedDateTimeDoubleTimeSeries TS_EMPTY = ImmutableZonedDateTimeDoubleTimeSeries.ofEmptyUTC();
+  private static final ZonedDateTimeDoubleTimeSeries TS_ON_WITH_TODAY = ImmutableZonedDateTimeDoubleTimeSeries.ofUTC(new ZonedDateTime[] {DateUtils.getUTCDate(2011, 9, 27),
+    DateUtils.getUTCDate(2011, 9, 28) }, new double[] {0.07, 0.08 });
+  private static final ZonedDateTimeDoubleTimeSeries TS_ON_WITHOUT_TODAY = ImmutableZonedDateTimeDoubleTimeSeries.ofUTC(new ZonedDateTime[] {DateUtils.getUTCDate(2011, 9, 27) },
+      new double[] {0.07 });
+  private static final ZonedDateTimeDoubleTimeSeries[] TS_FIXED_OIS_WITH_TODAY = new ZonedDateTimeDoubleTimeSeries[] {TS_EMPTY, TS_ON_WITH_TODAY };
+  private static final ZonedDateTimeDoubleTimeSeries[] TS_FIXED_OIS_WITHOUT_TODAY = new ZonedDateTimeDoubleTimeSeries[] {TS_EMPTY, TS_ON_WITHOUT_TODAY };
+  private static final ZonedDateTimeDoubleTimeSeries TS_IBOR_WITH_TODAY = ImmutableZonedDateTimeDoubleTimeSeries.ofUTC(new ZonedDateTime[] {DateUtils.getUTCDate(2011, 9, 27),
+    DateUtils.getUTCDate(2011, 9, 28) }, new double[] {0.0035, 0.0036 });
+  private static final ZonedDateTimeDoubleTimeSeries TS_IBOR_WITHOUT_TODAY = ImmutableZonedDateTimeDoubleTimeSeries.ofUTC(new ZonedDateTime[] {DateUtils.getUTCDate(2011, 9, 27) },
+      new double[] {0.0035 });
+  private static final ZonedDateTimeDoubleTimeSeries[] TS_FIXED_IBOR_WITH_TODAY = new ZonedDateTimeDoubleTimeSeries[] {TS_IBOR_WITH_TODAY };
+  private static final ZonedDateTimeDoubleTimeSeries[] TS_FIXED_IBOR_WITHOUT_TODAY = new ZonedDateTimeDoubleTimeSeries[] {TS_IBOR_WITHOUT_TODAY };
+
+}
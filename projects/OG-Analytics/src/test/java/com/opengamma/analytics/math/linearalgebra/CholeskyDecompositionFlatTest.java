@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+import org.testng.internal.junit.ArrayAsserts;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.matrix.OGMatrixAlgebra;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link CholeskyDecompositionFlat} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class CholeskyDecompositionFlatTest {
+
+  private static final MatrixAlgebra ALGEBRA = new OGMatrixAlgebra();
+  private static final CholeskyDecompositionFlat CDF = new CholeskyDecompositionFlat();
+  private static final CholeskyDecompositionOpenGamma CDOG = new CholeskyDecompositionOpenGamma();
+  private static final DoubleMatrix2D A5 = new DoubleMatrix2D(new double[][] {new double[] {10.0, 2.0, -1.0, 1.0, 1.0}, new double[] {2.0, 5.0, -2.0, 0.5, 0.5},
+      new double[] {-1.0, -2.0, 15.0, 1.0, 0.5}, new double[] {1.0, 0.5, 1.0, 10.0, -1.0}, new double[] {1.0, 0.5, 0.5, -1.0, 25.0}});
+  private static final double EPS = 1e-9;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullObjectMatrix() {
+    CDF.evaluate((DoubleMatrix2D) null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNotSymmetric() {
+    CDF.evaluate(new DoubleMatrix2D(new double[][] { {1.0, 2.0}, {0.0, 5.0}}));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNotPositive() {
+    CDF.evaluate(new DoubleMatrix2D(new double[][] { {1.0, 2.0}, {2.0, 1.0}}));
+  }
+
+  /**
+   * Tests A = L L^T and compares with the array of rows implementation.
+   */
+  @Test
+  public void recoverOriginal() {
+    final CholeskyDecompositionResult result = CDF.evaluate(A5);
+    checkEquals(A5, (DoubleMatrix2D) ALGEBRA.multiply(result.getL(), result.getLT()));
+    final CholeskyDecompositionResult expected = CDOG.evaluate(A5);
+    checkEquals(expected.getL(), result.getL());
+    checkEquals(expected.getLT(), result.getLT());
+    assertEquals(expected.getDeterminant(), result.getDeterminant(), 1.0E-8);
+  }
+
+  /**
+   * Tests solve Ax = b and AX = B.
+   */
+  @Test
+  public void solve() {
+    final CholeskyDecompositionResult result = CDF.evaluate(A5);
+    final double[] b = new double[] {1.0, 2.0, 3.0, 4.0, -1.0};
+    final DoubleMatrix1D ax = (DoubleMatrix1D) ALGEBRA.multiply(A5, new DoubleMatrix1D(result.solve(b)));
+    ArrayAsserts.assertArrayEquals(b, ax.getData(), 1.0E-10);
+    final double[][] bb = new double[][] { {1.0, 2.0}, {2.0, 3.0}, {3.0, 4.0}, {4.0, -2.0}, {-1.0, -1.0}};
+    final FlatDoubleMatrix2D x = ((CholeskyDecompositionFlatResult) result).solve(FlatDoubleMatrix2D.of(bb));
+    checkEquals(new DoubleMatrix2D(bb), (DoubleMatrix2D) ALGEBRA.multiply(A5, x.toDoubleMatrix2D()));
+    checkEquals(new DoubleMatrix2D(bb), (DoubleMatrix2D) ALGEBRA.multiply(A5, result.solve(new DoubleMatrix2D(bb))));
+  }
+
+  private void checkEquals(final DoubleMatrix2D x, final DoubleMatrix2D y) {
+    final int n = x.getNumberOfRows();
+    final int m = x.getNumberOfColumns();
+    assertEquals(n, y.getNumberOfRows());
+    assertEquals(m, y.getNumberOfColumns());
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        assertEquals(x.getEntry(i, j), y.getEntry(i, j), EPS);
+      }
+    }
+  }
+
+}
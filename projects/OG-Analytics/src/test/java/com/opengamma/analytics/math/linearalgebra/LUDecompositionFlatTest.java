@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import org.testng.internal.junit.ArrayAsserts;
+
+import com.opengamma.analytics.math.matrix.CommonsMatrixAlgebra;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link LUDecompositionFlat} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class LUDecompositionFlatTest {
+  private static final MatrixAlgebra ALGEBRA = new CommonsMatrixAlgebra();
+  private static final LUDecompositionFlat LU = new LUDecompositionFlat();
+  private static final Decomposition<LUDecompositionResult> LU_COMMONS = new LUDecompositionCommons();
+  private static final DoubleMatrix2D A = new DoubleMatrix2D(new double[][] {new double[] {1, 2, -1}, new double[] {4, 3, 1}, new double[] {2, 2, 3}});
+  private static final double EPS = 1e-9;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullObjectMatrix() {
+    LU.evaluate((DoubleMatrix2D) null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSingular() {
+    LU.evaluate(new DoubleMatrix2D(new double[][] { {1, 2}, {2, 4}}));
+  }
+
+  @Test
+  public void testRecoverOrginal() {
+    final LUDecompositionResult lu = LU.evaluate(A);
+    final DoubleMatrix2D a = (DoubleMatrix2D) ALGEBRA.multiply(lu.getL(), lu.getU());
+    checkEquals((DoubleMatrix2D) ALGEBRA.multiply(lu.getP(), A), a);
+  }
+
+  @Test
+  public void testCompareCommons() {
+    final LUDecompositionResult lu = LU.evaluate(A);
+    final LUDecompositionResult commons = LU_COMMONS.evaluate(A);
+    checkEquals(commons.getL(), lu.getL());
+    checkEquals(commons.getU(), lu.getU());
+    checkEquals(commons.getP(), lu.getP());
+    ArrayAsserts.assertArrayEquals(commons.getPivot(), lu.getPivot());
+    assertEquals(commons.getDeterminant(), lu.getDeterminant(), EPS);
+  }
+
+  @Test
+  public void testSolve() {
+    final Random random = new Random(1);
+    final int n = 90;
+    final double[][] a = new double[n][n];
+    final double[][] b = new double[n][3];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        a[i][j] = random.nextDouble();
+      }
+      for (int j = 0; j < 3; j++) {
+        b[i][j] = random.nextDouble();
+      }
+    }
+    final LUDecompositionFlatResult lu = LU.evaluate(FlatDoubleMatrix2D.of(a));
+    final LUDecompositionResult commons = LU_COMMONS.evaluate(new DoubleMatrix2D(a));
+    ArrayAsserts.assertArrayEquals(commons.solve(getColumn(b, 0)), lu.solve(getColumn(b, 0)), EPS);
+    checkEquals(commons.solve(new DoubleMatrix2D(b)), lu.solve(new DoubleMatrix2D(b)));
+    checkEquals(commons.solve(new DoubleMatrix2D(b)), lu.solve(FlatDoubleMatrix2D.of(b)).toDoubleMatrix2D());
+  }
+
+  private static double[] getColumn(final double[][] data, final int column) {
+    final double[] res = new double[data.length];
+    for (int i = 0; i < data.length; i++) {
+      res[i] = data[i][column];
+    }
+    return res;
+  }
+
+  private void checkEquals(final DoubleMatrix2D x, final DoubleMatrix2D y) {
+    final int n = x.getNumberOfRows();
+    final int m = x.getNumberOfColumns();
+    assertEquals(n, y.getNumberOfRows());
+    assertEquals(m, y.getNumberOfColumns());
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        assertEquals(x.getEntry(i, j), y.getEntry(i, j), EPS);
+      }
+    }
+  }
+
+  /**
+   * Performance. For normal tests (enabled = false). Compares the flat decompositions with the Commons wrappers.
+   */
+  @Test(enabled = false)
+  public void performance() {
+    final Random random = new Random(2);
+    final CholeskyDecompositionFlat cholesky = new CholeskyDecompositionFlat();
+    final Decomposition<CholeskyDecompositionResult> choleskyCommons = new CholeskyDecompositionCommons();
+    final QRDecompositionFlat qr = new QRDecompositionFlat();
+    final Decomposition<QRDecompositionResult> qrCommons = new QRDecompositionCommons();
+    for (final int n : new int[] {50, 100, 200, 500, 1000, 2000 }) {
+      // Diagonally dominant, so symmetric positive definite once symmetrised
+      final double[][] data = new double[n][n];
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j <= i; j++) {
+          data[i][j] = random.nextDouble();
+          data[j][i] = data[i][j];
+        }
+        data[i][i] += n;
+      }
+      final DoubleMatrix2D a = new DoubleMatrix2D(data);
+      final FlatDoubleMatrix2D aFlat = FlatDoubleMatrix2D.of(data);
+      final int nbTest = Math.max(1, 100000000 / (n * n * n));
+      for (int warmup = 0; warmup < 2; warmup++) {
+        long startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          LU.evaluate(aFlat);
+        }
+        final long lu = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          LU_COMMONS.evaluate(a);
+        }
+        final long luCommons = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          cholesky.evaluate(aFlat);
+        }
+        final long ch = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          choleskyCommons.evaluate(a);
+        }
+        final long chCommons = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          qr.evaluate(aFlat);
+        }
+        final long q = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          qrCommons.evaluate(a);
+        }
+        final long qCommons = System.nanoTime() - startTime;
+        if (warmup == 1) {
+          System.out.println(n + "x" + n + " decomposition (us): LU flat " + lu / nbTest / 1000 + ", Commons " + luCommons / nbTest / 1000
+              + "; Cholesky flat " + ch / nbTest / 1000 + ", Commons " + chCommons / nbTest / 1000
+              + "; QR flat " + q / nbTest / 1000 + ", Commons " + qCommons / nbTest / 1000);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+import org.testng.internal.junit.ArrayAsserts;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link QRDecompositionFlat} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class QRDecompositionFlatTest {
+  private static final QRDecompositionFlat QR = new QRDecompositionFlat();
+  private static final Decomposition<QRDecompositionResult> QR_COMMONS = new QRDecompositionCommons();
+  private static final DoubleMatrix2D A = new DoubleMatrix2D(new double[][] {new double[] {1, 2, -1}, new double[] {4, 3, 1}, new double[] {2, 2, 3}});
+  // More rows than columns, solved in the least squares sense
+  private static final DoubleMatrix2D B = new DoubleMatrix2D(new double[][] {new double[] {1, 2}, new double[] {4, 3}, new double[] {2, 2}, new double[] {-1, 5}});
+  private static final double EPS = 1e-9;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullObjectMatrix() {
+    QR.evaluate((DoubleMatrix2D) null);
+  }
+
+  @Test
+  public void testCompareCommons() {
+    for (final DoubleMatrix2D m : new DoubleMatrix2D[] {A, B }) {
+      final QRDecompositionResult qr = QR.evaluate(m);
+      final QRDecompositionResult commons = QR_COMMONS.evaluate(m);
+      checkEquals(commons.getQ(), qr.getQ());
+      checkEquals(commons.getQT(), qr.getQT());
+      checkEquals(commons.getR(), qr.getR());
+      checkEquals(commons.getH(), qr.getH());
+    }
+  }
+
+  @Test
+  public void testSolve() {
+    final double[] b = new double[] {1, -2, 3, 0.5 };
+    final QRDecompositionFlatResult qr = QR.evaluate(FlatDoubleMatrix2D.of(B.getData()));
+    final QRDecompositionResult commons = QR_COMMONS.evaluate(B);
+    ArrayAsserts.assertArrayEquals(commons.solve(b), qr.solve(b), EPS);
+    final DoubleMatrix2D bb = new DoubleMatrix2D(new double[][] { {1, 2}, {-2, 0}, {3, 1}, {0.5, -1}});
+    checkEquals(commons.solve(bb), qr.solve(bb));
+    checkEquals(commons.solve(bb), qr.solve(FlatDoubleMatrix2D.of(bb)).toDoubleMatrix2D());
+  }
+
+  private void checkEquals(final DoubleMatrix2D x, final DoubleMatrix2D y) {
+    final int n = x.getNumberOfRows();
+    final int m = x.getNumberOfColumns();
+    assertEquals(n, y.getNumberOfRows());
+    assertEquals(m, y.getNumberOfColumns());
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        assertEquals(x.getEntry(i, j), y.getEntry(i, j), EPS);
+      }
+    }
+  }
+
+}
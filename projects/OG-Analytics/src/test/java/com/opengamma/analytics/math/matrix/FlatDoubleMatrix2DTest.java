@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link FlatDoubleMatrix2D} class and its kernels in {@link OGMatrixAlgebra}.
+ */
+@Test(groups = TestGroup.UNIT)
+public class FlatDoubleMatrix2DTest {
+
+  private static final OGMatrixAlgebra OG = new OGMatrixAlgebra();
+  private static final MatrixAlgebra COLT = new ColtMatrixAlgebra();
+  private static final MatrixAlgebra COMMONS = new CommonsMatrixAlgebra();
+  private static final double EPS = 1e-10;
+
+  private static double[][] random(final Random random, final int rows, final int columns) {
+    final double[][] data = new double[rows][columns];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        data[i][j] = random.nextDouble() - 0.5;
+      }
+    }
+    return data;
+  }
+
+  private static void checkEquals(final DoubleMatrix2D expected, final FlatDoubleMatrix2D actual) {
+    assertEquals(expected.getNumberOfRows(), actual.getNumberOfRows());
+    assertEquals(expected.getNumberOfColumns(), actual.getNumberOfColumns());
+    for (int i = 0; i < expected.getNumberOfRows(); i++) {
+      for (int j = 0; j < expected.getNumberOfColumns(); j++) {
+        assertEquals(expected.getEntry(i, j), actual.get(i, j), EPS);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongLength() {
+    new FlatDoubleMatrix2D(new double[5], 2, 3);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testViewOutOfRange() {
+    new FlatDoubleMatrix2D(3, 3).getView(1, 1, 3, 1);
+  }
+
+  public void testConversion() {
+    final double[][] data = new double[][] { {1, 2, 3}, {4, 5, 6}};
+    final FlatDoubleMatrix2D m = FlatDoubleMatrix2D.of(data);
+    assertEquals(2, m.getNumberOfRows());
+    assertEquals(3, m.getNumberOfColumns());
+    assertEquals(6.0, m.getEntry(1, 2));
+    assertEquals(new DoubleMatrix2D(data), m.toDoubleMatrix2D());
+    assertEquals(m, FlatDoubleMatrix2D.of(m.toArray()));
+    assertEquals(m.hashCode(), FlatDoubleMatrix2D.of(m.toArray()).hashCode());
+  }
+
+  public void testView() {
+    final FlatDoubleMatrix2D m = FlatDoubleMatrix2D.of(new double[][] { {1, 2, 3, 4}, {5, 6, 7, 8}, {9, 10, 11, 12}});
+    final FlatDoubleMatrix2D view = m.getView(1, 1, 2, 2);
+    assertSame(m.getData(), view.getData());
+    assertEquals(FlatDoubleMatrix2D.of(new double[][] { {6, 7}, {10, 11}}), view.copy());
+    view.set(0, 1, -7);
+    assertEquals(-7.0, m.get(1, 2));
+    assertFalse(view.isContiguous());
+    assertTrue(m.isContiguous());
+  }
+
+  public void testMultiply() {
+    final Random random = new Random(1);
+    // Sizes chosen to cross the block boundaries
+    final double[][] a = random(random, 70, 130);
+    final double[][] b = random(random, 130, 65);
+    final DoubleMatrix2D expected = (DoubleMatrix2D) OG.multiply(new DoubleMatrix2D(a), new DoubleMatrix2D(b));
+    checkEquals(expected, OG.multiply(FlatDoubleMatrix2D.of(a), FlatDoubleMatrix2D.of(b)));
+    checkEquals(expected, (FlatDoubleMatrix2D) OG.multiply((Matrix<?>) FlatDoubleMatrix2D.of(a), (Matrix<?>) FlatDoubleMatrix2D.of(b)));
+  }
+
+  public void testMultiplyIntoView() {
+    final Random random = new Random(2);
+    final double[][] a = random(random, 5, 4);
+    final double[][] b = random(random, 4, 3);
+    final FlatDoubleMatrix2D result = new FlatDoubleMatrix2D(10, 10);
+    result.set(0, 0, 42.0);
+    OG.multiply(FlatDoubleMatrix2D.of(a), FlatDoubleMatrix2D.of(b), result.getView(2, 3, 5, 3));
+    checkEquals((DoubleMatrix2D) OG.multiply(new DoubleMatrix2D(a), new DoubleMatrix2D(b)), result.getView(2, 3, 5, 3));
+    assertEquals(42.0, result.get(0, 0));
+    assertEquals(0.0, result.get(2, 6));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testMultiplyIntoOperand() {
+    final FlatDoubleMatrix2D m = new FlatDoubleMatrix2D(4, 4);
+    OG.multiply(m.getView(0, 0, 2, 2), m.getView(2, 2, 2, 2), m.getView(0, 2, 2, 2));
+  }
+
+  public void testTranspose() {
+    final double[][] a = random(new Random(3), 100, 70);
+    final FlatDoubleMatrix2D flat = FlatDoubleMatrix2D.of(a);
+    checkEquals(OG.getTranspose(new DoubleMatrix2D(a)), OG.getTranspose(flat));
+    final FlatDoubleMatrix2D view = flat.getView(10, 20, 30, 40);
+    checkEquals(OG.getTranspose(view.toDoubleMatrix2D()), OG.getTranspose(view));
+  }
+
+  public void testMultiplyVector() {
+    final Random random = new Random(4);
+    final double[][] a = random(random, 11, 7);
+    final DoubleMatrix1D x = new DoubleMatrix1D(random(random, 1, 7)[0]);
+    final DoubleMatrix1D expected = (DoubleMatrix1D) OG.multiply(new DoubleMatrix2D(a), x);
+    final DoubleMatrix1D actual = (DoubleMatrix1D) OG.multiply((Matrix<?>) FlatDoubleMatrix2D.of(a), x);
+    for (int i = 0; i < 11; i++) {
+      assertEquals(expected.getEntry(i), actual.getEntry(i), EPS);
+    }
+  }
+
+  /**
+   * Performance. For normal tests (enabled = false). Compares the flat kernels with the Colt and Commons implementations.
+   */
+  @Test(enabled = false)
+  public void performance() {
+    final Random random = new Random(5);
+    for (final int n : new int[] {50, 100, 200, 500, 1000, 2000 }) {
+      final double[][] a = random(random, n, n);
+      final double[][] b = random(random, n, n);
+      final DoubleMatrix2D a2 = new DoubleMatrix2D(a);
+      final DoubleMatrix2D b2 = new DoubleMatrix2D(b);
+      final FlatDoubleMatrix2D aFlat = FlatDoubleMatrix2D.of(a);
+      final FlatDoubleMatrix2D bFlat = FlatDoubleMatrix2D.of(b);
+      final int nbTest = Math.max(1, 200000000 / (n * n * n));
+      for (int warmup = 0; warmup < 2; warmup++) {
+        long startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          OG.multiply(aFlat, bFlat);
+        }
+        final long flat = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          OG.multiply(a2, b2);
+        }
+        final long og = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          COLT.multiply(a2, b2);
+        }
+        final long colt = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          COMMONS.multiply(a2, b2);
+        }
+        final long commons = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          OG.getTranspose(aFlat);
+        }
+        final long flatTranspose = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (int looptest = 0; looptest < nbTest; looptest++) {
+          OG.getTranspose(a2);
+        }
+        final long ogTranspose = System.nanoTime() - startTime;
+        if (warmup == 1) {
+          System.out.println(n + "x" + n + " multiply (us): flat " + flat / nbTest / 1000 + ", OpenGamma " + og / nbTest / 1000 + ", Colt " + colt / nbTest / 1000
+              + ", Commons " + commons / nbTest / 1000 + "; transpose (us): flat " + flatTranspose / nbTest / 1000 + ", OpenGamma " + ogTranspose / nbTest / 1000);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the Brownian bridge construction.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BrownianBridgeTest {
+
+  private static final double[] TIMES = new double[] {0.25, 0.5, 1.0, 1.5, 2.0, 3.0, 5.0 };
+  private static final BrownianBridge BRIDGE = new BrownianBridge(TIMES);
+  private static final double TOLERANCE = 1.0E-12;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testTimesNotIncreasing() {
+    new BrownianBridge(new double[] {1.0, 0.5 });
+  }
+
+  @Test
+  /**
+   * The first number alone gives the straight line to the terminal value.
+   */
+  public void terminal() {
+    final int n = TIMES.length;
+    final double[][] normals = new double[n][1];
+    normals[0][0] = 1.0;
+    final double[][] increments = new double[n][1];
+    BRIDGE.transform(normals, increments, 1);
+    final double tN = TIMES[n - 1];
+    double previous = 0.0;
+    for (int loopt = 0; loopt < n; loopt++) {
+      final double step = TIMES[loopt] - previous;
+      assertEquals("Brownian bridge - terminal", Math.sqrt(step / tN), increments[loopt][0], TOLERANCE);
+      previous = TIMES[loopt];
+    }
+  }
+
+  @Test
+  /**
+   * The map from the normal numbers to the normalised increments is orthogonal, so the increments are independent standard normals.
+   */
+  public void orthogonal() {
+    final int n = TIMES.length;
+    final double[][] normals = new double[n][n];
+    for (int loopt = 0; loopt < n; loopt++) {
+      normals[loopt][loopt] = 1.0; // path p has the unit vector p
+    }
+    final double[][] increments = new double[n][n];
+    BRIDGE.transform(normals, increments, n);
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        double product = 0;
+        for (int looppath = 0; looppath < n; looppath++) {
+          product += increments[i][looppath] * increments[j][looppath];
+        }
+        assertEquals("Brownian bridge - covariance " + i + " " + j, i == j ? 1.0 : 0.0, product, TOLERANCE);
+      }
+    }
+  }
+
+  @Test
+  /**
+   * The generator applies the bridge to each factor and keeps the paths of an indexed generator independent of the block.
+   */
+  public void generator() {
+    final int nbFactor = 2;
+    final int nbStep = 5;
+    final int nbPath = 20;
+    final NormalBlockGenerator underlying = new PseudoRandomNormalBlockGenerator(1234);
+    final BrownianBridgeNormalBlockGenerator generator = new BrownianBridgeNormalBlockGenerator(underlying, nbFactor);
+    final double[][] z = new double[nbFactor * nbStep][nbPath];
+    underlying.fill(0, z, nbPath);
+    final double[][] result = new double[nbFactor * nbStep][nbPath];
+    generator.fill(0, result, nbPath);
+    final BrownianBridge bridge = new BrownianBridge(new double[] {1, 2, 3, 4, 5 });
+    for (int loopfact = 0; loopfact < nbFactor; loopfact++) {
+      final double[][] factorNormals = new double[nbStep][];
+      final double[][] factorIncrements = new double[nbStep][nbPath];
+      for (int loopstep = 0; loopstep < nbStep; loopstep++) {
+        factorNormals[loopstep] = z[loopstep * nbFactor + loopfact];
+      }
+      bridge.transform(factorNormals, factorIncrements, nbPath);
+      for (int loopstep = 0; loopstep < nbStep; loopstep++) {
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          assertEquals("Brownian bridge generator", factorIncrements[loopstep][looppath], result[loopstep * nbFactor + loopfact][looppath], 0.0);
+        }
+      }
+    }
+    final double[][] block = new double[nbFactor * nbStep][nbPath - 7];
+    generator.fill(7, block, nbPath - 7);
+    for (int loopdim = 0; loopdim < nbFactor * nbStep; loopdim++) {
+      for (int looppath = 7; looppath < nbPath; looppath++) {
+        assertEquals("Brownian bridge generator - block", result[loopdim][looppath], block[loopdim][looppath - 7], 0.0);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the Sobol sequence and the normal numbers generated from it.
+ */
+@Test(groups = TestGroup.UNIT)
+public class SobolSequenceGeneratorTest {
+
+  private static final int DIMENSION = SobolSequenceGenerator.MAX_DIMENSION;
+  private static final SobolSequenceGenerator SOBOL = new SobolSequenceGenerator(DIMENSION);
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDimensionTooLarge() {
+    new SobolSequenceGenerator(SobolSequenceGenerator.MAX_DIMENSION + 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testTooManyCoordinates() {
+    new SobolSequenceGenerator(2).fill(0, new double[3][1], 1);
+  }
+
+  @Test
+  public void firstPoints() {
+    final double[][] points = new double[2][4];
+    SOBOL.fill(0, points, 4);
+    final double[][] expected = new double[][] { {0.0, 0.5, 0.75, 0.25 }, {0.0, 0.5, 0.25, 0.75 } };
+    for (int loopdim = 0; loopdim < 2; loopdim++) {
+      for (int looppt = 0; looppt < 4; looppt++) {
+        assertEquals("Sobol - point " + looppt, expected[loopdim][looppt], points[loopdim][looppt], 0.0);
+      }
+    }
+  }
+
+  @Test
+  /**
+   * The first 2^k points have exactly one coordinate in each interval [i / 2^k, (i + 1) / 2^k), in every dimension.
+   */
+  public void stratification() {
+    final int nbPoints = 1024;
+    final double[][] points = new double[DIMENSION][nbPoints];
+    SOBOL.fill(0, points, nbPoints);
+    for (int loopdim = 0; loopdim < DIMENSION; loopdim++) {
+      final boolean[] hit = new boolean[nbPoints];
+      for (int looppt = 0; looppt < nbPoints; looppt++) {
+        final int bin = (int) (points[loopdim][looppt] * nbPoints);
+        assertTrue("Sobol - stratification - dimension " + loopdim, !hit[bin]);
+        hit[bin] = true;
+      }
+    }
+  }
+
+  @Test
+  /**
+   * A block starting at any index gives the same points as the sequence generated from the origin.
+   */
+  public void blocks() {
+    final int nbPoints = 300;
+    final double[][] all = new double[DIMENSION][nbPoints];
+    SOBOL.fill(0, all, nbPoints);
+    final int first = 77;
+    final double[][] block = new double[DIMENSION][nbPoints - first];
+    SOBOL.fill(first, block, nbPoints - first);
+    for (int loopdim = 0; loopdim < DIMENSION; loopdim++) {
+      for (int looppt = first; looppt < nbPoints; looppt++) {
+        assertEquals("Sobol - block", all[loopdim][looppt], block[loopdim][looppt - first], 0.0);
+      }
+    }
+  }
+
+  @Test
+  /**
+   * The normal numbers are finite and their mean and variance are close to 0 and 1, beyond the dimension of the sequence too.
+   */
+  public void normal() {
+    final int nbPath = 4096;
+    final int dimension = DIMENSION + 3;
+    final double[][] normals = new double[dimension][nbPath];
+    new SobolNormalBlockGenerator(0).fill(0, normals, nbPath);
+    for (int loopdim = 0; loopdim < dimension; loopdim++) {
+      double sum = 0;
+      double sum2 = 0;
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        assertTrue("Sobol normal - finite", !Double.isInfinite(normals[loopdim][looppath]) && !Double.isNaN(normals[loopdim][looppath]));
+        sum += normals[loopdim][looppath];
+        sum2 += normals[loopdim][looppath] * normals[loopdim][looppath];
+      }
+      final double tolerance = loopdim < DIMENSION ? 1.0E-2 : 1.0E-1;
+      assertEquals("Sobol normal - mean - dimension " + loopdim, 0.0, sum / nbPath, tolerance);
+      assertEquals("Sobol normal - variance - dimension " + loopdim, 1.0, sum2 / nbPath, tolerance);
+    }
+  }
+
+}
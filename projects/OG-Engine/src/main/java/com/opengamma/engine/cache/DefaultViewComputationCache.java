@@ -29,6 +29,7 @@ import com.opengamma.engine.value.ComputedValue;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.fudgemsg.WriteReplaceHelper;
+import com.opengamma.util.metric.LatencyRecorder;
 import com.opengamma.util.tuple.Pair;
 import com.opengamma.util.tuple.Pairs;
 
@@ -53,6 +54,9 @@ public class DefaultViewComputationCache implements ViewComputationCache,
 
   private static final int NATIVE_FIELD_INDEX = -1;
 
+  private static final String GET_PHASE = "ViewComputationCache.get";
+  private static final String PUT_PHASE = "ViewComputationCache.put";
+
   private final IdentifierMap _identifierMap;
   private final FudgeMessageStore _privateDataStore;
   private final FudgeMessageStore _sharedDataStore;
@@ -161,6 +165,15 @@ public class DefaultViewComputationCache implements ViewComputationCache,
 
   @Override
   public Object getValue(final ValueSpecification specification) {
+    final long start = LatencyRecorder.start();
+    try {
+      return getValueImpl(specification);
+    } finally {
+      LatencyRecorder.stop(GET_PHASE, start);
+    }
+  }
+
+  private Object getValueImpl(final ValueSpecification specification) {
     ArgumentChecker.notNull(specification, "Specification");
     final long identifier = getIdentifierMap().getIdentifier(specification);
     FudgeMsg data = getPrivateDataStore().get(identifier);
@@ -185,6 +198,15 @@ public class DefaultViewComputationCache implements ViewComputationCache,
 
   @Override
   public Object getValue(final ValueSpecification specification, final CacheSelectHint filter) {
+    final long start = LatencyRecorder.start();
+    try {
+      return getValueImpl(specification, filter);
+    } finally {
+      LatencyRecorder.stop(GET_PHASE, start);
+    }
+  }
+
+  private Object getValueImpl(final ValueSpecification specification, final CacheSelectHint filter) {
     ArgumentChecker.notNull(specification, "Specification");
     final long identifier = getIdentifierMap().getIdentifier(specification);
     final boolean isPrivate = filter.isPrivateValue(specification);
@@ -200,6 +222,15 @@ public class DefaultViewComputationCache implements ViewComputationCache,
 
   @Override
   public Collection<Pair<ValueSpecification, Object>> getValues(final Collection<ValueSpecification> specifications) {
+    final long start = LatencyRecorder.start();
+    try {
+      return getValuesImpl(specifications);
+    } finally {
+      LatencyRecorder.stop(GET_PHASE, start);
+    }
+  }
+
+  private Collection<Pair<ValueSpecification, Object>> getValuesImpl(final Collection<ValueSpecification> specifications) {
     ArgumentChecker.notNull(specifications, "specifications");
     final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
     final Collection<Pair<ValueSpecification, Object>> returnValues = new ArrayList<Pair<ValueSpecification, Object>>(specifications.size());
@@ -261,6 +292,15 @@ public class DefaultViewComputationCache implements ViewComputationCache,
 
   @Override
   public Collection<Pair<ValueSpecification, Object>> getValues(final Collection<ValueSpecification> specifications, final CacheSelectHint filter) {
+    final long start = LatencyRecorder.start();
+    try {
+      return getValuesImpl(specifications, filter);
+    } finally {
+      LatencyRecorder.stop(GET_PHASE, start);
+    }
+  }
+
+  private Collection<Pair<ValueSpecification, Object>> getValuesImpl(final Collection<ValueSpecification> specifications, final CacheSelectHint filter) {
     ArgumentChecker.notNull(specifications, "specifications");
     final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
     final Collection<Pair<ValueSpecification, Object>> returnValues = new ArrayList<Pair<ValueSpecification, Object>>(specifications.size());
@@ -312,6 +352,15 @@ public class DefaultViewComputationCache implements ViewComputationCache,
   }
 
   protected void putValue(final ComputedValue value, final FudgeMessageStore dataStore) {
+    final long start = LatencyRecorder.start();
+    try {
+      putValueImpl(value, dataStore);
+    } finally {
+      LatencyRecorder.stop(PUT_PHASE, start);
+    }
+  }
+
+  private void putValueImpl(final ComputedValue value, final FudgeMessageStore dataStore) {
     ArgumentChecker.notNull(value, "value");
     final long identifier = getIdentifierMap().getIdentifier(value.getSpecification());
     final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
@@ -337,6 +386,15 @@ public class DefaultViewComputationCache implements ViewComputationCache,
   }
 
   protected void putValues(final Collection<? extends ComputedValue> values, final FudgeMessageStore dataStore) {
+    final long start = LatencyRecorder.start();
+    try {
+      putValuesImpl(values, dataStore);
+    } finally {
+      LatencyRecorder.stop(PUT_PHASE, start);
+    }
+  }
+
+  private void putValuesImpl(final Collection<? extends ComputedValue> values, final FudgeMessageStore dataStore) {
     ArgumentChecker.notNull(values, "values");
     final Collection<ValueSpecification> specifications = new ArrayList<ValueSpecification>(values.size());
     for (final ComputedValue value : values) {
@@ -366,6 +424,15 @@ public class DefaultViewComputationCache implements ViewComputationCache,
 
   @Override
   public void putValues(final Collection<? extends ComputedValue> values, final CacheSelectHint filter) {
+    final long start = LatencyRecorder.start();
+    try {
+      putValuesImpl(values, filter);
+    } finally {
+      LatencyRecorder.stop(PUT_PHASE, start);
+    }
+  }
+
+  private void putValuesImpl(final Collection<? extends ComputedValue> values, final CacheSelectHint filter) {
     ArgumentChecker.notNull(values, "values");
     final Collection<ValueSpecification> specifications = new ArrayList<ValueSpecification>(values.size());
     for (final ComputedValue value : values) {
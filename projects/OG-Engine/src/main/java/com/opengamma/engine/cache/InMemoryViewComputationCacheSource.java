@@ -9,6 +9,9 @@ import org.fudgemsg.FudgeContext;
 
 /**
  * An implementation of {@link ViewComputationCacheSource} that generates map backed caches.
+ * <p>
+ * The identifiers are allocated by an {@link InterningIdentifierMap}, which is also the map used to encode jobs sent to remote calculation nodes when this source's
+ * {@link #getIdentifierMap} is given to the node server.
  */
 public class InMemoryViewComputationCacheSource extends DefaultViewComputationCacheSource {
 
@@ -16,7 +19,7 @@ public class InMemoryViewComputationCacheSource extends DefaultViewComputationCa
    * @param fudgeContext Fudge context to use for serialization
    */
   public InMemoryViewComputationCacheSource(final FudgeContext fudgeContext) {
-    super(new InMemoryIdentifierMap(), fudgeContext, new DefaultFudgeMessageStoreFactory(
+    super(new InterningIdentifierMap(), fudgeContext, new DefaultFudgeMessageStoreFactory(
         new InMemoryBinaryDataStoreFactory(), fudgeContext), new DefaultFudgeMessageStoreFactory(
             new InMemoryBinaryDataStoreFactory(), fudgeContext));
   }
@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An in-memory implementation of {@link IdentifierMap} specialised for very large numbers of specifications.
+ * <p>
+ * Specifications are interned into an open-addressing hash table holding the identifiers in a primitive array, and the reverse mapping is a chunked array indexed directly by the identifier.
+ * Identifiers are allocated sequentially from one. Lookups of existing specifications, in either direction, are lock free; allocating new identifiers takes a single lock which the batch
+ * operations acquire at most once per call.
+ * <p>
+ * In addition to the {@link IdentifierMap} methods, {@link #getIdentifiers(ValueSpecification[])} and {@link #getValueSpecifications(long[])} operate on arrays so that callers that already
+ * hold their specifications in arrays, such as {@link com.opengamma.engine.calcnode.CalculationJob#convertValueSpecifications(IdentifierMap)}, can encode them without building intermediate
+ * maps. This is the identifier map used by {@link InMemoryViewComputationCacheSource}.
+ */
+public class InterningIdentifierMap extends AbstractIdentifierMap implements IdentifierMap {
+
+  private static final long NO_IDENTIFIER = 0L;
+
+  private static final int CHUNK_BITS = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+  /**
+   * The forward table. The table is only mutated under the lock, and is never mutated after being replaced by a larger one. The identifier for a slot is written before the key is published
+   * so a reader that sees a key will also see its identifier.
+   */
+  private static final class Table {
+
+    private final AtomicReferenceArray<ValueSpecification> _keys;
+    private final long[] _identifiers;
+    private final int _mask;
+
+    private Table(final int capacity) {
+      _keys = new AtomicReferenceArray<ValueSpecification>(capacity);
+      _identifiers = new long[capacity];
+      _mask = capacity - 1;
+    }
+
+    private int capacity() {
+      return _identifiers.length;
+    }
+
+    private long find(final ValueSpecification specification, final int hash) {
+      int i = hash & _mask;
+      while (true) {
+        final ValueSpecification key = _keys.get(i);
+        if (key == null) {
+          return NO_IDENTIFIER;
+        }
+        if ((key == specification) || key.equals(specification)) {
+          return _identifiers[i];
+        }
+        i = (i + 1) & _mask;
+      }
+    }
+
+    private void insert(final ValueSpecification specification, final int hash, final long identifier) {
+      int i = hash & _mask;
+      while (_keys.get(i) != null) {
+        i = (i + 1) & _mask;
+      }
+      _identifiers[i] = identifier;
+      _keys.set(i, specification);
+    }
+
+  }
+
+  private final Object _lock = new Object();
+  private volatile Table _table;
+  private volatile ValueSpecification[][] _reverse;
+  private long _nextIdentifier = 1L;
+  private int _size;
+
+  public InterningIdentifierMap() {
+    this(DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates a new map.
+   *
+   * @param expectedSize the number of specifications the map is expected to hold
+   */
+  public InterningIdentifierMap(final int expectedSize) {
+    ArgumentChecker.notNegative(expectedSize, "expectedSize");
+    _table = new Table(tableCapacity(expectedSize));
+    _reverse = new ValueSpecification[(expectedSize >> CHUNK_BITS) + 1][];
+  }
+
+  private static int tableCapacity(final int size) {
+    // Keep the load factor at or below one half
+    int capacity = 16;
+    while (capacity < size * 2) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private static int hash(final ValueSpecification specification) {
+    final int h = specification.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns the number of specifications interned.
+   *
+   * @return the number of identifiers allocated
+   */
+  public int size() {
+    synchronized (_lock) {
+      return _size;
+    }
+  }
+
+  // Caller must hold the lock
+  private long allocate(final ValueSpecification specification, final int hash) {
+    Table table = _table;
+    long identifier = table.find(specification, hash);
+    if (identifier != NO_IDENTIFIER) {
+      return identifier;
+    }
+    identifier = _nextIdentifier++;
+    final int chunk = (int) (identifier >>> CHUNK_BITS);
+    ValueSpecification[][] reverse = _reverse;
+    if (chunk >= reverse.length) {
+      final ValueSpecification[][] newReverse = new ValueSpecification[Math.max(chunk + 1, reverse.length * 2)][];
+      System.arraycopy(reverse, 0, newReverse, 0, reverse.length);
+      reverse = newReverse;
+      _reverse = reverse;
+    }
+    if (reverse[chunk] == null) {
+      reverse[chunk] = new ValueSpecification[CHUNK_SIZE];
+    }
+    reverse[chunk][(int) identifier & CHUNK_MASK] = specification;
+    if (++_size * 2 > table.capacity()) {
+      final Table newTable = new Table(table.capacity() << 1);
+      for (int i = 0; i < table.capacity(); i++) {
+        final ValueSpecification key = table._keys.get(i);
+        if (key != null) {
+          newTable.insert(key, hash(key), table._identifiers[i]);
+        }
+      }
+      table = newTable;
+      _table = table;
+    }
+    // Publishing the key after the reverse entry makes the reverse entry visible to any reader that obtained the identifier from the table
+    table.insert(specification, hash, identifier);
+    return identifier;
+  }
+
+  @Override
+  public long getIdentifier(final ValueSpecification specification) {
+    ArgumentChecker.notNull(specification, "specification");
+    final int hash = hash(specification);
+    final long identifier = _table.find(specification, hash);
+    if (identifier != NO_IDENTIFIER) {
+      return identifier;
+    }
+    synchronized (_lock) {
+      return allocate(specification, hash);
+    }
+  }
+
+  /**
+   * Batch form of {@link #getIdentifier}, allocating identifiers for any specifications not already known.
+   *
+   * @param specifications the specifications to look up, not null and not containing null
+   * @return the identifiers, in the same order as the specifications, not null
+   */
+  public long[] getIdentifiers(final ValueSpecification[] specifications) {
+    final long[] identifiers = new long[specifications.length];
+    final Table table = _table;
+    int missing = 0;
+    for (int i = 0; i < specifications.length; i++) {
+      final long identifier = table.find(specifications[i], hash(specifications[i]));
+      if (identifier == NO_IDENTIFIER) {
+        missing++;
+      } else {
+        identifiers[i] = identifier;
+      }
+    }
+    if (missing > 0) {
+      synchronized (_lock) {
+        for (int i = 0; i < specifications.length; i++) {
+          if (identifiers[i] == NO_IDENTIFIER) {
+            identifiers[i] = allocate(specifications[i], hash(specifications[i]));
+          }
+        }
+      }
+    }
+    return identifiers;
+  }
+
+  @Override
+  public Object2LongMap<ValueSpecification> getIdentifiers(final Collection<ValueSpecification> specifications) {
+    final ValueSpecification[] specificationArray = specifications.toArray(new ValueSpecification[specifications.size()]);
+    final long[] identifiers = getIdentifiers(specificationArray);
+    final Object2LongMap<ValueSpecification> result = new Object2LongOpenHashMap<ValueSpecification>(specificationArray.length);
+    for (int i = 0; i < specificationArray.length; i++) {
+      result.put(specificationArray[i], identifiers[i]);
+    }
+    return result;
+  }
+
+  private static ValueSpecification getValueSpecification(final ValueSpecification[][] reverse, final long identifier) {
+    if (identifier <= 0) {
+      return null;
+    }
+    final long chunk = identifier >>> CHUNK_BITS;
+    if (chunk >= reverse.length) {
+      return null;
+    }
+    final ValueSpecification[] specifications = reverse[(int) chunk];
+    if (specifications == null) {
+      return null;
+    }
+    return specifications[(int) identifier & CHUNK_MASK];
+  }
+
+  @Override
+  public ValueSpecification getValueSpecification(final long identifier) {
+    return getValueSpecification(_reverse, identifier);
+  }
+
+  /**
+   * Batch form of {@link #getValueSpecification}.
+   *
+   * @param identifiers the identifiers to look up, not null
+   * @return the specifications, in the same order as the identifiers, not null. Any unknown identifiers will have a null entry
+   */
+  public ValueSpecification[] getValueSpecifications(final long[] identifiers) {
+    final ValueSpecification[][] reverse = _reverse;
+    final ValueSpecification[] specifications = new ValueSpecification[identifiers.length];
+    for (int i = 0; i < identifiers.length; i++) {
+      specifications[i] = getValueSpecification(reverse, identifiers[i]);
+    }
+    return specifications;
+  }
+
+  @Override
+  public Long2ObjectMap<ValueSpecification> getValueSpecifications(final LongCollection identifiers) {
+    final ValueSpecification[][] reverse = _reverse;
+    final Long2ObjectMap<ValueSpecification> result = new Long2ObjectOpenHashMap<ValueSpecification>(identifiers.size());
+    final LongIterator itr = identifiers.iterator();
+    while (itr.hasNext()) {
+      final long identifier = itr.nextLong();
+      result.put(identifier, getValueSpecification(reverse, identifier));
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link BinaryDataStore} which holds the data outside of the Java heap.
+ * <p>
+ * Values are appended to large segments (direct or memory-mapped buffers obtained from the owning {@link OffHeapBinaryDataStoreFactory}) and located through a primitive identifier to
+ * offset table. The only heap objects retained for the lifetime of the store are the segment references and the offset table so a large cycle does not promote millions of short-lived arrays into
+ * the old generation. When the store is deleted all of its segments are handed back to the factory in one step for reuse by a subsequent cycle.
+ * <p>
+ * This class is internally synchronized.
+ */
+public class OffHeapBinaryDataStore extends AbstractBinaryDataStore implements BinaryDataStore {
+
+  /**
+   * Each entry is written as a 4 byte length prefix followed by the data.
+   */
+  private static final int HEADER_SIZE = 4;
+
+  private static final long NO_ENTRY = -1L;
+
+  private final OffHeapBinaryDataStoreFactory _segments;
+  private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+  /**
+   * Maps an identifier to its location, encoded as the segment index in the upper 32 bits and offset within the segment in the lower 32 bits.
+   */
+  private final Long2LongOpenHashMap _index = new Long2LongOpenHashMap();
+  private final List<ByteBuffer> _segmentBuffers = new ArrayList<ByteBuffer>();
+  private ByteBuffer _current;
+  private int _currentSegment = -1;
+  private boolean _deleted;
+
+  /**
+   * Creates a new store.
+   *
+   * @param segments the source of segment buffers, not null
+   */
+  protected OffHeapBinaryDataStore(final OffHeapBinaryDataStoreFactory segments) {
+    ArgumentChecker.notNull(segments, "segments");
+    _segments = segments;
+    _index.defaultReturnValue(NO_ENTRY);
+  }
+
+  private static long location(final int segment, final int offset) {
+    return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+  }
+
+  private static int segment(final long location) {
+    return (int) (location >>> 32);
+  }
+
+  private static int offset(final long location) {
+    return (int) location;
+  }
+
+  /**
+   * Returns the number of bytes currently reserved by this store outside of the heap.
+   *
+   * @return the number of bytes held in segments
+   */
+  public long getReservedBytes() {
+    _lock.readLock().lock();
+    try {
+      long size = 0;
+      for (ByteBuffer segment : _segmentBuffers) {
+        size += segment.capacity();
+      }
+      return size;
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  // Caller must hold the read lock
+  private byte[] read(final long location) {
+    final ByteBuffer buffer = _segmentBuffers.get(segment(location)).duplicate();
+    buffer.position(offset(location));
+    final byte[] data = new byte[buffer.getInt()];
+    buffer.get(data);
+    return data;
+  }
+
+  // Caller must hold the write lock
+  private long write(final byte[] data) {
+    final int required = data.length + HEADER_SIZE;
+    if ((_current == null) || (_current.remaining() < required)) {
+      _current = _segments.allocateSegment(required);
+      _segmentBuffers.add(_current);
+      _currentSegment = _segmentBuffers.size() - 1;
+    }
+    final long location = location(_currentSegment, _current.position());
+    _current.putInt(data.length);
+    _current.put(data);
+    return location;
+  }
+
+  @Override
+  public byte[] get(final long identifier) {
+    _lock.readLock().lock();
+    try {
+      final long location = _index.get(identifier);
+      if (location == NO_ENTRY) {
+        return null;
+      }
+      return read(location);
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Map<Long, byte[]> get(final Collection<Long> identifiers) {
+    final Map<Long, byte[]> result = new HashMap<Long, byte[]>();
+    _lock.readLock().lock();
+    try {
+      for (Long identifier : identifiers) {
+        final long location = _index.get(identifier.longValue());
+        if (location != NO_ENTRY) {
+          result.put(identifier, read(location));
+        }
+      }
+    } finally {
+      _lock.readLock().unlock();
+    }
+    return result;
+  }
+
+  @Override
+  public void put(final long identifier, final byte[] data) {
+    ArgumentChecker.notNull(data, "data");
+    _lock.writeLock().lock();
+    try {
+      if (_deleted) {
+        throw new IllegalStateException("Data store has been deleted");
+      }
+      // Any previous value is abandoned in its segment; the space is recovered when the whole store is deleted
+      _index.put(identifier, write(data));
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(final Map<Long, byte[]> data) {
+    _lock.writeLock().lock();
+    try {
+      if (_deleted) {
+        throw new IllegalStateException("Data store has been deleted");
+      }
+      for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
+        ArgumentChecker.notNull(entry.getValue(), "data");
+        _index.put(entry.getKey().longValue(), write(entry.getValue()));
+      }
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void delete() {
+    _lock.writeLock().lock();
+    try {
+      if (_deleted) {
+        return;
+      }
+      _deleted = true;
+      _index.clear();
+      _index.trim();
+      for (ByteBuffer segment : _segmentBuffers) {
+        _segments.releaseSegment(segment);
+      }
+      _segmentBuffers.clear();
+      _current = null;
+      _currentSegment = -1;
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+}
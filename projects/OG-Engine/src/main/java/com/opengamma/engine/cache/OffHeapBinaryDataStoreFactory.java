@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Creates {@link OffHeapBinaryDataStore} instances.
+ * <p>
+ * The factory owns the segments the stores write into. Segments are either direct buffers or, if a directory is given, memory-mapped temporary files. When a store is deleted its segments come
+ * back to a bounded pool here so that the next cycle can reuse them without having to allocate (and later reclaim) fresh native memory.
+ */
+public class OffHeapBinaryDataStoreFactory implements BinaryDataStoreFactory {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(OffHeapBinaryDataStoreFactory.class);
+
+  /**
+   * The default segment size, 16Mb.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+  /**
+   * The default number of unused segments to retain for reuse.
+   */
+  public static final int DEFAULT_MAX_POOLED_SEGMENTS = 64;
+
+  private final int _segmentSize;
+  private final int _maxPooledSegments;
+  private final File _mappedFileDirectory;
+  private final Queue<ByteBuffer> _pool = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final AtomicInteger _pooled = new AtomicInteger();
+  private final AtomicInteger _segmentFileCount = new AtomicInteger();
+
+  /**
+   * Creates a factory that allocates direct buffers of the default segment size.
+   */
+  public OffHeapBinaryDataStoreFactory() {
+    this(DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_POOLED_SEGMENTS, null);
+  }
+
+  /**
+   * Creates a factory that allocates direct buffers.
+   *
+   * @param segmentSize the size of each segment in bytes
+   * @param maxPooledSegments the number of released segments to retain for reuse
+   */
+  public OffHeapBinaryDataStoreFactory(final int segmentSize, final int maxPooledSegments) {
+    this(segmentSize, maxPooledSegments, null);
+  }
+
+  /**
+   * Creates a factory.
+   *
+   * @param segmentSize the size of each segment in bytes
+   * @param maxPooledSegments the number of released segments to retain for reuse
+   * @param mappedFileDirectory the directory to create memory-mapped segment files in, or null to use direct buffers
+   */
+  public OffHeapBinaryDataStoreFactory(final int segmentSize, final int maxPooledSegments, final File mappedFileDirectory) {
+    ArgumentChecker.notNegativeOrZero(segmentSize, "segmentSize");
+    ArgumentChecker.notNegative(maxPooledSegments, "maxPooledSegments");
+    if (mappedFileDirectory != null) {
+      ArgumentChecker.isTrue(mappedFileDirectory.isDirectory(), "mappedFileDirectory must be a directory");
+    }
+    _segmentSize = segmentSize;
+    _maxPooledSegments = maxPooledSegments;
+    _mappedFileDirectory = mappedFileDirectory;
+  }
+
+  public int getSegmentSize() {
+    return _segmentSize;
+  }
+
+  public int getMaxPooledSegments() {
+    return _maxPooledSegments;
+  }
+
+  public File getMappedFileDirectory() {
+    return _mappedFileDirectory;
+  }
+
+  /**
+   * Returns the number of released segments currently held for reuse.
+   *
+   * @return the pool size
+   */
+  public int getPooledSegments() {
+    return _pooled.get();
+  }
+
+  /**
+   * Obtains a segment with at least the required capacity, reusing a pooled one if possible.
+   *
+   * @param required the minimum number of bytes required
+   * @return the segment, positioned at zero
+   */
+  protected ByteBuffer allocateSegment(final int required) {
+    if (required <= _segmentSize) {
+      final ByteBuffer segment = _pool.poll();
+      if (segment != null) {
+        _pooled.decrementAndGet();
+        segment.clear();
+        return segment;
+      }
+      return createSegment(_segmentSize);
+    } else {
+      // Oversize values get a dedicated segment which is never pooled
+      return createSegment(required);
+    }
+  }
+
+  /**
+   * Returns a segment that is no longer in use.
+   *
+   * @param segment the segment
+   */
+  protected void releaseSegment(final ByteBuffer segment) {
+    if (segment.capacity() != _segmentSize) {
+      return;
+    }
+    if (_pooled.incrementAndGet() <= _maxPooledSegments) {
+      _pool.add(segment);
+    } else {
+      _pooled.decrementAndGet();
+    }
+  }
+
+  protected ByteBuffer createSegment(final int size) {
+    if (_mappedFileDirectory == null) {
+      return ByteBuffer.allocateDirect(size);
+    }
+    final File file = new File(_mappedFileDirectory, "segment-" + System.identityHashCode(this) + "-" + _segmentFileCount.incrementAndGet() + ".dat");
+    try {
+      final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+        raf.setLength(size);
+        return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      } finally {
+        raf.close();
+        // The mapping remains valid after the file is unlinked; the space is returned to the file system when the buffer is collected
+        if (!file.delete()) {
+          s_logger.warn("Couldn't delete segment file {}", file);
+          file.deleteOnExit();
+        }
+      }
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't create memory-mapped segment in " + _mappedFileDirectory, e);
+    }
+  }
+
+  @Override
+  public BinaryDataStore createDataStore(final ViewComputationCacheKey cacheKey) {
+    return new OffHeapBinaryDataStore(this);
+  }
+
+}
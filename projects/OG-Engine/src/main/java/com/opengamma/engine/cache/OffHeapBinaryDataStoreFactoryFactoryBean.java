@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import java.io.File;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.opengamma.util.SingletonFactoryBean;
+
+/**
+ * Spring factory bean for the binary data store factory used by a view computation cache.
+ * <p>
+ * If enabled, values are held off the Java heap by an {@link OffHeapBinaryDataStoreFactory}; otherwise the default {@link InMemoryBinaryDataStoreFactory} is used. This lets a configuration switch
+ * between the two with a single property.
+ */
+public class OffHeapBinaryDataStoreFactoryFactoryBean extends SingletonFactoryBean<BinaryDataStoreFactory> {
+
+  private boolean _enabled;
+  private int _segmentSize = OffHeapBinaryDataStoreFactory.DEFAULT_SEGMENT_SIZE;
+  private int _maxPooledSegments = OffHeapBinaryDataStoreFactory.DEFAULT_MAX_POOLED_SEGMENTS;
+  private String _mappedFileDirectory;
+
+  public boolean isEnabled() {
+    return _enabled;
+  }
+
+  public void setEnabled(final boolean enabled) {
+    _enabled = enabled;
+  }
+
+  public int getSegmentSize() {
+    return _segmentSize;
+  }
+
+  public void setSegmentSize(final int segmentSize) {
+    _segmentSize = segmentSize;
+  }
+
+  public int getMaxPooledSegments() {
+    return _maxPooledSegments;
+  }
+
+  public void setMaxPooledSegments(final int maxPooledSegments) {
+    _maxPooledSegments = maxPooledSegments;
+  }
+
+  public String getMappedFileDirectory() {
+    return _mappedFileDirectory;
+  }
+
+  /**
+   * Sets the directory to create memory-mapped segment files in. If this is blank, direct buffers are used.
+   *
+   * @param mappedFileDirectory the directory, null or blank for direct buffers
+   */
+  public void setMappedFileDirectory(final String mappedFileDirectory) {
+    _mappedFileDirectory = mappedFileDirectory;
+  }
+
+  @Override
+  protected BinaryDataStoreFactory createObject() {
+    if (!isEnabled()) {
+      return new InMemoryBinaryDataStoreFactory();
+    }
+    File directory = null;
+    if (StringUtils.isNotBlank(getMappedFileDirectory())) {
+      directory = new File(getMappedFileDirectory());
+      if (!directory.exists()) {
+        directory.mkdirs();
+      }
+    }
+    return new OffHeapBinaryDataStoreFactory(getSegmentSize(), getMaxPooledSegments(), directory);
+  }
+
+}
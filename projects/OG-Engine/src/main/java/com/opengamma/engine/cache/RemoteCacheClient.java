@@ -5,6 +5,11 @@
  */
 package com.opengamma.engine.cache;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.mapping.FudgeDeserializer;
@@ -22,6 +27,10 @@ import com.opengamma.util.ArgumentChecker;
  * has a "get" and "put" channel. Although equal priority, this gives two blocking queues to isolate
  * operations that query the cache from those that update or control it. This allows, for example,
  * cache writes from a previous job to not delay loads needed by the next job.
+ * <p>
+ * Requests that would be too large for a single message can be split into batches which are pipelined
+ * on the channel; up to {@link #getMaxRequestsInFlight} batches are sent before waiting for the first
+ * response.
  */
 public class RemoteCacheClient {
 
@@ -50,6 +59,32 @@ public class RemoteCacheClient {
       return response;
     }
 
+    private <Request extends CacheMessage, Response extends CacheMessage> List<Response> sendMessages(final List<Request> requests, final Class<Response> responseClass) {
+      final FudgeSerializer scontext = new FudgeSerializer(getMessageSender().getFudgeContext());
+      final FudgeDeserializer dcontext = new FudgeDeserializer(getMessageSender().getFudgeContext());
+      final List<Response> responses = new ArrayList<Response>(requests.size());
+      final Deque<PendingRequest> pending = new ArrayDeque<PendingRequest>();
+      try {
+        for (Request request : requests) {
+          if (pending.size() >= getMaxRequestsInFlight()) {
+            responses.add(dcontext.fudgeMsgToObject(responseClass, waitForResponse(pending.removeFirst())));
+          }
+          final long correlationId = getNextCorrelationId();
+          request.setCorrelationId(correlationId);
+          pending.addLast(sendRequest(FudgeSerializer.addClassHeader(scontext.objectToFudgeMsg(request), request.getClass(), CacheMessage.class), correlationId));
+        }
+        while (!pending.isEmpty()) {
+          responses.add(dcontext.fudgeMsgToObject(responseClass, waitForResponse(pending.removeFirst())));
+        }
+      } finally {
+        // If a request failed, the ones still in flight will not be waited for
+        while (!pending.isEmpty()) {
+          abandonRequest(pending.removeFirst());
+        }
+      }
+      return responses;
+    }
+
     private <Message extends CacheMessage> void postMessage(final Message message) {
       final FudgeSerializer scontext = new FudgeSerializer(getMessageSender().getFudgeContext());
       sendMessage(FudgeSerializer.addClassHeader(scontext.objectToFudgeMsg(message), message.getClass(), CacheMessage.class));
@@ -57,8 +92,20 @@ public class RemoteCacheClient {
 
   }
 
+  /**
+   * The default maximum number of identifiers sent in a single request.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+  /**
+   * The default maximum number of requests on each channel that can be awaiting responses from a single caller.
+   */
+  public static final int DEFAULT_MAX_REQUESTS_IN_FLIGHT = 8;
+
   private final FudgeClient _fudgeGets;
   private final FudgeClient _fudgePuts;
+  private volatile int _maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private volatile int _maxRequestsInFlight = DEFAULT_MAX_REQUESTS_IN_FLIGHT;
 
   /**
    * Creates a new client using a single underlying transport.
@@ -89,6 +136,34 @@ public class RemoteCacheClient {
     }
   }
 
+  /**
+   * Returns the maximum number of identifiers sent in a single request. Larger operations are split into batches.
+   * 
+   * @return the batch size
+   */
+  public int getMaxBatchSize() {
+    return _maxBatchSize;
+  }
+
+  public void setMaxBatchSize(final int maxBatchSize) {
+    ArgumentChecker.notNegativeOrZero(maxBatchSize, "maxBatchSize");
+    _maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Returns the maximum number of batches from a single operation that are sent before waiting for a response.
+   * 
+   * @return the number of requests
+   */
+  public int getMaxRequestsInFlight() {
+    return _maxRequestsInFlight;
+  }
+
+  public void setMaxRequestsInFlight(final int maxRequestsInFlight) {
+    ArgumentChecker.notNegativeOrZero(maxRequestsInFlight, "maxRequestsInFlight");
+    _maxRequestsInFlight = maxRequestsInFlight;
+  }
+
   protected void setAsynchronousMessageReceiver(final FudgeMessageReceiver asynchronousMessageReceiver) {
     _fudgePuts.setAsynchronousMessageReceiver(asynchronousMessageReceiver);
   }
@@ -101,6 +176,30 @@ public class RemoteCacheClient {
     return _fudgePuts.sendMessage(request, expectedResponse);
   }
 
+  /**
+   * Sends a number of requests on the "get" channel, pipelining them, and returns the responses in the same order.
+   * 
+   * @param <T> the response type
+   * @param requests the requests to send, not null
+   * @param expectedResponse the response type
+   * @return the responses, not null
+   */
+  protected <T extends CacheMessage> List<T> sendGetMessages(final List<? extends CacheMessage> requests, final Class<T> expectedResponse) {
+    return _fudgeGets.sendMessages(requests, expectedResponse);
+  }
+
+  /**
+   * Sends a number of requests on the "put" channel, pipelining them, and returns the responses in the same order.
+   * 
+   * @param <T> the response type
+   * @param requests the requests to send, not null
+   * @param expectedResponse the response type
+   * @return the responses, not null
+   */
+  protected <T extends CacheMessage> List<T> sendPutMessages(final List<? extends CacheMessage> requests, final Class<T> expectedResponse) {
+    return _fudgePuts.sendMessages(requests, expectedResponse);
+  }
+
   protected FudgeContext getFudgeContext() {
     return _fudgeGets.getMessageSender().getFudgeContext();
   }
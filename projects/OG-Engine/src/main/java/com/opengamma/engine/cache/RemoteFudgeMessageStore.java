@@ -59,14 +59,47 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
 
   @Override
   public Map<Long, FudgeMsg> get(Collection<Long> identifiers) {
+    final int batchSize = getRemoteCacheClient().getMaxBatchSize();
+    if (identifiers.size() > batchSize) {
+      return getBatched(identifiers, batchSize);
+    }
     final GetRequest request = new GetRequest(getCacheKey().getViewCycleId(), getCacheKey()
         .getCalculationConfigurationName(), identifiers);
     final GetResponse response = getRemoteCacheClient().sendGetMessage(request, GetResponse.class);
     final Map<Long, FudgeMsg> result = new HashMap<Long, FudgeMsg>();
+    getResponse(request, response, result);
+    return result;
+  }
+
+  /**
+   * Splits a large query into batches which are pipelined to the server.
+   */
+  private Map<Long, FudgeMsg> getBatched(final Collection<Long> identifiers, final int batchSize) {
+    final List<GetRequest> requests = new ArrayList<GetRequest>((identifiers.size() + batchSize - 1) / batchSize);
+    List<Long> batch = new ArrayList<Long>(batchSize);
+    for (Long identifier : identifiers) {
+      batch.add(identifier);
+      if (batch.size() == batchSize) {
+        requests.add(new GetRequest(getCacheKey().getViewCycleId(), getCacheKey().getCalculationConfigurationName(), batch));
+        batch = new ArrayList<Long>(batchSize);
+      }
+    }
+    if (!batch.isEmpty()) {
+      requests.add(new GetRequest(getCacheKey().getViewCycleId(), getCacheKey().getCalculationConfigurationName(), batch));
+    }
+    final List<GetResponse> responses = getRemoteCacheClient().sendGetMessages(requests, GetResponse.class);
+    final Map<Long, FudgeMsg> result = new HashMap<Long, FudgeMsg>();
+    for (int i = 0; i < requests.size(); i++) {
+      getResponse(requests.get(i), responses.get(i), result);
+    }
+    return result;
+  }
+
+  private static void getResponse(final GetRequest request, final GetResponse response, final Map<Long, FudgeMsg> result) {
     final List<FudgeMsg> values = response.getData();
-    if (values.size() != identifiers.size()) {
+    if (values.size() != request.getIdentifier().size()) {
       // An error at the server end, possibly an invalid cache (gives a result with just one null in)
-      return Collections.emptyMap();
+      return;
     }
     int i = 0;
     for (Long identifier : request.getIdentifier()) {
@@ -75,7 +108,6 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
         result.put(identifier, value);
       }
     }
-    return result;
   }
 
   @Override
@@ -88,15 +120,28 @@ public class RemoteFudgeMessageStore implements FudgeMessageStore {
 
   @Override
   public void put(Map<Long, FudgeMsg> data) {
-    final List<Long> identifiers = new ArrayList<Long>(data.size());
-    final List<FudgeMsg> values = new ArrayList<FudgeMsg>(data.size());
+    final int batchSize = getRemoteCacheClient().getMaxBatchSize();
+    final List<PutRequest> requests = new ArrayList<PutRequest>((data.size() + batchSize - 1) / batchSize);
+    List<Long> identifiers = new ArrayList<Long>(Math.min(data.size(), batchSize));
+    List<FudgeMsg> values = new ArrayList<FudgeMsg>(Math.min(data.size(), batchSize));
     for (Map.Entry<Long, FudgeMsg> entry : data.entrySet()) {
       identifiers.add(entry.getKey());
       values.add(entry.getValue());
+      if (identifiers.size() == batchSize) {
+        requests.add(new PutRequest(getCacheKey().getViewCycleId(), getCacheKey().getCalculationConfigurationName(), identifiers, values));
+        identifiers = new ArrayList<Long>(batchSize);
+        values = new ArrayList<FudgeMsg>(batchSize);
+      }
+    }
+    if (!identifiers.isEmpty()) {
+      requests.add(new PutRequest(getCacheKey().getViewCycleId(), getCacheKey().getCalculationConfigurationName(), identifiers, values));
+    }
+    if (requests.size() == 1) {
+      getRemoteCacheClient().sendPutMessage(requests.get(0), CacheMessage.class);
+    } else {
+      // Wait for all of the batches to be acknowledged so that the values are visible to other clients on return
+      getRemoteCacheClient().sendPutMessages(requests, CacheMessage.class);
     }
-    final PutRequest request = new PutRequest(getCacheKey().getViewCycleId(), getCacheKey()
-        .getCalculationConfigurationName(), identifiers, values);
-    getRemoteCacheClient().sendPutMessage(request, CacheMessage.class);
   }
 
 }
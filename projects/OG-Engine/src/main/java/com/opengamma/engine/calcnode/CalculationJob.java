@@ -15,8 +15,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import com.opengamma.engine.cache.AbstractIdentifierMap;
 import com.opengamma.engine.cache.CacheSelectHint;
 import com.opengamma.engine.cache.IdentifierEncodedValueSpecifications;
+import com.opengamma.engine.cache.IdentifierMap;
+import com.opengamma.engine.cache.InterningIdentifierMap;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
@@ -136,6 +139,24 @@ public class CalculationJob implements IdentifierEncodedValueSpecifications {
     }
   }
 
+  /**
+   * Converts all value specifications used by the job into identifiers. If the map is an {@link InterningIdentifierMap} the job items are encoded directly from their specification arrays
+   * using its batch operations rather than through an intermediate map of every specification in the job.
+   * 
+   * @param identifierMap the identifier map, not null
+   */
+  public void convertValueSpecifications(final IdentifierMap identifierMap) {
+    if (identifierMap instanceof InterningIdentifierMap) {
+      final InterningIdentifierMap interning = (InterningIdentifierMap) identifierMap;
+      AbstractIdentifierMap.convertIdentifiers(interning, _cacheSelect);
+      for (CalculationJobItem item : _jobItems) {
+        item.convertValueSpecifications(interning);
+      }
+    } else {
+      AbstractIdentifierMap.convertIdentifiers(identifierMap, this);
+    }
+  }
+
   @Override
   public String toString() {
     return "CalculationJob, spec = " + _specification.toString() + ", job item count = " + _jobItems.size();
@@ -17,6 +17,7 @@ import org.apache.commons.lang.builder.ToStringBuilder;
 
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.cache.IdentifierEncodedValueSpecifications;
+import com.opengamma.engine.cache.InterningIdentifierMap;
 import com.opengamma.engine.function.FunctionParameters;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.ExecutionLog;
@@ -228,6 +229,20 @@ public final class CalculationJobItem implements IdentifierEncodedValueSpecifica
     }
   }
 
+  /**
+   * Converts the input and output specifications into identifiers using the batch operations of the map, without building an intermediate specification to identifier map.
+   * 
+   * @param identifiers the identifier map, not null
+   */
+  public void convertValueSpecifications(final InterningIdentifierMap identifiers) {
+    if (_inputIdentifiers == null) {
+      _inputIdentifiers = (_inputSpecifications.length > 0) ? identifiers.getIdentifiers(_inputSpecifications) : EMPTY_LONG;
+    }
+    if (_outputIdentifiers == null) {
+      _outputIdentifiers = (_outputSpecifications.length > 0) ? identifiers.getIdentifiers(_outputSpecifications) : EMPTY_LONG;
+    }
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public String toString() {
@@ -0,0 +1,313 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.calcnode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.engine.exec.JobIdSource;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Invokes jobs on local calculation nodes, forking a job across any idle nodes when its items can be executed independently of each other.
+ * <p>
+ * The items of a job are partitioned into the connected components of the job's internal data flow (an item is connected to the earlier items in the job that produce its inputs). Items in different
+ * components do not depend on each other; their inputs are either produced within the component or were already available when the job was dispatched. The components are packed into as many
+ * parts as there are idle nodes, each part keeping its items in the original dependency order, and the parts run concurrently with the same {@link com.opengamma.engine.cache.CacheSelectHint} as
+ * the original job. The results are joined and reported as the result of the original job.
+ * <p>
+ * The joined result reports the summed execution time of its parts as its duration, as an unforked job would report the time spent executing its items. The dispatcher passes this to its
+ * {@link com.opengamma.engine.calcnode.stats.CalculationNodeStatisticsGatherer} next to the elapsed time from dispatch to completion, so the speedup from forking shows there as execution time
+ * exceeding the job duration (a negative non-execution time in {@link com.opengamma.engine.calcnode.stats.CalculationNodeStatistics}).
+ * <p>
+ * Jobs with tails are not forked as the tails depend on the original job identifier completing at this invoker. Jobs that must wait for other jobs are not forked either, as the parts would not
+ * carry that dependency.
+ */
+public class ForkJoinLocalNodeJobInvoker extends LocalNodeJobInvoker {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ForkJoinLocalNodeJobInvoker.class);
+
+  /**
+   * The parts of each forked job that is still executing, keyed by the original job identifier.
+   */
+  private final ConcurrentMap<Long, Collection<CalculationJobSpecification>> _forkedJobs = new ConcurrentHashMap<Long, Collection<CalculationJobSpecification>>();
+
+  private int _minimumForkItems = 2;
+
+  public ForkJoinLocalNodeJobInvoker() {
+  }
+
+  public ForkJoinLocalNodeJobInvoker(final SimpleCalculationNode node) {
+    super(node);
+  }
+
+  public ForkJoinLocalNodeJobInvoker(final Collection<SimpleCalculationNode> nodes) {
+    super(nodes);
+  }
+
+  /**
+   * Sets the minimum number of items a job must have before it will be considered for forking.
+   *
+   * @param minimumForkItems the number of items, at least 2
+   */
+  public void setMinimumForkItems(final int minimumForkItems) {
+    ArgumentChecker.isTrue(minimumForkItems >= 2, "minimumForkItems");
+    _minimumForkItems = minimumForkItems;
+  }
+
+  public int getMinimumForkItems() {
+    return _minimumForkItems;
+  }
+
+  private static int find(final int[] parent, int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  /**
+   * Partitions the job items into at most {@code maxParts} groups that can execute independently. Each group lists item indices in ascending order.
+   *
+   * @param items the job items, in dependency order
+   * @param maxParts the maximum number of groups to produce
+   * @return the groups of item indices, not null
+   */
+  /* package */static List<int[]> partition(final List<CalculationJobItem> items, final int maxParts) {
+    final int count = items.size();
+    final int[] parent = new int[count];
+    final Map<ValueSpecification, Integer> producers = new HashMap<ValueSpecification, Integer>();
+    for (int i = 0; i < count; i++) {
+      parent[i] = i;
+      final CalculationJobItem item = items.get(i);
+      for (ValueSpecification input : item.getInputs()) {
+        final Integer producer = producers.get(input);
+        if (producer != null) {
+          parent[find(parent, i)] = find(parent, producer);
+        }
+      }
+      for (ValueSpecification output : item.getOutputs()) {
+        producers.put(output, i);
+      }
+    }
+    // Gather the components, each in ascending item order
+    final Map<Integer, List<Integer>> components = new HashMap<Integer, List<Integer>>();
+    for (int i = 0; i < count; i++) {
+      final Integer root = find(parent, i);
+      List<Integer> component = components.get(root);
+      if (component == null) {
+        component = new ArrayList<Integer>();
+        components.put(root, component);
+      }
+      component.add(i);
+    }
+    final int parts = Math.min(maxParts, components.size());
+    if (parts < 2) {
+      return Collections.singletonList(identity(count));
+    }
+    // Pack the largest components first, each into the currently smallest part
+    final List<List<Integer>> sorted = new ArrayList<List<Integer>>(components.values());
+    Collections.sort(sorted, new Comparator<List<Integer>>() {
+      @Override
+      public int compare(final List<Integer> o1, final List<Integer> o2) {
+        return o2.size() - o1.size();
+      }
+    });
+    final int[] sizes = new int[parts];
+    final int[] assignment = new int[count];
+    for (List<Integer> component : sorted) {
+      int smallest = 0;
+      for (int p = 1; p < parts; p++) {
+        if (sizes[p] < sizes[smallest]) {
+          smallest = p;
+        }
+      }
+      sizes[smallest] += component.size();
+      for (Integer item : component) {
+        assignment[item] = smallest;
+      }
+    }
+    final List<int[]> result = new ArrayList<int[]>(parts);
+    final int[] fill = new int[parts];
+    for (int p = 0; p < parts; p++) {
+      result.add(new int[sizes[p]]);
+    }
+    for (int i = 0; i < count; i++) {
+      final int p = assignment[i];
+      result.get(p)[fill[p]++] = i;
+    }
+    return result;
+  }
+
+  private static int[] identity(final int count) {
+    final int[] result = new int[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = i;
+    }
+    return result;
+  }
+
+  /**
+   * Joins the results of the parts of a forked job.
+   */
+  private final class JoinedJob implements JobInvocationReceiver {
+
+    private final CalculationJob _job;
+    private final JobInvocationReceiver _receiver;
+    private final List<int[]> _parts;
+    private final CalculationJobSpecification[] _partSpecifications;
+    private final CalculationJobResultItem[] _resultItems;
+    private final AtomicInteger _pending;
+    private final AtomicBoolean _failed = new AtomicBoolean();
+    private final long _startNanos = System.nanoTime();
+    private long _executionNanos;
+
+    private JoinedJob(final CalculationJob job, final JobInvocationReceiver receiver, final List<int[]> parts, final CalculationJobSpecification[] partSpecifications) {
+      _job = job;
+      _receiver = receiver;
+      _parts = parts;
+      _partSpecifications = partSpecifications;
+      _resultItems = new CalculationJobResultItem[job.getJobItems().size()];
+      _pending = new AtomicInteger(parts.size());
+    }
+
+    private int getPartIndex(final CalculationJobSpecification specification) {
+      for (int i = 0; i < _partSpecifications.length; i++) {
+        if (_partSpecifications[i].equals(specification)) {
+          return i;
+        }
+      }
+      throw new IllegalArgumentException("Unexpected job " + specification);
+    }
+
+    @Override
+    public void jobCompleted(final CalculationJobResult result) {
+      final int[] items = _parts.get(getPartIndex(result.getSpecification()));
+      final List<CalculationJobResultItem> resultItems = result.getResultItems();
+      synchronized (this) {
+        for (int i = 0; i < items.length; i++) {
+          _resultItems[items[i]] = resultItems.get(i);
+        }
+        _executionNanos += result.getDuration();
+      }
+      if (_pending.decrementAndGet() == 0) {
+        _forkedJobs.remove(_job.getSpecification().getJobId());
+        if (_failed.get()) {
+          return;
+        }
+        final long executionNanos;
+        synchronized (this) {
+          executionNanos = _executionNanos;
+        }
+        final long elapsedNanos = System.nanoTime() - _startNanos;
+        s_logger.debug("Forked job {} completed in {}ms with speedup {}", new Object[] {_job.getSpecification().getJobId(), elapsedNanos / 1000000d,
+            (elapsedNanos > 0) ? (double) executionNanos / (double) elapsedNanos : 1d });
+        _receiver.jobCompleted(new CalculationJobResult(_job.getSpecification(), executionNanos, Arrays.asList(_resultItems), getInvokerId()));
+      }
+    }
+
+    @Override
+    public void jobFailed(final JobInvoker jobInvoker, final String computeNodeId, final Exception exception) {
+      if (_pending.decrementAndGet() == 0) {
+        _forkedJobs.remove(_job.getSpecification().getJobId());
+      }
+      if (_failed.compareAndSet(false, true)) {
+        for (CalculationJobSpecification part : _partSpecifications) {
+          ForkJoinLocalNodeJobInvoker.super.cancel(part);
+        }
+        _receiver.jobFailed(jobInvoker, computeNodeId, exception);
+      }
+    }
+
+  }
+
+  /**
+   * Tests whether a job may be forked, ignoring the number of idle nodes.
+   *
+   * @param job the job to test, not null
+   * @return true if the job may be split into parts, false if it must run as a whole
+   */
+  /* package */boolean isForkable(final CalculationJob job) {
+    return (job.getTail() == null) && (job.getRequiredJobIds() == null) && (job.getJobItems().size() >= getMinimumForkItems());
+  }
+
+  @Override
+  public boolean invoke(final CalculationJob job, final JobInvocationReceiver receiver) {
+    if (!isForkable(job)) {
+      return super.invoke(job, receiver);
+    }
+    final List<CalculationJobItem> items = job.getJobItems();
+    final int idleNodes = getAvailableNodeCount();
+    if (idleNodes < 2) {
+      return super.invoke(job, receiver);
+    }
+    final List<int[]> parts = partition(items, idleNodes);
+    if (parts.size() < 2) {
+      return super.invoke(job, receiver);
+    }
+    s_logger.debug("Forking job {} into {} parts", job.getSpecification().getJobId(), parts.size());
+    final CalculationJob[] partJobs = new CalculationJob[parts.size()];
+    final CalculationJobSpecification[] partSpecifications = new CalculationJobSpecification[parts.size()];
+    for (int p = 0; p < partJobs.length; p++) {
+      final int[] partItems = parts.get(p);
+      final List<CalculationJobItem> jobItems = new ArrayList<CalculationJobItem>(partItems.length);
+      for (int item : partItems) {
+        jobItems.add(items.get(item));
+      }
+      partSpecifications[p] = job.getSpecification().withJobId(JobIdSource.getId());
+      partJobs[p] = new CalculationJob(partSpecifications[p], job.getFunctionInitializationIdentifier(), job.getResolverVersionCorrection(), null, jobItems, job.getCacheSelectHint());
+    }
+    final ExecutionReceiver executionReceiver = createExecutionReceiver(new JoinedJob(job, receiver, parts, partSpecifications));
+    _forkedJobs.put(job.getSpecification().getJobId(), Arrays.asList(partSpecifications));
+    for (CalculationJob partJob : partJobs) {
+      // Each part either starts on an idle node or joins the runnable queue if another job has taken the node in the meantime
+      addJob(partJob, executionReceiver, null);
+    }
+    return true;
+  }
+
+  @Override
+  public void cancel(final CalculationJobSpecification jobSpec) {
+    final Collection<CalculationJobSpecification> parts = _forkedJobs.remove(jobSpec.getJobId());
+    if (parts != null) {
+      for (CalculationJobSpecification part : parts) {
+        super.cancel(part);
+      }
+    } else {
+      super.cancel(jobSpec);
+    }
+  }
+
+  @Override
+  public boolean isAlive(final CalculationJobSpecification jobSpec) {
+    final Collection<CalculationJobSpecification> parts = _forkedJobs.get(jobSpec.getJobId());
+    if (parts != null) {
+      for (CalculationJobSpecification part : parts) {
+        if (super.isAlive(part)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return super.isAlive(jobSpec);
+  }
+
+}
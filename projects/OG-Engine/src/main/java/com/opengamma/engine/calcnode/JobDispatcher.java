@@ -25,6 +25,7 @@ import com.opengamma.engine.function.blacklist.DummyFunctionBlacklistMaintainer;
 import com.opengamma.engine.function.blacklist.FunctionBlacklistMaintainer;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.async.Cancelable;
+import com.opengamma.util.metric.LatencyRecorder;
 
 /**
  * Manages a set of JobInvokers and dispatches jobs to them for execution.
@@ -37,6 +38,8 @@ public class JobDispatcher implements JobInvokerRegister {
   /* package */static final long DEFAULT_MAX_JOB_EXECUTION_QUERY_TIMEOUT = 5000;
   /* package */static final String DEFAULT_JOB_FAILURE_NODE_ID = "NOT EXECUTED";
 
+  private static final String QUEUE_WAIT_PHASE = "JobDispatcher.queueWait";
+
   private final Queue<DispatchableJob> _pending = new LinkedList<DispatchableJob>();
   private final Queue<JobInvoker> _invokers = new ConcurrentLinkedQueue<JobInvoker>();
   private final Map<JobInvoker, Collection<Capability>> _capabilityCache = new ConcurrentHashMap<JobInvoker, Collection<Capability>>();
@@ -213,6 +216,10 @@ public class JobDispatcher implements JobInvokerRegister {
         if (job.canRunOn(jobInvoker)) {
           if (job.runOn(jobInvoker)) {
             s_logger.debug("Invoker {} accepted job {}", jobInvoker, job);
+            if (LatencyRecorder.isEnabled()) {
+              // Time from the job being created (and queued if no invoker was available) until an invoker accepted it
+              LatencyRecorder.record(QUEUE_WAIT_PHASE, job.getDurationNanos());
+            }
             // put invoker to the end of the list
             iterator.remove();
             getInvokers().add(jobInvoker);
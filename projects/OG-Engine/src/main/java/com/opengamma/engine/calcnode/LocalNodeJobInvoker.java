@@ -87,13 +87,14 @@ public class LocalNodeJobInvoker extends SimpleCalculationNodeInvocationContaine
     }
   }
 
-  @Override
-  public boolean invoke(final CalculationJob job, final JobInvocationReceiver receiver) {
-    final SimpleCalculationNode node = getNodes().poll();
-    if (node == null) {
-      return false;
-    }
-    final ExecutionReceiver executionReceiver = new ExecutionReceiver() {
+  /**
+   * Creates the callback used to report the execution of a job to its invocation receiver.
+   * 
+   * @param receiver the receiver to notify, not null
+   * @return the callback, not null
+   */
+  protected ExecutionReceiver createExecutionReceiver(final JobInvocationReceiver receiver) {
+    return new ExecutionReceiver() {
 
       @Override
       public void executionComplete(CalculationJobResult result) {
@@ -107,6 +108,15 @@ public class LocalNodeJobInvoker extends SimpleCalculationNodeInvocationContaine
       }
 
     };
+  }
+
+  @Override
+  public boolean invoke(final CalculationJob job, final JobInvocationReceiver receiver) {
+    final SimpleCalculationNode node = getNodes().poll();
+    if (node == null) {
+      return false;
+    }
+    final ExecutionReceiver executionReceiver = createExecutionReceiver(receiver);
     addJob(job, executionReceiver, node);
     addTail(job.getTail(), executionReceiver);
     return true;
@@ -21,6 +21,10 @@ public class LocalNodeJobInvokerFactoryBean extends SingletonFactoryBean<LocalNo
 
   private JobDispatcher _jobDispatcher;
 
+  private boolean _forkJobs;
+
+  private int _minimumForkItems = 2;
+
   public Collection<SimpleCalculationNode> getNodes() {
     return _nodes;
   }
@@ -37,9 +41,37 @@ public class LocalNodeJobInvokerFactoryBean extends SingletonFactoryBean<LocalNo
     _jobDispatcher = jobDispatcher;
   }
 
+  public boolean isForkJobs() {
+    return _forkJobs;
+  }
+
+  /**
+   * Sets whether jobs should be forked across idle nodes, see {@link ForkJoinLocalNodeJobInvoker}.
+   * 
+   * @param forkJobs true to fork jobs, false to run each job on a single node
+   */
+  public void setForkJobs(final boolean forkJobs) {
+    _forkJobs = forkJobs;
+  }
+
+  public int getMinimumForkItems() {
+    return _minimumForkItems;
+  }
+
+  public void setMinimumForkItems(final int minimumForkItems) {
+    _minimumForkItems = minimumForkItems;
+  }
+
   @Override
   protected LocalNodeJobInvoker createObject() {
-    final LocalNodeJobInvoker invoker = new LocalNodeJobInvoker();
+    final LocalNodeJobInvoker invoker;
+    if (isForkJobs()) {
+      final ForkJoinLocalNodeJobInvoker forkJoinInvoker = new ForkJoinLocalNodeJobInvoker();
+      forkJoinInvoker.setMinimumForkItems(getMinimumForkItems());
+      invoker = forkJoinInvoker;
+    } else {
+      invoker = new LocalNodeJobInvoker();
+    }
     if (getNodes() != null) {
       invoker.addNodes(getNodes());
     }
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.calcnode;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeRuntimeException;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Instant;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Results of job items from earlier cycles of each view process, keyed by a digest of the Fudge encoded input values, so that a calculation node can reuse them instead of invoking a function
+ * with the same inputs again.
+ * <p>
+ * A result is reused if the function, its parameters, the target, the requested outputs, the calculation configuration, the valuation time, the resolver version/correction and the function
+ * initialization of the job are the same and the input values encode to the same bytes. A function whose results depend on anything else must have an invoker implementing
+ * {@link com.opengamma.engine.function.NonDeterministicFunctionInvoker} so that it is never reused. Values that do not have a canonical Fudge encoding will not be reused even if they are unchanged.
+ * <p>
+ * A bounded number of results are held for each view process, and results for a bounded number of view processes. The least recently used are discarded first.
+ */
+public class MemoizedFunctionResults {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MemoizedFunctionResults.class);
+
+  /**
+   * The default number of job item results to hold for each view process.
+   */
+  public static final int DEFAULT_MAX_RESULTS = 10000;
+
+  /**
+   * The default number of view processes to hold results for.
+   */
+  public static final int DEFAULT_MAX_VIEW_PROCESSES = 16;
+
+  private static final String DIGEST_ALGORITHM = "SHA-1";
+
+  /**
+   * Identity of a job item invocation.
+   */
+  /* package */static final class Key {
+
+    private final String _functionId;
+    private final FunctionParameters _parameters;
+    private final ComputationTargetSpecification _target;
+    private final ValueSpecification[] _outputs;
+    private final String _calcConfigName;
+    private final Instant _valuationTime;
+    private final VersionCorrection _resolverVersionCorrection;
+    private final long _functionInitId;
+    private final byte[] _inputDigest;
+    private final int _hashCode;
+
+    private Key(final CalculationJob job, final CalculationJobItem jobItem, final byte[] inputDigest) {
+      _functionId = jobItem.getFunctionUniqueIdentifier();
+      _parameters = jobItem.getFunctionParameters();
+      _target = jobItem.getComputationTargetSpecification();
+      _outputs = jobItem.getOutputs();
+      _calcConfigName = job.getSpecification().getCalcConfigName();
+      _valuationTime = job.getSpecification().getValuationTime();
+      _resolverVersionCorrection = job.getResolverVersionCorrection();
+      _functionInitId = job.getFunctionInitializationIdentifier();
+      _inputDigest = inputDigest;
+      int hc = _functionId.hashCode();
+      hc = (hc * 31) + _target.hashCode();
+      hc = (hc * 31) + Arrays.hashCode(_outputs);
+      hc = (hc * 31) + ObjectUtils.hashCode(_valuationTime);
+      hc = (hc * 31) + _resolverVersionCorrection.hashCode();
+      hc = (hc * 31) + Arrays.hashCode(_inputDigest);
+      _hashCode = hc;
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return (_hashCode == other._hashCode)
+          && (_functionInitId == other._functionInitId)
+          && Arrays.equals(_inputDigest, other._inputDigest)
+          && _functionId.equals(other._functionId)
+          && _target.equals(other._target)
+          && Arrays.equals(_outputs, other._outputs)
+          && _calcConfigName.equals(other._calcConfigName)
+          && ObjectUtils.equals(_valuationTime, other._valuationTime)
+          && _resolverVersionCorrection.equals(other._resolverVersionCorrection)
+          && ObjectUtils.equals(_parameters, other._parameters);
+    }
+
+  }
+
+  private final FudgeContext _fudgeContext;
+  private final int _maxResults;
+  private final Map<ObjectId, Map<Key, Collection<ComputedValue>>> _viewProcesses;
+  private final AtomicLong _hits = new AtomicLong();
+  private final AtomicLong _misses = new AtomicLong();
+
+  public MemoizedFunctionResults(final FudgeContext fudgeContext) {
+    this(fudgeContext, DEFAULT_MAX_RESULTS, DEFAULT_MAX_VIEW_PROCESSES);
+  }
+
+  public MemoizedFunctionResults(final FudgeContext fudgeContext, final int maxResults, final int maxViewProcesses) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNegativeOrZero(maxResults, "maxResults");
+    ArgumentChecker.notNegativeOrZero(maxViewProcesses, "maxViewProcesses");
+    _fudgeContext = fudgeContext;
+    _maxResults = maxResults;
+    _viewProcesses = new LinkedHashMap<ObjectId, Map<Key, Collection<ComputedValue>>>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<ObjectId, Map<Key, Collection<ComputedValue>>> eldest) {
+        return size() > maxViewProcesses;
+      }
+
+    };
+  }
+
+  public int getMaxResults() {
+    return _maxResults;
+  }
+
+  /**
+   * Returns the number of job items whose results were reused.
+   *
+   * @return the number of job items
+   */
+  public long getHitCount() {
+    return _hits.get();
+  }
+
+  /**
+   * Returns the number of job items which had to be executed because no earlier result was found.
+   *
+   * @return the number of job items
+   */
+  public long getMissCount() {
+    return _misses.get();
+  }
+
+  /**
+   * Creates the key for a job item from its input values.
+   *
+   * @param job the job containing the item, not null
+   * @param jobItem the job item, not null
+   * @param inputs the input values, not null
+   * @return the key, or null if the inputs cannot be encoded
+   */
+  /* package */Key getKey(final CalculationJob job, final CalculationJobItem jobItem, final Map<ValueSpecification, Object> inputs) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new OpenGammaRuntimeException("Can't create " + DIGEST_ALGORITHM + " digest", e);
+    }
+    final FudgeSerializer serializer = new FudgeSerializer(_fudgeContext);
+    // Inputs are encoded in the order the job item lists them so that the digest does not depend on the order the cache returned them in
+    for (final ValueSpecification input : jobItem.getInputs()) {
+      final Object value = inputs.get(input);
+      if (value == null) {
+        return null;
+      }
+      serializer.reset();
+      final MutableFudgeMsg message = serializer.newMessage();
+      try {
+        serializer.addToMessageWithClassHeaders(message, null, null, value);
+      } catch (FudgeRuntimeException e) {
+        s_logger.debug("Can't encode value {} for {}", value, input);
+        return null;
+      }
+      digest.update(_fudgeContext.toByteArray(message));
+    }
+    return new Key(job, jobItem, digest.digest());
+  }
+
+  private Map<Key, Collection<ComputedValue>> getResults(final ObjectId viewProcess) {
+    Map<Key, Collection<ComputedValue>> results = _viewProcesses.get(viewProcess);
+    if (results == null) {
+      results = new LinkedHashMap<Key, Collection<ComputedValue>>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Collection<ComputedValue>> eldest) {
+          return size() > _maxResults;
+        }
+
+      };
+      _viewProcesses.put(viewProcess, results);
+    }
+    return results;
+  }
+
+  /**
+   * Returns the results of an earlier invocation of a job item.
+   *
+   * @param viewProcess the view process the job belongs to, not null
+   * @param key the job item key, not null
+   * @return the results, or null if there are none
+   */
+  /* package */Collection<ComputedValue> get(final ObjectId viewProcess, final Key key) {
+    final Collection<ComputedValue> results;
+    synchronized (_viewProcesses) {
+      results = getResults(viewProcess).get(key);
+    }
+    if (results != null) {
+      _hits.incrementAndGet();
+    } else {
+      _misses.incrementAndGet();
+    }
+    return results;
+  }
+
+  /**
+   * Stores the results of invoking a job item.
+   *
+   * @param viewProcess the view process the job belongs to, not null
+   * @param key the job item key, not null
+   * @param results the results, not null
+   */
+  /* package */void put(final ObjectId viewProcess, final Key key, final Collection<ComputedValue> results) {
+    synchronized (_viewProcesses) {
+      getResults(viewProcess).put(key, results);
+    }
+  }
+
+}
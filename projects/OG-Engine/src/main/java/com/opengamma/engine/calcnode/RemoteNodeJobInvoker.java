@@ -48,6 +48,8 @@ import com.opengamma.transport.FudgeConnection;
 import com.opengamma.transport.FudgeConnectionStateListener;
 import com.opengamma.transport.FudgeMessageReceiver;
 import com.opengamma.transport.FudgeMessageSender;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.metric.LatencyRecorder;
 
 /**
  * A JobInvoker for invoking a job on a remote node connected by a FudgeConnection.
@@ -56,6 +58,8 @@ import com.opengamma.transport.FudgeMessageSender;
 
   private static final Logger s_logger = LoggerFactory.getLogger(RemoteNodeJobInvoker.class);
 
+  private static final String NETWORK_PHASE = "RemoteNodeJobInvoker.network";
+
   private static final class JobInfo {
 
     /**
@@ -68,9 +72,15 @@ import com.opengamma.transport.FudgeMessageSender;
      */
     private final CalculationJob _job;
 
+    /**
+     * The latency recorder start time of sending the job.
+     */
+    private final long _sendStart;
+
     public JobInfo(final JobInvocationReceiver receiver, final CalculationJob job) {
       _receiver = receiver;
       _job = job;
+      _sendStart = LatencyRecorder.start();
     }
 
     public JobInvocationReceiver getReceiver() {
@@ -85,6 +95,20 @@ import com.opengamma.transport.FudgeMessageSender;
       return _job;
     }
 
+    /**
+     * Records the time spent encoding and transporting the job and its result, if latency recording is enabled.
+     * <p>
+     * This is the round trip less the execution time reported by the node. It is only meaningful for a job that does not wait for others, as a tail job
+     * will also have waited on the node for the job before it.
+     *
+     * @param result the job result, not null
+     */
+    public void recordNetworkTime(final CalculationJobResult result) {
+      if ((_sendStart != LatencyRecorder.NOT_STARTED) && (_job.getRequiredJobIds() == null)) {
+        LatencyRecorder.record(NETWORK_PHASE, Math.max(0, (System.nanoTime() - _sendStart) - result.getDuration()));
+      }
+    }
+
   }
 
   private final ConcurrentMap<CalculationJobSpecification, JobInfo> _pendingJobs = new ConcurrentHashMap<CalculationJobSpecification, JobInfo>();
@@ -92,6 +116,7 @@ import com.opengamma.transport.FudgeMessageSender;
   private final FudgeMessageSender _fudgeMessageSender;
   private final CapabilitySet _capabilitySet = new CapabilitySet();
   private volatile int _capacity;
+  private volatile int _pipelineDepth;
   private final AtomicInteger _launched = new AtomicInteger();
   private final AtomicReference<JobInvokerRegister> _dispatchCallback = new AtomicReference<JobInvokerRegister>();
   private final IdentifierMap _identifierMap;
@@ -118,7 +143,7 @@ import com.opengamma.transport.FudgeMessageSender;
         s_logger.warn("Duplicate or failure for cancelled callback {} received", message.getJob());
         return;
       }
-      if (_launched.addAndGet(job.getLaunchDelta()) < _capacity) {
+      if (_launched.addAndGet(job.getLaunchDelta()) < getLaunchLimit()) {
         // We check for below capacity. We can get "equal" here, but that means there is an invoke taking place which will be dealt with
         // by the notifyWhenAvailable that gets called to reschedule the invoker
         if (registerIfRequired(true)) {
@@ -152,7 +177,7 @@ import com.opengamma.transport.FudgeMessageSender;
       if (launched < 0) {
         // An additional decrement can happen if there is an error in the original job dispatch
         _launched.incrementAndGet();
-      } else if (launched < _capacity) {
+      } else if (launched < getLaunchLimit()) {
         if (registerIfRequired(true)) {
           s_logger.info("Remote invoker ready for use by dispatcher, capacity {}", message.getCapacity());
         }
@@ -173,7 +198,7 @@ import com.opengamma.transport.FudgeMessageSender;
         s_logger.warn("Duplicate or result for cancelled callback {} received", message.getResult().getSpecification());
         return;
       }
-      if (_launched.addAndGet(job.getLaunchDelta()) < _capacity) {
+      if (_launched.addAndGet(job.getLaunchDelta()) < getLaunchLimit()) {
         // We check for below capacity. We can get "equal" here, but that means there is an invoke taking place which will be dealt with
         // by the notifyWhenAvailable that gets called to reschedule the invoker
         if (registerIfRequired(true)) {
@@ -181,6 +206,7 @@ import com.opengamma.transport.FudgeMessageSender;
         }
       }
       final CalculationJobResult result = message.getResult();
+      job.recordNetworkTime(result);
       AbstractIdentifierMap.resolveIdentifiers(getIdentifierMap(), result);
       job.getReceiver().jobCompleted(result);
     }
@@ -204,6 +230,31 @@ import com.opengamma.transport.FudgeMessageSender;
     s_logger.info("Remote node invoker created with capacity {}", _capacity);
   }
 
+  /**
+   * Sets the number of jobs that may be dispatched to the remote node in addition to its capacity. These jobs are queued at the remote node so that it can start the next job as soon as one
+   * completes rather than waiting for the result to reach the dispatcher and a further job to be sent.
+   * 
+   * @param pipelineDepth the number of additional jobs, zero to only dispatch up to the node's capacity
+   */
+  public void setPipelineDepth(final int pipelineDepth) {
+    ArgumentChecker.notNegative(pipelineDepth, "pipelineDepth");
+    _pipelineDepth = pipelineDepth;
+  }
+
+  public int getPipelineDepth() {
+    return _pipelineDepth;
+  }
+
+  /**
+   * Returns the maximum number of jobs that may be launched at the remote node; its capacity plus the pipeline depth. A node with no capacity is never sent jobs.
+   * 
+   * @return the launch limit
+   */
+  private int getLaunchLimit() {
+    final int capacity = _capacity;
+    return (capacity > 0) ? capacity + _pipelineDepth : 0;
+  }
+
   private CapabilitySet getCapabilitySet() {
     return _capabilitySet;
   }
@@ -303,8 +354,9 @@ import com.opengamma.transport.FudgeMessageSender;
 
   @Override
   public boolean invoke(final CalculationJob rootJob, final JobInvocationReceiver receiver) {
-    while (_launched.incrementAndGet() > _capacity) {
-      if (_launched.decrementAndGet() >= _capacity) {
+    final int limit = getLaunchLimit();
+    while (_launched.incrementAndGet() > limit) {
+      if (_launched.decrementAndGet() >= limit) {
         s_logger.debug("Capacity reached");
         return false;
       }
@@ -315,7 +367,7 @@ import com.opengamma.transport.FudgeMessageSender;
 
       private void sendJob(final CalculationJob job) throws Exception {
         getPendingJobs().put(job.getSpecification(), new JobInfo(receiver, job));
-        AbstractIdentifierMap.convertIdentifiers(getIdentifierMap(), job);
+        job.convertValueSpecifications(getIdentifierMap());
         sendMessage(new Execute(blacklist(getBlacklistQuery(), job)));
       }
 
@@ -341,7 +393,7 @@ import com.opengamma.transport.FudgeMessageSender;
           // Not knowing where the failure occurred, we may get an additional decrement if any of the jobs started completing. This may have
           // broken the whole connection which will not be a problem. Otherwise We'll check, and adjust, for this when "Ready" messages
           // arrive.
-          if (_launched.decrementAndGet() < _capacity) {
+          if (_launched.decrementAndGet() < getLaunchLimit()) {
             if (registerIfRequired(true)) {
               s_logger.debug("Notified dispatcher of capacity available");
             }
@@ -384,7 +436,7 @@ import com.opengamma.transport.FudgeMessageSender;
   @Override
   public boolean notifyWhenAvailable(final JobInvokerRegister callback) {
     _dispatchCallback.set(callback);
-    if (_launched.get() < _capacity) {
+    if (_launched.get() < getLaunchLimit()) {
       if (registerIfRequired(false)) {
         s_logger.debug("Capacity available at notify");
         return true;
@@ -415,7 +467,7 @@ import com.opengamma.transport.FudgeMessageSender;
   @Override
   public void connectionFailed(final FudgeConnection connection, final Exception cause) {
     s_logger.warn("Client connection {} dropped", connection, cause);
-    _launched.addAndGet(_capacity); // Force over capacity to prevent any new submissions
+    _launched.addAndGet(getLaunchLimit()); // Force over capacity to prevent any new submissions
     final String invokerId = _invokerId;
     _invokerId = null;
     for (CalculationJobSpecification jobSpec : getPendingJobs().keySet()) {
@@ -40,6 +40,7 @@ import com.opengamma.engine.function.blacklist.MultipleFunctionBlacklistMaintain
 import com.opengamma.engine.function.blacklist.MultipleFunctionBlacklistQuery;
 import com.opengamma.transport.FudgeConnection;
 import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * Server end to RemoteNodeClient to receive requests from remote calculation nodes and marshal
@@ -264,6 +265,7 @@ public class RemoteNodeServer implements FudgeConnectionReceiver {
   private Set<Capability> _capabilitiesToAdd;
   private FunctionBlacklistMaintainerProvider _blacklistUpdate;
   private FunctionBlacklistQueryProvider _blacklistQuery;
+  private int _pipelineDepth;
 
   public RemoteNodeServer(final JobInvokerRegister jobInvokerRegister, final IdentifierMap identifierMap,
       final FunctionCosts functionCosts, final FunctionCompilationContext functionCompilationContext) {
@@ -345,6 +347,26 @@ public class RemoteNodeServer implements FudgeConnectionReceiver {
     return new DummyFunctionBlacklistQuery();
   }
 
+  /**
+   * Returns the number of jobs dispatched to each remote node in addition to its capacity.
+   * 
+   * @return the pipeline depth
+   */
+  public int getPipelineDepth() {
+    return _pipelineDepth;
+  }
+
+  /**
+   * Sets the number of jobs dispatched to each remote node in addition to its capacity. The additional jobs wait in the node's queue so that a calculation thread can start its next job immediately
+   * rather than waiting for the round trip of its result and the next dispatch. Zero, the default, only dispatches up to the node's capacity.
+   * 
+   * @param pipelineDepth the number of additional jobs, not negative
+   */
+  public void setPipelineDepth(final int pipelineDepth) {
+    ArgumentChecker.notNegative(pipelineDepth, "pipelineDepth");
+    _pipelineDepth = pipelineDepth;
+  }
+
   protected JobInvokerRegister getJobInvokerRegister() {
     return _jobInvokerRegister;
   }
@@ -384,6 +406,7 @@ public class RemoteNodeServer implements FudgeConnectionReceiver {
         if (_capabilitiesToAdd != null) {
           invoker.addCapabilities(_capabilitiesToAdd);
         }
+        invoker.setPipelineDepth(getPipelineDepth());
         final Init init = new Init(getFunctionCompilationContext().getFunctionInitId());
         invoker.sendMessage(init);
         getJobInvokerRegister().registerJobInvoker(invoker);
@@ -8,24 +8,31 @@ package com.opengamma.engine.calcnode;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
+import com.codahale.metrics.Meter;
 import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetResolver;
 import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.CacheSelectHint;
 import com.opengamma.engine.cache.DeferredViewComputationCache;
 import com.opengamma.engine.cache.DirectWriteViewComputationCache;
 import com.opengamma.engine.cache.MissingOutput;
@@ -38,6 +45,7 @@ import com.opengamma.engine.function.FunctionExecutionContext;
 import com.opengamma.engine.function.FunctionInputs;
 import com.opengamma.engine.function.FunctionInputsImpl;
 import com.opengamma.engine.function.FunctionInvoker;
+import com.opengamma.engine.function.NonDeterministicFunctionInvoker;
 import com.opengamma.engine.function.TargetSourcingFunction;
 import com.opengamma.engine.function.blacklist.DummyFunctionBlacklistMaintainer;
 import com.opengamma.engine.function.blacklist.DummyFunctionBlacklistQuery;
@@ -59,8 +67,10 @@ import com.opengamma.util.async.AsynchronousExecution;
 import com.opengamma.util.async.AsynchronousOperation;
 import com.opengamma.util.async.AsynchronousResult;
 import com.opengamma.util.async.ResultListener;
+import com.opengamma.util.metric.OpenGammaMetricRegistry;
 import com.opengamma.util.time.DateUtils;
 import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
 
 /**
  * A calculation node implementation. The node can only be used by one thread - i.e. executeJob cannot be called concurrently to do multiple jobs. To execute multiple jobs concurrently separate
@@ -142,6 +152,12 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
   private boolean _writeBehindSharedCache;
   private boolean _writeBehindPrivateCache;
   private boolean _asynchronousTargetResolve;
+  private boolean _prefetchInputs;
+  private final AtomicLong _prefetchHits = new AtomicLong();
+  private final AtomicLong _prefetchMisses = new AtomicLong();
+  private final Meter _prefetchHitMeter;
+  private final Meter _prefetchMissMeter;
+  private MemoizedFunctionResults _memoizedResults;
   private FunctionBlacklistQuery _blacklistQuery = new DummyFunctionBlacklistQuery();
   private FunctionBlacklistMaintainer _blacklistUpdate = new DummyFunctionBlacklistMaintainer();
   private MaximumJobItemExecutionWatchdog _maxJobItemExecution = new MaximumJobItemExecutionWatchdog();
@@ -162,6 +178,8 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
     _executorService = executorService;
     _functionInvocationStatistics = functionInvocationStatistics;
     _logListener = logListener;
+    _prefetchHitMeter = OpenGammaMetricRegistry.getDetailedInstance().meter("SimpleCalculationNode.prefetchHit");
+    _prefetchMissMeter = OpenGammaMetricRegistry.getDetailedInstance().meter("SimpleCalculationNode.prefetchMiss");
   }
 
   //-------------------------------------------------------------------------
@@ -232,6 +250,56 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
     _asynchronousTargetResolve = asynchronousTargetResolve;
   }
 
+  public boolean isUsePrefetchInputs() {
+    return _prefetchInputs;
+  }
+
+  /**
+   * Sets whether to fetch all of the shared inputs a job needs from other jobs in a single cache operation when the job starts. Prefetching can work well if each cache query has a high fixed cost
+   * (e.g. network round trip to a remote cache). If the cache is cheap to query (e.g. an in-process, in-memory store) then the prefetch is an unnecessary overhead.
+   * <p>
+   * The inputs served from the prefetched values, and those that still had to be queried, are counted by this node and published as the {@code SimpleCalculationNode.prefetchHit} and
+   * {@code SimpleCalculationNode.prefetchMiss} meters of the {@link OpenGammaMetricRegistry}, summed over all of the nodes in the process.
+   * 
+   * @param prefetchInputs true to prefetch the shared inputs of each job, false to query them as each job item executes
+   */
+  public void setUsePrefetchInputs(final boolean prefetchInputs) {
+    _prefetchInputs = prefetchInputs;
+  }
+
+  /**
+   * Returns the number of job item inputs that were satisfied by values prefetched at the start of their jobs.
+   * 
+   * @return the number of inputs
+   */
+  public long getPrefetchHitCount() {
+    return _prefetchHits.get();
+  }
+
+  /**
+   * Returns the number of job item inputs, from jobs that were prefetched, that had to be queried from the cache as the items executed. These are inputs produced by earlier items in the same job,
+   * private values, or values that were not available when the job started.
+   * 
+   * @return the number of inputs
+   */
+  public long getPrefetchMissCount() {
+    return _prefetchMisses.get();
+  }
+
+  public MemoizedFunctionResults getMemoizedResults() {
+    return _memoizedResults;
+  }
+
+  /**
+   * Sets the store of results from earlier cycles to reuse when a job item's input values are unchanged. Reusing results avoids the cost of invoking the function again but adds the cost of encoding
+   * the inputs of every job item. The store may be shared by the nodes of a calculation node set.
+   * 
+   * @param memoizedResults the results to reuse and update, or null to always invoke the functions
+   */
+  public void setMemoizedResults(final MemoizedFunctionResults memoizedResults) {
+    _memoizedResults = memoizedResults;
+  }
+
   public ExecutorService getExecutorService() {
     return _executorService;
   }
@@ -307,6 +375,7 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
     final long executionTime = System.nanoTime() - getExecutionStartTime();
     final CalculationJobResult jobResult = new CalculationJobResult(getJob().getSpecification(), executionTime, resultItems, getNodeId());
     s_logger.info("Executed {} in {}ns", getJob(), executionTime);
+    setPrefetchedInputs(null);
     try {
       getCache().flush();
     } catch (final AsynchronousExecution e) {
@@ -356,6 +425,7 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
     setCache(getDeferredViewComputationCache(getCache(spec)));
     setExecutionStartTime(System.nanoTime());
     setConfiguration(spec.getCalcConfigName());
+    setPrefetchedInputs(isUsePrefetchInputs() ? prefetchInputs(job) : null);
     List<CalculationJobResultItem> jobItems;
     try {
       jobItems = executeJobItems();
@@ -413,6 +483,82 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
 
   }
 
+  /**
+   * Fetches, in a single cache operation, the shared values the job will need that are not produced by the job itself.
+   * 
+   * @param job the job to fetch inputs for, not null
+   * @return the available input values, or null if there is no benefit in prefetching for the job
+   */
+  private Map<ValueSpecification, Object> prefetchInputs(final CalculationJob job) {
+    final List<CalculationJobItem> jobItems = job.getJobItems();
+    if (jobItems.size() < 2) {
+      // Nothing to be gained over fetching the inputs of the single item when it executes
+      return null;
+    }
+    final CacheSelectHint hint = job.getCacheSelectHint();
+    final Set<ValueSpecification> outputs = new HashSet<ValueSpecification>();
+    for (final CalculationJobItem jobItem : jobItems) {
+      for (final ValueSpecification output : jobItem.getOutputs()) {
+        outputs.add(output);
+      }
+    }
+    final Set<ValueSpecification> inputs = new HashSet<ValueSpecification>();
+    for (final CalculationJobItem jobItem : jobItems) {
+      for (final ValueSpecification input : jobItem.getInputs()) {
+        if (!outputs.contains(input) && !hint.isPrivateValue(input)) {
+          inputs.add(input);
+        }
+      }
+    }
+    if (inputs.isEmpty()) {
+      return null;
+    }
+    final Map<ValueSpecification, Object> values = Maps.newHashMapWithExpectedSize(inputs.size());
+    for (final Pair<ValueSpecification, Object> input : getCache().getValues(inputs, hint)) {
+      // Values not in the cache are left to be queried again by the job item
+      if (input.getSecond() != null) {
+        values.put(input.getFirst(), input.getSecond());
+      }
+    }
+    s_logger.debug("Prefetched {} of {} inputs for {}", new Object[] {values.size(), inputs.size(), job });
+    return values;
+  }
+
+  /**
+   * Returns the values of a job item's inputs, using any that were prefetched for the job and querying the cache for the remainder.
+   * 
+   * @param inputValueSpecs the inputs to the job item, not null
+   * @return the input values, not null
+   */
+  private Collection<Pair<ValueSpecification, Object>> getInputValues(final ValueSpecification[] inputValueSpecs) {
+    final Map<ValueSpecification, Object> prefetched = getPrefetchedInputs();
+    if (prefetched == null) {
+      _inputs._inputs = inputValueSpecs;
+      return getCache().getValues(_inputs, getJob().getCacheSelectHint());
+    }
+    final Collection<Pair<ValueSpecification, Object>> values = new ArrayList<Pair<ValueSpecification, Object>>(inputValueSpecs.length);
+    List<ValueSpecification> misses = null;
+    for (final ValueSpecification input : inputValueSpecs) {
+      final Object value = prefetched.get(input);
+      if (value != null) {
+        values.add(Pairs.of(input, value));
+      } else {
+        if (misses == null) {
+          misses = new ArrayList<ValueSpecification>(inputValueSpecs.length - values.size());
+        }
+        misses.add(input);
+      }
+    }
+    _prefetchHits.addAndGet(values.size());
+    _prefetchHitMeter.mark(values.size());
+    if (misses != null) {
+      _prefetchMisses.addAndGet(misses.size());
+      _prefetchMissMeter.mark(misses.size());
+      values.addAll(getCache().getValues(misses, getJob().getCacheSelectHint()));
+    }
+    return values;
+  }
+
   private void postEvaluationErrors(final ValueSpecification[] outputs, final MissingOutput type) {
     final Collection<ComputedValue> results = new ArrayList<ComputedValue>(outputs.length);
     for (final ValueSpecification output : outputs) {
@@ -663,12 +809,12 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
     return result;
   }
 
-  private void invokeResult(final FunctionInvoker invoker, final DeferredInvocationStatistics statistics,
+  private Collection<ComputedValue> invokeResult(final FunctionInvoker invoker, final DeferredInvocationStatistics statistics,
       final Set<ValueSpecification> missing, final ValueSpecification[] outputs, final Collection<ComputedValue> results, final CalculationJobResultItemBuilder resultItemBuilder) {
     if (results == null) {
       postEvaluationErrors(outputs, MissingOutput.EVALUATION_ERROR);
       resultItemBuilder.withException(ERROR_INVOKING, "No results returned by invoker " + invoker);
-      return;
+      return null;
     }
     statistics.endInvocation();
     statistics.setExpectedDataOutputSamples(results.size());
@@ -700,6 +846,7 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
       resultItemBuilder.withMissingOutputs(missing);
     }
     getCache().putValues(newResults, getJob().getCacheSelectHint(), statistics);
+    return newResults;
   }
 
   private void invokeException(final ValueSpecification[] outputs, final Throwable t, final CalculationJobResultItemBuilder resultItemBuilder) {
@@ -749,13 +896,17 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
     int inputBytes = 0;
     int inputSamples = 0;
     final DeferredViewComputationCache cache = getCache();
-    _inputs._inputs = inputValueSpecs;
-    for (final Pair<ValueSpecification, Object> input : cache.getValues(_inputs, getJob().getCacheSelectHint())) {
+    final MemoizedFunctionResults memoizedResults = (invoker instanceof NonDeterministicFunctionInvoker) ? null : getMemoizedResults();
+    final Map<ValueSpecification, Object> inputValues = (memoizedResults != null) ? new HashMap<ValueSpecification, Object>() : null;
+    for (final Pair<ValueSpecification, Object> input : getInputValues(inputValueSpecs)) {
       if ((input.getSecond() == null) || (input.getSecond() instanceof MissingValue)) {
         missing.add(input.getFirst());
       } else {
         final ComputedValue value = new ComputedValue(input.getFirst(), input.getSecond());
         inputs.add(value);
+        if (inputValues != null) {
+          inputValues.put(input.getFirst(), input.getSecond());
+        }
         final Integer bytes = cache.estimateValueSize(value);
         if (bytes != null) {
           inputBytes += bytes;
@@ -808,6 +959,19 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
         }
       }
     }
+    MemoizedFunctionResults.Key memoKey = null;
+    if ((memoizedResults != null) && missing.isEmpty()) {
+      memoKey = memoizedResults.getKey(getJob(), jobItem, inputValues);
+      if (memoKey != null) {
+        final Collection<ComputedValue> memoized = memoizedResults.get(getJob().getSpecification().getViewCycleId().getObjectId(), memoKey);
+        if (memoized != null) {
+          s_logger.debug("Reusing earlier result of {}", jobItem);
+          statistics.beginInvocation();
+          invokeResult(invoker, statistics, missing, outputs, memoized, resultItemBuilder);
+          return;
+        }
+      }
+    }
     // Execute
     statistics.beginInvocation();
     recordInvocationLoggingInfo(target);
@@ -850,7 +1014,10 @@ public class SimpleCalculationNode extends SimpleCalculationNodeState implements
       invokeException(outputs, t, resultItemBuilder);
       return;
     }
-    invokeResult(invoker, statistics, missing, outputs, result, resultItemBuilder);
+    final Collection<ComputedValue> newResults = invokeResult(invoker, statistics, missing, outputs, result, resultItemBuilder);
+    if ((memoKey != null) && (newResults != null) && missing.isEmpty()) {
+      memoizedResults.put(getJob().getSpecification().getViewCycleId().getObjectId(), memoKey, newResults);
+    }
   }
 
   private void recordInvocationLoggingInfo(ComputationTarget target) {
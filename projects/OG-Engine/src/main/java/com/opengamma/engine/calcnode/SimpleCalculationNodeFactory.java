@@ -34,6 +34,8 @@ public class SimpleCalculationNodeFactory implements InitializingBean {
   private boolean _useWriteBehindSharedCache;
   private boolean _useWriteBehindPrivateCache;
   private boolean _useAsynchronousTargetResolve;
+  private boolean _usePrefetchInputs;
+  private MemoizedFunctionResults _memoizedResults;
   private FunctionBlacklistQuery _blacklistQuery;
   private FunctionBlacklistMaintainer _blacklistUpdate;
   private MaximumJobItemExecutionWatchdog _maxJobItemExecution;
@@ -105,6 +107,22 @@ public class SimpleCalculationNodeFactory implements InitializingBean {
     _useAsynchronousTargetResolve = useAsynchronousTargetResolve;
   }
 
+  public boolean isUsePrefetchInputs() {
+    return _usePrefetchInputs;
+  }
+
+  public void setUsePrefetchInputs(final boolean usePrefetchInputs) {
+    _usePrefetchInputs = usePrefetchInputs;
+  }
+
+  public MemoizedFunctionResults getMemoizedResults() {
+    return _memoizedResults;
+  }
+
+  public void setMemoizedResults(final MemoizedFunctionResults memoizedResults) {
+    _memoizedResults = memoizedResults;
+  }
+
   public void setNodeIdentifier(final String nodeIdentifier) {
     _nodeIdentifier = nodeIdentifier;
   }
@@ -159,6 +177,8 @@ public class SimpleCalculationNodeFactory implements InitializingBean {
     node.setUseWriteBehindSharedCache(isUseWriteBehindSharedCache());
     node.setUseWriteBehindPrivateCache(isUseWriteBehindPrivateCache());
     node.setUseAsynchronousTargetResolve(isUseAsynchronousTargetResolve());
+    node.setUsePrefetchInputs(isUsePrefetchInputs());
+    node.setMemoizedResults(getMemoizedResults());
     if (getFunctionBlacklistQuery() != null) {
       node.setFunctionBlacklistQuery(getFunctionBlacklistQuery());
     }
@@ -5,9 +5,12 @@
  */
 package com.opengamma.engine.calcnode;
 
+import java.util.Map;
+
 import com.opengamma.engine.cache.DeferredViewComputationCache;
 import com.opengamma.engine.function.CompiledFunctionRepository;
 import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.value.ValueSpecification;
 
 /**
  * The per-thread state for a calculation node.
@@ -18,6 +21,7 @@ import com.opengamma.engine.function.FunctionExecutionContext;
   private CalculationJob _job;
   private CompiledFunctionRepository _functions;
   private DeferredViewComputationCache _cache;
+  private Map<ValueSpecification, Object> _prefetchedInputs;
   private String _calculationConfiguration;
   private long _executionTime;
 
@@ -40,6 +44,7 @@ import com.opengamma.engine.function.FunctionExecutionContext;
     setJob(state.getJob());
     setFunctions(state.getFunctions());
     setCache(state.getCache());
+    setPrefetchedInputs(state.getPrefetchedInputs());
     setConfiguration(state.getConfiguration());
     setExecutionStartTime(state.getExecutionStartTime());
   }
@@ -76,6 +81,14 @@ import com.opengamma.engine.function.FunctionExecutionContext;
     return _cache;
   }
 
+  protected void setPrefetchedInputs(final Map<ValueSpecification, Object> prefetchedInputs) {
+    _prefetchedInputs = prefetchedInputs;
+  }
+
+  protected Map<ValueSpecification, Object> getPrefetchedInputs() {
+    return _prefetchedInputs;
+  }
+
   protected void setConfiguration(final String configuration) {
     _calculationConfiguration = configuration;
   }
@@ -557,6 +557,8 @@ import com.opengamma.util.tuple.Pairs;
 
   /**
    * Simplifies the type based on the associated {@link ComputationTargetResolver}.
+   * <p>
+   * This returns a normalized form of the value requirement.
    * 
    * @param valueReq the requirement to process, not null
    * @return the possibly simplified requirement, not null
@@ -565,7 +567,7 @@ import com.opengamma.util.tuple.Pairs;
     final ComputationTargetReference oldTargetRef = valueReq.getTargetReference();
     final ComputationTargetReference newTargetRef = ComputationTargetResolverUtils.simplifyType(oldTargetRef, getCompilationContext().getComputationTargetResolver());
     if (newTargetRef == oldTargetRef) {
-      return valueReq;
+      return MemoryUtils.instance(valueReq);
     } else {
       return MemoryUtils.instance(new ValueRequirement(valueReq.getValueName(), newTargetRef, valueReq.getConstraints()));
     }
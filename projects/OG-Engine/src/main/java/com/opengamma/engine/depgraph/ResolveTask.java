@@ -210,6 +210,16 @@ import com.opengamma.engine.value.ValueSpecification;
     return _state == null;
   }
 
+  /**
+   * Tests if the task has selected a function and is applying it. Such a task is close to producing a result, and completing it early lets its parents (and the resources they hold) be released
+   * sooner.
+   * 
+   * @return true if a function is being applied, false otherwise
+   */
+  /* package */boolean isApplyingFunction() {
+    return _state instanceof FunctionApplicationStep;
+  }
+
   @Override
   protected void finished(final GraphBuildingContext context) {
     assert _state != null;
@@ -111,4 +111,19 @@ public abstract class RunQueueFactory {
     };
   }
 
+  /**
+   * Creates LIFO queues based on a lock-free deque per building thread. Idle threads steal the oldest work from other threads' deques, and nearly complete resolution tasks are run ahead of others.
+   * This can perform better than {@link #getConcurrentStack} when many threads are used for graph building as they do not all contend on the head of a single stack.
+   * 
+   * @return the factory instance
+   */
+  public static RunQueueFactory getWorkStealing() {
+    return new RunQueueFactory() {
+      @Override
+      protected RunQueue createRunQueue() {
+        return new WorkStealingRunQueue();
+      }
+    };
+  }
+
 }
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Run queue implementation based on a deque per thread. Each thread adds to and takes from the head of its own deque, giving the LIFO behavior of {@link StackRunQueue} without the threads contending
+ * on a single structure. A thread whose deque is empty steals from the tail of another thread's deque, so takes the oldest (and typically largest) piece of work from it.
+ * <p>
+ * Resolve tasks that are applying a function are nearly complete, and are placed on a shared priority deque. A thread checks it once its own deque is empty, before stealing, so that completing
+ * these releases the parent tasks waiting on them without every take contending on the shared deque.
+ * <p>
+ * The deques are held in an array by worker, each recording the thread that owns it, rather than in a thread local. A thread local would remain on pooled threads after the queue was discarded,
+ * retaining its deque and any stale tasks. The number of threads using a queue is small so finding the caller's deque in the array is cheap.
+ */
+/* package */final class WorkStealingRunQueue implements RunQueue {
+
+  private final Deque<ContextRunnable> _priority = new ConcurrentLinkedDeque<ContextRunnable>();
+
+  /**
+   * A deque belonging to one worker thread.
+   */
+  private static final class WorkerDeque extends ConcurrentLinkedDeque<ContextRunnable> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Thread _owner;
+
+    private WorkerDeque(final Thread owner) {
+      _owner = owner;
+    }
+
+  }
+
+  /**
+   * All of the deques created, indexed by worker and copied on write. Deques belonging to threads that are no longer building are retained so that their tasks can be stolen.
+   */
+  private volatile WorkerDeque[] _deques = new WorkerDeque[0];
+
+  /**
+   * Index to start the next steal at, to spread thieves across the deques. Updated without synchronization as it only needs to be approximate.
+   */
+  private int _stealIndex;
+
+  private static WorkerDeque find(final WorkerDeque[] deques, final Thread thread) {
+    for (WorkerDeque deque : deques) {
+      if (deque._owner == thread) {
+        return deque;
+      }
+    }
+    return null;
+  }
+
+  private WorkerDeque getLocal() {
+    final Thread thread = Thread.currentThread();
+    final WorkerDeque deque = find(_deques, thread);
+    if (deque != null) {
+      return deque;
+    }
+    return register(thread);
+  }
+
+  private synchronized WorkerDeque register(final Thread thread) {
+    WorkerDeque deque = find(_deques, thread);
+    if (deque == null) {
+      deque = new WorkerDeque(thread);
+      final WorkerDeque[] deques = Arrays.copyOf(_deques, _deques.length + 1);
+      deques[deques.length - 1] = deque;
+      _deques = deques;
+    }
+    return deque;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    if (!_priority.isEmpty()) {
+      return false;
+    }
+    for (Deque<ContextRunnable> deque : _deques) {
+      if (!deque.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int size() {
+    int size = _priority.size();
+    for (Deque<ContextRunnable> deque : _deques) {
+      size += deque.size();
+    }
+    return size;
+  }
+
+  @Override
+  public Iterator<ContextRunnable> iterator() {
+    final WorkerDeque[] deques = _deques;
+    final List<ContextRunnable> snapshot = new ArrayList<ContextRunnable>(_priority);
+    for (Deque<ContextRunnable> deque : deques) {
+      snapshot.addAll(deque);
+    }
+    return snapshot.iterator();
+  }
+
+  @Override
+  public void add(final ContextRunnable runnable) {
+    if ((runnable instanceof ResolveTask) && ((ResolveTask) runnable).isApplyingFunction()) {
+      _priority.addFirst(runnable);
+    } else {
+      getLocal().addFirst(runnable);
+    }
+  }
+
+  @Override
+  public ContextRunnable take() {
+    // A thread that has never added work has no deque of its own; it doesn't need one just to take
+    final WorkerDeque local = find(_deques, Thread.currentThread());
+    ContextRunnable runnable;
+    if (local != null) {
+      runnable = local.pollFirst();
+      if (runnable != null) {
+        return runnable;
+      }
+    }
+    runnable = _priority.pollFirst();
+    if (runnable != null) {
+      return runnable;
+    }
+    return steal(local);
+  }
+
+  private ContextRunnable steal(final Deque<ContextRunnable> local) {
+    final WorkerDeque[] deques = _deques;
+    final int count = deques.length;
+    if (count > 0) {
+      final int start = (_stealIndex++ & Integer.MAX_VALUE) % count;
+      for (int i = 0; i < count; i++) {
+        final Deque<ContextRunnable> victim = deques[(start + i) % count];
+        if (victim != local) {
+          final ContextRunnable runnable = victim.pollLast();
+          if (runnable != null) {
+            return runnable;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of threads that have added work to the queue.
+   *
+   * @return the number of per-thread deques
+   */
+  /* package */int getDequeCount() {
+    return _deques.length;
+  }
+
+}
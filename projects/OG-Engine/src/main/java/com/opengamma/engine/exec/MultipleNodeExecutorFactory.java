@@ -137,6 +137,57 @@ public class MultipleNodeExecutorFactory extends PlanBasedGraphExecutorFactory i
     return _basePlanner.getMaximumConcurrency();
   }
 
+  /**
+   * Sets the target estimated cost of jobs, enabling the planner's cost model.
+   * 
+   * @param targetJobCost the estimated cost, or 0 to disable the cost model
+   * @see MultipleNodeExecutionPlanner#setTargetJobCost
+   */
+  public void setTargetJobCost(final long targetJobCost) {
+    _basePlanner.setTargetJobCost(targetJobCost);
+  }
+
+  /**
+   * Returns the target estimated cost of jobs.
+   * 
+   * @return the estimated cost, or 0 if the cost model is disabled
+   * @see MultipleNodeExecutionPlanner#getTargetJobCost
+   */
+  public long getTargetJobCost() {
+    return _basePlanner.getTargetJobCost();
+  }
+
+  /**
+   * Sets the number of calculation nodes the cost model will spread jobs over.
+   * 
+   * @param nodeCount the number of nodes
+   * @see MultipleNodeExecutionPlanner#setNodeCount
+   */
+  public void setNodeCount(final int nodeCount) {
+    _basePlanner.setNodeCount(nodeCount);
+  }
+
+  /**
+   * Returns the number of calculation nodes the cost model will spread jobs over.
+   * 
+   * @return the number of nodes
+   * @see MultipleNodeExecutionPlanner#getNodeCount
+   */
+  public int getNodeCount() {
+    return _basePlanner.getNodeCount();
+  }
+
+  /**
+   * Tests whether plans made using the cost model are stale because the function costs have drifted.
+   * 
+   * @param threshold the relative drift above which plans are considered stale
+   * @return true if plans are stale and the cache should be invalidated, false otherwise
+   * @see MultipleNodeExecutionPlanner#isCostModelStale
+   */
+  public boolean isCostModelStale(final double threshold) {
+    return _basePlanner.isCostModelStale(threshold);
+  }
+
   public void setFunctionCosts(final FunctionCosts functionCosts) {
     _basePlanner.setFunctionCosts(functionCosts);
   }
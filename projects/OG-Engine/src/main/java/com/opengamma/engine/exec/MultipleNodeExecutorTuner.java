@@ -34,6 +34,12 @@ import com.opengamma.util.ArgumentChecker;
  * Set maximum concurrency to the average node count of the job invokers. Requires a {@link JobDispatcher}.
  * </p>
  * <p>
+ * If the planner's cost model is enabled, set its node count to the total node count of the job invokers. Requires a {@link JobDispatcher}.
+ * </p>
+ * <p>
+ * If a cost drift threshold is set, discard cached plans made by the cost model when the function costs they were based on have drifted by more than the threshold.
+ * </p>
+ * <p>
  * TODO: [ENG-200] Tuning of job size and cost parameters
  * </p>
  */
@@ -52,6 +58,7 @@ public class MultipleNodeExecutorTuner implements Runnable {
   private TotallingNodeStatisticsGatherer _jobDispatchStatistics;
   private double _statisticDecayRate = 0.1; // 10% decay every schedule
   private int _statisticsKeepAlive = 300; // keep for 5 minutes
+  private double _costDriftThreshold; // disabled
 
   /**
    * @param factory The factory to tune
@@ -105,6 +112,20 @@ public class MultipleNodeExecutorTuner implements Runnable {
     return _statisticDecayRate;
   }
 
+  /**
+   * Sets the relative drift in function costs after which plans made by the cost model are discarded.
+   * 
+   * @param threshold the threshold, for example 0.25 for 25%, or 0 to disable
+   */
+  public void setCostDriftThreshold(final double threshold) {
+    ArgumentChecker.isTrue(threshold >= 0, "threshold");
+    _costDriftThreshold = threshold;
+  }
+
+  protected double getCostDriftThreshold() {
+    return _costDriftThreshold;
+  }
+
   /**
    * Makes one tuning adjustment.
    */
@@ -133,11 +154,25 @@ public class MultipleNodeExecutorTuner implements Runnable {
           getFactory().setMaximumConcurrency(newMaxConcurrency);
           changed = true;
         }
+        if (getFactory().getTargetJobCost() > 0) {
+          final int nodeCount = Math.max((int) nodesPerInvoker, 1);
+          if (nodeCount != getFactory().getNodeCount()) {
+            s_logger.info("Changing node count to {}", nodeCount);
+            getFactory().setNodeCount(nodeCount);
+            changed = true;
+          }
+        }
       }
       if (changed) {
         getFactory().invalidateCache();
       }
     }
+    if (getCostDriftThreshold() > 0) {
+      if (getFactory().isCostModelStale(getCostDriftThreshold())) {
+        s_logger.info("Function costs have drifted; invalidating cached execution plans");
+        getFactory().invalidateCache();
+      }
+    }
     if (getGraphExecutionStatistics() != null) {
       s_logger.debug("Processing graph execution statistics");
       for (TotallingGraphStatisticsGathererProvider.Statistics gatherer : getGraphExecutionStatistics().getViewStatistics()) {
@@ -43,7 +43,7 @@ public class PlanBasedGraphExecutor implements DependencyGraphExecutor {
 
   @Override
   public DependencyGraphExecutionFuture execute(final DependencyGraph graph, final Set<ValueSpecification> sharedValues, final Map<ValueSpecification, FunctionParameters> parameters) {
-    final GraphExecutionPlan plan = getPlanner().createPlan(graph, getCycle().getViewProcessContext().getExecutionLogModeSource(), getCycle().getFunctionInitId(), sharedValues, parameters);
+    final GraphExecutionPlan plan = getPlanner().createPlan(graph, getCycle().getLogModeSource(), getCycle().getFunctionInitId(), sharedValues, parameters);
     final PlanExecutor executor = new PlanExecutor(getCycle(), plan);
     executor.start();
     return executor;
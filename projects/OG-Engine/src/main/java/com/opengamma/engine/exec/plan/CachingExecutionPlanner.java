@@ -6,6 +6,7 @@
 package com.opengamma.engine.exec.plan;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -44,12 +45,19 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
     private long _functionInitId;
     private Set<ValueSpecification> _sharedValues;
     private Map<ValueSpecification, FunctionParameters> _parameters;
+    private Set<ValueSpecification> _fullLogValues;
 
     public CacheKey(final DependencyGraph graph, final long functionInitId, final Set<ValueSpecification> sharedValues, final Map<ValueSpecification, FunctionParameters> parameters) {
+      this(graph, functionInitId, sharedValues, parameters, Collections.<ValueSpecification>emptySet());
+    }
+
+    public CacheKey(final DependencyGraph graph, final long functionInitId, final Set<ValueSpecification> sharedValues, final Map<ValueSpecification, FunctionParameters> parameters,
+        final Set<ValueSpecification> fullLogValues) {
       _graph = graph;
       _functionInitId = functionInitId;
       _sharedValues = new HashSet<ValueSpecification>(sharedValues);
       _parameters = new HashMap<ValueSpecification, FunctionParameters>(parameters);
+      _fullLogValues = new HashSet<ValueSpecification>(fullLogValues);
     }
 
     @Override
@@ -70,6 +78,9 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
       if (!_parameters.equals(other._parameters)) {
         return false;
       }
+      if (!_fullLogValues.equals(other._fullLogValues)) {
+        return false;
+      }
       return _graph.equals(other._graph);
     }
 
@@ -80,6 +91,7 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
       hc += (hc << 4) + _graph.hashCode();
       hc += (hc << 4) + _sharedValues.hashCode();
       hc += (hc << 4) + _parameters.hashCode();
+      hc += (hc << 4) + _fullLogValues.hashCode();
       return hc;
     }
 
@@ -114,9 +126,9 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
   @Override
   public GraphExecutionPlan createPlan(final DependencyGraph graph, final ExecutionLogModeSource logModeSource, final long functionInitId, final Set<ValueSpecification> sharedValues,
       final Map<ValueSpecification, FunctionParameters> parameters) {
-    // NOTE: The logModeSource is not used as part of the key; this is wrong as the plan contains job items which embed the logging requirements
+    // The plan contains job items which embed the logging requirements, so the values with full logging are part of the key. When full logs are suppressed there are none.
     s_logger.debug("Searching for cached execution plan for {}/{}", graph, functionInitId);
-    CacheKey key = new CacheKey(graph, functionInitId, sharedValues, parameters);
+    CacheKey key = new CacheKey(graph, functionInitId, sharedValues, parameters, logModeSource.getElevatedValues(graph.getCalculationConfigurationName()));
     final Element element = _cache.get(key);
     if (element != null) {
       s_logger.debug("Cache hit");
@@ -138,6 +150,6 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
     _cache.getCacheManager().removeCache(CACHE_NAME);
   }
 
-  // TODO [ENG-269] If the function costs change significantly, invalidate the execution plan cache.
+  // Plans made by the cost model of MultipleNodeExecutionPlanner are invalidated by MultipleNodeExecutorTuner when the function costs drift significantly.
 
 }
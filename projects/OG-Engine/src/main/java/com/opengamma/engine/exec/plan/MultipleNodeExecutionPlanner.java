@@ -15,14 +15,17 @@ import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.opengamma.engine.calcnode.stats.FunctionCosts;
 import com.opengamma.engine.calcnode.stats.FunctionCostsPerConfiguration;
+import com.opengamma.engine.calcnode.stats.FunctionInvocationStatistics;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.depgraph.impl.DependencyGraphImpl;
@@ -42,6 +45,11 @@ import com.opengamma.util.tuple.Pairs;
  * <p>
  * Job cost estimates are in nanoseconds. These are using the (normalized) time estimate for the function execution and the estimated input/output data volumes using an approximate data rate. The
  * actual jobs produced may take longer to execute because of additional scheduling and housekeeping overheads.
+ * <p>
+ * If a target job cost is set, the planner uses its cost model to choose the job cost limits for each graph. The total estimated cost of the graph is spread over the available calculation nodes so
+ * that each node receives several jobs, with no job estimated to take longer than the target. The minimum and maximum job costs then act as bounds on the chosen limits rather than as the limits
+ * themselves. The function costs used to plan each graph are remembered so that {@link #isCostModelStale} can detect when they have drifted far enough that previously created (and possibly
+ * cached) plans should be discarded.
  */
 public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
 
@@ -53,8 +61,21 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
   private long _minimumJobCost;
   private long _maximumJobCost = Long.MAX_VALUE;
   private int _maximumConcurrency = Integer.MAX_VALUE;
+  private long _targetJobCost;
+  private int _nodeCount = 1;
   private FunctionCosts _functionCosts = new FunctionCosts();
 
+  /**
+   * The number of jobs that the cost model aims to give each node. Having more than one per node gives some slack for the estimates being inaccurate.
+   */
+  private static final int JOBS_PER_NODE = 4;
+
+  /**
+   * The calculation configuration and invocation costs, by function identifier, used when planning each graph with the cost model. Several views may have calculation configurations with the same
+   * name so the entries are keyed by the graph itself. The keys are weak so that an entry goes when its graph is no longer in use.
+   */
+  private final ConcurrentMap<DependencyGraph, Pair<String, Map<String, Double>>> _plannedCosts = new MapMaker().weakKeys().makeMap();
+
   /**
    * Sets the minimum number of items for each job.
    * <p>
@@ -163,6 +184,52 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     return _maximumConcurrency;
   }
 
+  /**
+   * Sets the target estimated cost of jobs, enabling the cost model.
+   * <p>
+   * When set, the job cost limits for each graph are derived from its total estimated cost and the number of calculation nodes so that the graph is spread evenly over the nodes, with jobs no more
+   * expensive than this target.
+   * 
+   * @param targetJobCost the estimated cost in nanoseconds, or 0 to disable the cost model
+   */
+  public void setTargetJobCost(final long targetJobCost) {
+    ArgumentChecker.isTrue(targetJobCost >= 0, "targetJobCost");
+    _targetJobCost = targetJobCost;
+    if (targetJobCost == 0) {
+      _plannedCosts.clear();
+    }
+  }
+
+  /**
+   * Returns the target estimated cost of jobs.
+   * 
+   * @return the estimated cost, or 0 if the cost model is disabled
+   * @see #setTargetJobCost
+   */
+  public long getTargetJobCost() {
+    return _targetJobCost;
+  }
+
+  /**
+   * Sets the number of calculation nodes that jobs will be spread over. This is only used by the cost model.
+   * 
+   * @param nodeCount the number of nodes, must be more than 0
+   */
+  public void setNodeCount(final int nodeCount) {
+    ArgumentChecker.isTrue(nodeCount > 0, "nodeCount");
+    _nodeCount = nodeCount;
+  }
+
+  /**
+   * Returns the number of calculation nodes that jobs will be spread over.
+   * 
+   * @return the number of nodes
+   * @see #setNodeCount
+   */
+  public int getNodeCount() {
+    return _nodeCount;
+  }
+
   public void setFunctionCosts(final FunctionCosts functionCosts) {
     ArgumentChecker.notNull(functionCosts, "functionCosts");
     _functionCosts = functionCosts;
@@ -183,16 +250,25 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     private final Set<GraphFragment> _allFragments;
     private final FunctionCostsPerConfiguration _costs;
     private final Set<ValueSpecification> _sharedValues;
+    private final Map<String, Double> _usedCosts;
+    private long _totalCost;
 
-    public FragmentGatherer(final int size, final FunctionCostsPerConfiguration costs, final Set<ValueSpecification> sharedValues) {
+    public FragmentGatherer(final int size, final FunctionCostsPerConfiguration costs, final Set<ValueSpecification> sharedValues, final boolean recordCosts) {
       _node2Fragment = Maps.newHashMapWithExpectedSize(size);
       _allFragments = Sets.newHashSetWithExpectedSize(size);
       _costs = costs;
       _sharedValues = sharedValues;
+      _usedCosts = recordCosts ? new HashMap<String, Double>() : null;
     }
 
     public GraphFragment createFragments(final DependencyNode root) {
-      final GraphFragment rootFragment = new GraphFragment(root, _costs.getStatistics(root.getFunction().getFunctionId()));
+      final String functionId = root.getFunction().getFunctionId();
+      final FunctionInvocationStatistics statistics = _costs.getStatistics(functionId);
+      final GraphFragment rootFragment = new GraphFragment(root, statistics);
+      if (_usedCosts != null) {
+        _usedCosts.put(functionId, statistics.getInvocationCost());
+      }
+      _totalCost += rootFragment.getJobCost();
       _node2Fragment.put(root, rootFragment);
       _allFragments.add(rootFragment);
       final int inputs = root.getInputCount();
@@ -217,6 +293,24 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
       return _allFragments;
     }
 
+    /**
+     * Returns the total estimated cost of all the fragments created.
+     * 
+     * @return the total cost
+     */
+    public long getTotalCost() {
+      return _totalCost;
+    }
+
+    /**
+     * Returns the invocation costs, by function identifier, of the functions in the fragments created.
+     * 
+     * @return the costs, or null if they were not recorded
+     */
+    public Map<String, Double> getUsedCosts() {
+      return _usedCosts;
+    }
+
     public boolean isShared(final ValueSpecification value) {
       return _sharedValues.contains(value);
     }
@@ -243,7 +337,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
   /**
    * Finds pairs of nodes with the same input set (i.e. that would execute concurrently) that are below the minimum job size and merge them together.
    */
-  private boolean mergeSharedInputs(final Set<GraphFragment> rootFragments, final Set<GraphFragment> allFragments) {
+  private boolean mergeSharedInputs(final Set<GraphFragment> rootFragments, final Set<GraphFragment> allFragments, final long minimumJobCost, final long maximumJobCost) {
     final Map<Set<GraphFragment>, GraphFragment> possibleCandidates = new HashMap<Set<GraphFragment>, GraphFragment>();
     final Map<GraphFragment, GraphFragment> validCandidates = new HashMap<GraphFragment, GraphFragment>();
     boolean result = false;
@@ -254,13 +348,13 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
           // No inputs to consider
           continue;
         }
-        if ((fragment.getJobCost() >= getMinimumJobCost()) && (fragment.getJobItems() >= getMinimumJobItems())) {
+        if ((fragment.getJobCost() >= minimumJobCost) && (fragment.getJobItems() >= getMinimumJobItems())) {
           // We already meet the minimum requirement for the graph
           continue;
         }
         final GraphFragment mergeCandidate = possibleCandidates.get(fragment.getInputFragments());
         if (mergeCandidate != null) {
-          if (mergeCandidate.canAppendFragment(fragment, getMaximumJobItems(), getMaximumJobCost())) {
+          if (mergeCandidate.canAppendFragment(fragment, getMaximumJobItems(), maximumJobCost)) {
             // Defer the merge because we're iterating through the dependent's inputs at the moment
             validCandidates.put(fragment, mergeCandidate);
             // Stop using the merge candidate
@@ -309,7 +403,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
   /**
    * If a fragment has only one dependency, and both it and its dependent are below the maximum job size they are merged.
    */
-  private boolean mergeSingleDependencies(final GraphFragmentContext context, final Set<GraphFragment> allFragments) {
+  private boolean mergeSingleDependencies(final GraphFragmentContext context, final Set<GraphFragment> allFragments, final long maximumJobCost) {
     int changes = 0;
     final Iterator<GraphFragment> fragmentIterator = allFragments.iterator();
     while (fragmentIterator.hasNext()) {
@@ -318,7 +412,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
         continue;
       }
       final GraphFragment dependency = fragment.getOutputFragments().iterator().next();
-      if (!dependency.canPrependFragment(fragment, getMaximumJobItems(), getMaximumJobCost())) {
+      if (!dependency.canPrependFragment(fragment, getMaximumJobItems(), maximumJobCost)) {
         // Can't merge
         continue;
       }
@@ -453,24 +547,81 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     }
   }
 
+  /**
+   * Chooses the maximum job cost for a graph using the cost model. The graph's total cost is divided so that each node receives a few jobs, capped by the target and bounded by the configured
+   * minimum and maximum job costs.
+   * 
+   * @param totalCost the total estimated cost of the graph
+   * @return the maximum job cost to plan with
+   */
+  /* package */long getCostModelMaximumJobCost(final long totalCost) {
+    final long parallelCost = totalCost / ((long) getNodeCount() * JOBS_PER_NODE);
+    long cost = Math.min(getTargetJobCost(), parallelCost);
+    cost = Math.min(cost, getMaximumJobCost());
+    return Math.max(cost, Math.max(getMinimumJobCost(), 1L));
+  }
+
+  /**
+   * Tests whether the function costs used to plan graphs with the cost model have drifted from the current costs. If they have, the recorded costs are discarded so that a subsequent call will
+   * only report further drift.
+   * <p>
+   * The drift is the total absolute change in invocation cost of the functions used, relative to their total cost when the plans were made.
+   * 
+   * @param threshold the relative drift above which plans are considered stale, for example 0.25 for 25%
+   * @return true if any plans made with the cost model are now stale and should be discarded, false otherwise
+   */
+  public boolean isCostModelStale(final double threshold) {
+    boolean stale = false;
+    final Iterator<Map.Entry<DependencyGraph, Pair<String, Map<String, Double>>>> itr = _plannedCosts.entrySet().iterator();
+    while (itr.hasNext()) {
+      final Map.Entry<DependencyGraph, Pair<String, Map<String, Double>>> planned = itr.next();
+      final FunctionCostsPerConfiguration costs = getFunctionCosts().getStatistics(planned.getValue().getFirst());
+      double total = 0;
+      double change = 0;
+      for (Map.Entry<String, Double> function : planned.getValue().getSecond().entrySet()) {
+        final double previous = function.getValue();
+        total += previous;
+        change += Math.abs(costs.getStatistics(function.getKey()).getInvocationCost() - previous);
+      }
+      if ((total > 0) && (change / total > threshold)) {
+        s_logger.info("Function costs for {} have drifted by {}%", planned.getValue().getFirst(), (change * 100d) / total);
+        itr.remove();
+        stale = true;
+      }
+    }
+    return stale;
+  }
+
   private GraphExecutionPlan createMultipleNodePlan(final DependencyGraph graph, final ExecutionLogModeSource logModeSource, final long functionInitializationId,
       final Set<ValueSpecification> sharedValues, final Map<ValueSpecification, FunctionParameters> parameters) {
     final GraphFragmentContext context = new GraphFragmentContext(graph.getCalculationConfigurationName(), logModeSource, functionInitializationId, sharedValues, parameters);
     context.setTerminalOutputs(DependencyGraphImpl.getTerminalOutputSpecifications(graph));
-    FragmentGatherer gatherer = new FragmentGatherer(graph.getSize(), getFunctionCosts().getStatistics(graph.getCalculationConfigurationName()), sharedValues);
+    final boolean costModel = getTargetJobCost() > 0;
+    FragmentGatherer gatherer = new FragmentGatherer(graph.getSize(), getFunctionCosts().getStatistics(graph.getCalculationConfigurationName()), sharedValues, costModel);
     final Set<GraphFragment> rootFragments = createGraphFragments(graph, gatherer);
     final Set<GraphFragment> allFragments = gatherer.getAllFragments();
+    final long minimumJobCost;
+    final long maximumJobCost;
+    if (costModel) {
+      maximumJobCost = getCostModelMaximumJobCost(gatherer.getTotalCost());
+      minimumJobCost = Math.max(getMinimumJobCost(), maximumJobCost / 2);
+      _plannedCosts.put(graph, Pairs.of(graph.getCalculationConfigurationName(), gatherer.getUsedCosts()));
+      s_logger.debug("Planning {} with job cost limits {} to {}", new Object[] {graph, minimumJobCost, maximumJobCost });
+    } else {
+      minimumJobCost = getMinimumJobCost();
+      maximumJobCost = getMaximumJobCost();
+    }
     gatherer = null;
     int failCount = 0;
     do {
-      if (mergeSharedInputs(rootFragments, allFragments)) {
+      if (mergeSharedInputs(rootFragments, allFragments, minimumJobCost, maximumJobCost)) {
         failCount = 0;
       } else {
         if (++failCount >= 2) {
           break;
         }
       }
-      if (mergeSingleDependencies(context, allFragments)) {
+      if (mergeSingleDependencies(context, allFragments, maximumJobCost)) {
         failCount = 0;
       } else {
         if (++failCount >= 2) {
@@ -28,6 +28,7 @@ public class GraphExecutionStatistics {
   private final AtomicLong _processedJobSize = new AtomicLong();
   private final AtomicLong _processedJobCycleCost = new AtomicLong();
   private final AtomicLong _processedJobDataCost = new AtomicLong();
+  private final AtomicLong _sharedNodes = new AtomicLong();
   private volatile Instant _lastProcessedTime;
   private volatile Instant _lastExecutedTime;
 
@@ -80,6 +81,10 @@ public class GraphExecutionStatistics {
     return _processedJobDataCost.get();
   }
 
+  public long getSharedNodes() {
+    return _sharedNodes.get();
+  }
+
   public Instant getLastProcessedTime() {
     return _lastProcessedTime;
   }
@@ -165,6 +170,10 @@ public class GraphExecutionStatistics {
     _lastProcessedTime = Instant.now();
   }
 
+  public void recordSharedNodes(final int nodeCount) {
+    _sharedNodes.addAndGet(nodeCount);
+  }
+
   public void reset() {
     _processedGraphs.set(0);
     _executedGraphs.set(0);
@@ -175,6 +184,7 @@ public class GraphExecutionStatistics {
     _processedJobSize.set(0);
     _processedJobCycleCost.set(0);
     _processedJobDataCost.set(0);
+    _sharedNodes.set(0);
   }
 
   private static void decay(final AtomicLong value, final double factor) {
@@ -191,6 +201,7 @@ public class GraphExecutionStatistics {
     decay(_processedJobSize, factor);
     decay(_processedJobCycleCost, factor);
     decay(_processedJobDataCost, factor);
+    decay(_sharedNodes, factor);
   }
 
   public GraphExecutionStatistics snapshot() {
@@ -209,6 +220,7 @@ public class GraphExecutionStatistics {
     _processedJobSize.set(other.getProcessedJobSize());
     _processedJobCycleCost.set(other.getProcessedJobCycleCost());
     _processedJobDataCost.set(other.getProcessedJobDataCost());
+    _sharedNodes.set(other.getSharedNodes());
   }
 
   public void delta(final GraphExecutionStatistics future) {
@@ -221,5 +233,6 @@ public class GraphExecutionStatistics {
     _processedJobSize.set(future.getProcessedJobSize() - getProcessedJobSize());
     _processedJobCycleCost.set(future.getProcessedJobCycleCost() - getProcessedJobCycleCost());
     _processedJobDataCost.set(future.getProcessedJobDataCost() - getProcessedJobDataCost());
+    _sharedNodes.set(future.getSharedNodes() - getSharedNodes());
   }
 }
@@ -35,4 +35,12 @@ public interface GraphExecutorStatisticsGatherer {
    */
   void graphExecuted(String calcConfig, int nodeCount, long executionTime, long duration);
 
+  /**
+   * Reports nodes of a graph that were not executed because their results had been calculated by another view.
+   * 
+   * @param calcConfig Calculation configuration name.
+   * @param nodeCount Number of nodes whose results were shared.
+   */
+  void nodesShared(String calcConfig, int nodeCount);
+
 }
@@ -56,6 +56,11 @@ public class TotallingGraphStatisticsGathererProvider extends PerViewStatisticsG
       getOrCreateConfiguration(calcConfig).recordProcessing(totalJobs, meanJobSize, meanJobCycleCost, meanJobIOCost);
     }
 
+    @Override
+    public void nodesShared(String calcConfig, int nodeCount) {
+      getOrCreateConfiguration(calcConfig).recordSharedNodes(nodeCount);
+    }
+
     public List<GraphExecutionStatistics> getExecutionStatistics() {
       return new ArrayList<GraphExecutionStatistics>(_statistics.values());
     }
@@ -45,6 +45,9 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
   private static final String MARKET_DATA_TIMEOUT_MILLIS_FIELD = "marketDataTimeoutMillis";
   private static final String DEFAULT_EXECUTION_OPTIONS_FIELD = "defaultExecutionOptions";
   private static final String BATCH_FIELD = "batch";
+  private static final String DELTA_DISPATCH_FIELD = "deltaDispatch";
+  private static final String COLUMNAR_RESULTS_FIELD = "columnarResults";
+  private static final String SHARED_NODE_RESULTS_FIELD = "sharedNodeResults";
 
   private static final Collection<Pair<String, ViewExecutionFlags>> s_flags = Arrays.<Pair<String, ViewExecutionFlags>>asList(
       Pairs.of(AWAIT_MARKET_DATA_FIELD, ViewExecutionFlags.AWAIT_MARKET_DATA),
@@ -55,7 +58,10 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
       Pairs.of(FETCH_MARKET_DATA_ONLY_FIELD, ViewExecutionFlags.FETCH_MARKET_DATA_ONLY),
       Pairs.of(SKIP_CYCLE_ON_NO_MARKET_DATA_FIELD, ViewExecutionFlags.SKIP_CYCLE_ON_NO_MARKET_DATA),
       Pairs.of(WAIT_FOR_INITIAL_TRIGGER_FIELD, ViewExecutionFlags.WAIT_FOR_INITIAL_TRIGGER),
-      Pairs.of(BATCH_FIELD, ViewExecutionFlags.BATCH));
+      Pairs.of(BATCH_FIELD, ViewExecutionFlags.BATCH),
+      Pairs.of(DELTA_DISPATCH_FIELD, ViewExecutionFlags.DELTA_DISPATCH),
+      Pairs.of(COLUMNAR_RESULTS_FIELD, ViewExecutionFlags.COLUMNAR_RESULTS),
+      Pairs.of(SHARED_NODE_RESULTS_FIELD, ViewExecutionFlags.SHARED_NODE_RESULTS));
 
   @Override
   public MutableFudgeMsg buildMessage(FudgeSerializer serializer, ExecutionOptions object) {
@@ -17,6 +17,7 @@ import org.fudgemsg.mapping.FudgeSerializer;
 import org.fudgemsg.mapping.GenericFudgeBuilderFor;
 import org.fudgemsg.wire.types.FudgeWireType;
 
+import com.opengamma.engine.MemoryUtils;
 import com.opengamma.engine.value.ValueProperties;
 
 /**
@@ -35,6 +36,7 @@ import com.opengamma.engine.value.ValueProperties;
  * <li>The infinite property set ({@link ValueProperties#all}) has a field named {@code without} that contains an empty sub-message.
  * <li>The near-infinite property set has a field named {@code without} that contains a field for each of absent entries, the string value of each field is the property name.
  * </ul>
+ * Decoded property sets are reduced to their canonical instances.
  */
 @GenericFudgeBuilderFor(ValueProperties.class)
 public class ValuePropertiesFudgeBuilder implements FudgeBuilder<ValueProperties> {
@@ -81,7 +83,7 @@ public class ValuePropertiesFudgeBuilder implements FudgeBuilder<ValueProperties
             builder.withoutAny((String) field.getValue());
           }
         }
-        return builder.get();
+        return MemoryUtils.instance(builder.get());
       }
     }
     subMsg = message.getMessage(WITH_FIELD);
@@ -118,7 +120,7 @@ public class ValuePropertiesFudgeBuilder implements FudgeBuilder<ValueProperties
         }
       }
     }
-    return builder.get();
+    return MemoryUtils.instance(builder.get());
   }
 
 }
@@ -14,6 +14,7 @@ import org.fudgemsg.mapping.FudgeBuilderFor;
 import org.fudgemsg.mapping.FudgeDeserializer;
 import org.fudgemsg.mapping.FudgeSerializer;
 
+import com.opengamma.engine.MemoryUtils;
 import com.opengamma.engine.target.ComputationTargetReference;
 import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValueRequirement;
@@ -51,9 +52,9 @@ public class ValueRequirementFudgeBuilder implements FudgeBuilder<ValueRequireme
     ComputationTargetReference targetReference = ComputationTargetReferenceFudgeBuilder.buildObjectImpl(deserializer, message);
     FudgeField constraints = message.getByName(CONSTRAINTS_FIELD_NAME);
     if (constraints != null) {
-      return new ValueRequirement(valueName, targetReference, deserializer.fieldValueToObject(ValueProperties.class, constraints));
+      return MemoryUtils.instance(new ValueRequirement(valueName, targetReference, deserializer.fieldValueToObject(ValueProperties.class, constraints)));
     } else {
-      return new ValueRequirement(valueName, targetReference);
+      return MemoryUtils.instance(new ValueRequirement(valueName, targetReference));
     }
   }
 
@@ -16,11 +16,14 @@ import org.fudgemsg.mapping.FudgeSerializer;
 import org.fudgemsg.wire.types.FudgeWireType;
 
 import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.MemoryUtils;
 import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValueSpecification;
 
 /**
  * Fudge message builder for {@code ValueSpecification}.
+ * <p>
+ * Decoded specifications are reduced to their canonical instances so that repeated decodes of the same value, for example on a calculation node, share a single object.
  */
 @FudgeBuilderFor(ValueSpecification.class)
 public class ValueSpecificationFudgeBuilder implements FudgeBuilder<ValueSpecification> {
@@ -53,7 +56,7 @@ public class ValueSpecificationFudgeBuilder implements FudgeBuilder<ValueSpecifi
     fudgeField = message.getByName(PROPERTIES_KEY);
     Validate.notNull(fudgeField, "Fudge message is not a ValueSpecification - field '" + PROPERTIES_KEY + "' is not present");
     final ValueProperties properties = deserializer.fieldValueToObject(ValueProperties.class, fudgeField);
-    return new ValueSpecification(valueName, targetSpecification, properties);
+    return MemoryUtils.instance(new ValueSpecification(valueName, targetSpecification, properties));
   }
 
 }
@@ -0,0 +1,19 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.function;
+
+import com.opengamma.util.PublicSPI;
+
+/**
+ * Marker for a {@link FunctionInvoker} whose results are not determined by its target, parameters, valuation time and input values alone. For example, one that samples random numbers or queries an external
+ * system at execution time.
+ * <p>
+ * Calculation nodes that reuse the results of earlier invocations with identical inputs will always execute a function that has an invoker implementing this interface.
+ */
+@PublicSPI
+public interface NonDeterministicFunctionInvoker extends FunctionInvoker {
+
+}
@@ -302,7 +302,7 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
   /**
    * The rules by target type. The map values are {@link ChainedRuleBundle} instances during construction, after which return an iterator giving the rules in blocks of descending priority order.
    */
-  private final ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>> _type2Rules = new ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>>(s_foldRules);
+  private final ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>> _type2Rules;
 
   /**
    * The total number of unique rules.
@@ -317,12 +317,12 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
   /**
    * Cache of targets. The values are weak so that when the function iterators drop out of scope as the requirements on the target are resolved the entry can be dropped.
    */
-  private final ConcurrentMap<ComputationTargetSpecification, Pair<ResolutionRule[], Collection<ValueSpecification>[]>> _targetCache = new MapMaker().weakValues().makeMap();
+  private final ConcurrentMap<ComputationTargetSpecification, Pair<ResolutionRule[], Collection<ValueSpecification>[]>> _targetCache;
 
   /**
    * Function definition lookup.
    */
-  private final Map<String, CompiledFunctionDefinition> _functions = new HashMap<String, CompiledFunctionDefinition>();
+  private final Map<String, CompiledFunctionDefinition> _functions;
 
   /**
    * Creates a resolver.
@@ -343,9 +343,31 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
     ArgumentChecker.notNull(functionCompilationContext, "functionCompilationContext");
     ArgumentChecker.notNull(resolutionRules, "resolutionRules");
     _functionCompilationContext = functionCompilationContext;
+    _type2Rules = new ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>>(s_foldRules);
+    _targetCache = new MapMaker().weakValues().makeMap();
+    _functions = new HashMap<String, CompiledFunctionDefinition>();
     addRules(resolutionRules);
   }
 
+  /**
+   * Creates a resolver that shares the compiled rules, and the rule results cached for each target, of another resolver.
+   * <p>
+   * This is only valid if the rules give the same results in either compilation context. For example, two calculation configurations with equal resolution rule transformations and default
+   * properties may share a resolver so that the rules for each target are only evaluated once.
+   * 
+   * @param functionCompilationContext the context, not null
+   * @param shared the resolver to share with, not null and with its rules already compiled
+   */
+  public DefaultCompiledFunctionResolver(final FunctionCompilationContext functionCompilationContext, final DefaultCompiledFunctionResolver shared) {
+    ArgumentChecker.notNull(functionCompilationContext, "functionCompilationContext");
+    ArgumentChecker.notNull(shared, "shared");
+    _functionCompilationContext = functionCompilationContext;
+    _type2Rules = shared._type2Rules;
+    _targetCache = shared._targetCache;
+    _functions = shared._functions;
+    _ruleCount = shared._ruleCount;
+  }
+
   private static final BinaryOperator<Iterable<Collection<ResolutionRule>>> s_combineChainedRuleBundle = new BinaryOperator<Iterable<Collection<ResolutionRule>>>() {
     @Override
     public Iterable<Collection<ResolutionRule>> apply(final Iterable<Collection<ResolutionRule>> a, final Iterable<Collection<ResolutionRule>> b) {
@@ -38,6 +38,8 @@ public interface GraphExecutionStatisticsMBean {
 
   Long getProcessedJobDataCost();
 
+  Long getSharedNodes();
+
   String getLastProcessedTime();
 
   String getLastExecutedTime();
@@ -147,6 +147,12 @@ public class GraphExecutionStatisticsMBeanImpl implements GraphExecutionStatisti
     return graphExecutionStatistics != null ? graphExecutionStatistics.getProcessedJobDataCost() : null;
   }
 
+  @Override
+  public Long getSharedNodes() {
+    com.opengamma.engine.exec.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getSharedNodes() : null;
+  }
+
   @Override
   public String getLastProcessedTime() {
     com.opengamma.engine.exec.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
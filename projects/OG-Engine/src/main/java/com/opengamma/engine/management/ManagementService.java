@@ -127,6 +127,7 @@ public final class ManagementService implements ViewProcessorEventListener {
 
     if (!_isInitialized) {
       initializeViewProcessor();
+      initializeViewCycleAdmission();
       initializeViewProcesses();
       initializeViewClients();
       initializeGraphExecutionStatistics();
@@ -150,6 +151,11 @@ public final class ManagementService implements ViewProcessorEventListener {
     registerViewProcessor(viewProcessor);
   }
 
+  private void initializeViewCycleAdmission() throws Exception {
+    ViewCycleAdmissionMBeanImpl cycleAdmission = new ViewCycleAdmissionMBeanImpl(_viewProcessor, _splitByViewProcessor);
+    registerViewCycleAdmission(cycleAdmission);
+  }
+
   private void initializeViewProcesses() throws Exception {
     for (ViewProcessInternal viewProcess : _viewProcessor.getViewProcesses()) {
       ViewProcessMXBeanImpl viewProcessBean = new ViewProcessMXBeanImpl(viewProcess, _viewProcessor, _splitByViewProcessor);
@@ -187,6 +193,17 @@ public final class ManagementService implements ViewProcessorEventListener {
     }
   }
 
+  private void registerViewCycleAdmission(ViewCycleAdmissionMBeanImpl cycleAdmission) throws Exception {
+    ObjectName objectName = cycleAdmission.getObjectName();
+    StandardMBean mBean = new StandardMBean(cycleAdmission, ViewCycleAdmissionMBean.class);
+    try {
+      _mBeanServer.registerMBean(mBean, objectName);
+    } catch (InstanceAlreadyExistsException e) {
+      _mBeanServer.unregisterMBean(objectName);
+      _mBeanServer.registerMBean(mBean, objectName);
+    }
+  }
+
   private void registerViewProcess(ViewProcessMXBeanImpl viewProcessBean) throws Exception {
     registerViewProcess(viewProcessBean, viewProcessBean.getObjectName());
   }
@@ -323,6 +340,8 @@ public final class ManagementService implements ViewProcessorEventListener {
     try {
       // ViewProcessor MBean
       registeredObjectNames = _mBeanServer.queryNames(ViewProcessorMBeanImpl.createObjectName(_viewProcessor, _splitByViewProcessor), null);
+      // Cycle admission MBean
+      registeredObjectNames.addAll(_mBeanServer.queryNames(ViewCycleAdmissionMBeanImpl.createObjectName(_viewProcessor.getName(), _splitByViewProcessor), null));
       // Other MBeans for this ViewProcessor
       registeredObjectNames.addAll(_mBeanServer.queryNames(new ObjectName("com.opengamma:*,ViewProcessor=" + _viewProcessor.toString()), null));
     } catch (MalformedObjectNameException e) {
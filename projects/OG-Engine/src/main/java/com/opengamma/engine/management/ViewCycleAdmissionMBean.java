@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.management;
+
+/**
+ * A management bean for the admission of view cycles by a ViewProcessor.
+ */
+public interface ViewCycleAdmissionMBean {
+
+  /**
+   * Gets the estimated memory, in bytes, that the cycles executing at the same time may use.
+   * 
+   * @return the budget in bytes
+   */
+  long getBudget();
+
+  /**
+   * Sets the estimated memory, in bytes, that the cycles executing at the same time may use.
+   * 
+   * @param budget the budget in bytes
+   */
+  void setBudget(long budget);
+
+  /**
+   * Gets the estimated memory, in bytes, used by the cycles currently executing.
+   * 
+   * @return the memory in bytes
+   */
+  long getBudgetUsed();
+
+  /**
+   * Gets the number of cycles currently executing.
+   * 
+   * @return the number of cycles
+   */
+  int getExecutingCycles();
+
+  /**
+   * Gets the number of cycles waiting for admission.
+   * 
+   * @return the number of cycles
+   */
+  int getQueueDepth();
+
+  /**
+   * Gets the average size of a value, in bytes, used to estimate the memory of a cycle.
+   * 
+   * @return the size in bytes
+   */
+  double getBytesPerValue();
+
+  /**
+   * Gets the number of cycles admitted.
+   * 
+   * @return the number of cycles
+   */
+  long getAdmittedCycles();
+
+  /**
+   * Gets the number of cycles admitted without their full execution logs.
+   * 
+   * @return the number of cycles
+   */
+  long getDegradedCycles();
+
+  /**
+   * Gets the number of cycles that have had to wait for admission.
+   * 
+   * @return the number of cycles
+   */
+  long getQueuedCycles();
+
+}
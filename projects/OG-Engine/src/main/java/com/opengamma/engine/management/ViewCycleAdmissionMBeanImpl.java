@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.management;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.engine.view.impl.ViewProcessorImpl;
+import com.opengamma.engine.view.worker.ViewCycleAdmissionController;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An MBean implementation exposing the admission of view cycles by a ViewProcessor.
+ */
+public final class ViewCycleAdmissionMBeanImpl implements ViewCycleAdmissionMBean {
+
+  /**
+   * The controller backing instance
+   */
+  private final ViewCycleAdmissionController _controller;
+
+  private final ObjectName _objectName;
+
+  /**
+   * Create a management view of the cycle admission controller of a ViewProcessor.
+   * 
+   * @param viewProcessor the underlying ViewProcessor
+   * @param splitByViewProcessor whether to classify the bean by its view processor
+   */
+  public ViewCycleAdmissionMBeanImpl(ViewProcessorImpl viewProcessor, boolean splitByViewProcessor) {
+    ArgumentChecker.notNull(viewProcessor, "View Processor");
+    _controller = viewProcessor.getCycleAdmissionController();
+    _objectName = createObjectName(viewProcessor.getName(), splitByViewProcessor);
+  }
+
+  /**
+   * Creates an object name using the scheme "com.opengamma:type=ViewCycleAdmission,name=<viewProcessorName>"
+   */
+  static ObjectName createObjectName(String viewProcessorName, boolean splitByViewProcessor) {
+    try {
+      return new ObjectName(splitByViewProcessor ?
+          "com.opengamma:type=ViewProcessors,ViewProcessor=ViewProcessor " + viewProcessorName + ",name=ViewCycleAdmission" :
+          "com.opengamma:type=ViewCycleAdmission,name=ViewProcessor " + viewProcessorName);
+    } catch (MalformedObjectNameException e) {
+      throw new OpenGammaRuntimeException("", e);
+    }
+  }
+
+  /**
+   * Gets the objectName field.
+   * 
+   * @return the object name for this MBean
+   */
+  public ObjectName getObjectName() {
+    return _objectName;
+  }
+
+  @Override
+  public long getBudget() {
+    return _controller.getBudget();
+  }
+
+  @Override
+  public void setBudget(long budget) {
+    _controller.setBudget(budget);
+  }
+
+  @Override
+  public long getBudgetUsed() {
+    return _controller.getUsed();
+  }
+
+  @Override
+  public int getExecutingCycles() {
+    return _controller.getExecuting();
+  }
+
+  @Override
+  public int getQueueDepth() {
+    return _controller.getQueueDepth();
+  }
+
+  @Override
+  public double getBytesPerValue() {
+    return _controller.getBytesPerValue();
+  }
+
+  @Override
+  public long getAdmittedCycles() {
+    return _controller.getAdmittedCount();
+  }
+
+  @Override
+  public long getDegradedCycles() {
+    return _controller.getDegradedCount();
+  }
+
+  @Override
+  public long getQueuedCycles() {
+    return _controller.getQueuedCount();
+  }
+
+}
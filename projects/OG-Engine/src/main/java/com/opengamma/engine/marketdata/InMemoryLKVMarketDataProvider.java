@@ -6,10 +6,9 @@
 package com.opengamma.engine.marketdata;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,15 +18,19 @@ import com.opengamma.engine.marketdata.availability.MarketDataAvailabilityProvid
 import com.opengamma.engine.marketdata.spec.MarketDataSpecification;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.map.PersistentHashMap;
 
 /**
  * An implementation of {@link MarketDataProvider} which maintains an LKV cache of externally-provided values.
+ * <p>
+ * The values are held in a {@link PersistentHashMap}. Each update creates a new version of the map, sharing structure with the previous one, so taking a snapshot is just a reference to the
+ * current version rather than a copy of all of the values. Versions are reclaimed by the garbage collector once no snapshot refers to them.
  */
 public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider implements MarketDataInjector {
 
   private static final Logger s_logger = LoggerFactory.getLogger(InMemoryLKVMarketDataProvider.class);
 
-  private final Map<ValueSpecification, Object> _lastKnownValues = new ConcurrentHashMap<ValueSpecification, Object>();
+  private final AtomicReference<PersistentHashMap<ValueSpecification, Object>> _lastKnownValues = new AtomicReference<>(PersistentHashMap.<ValueSpecification, Object>of());
   private final FixedMarketDataAvailabilityProvider _availability = new FixedMarketDataAvailabilityProvider();
   private final MarketDataPermissionProvider _permissionProvider;
 
@@ -85,7 +88,10 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   @Override
   public void addValue(final ValueSpecification specification, final Object value) {
     if (value != null) {
-      _lastKnownValues.put(specification, value);
+      PersistentHashMap<ValueSpecification, Object> values;
+      do {
+        values = _lastKnownValues.get();
+      } while (!_lastKnownValues.compareAndSet(values, values.with(specification, value)));
     }
     _availability.addAvailableData(specification);
     valueChanged(specification);
@@ -100,7 +106,10 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   @Override
   public void removeValue(final ValueSpecification specification) {
     _availability.removeAvailableData(specification);
-    _lastKnownValues.remove(specification);
+    PersistentHashMap<ValueSpecification, Object> values;
+    do {
+      values = _lastKnownValues.get();
+    } while (!_lastKnownValues.compareAndSet(values, values.without(specification)));
     valueChanged(specification);
   }
 
@@ -112,17 +121,22 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
 
   //-------------------------------------------------------------------------
   public Set<ValueSpecification> getAllValueKeys() {
-    return Collections.unmodifiableSet(_lastKnownValues.keySet());
+    return Collections.unmodifiableSet(_lastKnownValues.get().keySet());
   }
 
   public Object getCurrentValue(final ValueSpecification specification) {
-    return _lastKnownValues.get(specification);
+    return _lastKnownValues.get().get(specification);
   }
 
   //-------------------------------------------------------------------------
 
+  /**
+   * Returns the current version of the values. This is immutable so can be held by a snapshot without copying.
+   *
+   * @return the current values, not null
+   */
   /*package*/Map<ValueSpecification, Object> doSnapshot() {
-    return new HashMap<>(_lastKnownValues);
+    return _lastKnownValues.get();
   }
 
 }
@@ -48,10 +48,20 @@ public class DeltaDefinition {
       return true;
     }
 
+    return isValueDelta(previousComputed.getValue(), newComputed.getValue());
+  }
+
+  /**
+   * Indicates whether the difference between two raw values, for the same value specification, is sufficient to be
+   * treated as a delta.
+   * 
+   * @param previousValue  the previous value, may be null
+   * @param newValue  the new value, may be null
+   * @return true if {@code newValue} should be treated as a delta, otherwise false
+   */
+  public boolean isValueDelta(Object previousValue, Object newValue) {
     // REVIEW jonathan 2010-05-10 -- Written with the assumption that we only really want to compare doubles and
     // BigDecimals, hence the specific Number check here rather than anything more generic.
-    Object previousValue = previousComputed.getValue();
-    Object newValue = newComputed.getValue();
     if (getNumberComparer() != null && previousValue instanceof Number && newValue instanceof Number) {
       return getNumberComparer().isDelta((Number) previousValue, (Number) newValue);
     }
@@ -59,6 +69,26 @@ public class DeltaDefinition {
     // Finally, fall back onto the most basic check
     return !ObjectUtils.equals(previousValue, newValue);
   }
+
+  /**
+   * Indicates whether the difference between two primitive values, for the same value specification, is sufficient
+   * to be treated as a delta. This gives the same answer as {@link #isValueDelta(Object, Object)} with the boxed
+   * values but avoids boxing them when a {@link NumberDeltaComparer} is in use.
+   * 
+   * @param previousValue  the previous value
+   * @param newValue  the new value
+   * @return true if {@code newValue} should be treated as a delta, otherwise false
+   */
+  public boolean isValueDelta(double previousValue, double newValue) {
+    final DeltaComparer<Number> numberComparer = getNumberComparer();
+    if (numberComparer instanceof NumberDeltaComparer) {
+      return ((NumberDeltaComparer) numberComparer).isDelta(previousValue, newValue);
+    }
+    if (numberComparer != null) {
+      return numberComparer.isDelta(previousValue, newValue);
+    }
+    return Double.doubleToLongBits(previousValue) != Double.doubleToLongBits(newValue);
+  }
   
   @Override
   public int hashCode() {
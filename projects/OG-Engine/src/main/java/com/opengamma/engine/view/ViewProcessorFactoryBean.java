@@ -61,6 +61,7 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
   private ViewResultListenerFactory _batchViewClientFactory;
   private ViewExecutionCache _viewExecutionCache = new InMemoryViewExecutionCache();
   private int _permissionCheckInterval;
+  private long _cycleMemoryBudget;
   private boolean _useAutoStartViews;
 
   //-------------------------------------------------------------------------
@@ -192,6 +193,19 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
     _permissionCheckInterval = permissionCheckInterval;
   }
 
+  public long getCycleMemoryBudget() {
+    return _cycleMemoryBudget;
+  }
+
+  /**
+   * Sets the estimated memory, in bytes, that the view cycles executing at the same time may use. Zero, the default, means no limit.
+   * 
+   * @param cycleMemoryBudget the budget in bytes, or zero for no limit
+   */
+  public void setCycleMemoryBudget(final long cycleMemoryBudget) {
+    _cycleMemoryBudget = cycleMemoryBudget;
+  }
+
   //-------------------------------------------------------------------------
   protected void checkInjectedInputs() {
     s_logger.debug("Checking injected inputs.");
@@ -211,7 +225,7 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
   @Override
   public ViewProcessor createObject() {
     checkInjectedInputs();
-    return new ViewProcessorImpl(
+    final ViewProcessorImpl viewProcessor = new ViewProcessorImpl(
         getName(),
         getConfigSource(),
         getNamedMarketDataSpecificationRepository(),
@@ -231,6 +245,10 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
         getViewExecutionCache(),
         _permissionCheckInterval,
         _useAutoStartViews);
+    if (_cycleMemoryBudget > 0) {
+      viewProcessor.getCycleAdmissionController().setBudget(_cycleMemoryBudget);
+    }
+    return viewProcessor;
   }
 
   public void setViewResultListenerFactory(final ViewResultListenerFactory viewResultListenerFactory) {
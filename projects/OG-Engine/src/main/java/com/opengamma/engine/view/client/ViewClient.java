@@ -44,7 +44,8 @@ import com.opengamma.util.tuple.Pair;
  * <p>
  * When results are paused, they are incrementally batched to be delivered as a single, collapsed result when they are resumed. This result is specific to the individual client that has been paused.
  * <p>
- * Use {@link #setUpdatePeriod(long)} to throttle the frequency of updates exposed through this client.
+ * Use {@link #setUpdatePeriod(long)} to throttle the frequency of updates exposed through this client, and {@link #setStreamingResults(boolean)} to prevent a slow listener from holding up the
+ * view process.
  * <p>
  * Always call {@link #shutdown()} from any state to allow resources associated with the managed view to be released when the client is no longer required. Without this, the view process may continue
  * executing indefinitely.
@@ -180,6 +181,23 @@ public interface ViewClient extends UniqueIdentifiable {
    */
   void setUpdatePeriod(long periodMillis);
 
+  /**
+   * Sets whether results are streamed to the listener. When there is no minimum update period, results are normally delivered to the listener by the thread that produced them, so a slow listener
+   * holds up the view process. When streaming, results are delivered asynchronously; any that arrive while the listener is busy are merged, per target and value, into a single update delivered
+   * when it returns.
+   * 
+   * @param streaming true to stream results to the listener, false to deliver them synchronously
+   */
+  void setStreamingResults(boolean streaming);
+
+  /**
+   * Sets the maximum number of targets that may be held in result fragments waiting to be delivered to a listener that is lagging behind, or paused. Beyond this, the fragments for the cycle are
+   * discarded and their values are delivered with the full cycle result instead.
+   * 
+   * @param maxTargets the maximum number of targets, or 0 for no limit
+   */
+  void setMaxFragmentTargets(int maxTargets);
+
   /**
    * Gets the result mode for sending full cycle results to the listener. Defaults to {@link ViewResultMode#FULL_ONLY}.
    * 
@@ -11,7 +11,11 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
@@ -50,6 +54,8 @@ import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.tuple.Pair;
 
+import net.sf.ehcache.util.NamedThreadFactory;
+
 /**
  * Default implementation of {@link ViewClient}.
  */
@@ -57,6 +63,11 @@ public class ViewClientImpl implements ViewClient {
 
   private static final Logger s_logger = LoggerFactory.getLogger(ViewClientImpl.class);
 
+  /**
+   * The default maximum number of targets held in result fragments waiting for a lagging listener; beyond this, the fragments are discarded in favour of the full result.
+   */
+  public static final int DEFAULT_MAX_FRAGMENT_TARGETS = 100000;
+
   private final ReentrantLock _clientLock = new ReentrantLock();
 
   private final UniqueId _id;
@@ -87,6 +98,11 @@ public class ViewClientImpl implements ViewClient {
 
   private final RateLimitingMergingViewProcessListener _mergingViewProcessListener;
 
+  /**
+   * Delivers streamed results to this client's listener, so that a slow listener cannot hold up other clients. The thread is only started while there are results to deliver.
+   */
+  private final ExecutorService _streamingExecutor;
+
   private final AtomicReference<ViewResultListener> _userResultListener = new AtomicReference<>();
   private final Set<Pair<String, ValueSpecification>> _elevatedLogSpecs = new HashSet<>();
 
@@ -263,8 +279,10 @@ public class ViewClientImpl implements ViewClient {
 
     };
 
-    _mergingViewProcessListener = new RateLimitingMergingViewProcessListener(mergedViewProcessListener, getViewProcessor().getViewCycleManager(), timer);
+    _streamingExecutor = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("ViewClient result streamer " + id));
+    _mergingViewProcessListener = new RateLimitingMergingViewProcessListener(mergedViewProcessListener, getViewProcessor().getViewCycleManager(), timer, _streamingExecutor);
     _mergingViewProcessListener.setPaused(true);
+    _mergingViewProcessListener.setMaxFragmentTargets(DEFAULT_MAX_FRAGMENT_TARGETS);
   }
 
   @Override
@@ -398,6 +416,16 @@ public class ViewClientImpl implements ViewClient {
     _mergingViewProcessListener.setMinimumUpdatePeriodMillis(periodMillis);
   }
 
+  @Override
+  public void setStreamingResults(boolean streaming) {
+    _mergingViewProcessListener.setStreaming(streaming);
+  }
+
+  @Override
+  public void setMaxFragmentTargets(int maxTargets) {
+    _mergingViewProcessListener.setMaxFragmentTargets(maxTargets);
+  }
+
   @Override
   public ViewResultMode getResultMode() {
     return _resultMode.get();
@@ -580,6 +608,7 @@ public class ViewClientImpl implements ViewClient {
       detachFromViewProcess();
       getViewProcessor().removeViewClient(getUniqueId());
       _mergingViewProcessListener.terminate();
+      _streamingExecutor.shutdown();
       _state = ViewClientState.TERMINATED;
       ViewResultListener listener = _userResultListener.get();
       if (listener != null) {
@@ -18,6 +18,7 @@ import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.ViewDeltaResultModel;
 import com.opengamma.engine.view.ViewResultModel;
+import com.opengamma.engine.view.impl.ColumnarViewCalculationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
 import com.opengamma.util.tuple.Pair;
 
@@ -49,6 +50,10 @@ public class ViewDeltaResultCalculator {
       final DeltaDefinition deltaDefinition = viewDefinition.getCalculationConfiguration(calcConfigName).getDeltaDefinition();
       final ViewCalculationResultModel resultCalcModel = result.getCalculationResult(calcConfigName);
       final ViewCalculationResultModel previousCalcModel = previousResult != null ? previousResult.getCalculationResult(calcConfigName) : null;
+      if ((resultCalcModel instanceof ColumnarViewCalculationResultModel) && (previousCalcModel instanceof ColumnarViewCalculationResultModel)) {
+        computeDeltaModel(deltaDefinition, deltaModel, calcConfigName, (ColumnarViewCalculationResultModel) previousCalcModel, (ColumnarViewCalculationResultModel) resultCalcModel);
+        continue;
+      }
       for (ComputationTargetSpecification targetSpec : resultCalcModel.getAllTargets()) {
         computeDeltaModel(deltaDefinition, deltaModel, targetSpec, calcConfigName, previousCalcModel, resultCalcModel);
       }
@@ -56,6 +61,42 @@ public class ViewDeltaResultCalculator {
     return deltaModel;
   }
 
+  /**
+   * Computes the delta between two columnar results column by column. The rows of the two models are matched once, each column is matched once and double values are compared without boxing, so
+   * result objects are only created for the values that are part of the delta.
+   */
+  private static void computeDeltaModel(DeltaDefinition deltaDefinition, InMemoryViewDeltaResultModel deltaModel, String calcConfigName,
+      ColumnarViewCalculationResultModel previousCalcModel, ColumnarViewCalculationResultModel resultCalcModel) {
+    final int rows = resultCalcModel.getRowCount();
+    final int[] previousRows = new int[rows];
+    for (int row = 0; row < rows; row++) {
+      previousRows[row] = previousCalcModel.getRow(resultCalcModel.getRowTarget(row));
+    }
+    final int columns = resultCalcModel.getColumnCount();
+    for (int column = 0; column < columns; column++) {
+      final int previousColumn = previousCalcModel.getColumn(resultCalcModel.getColumnKey(column));
+      for (int row = 0; row < rows; row++) {
+        if (!resultCalcModel.isPresent(column, row)) {
+          continue;
+        }
+        final int previousRow = previousRows[row];
+        final boolean delta;
+        if ((previousColumn < 0) || (previousRow < 0) || !previousCalcModel.isPresent(previousColumn, previousRow)) {
+          delta = true;
+        } else if (resultCalcModel.isDouble(column, row) && previousCalcModel.isDouble(previousColumn, previousRow)) {
+          delta = deltaDefinition.isValueDelta(previousCalcModel.getDouble(previousColumn, previousRow), resultCalcModel.getDouble(column, row))
+              || !ObjectUtils.equals(previousCalcModel.getAggregatedExecutionLog(previousColumn, previousRow), resultCalcModel.getAggregatedExecutionLog(column, row));
+        } else {
+          delta = deltaDefinition.isValueDelta(previousCalcModel.getValue(previousColumn, previousRow), resultCalcModel.getValue(column, row))
+              || !ObjectUtils.equals(previousCalcModel.getAggregatedExecutionLog(previousColumn, previousRow), resultCalcModel.getAggregatedExecutionLog(column, row));
+        }
+        if (delta) {
+          deltaModel.addValue(calcConfigName, resultCalcModel.getComputedValueResult(column, row));
+        }
+      }
+    }
+  }
+
   private static void computeDeltaModel(DeltaDefinition deltaDefinition, InMemoryViewDeltaResultModel deltaModel, ComputationTargetSpecification targetSpec,
       String calcConfigName, ViewCalculationResultModel previousCalcModel, ViewCalculationResultModel resultCalcModel) {
     final Map<Pair<String, ValueProperties>, ComputedValueResult> resultValues = resultCalcModel.getValues(targetSpec);
@@ -139,6 +139,18 @@ public class MergingViewProcessListener implements ViewResultListener {
    * The last cycle completed notification seen. There will be no earlier cycle completion or failure notifications in the queue.
    */
   private Call<CycleCompletedCall> _cycleCompleted;
+  /**
+   * The maximum number of targets to hold in merged fragment results for a cycle, or 0 for no limit.
+   */
+  private int _maxFragmentTargets;
+  /**
+   * The number of targets, possibly overcounted, held in {@link #_latestCycleFragmentCompleted}.
+   */
+  private int _fragmentTargets;
+  /**
+   * Whether fragments for the current cycle have been discarded because {@link #_maxFragmentTargets} was exceeded.
+   */
+  private boolean _fragmentsDiscarded;
 
   public MergingViewProcessListener(ViewResultListener underlying, EngineResourceManagerInternal<?> cycleManager) {
     ArgumentChecker.notNull(underlying, "underlying");
@@ -192,6 +204,45 @@ public class MergingViewProcessListener implements ViewResultListener {
     return _lastUpdateMillis.get();
   }
 
+  /**
+   * Gets the maximum number of targets that may be held in merged fragment results for a cycle.
+   * 
+   * @return the maximum number of targets, or 0 for no limit
+   */
+  public int getMaxFragmentTargets() {
+    _mergerLock.lock();
+    try {
+      return _maxFragmentTargets;
+    } finally {
+      _mergerLock.unlock();
+    }
+  }
+
+  /**
+   * Sets the maximum number of targets that may be held in merged fragment results for a cycle. If a consumer falls so far behind that the fragments waiting for it exceed this, they are discarded
+   * along with any further fragments from the same cycle; the values will be delivered with the cycle's full result instead. This bounds the memory held for a slow consumer to that of the full
+   * result.
+   * 
+   * @param maxFragmentTargets the maximum number of targets, or 0 for no limit
+   */
+  public void setMaxFragmentTargets(final int maxFragmentTargets) {
+    ArgumentChecker.notNegative(maxFragmentTargets, "maxFragmentTargets");
+    _mergerLock.lock();
+    try {
+      _maxFragmentTargets = maxFragmentTargets;
+    } finally {
+      _mergerLock.unlock();
+    }
+  }
+
+  /**
+   * Called when an update has been queued, or merged with one already queued, rather than passed straight through to the underlying listener. The caller holds the merger lock so an implementation
+   * must not invoke the underlying listener directly; it may arrange for {@link #drain} to be called.
+   */
+  protected void callQueued() {
+    // No-op
+  }
+
   //-------------------------------------------------------------------------
   public boolean isLatestResultCycleRetained() {
     return _isLatestResultCycleRetained;
@@ -226,6 +277,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         }
         _previousCompilation = _latestCompilation;
         _latestCompilation = addCall(new ViewDefinitionCompiledCall(compiledViewDefinition, hasMarketDataPermissions));
+        callQueued();
         return;
       }
     } finally {
@@ -242,6 +294,7 @@ public class MergingViewProcessListener implements ViewResultListener {
       if (!isPassThrough()) {
         clearCallQueue();
         _previousCompilation = addCall(new ViewDefinitionCompilationFailedCall(valuationTime, exception));
+        callQueued();
         return;
       }
     } finally {
@@ -262,6 +315,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         }
         _previousCycleStarted = _latestCycleStarted;
         _latestCycleStarted = addCall(new CycleStartedCall(cycleMetadata));
+        callQueued();
         return;
       }
     } finally {
@@ -299,6 +353,8 @@ public class MergingViewProcessListener implements ViewResultListener {
         }
         _previousCycleFragmentCompleted = _latestCycleFragmentCompleted;
         _latestCycleFragmentCompleted = null;
+        _fragmentTargets = 0;
+        _fragmentsDiscarded = false;
         // Only keep the cycle started call for the latest complete result
         if (_previousCycleStarted != null) {
           removeCall(_previousCycleStarted);
@@ -309,6 +365,7 @@ public class MergingViewProcessListener implements ViewResultListener {
           removeCall(_previousCompilation);
           _previousCompilation = null;
         }
+        callQueued();
         return;
       }
     } finally {
@@ -323,6 +380,22 @@ public class MergingViewProcessListener implements ViewResultListener {
     try {
       _lastUpdateMillis.set(System.currentTimeMillis());
       if (!isPassThrough()) {
+        if (_fragmentsDiscarded) {
+          // The values will arrive with the full result
+          return;
+        }
+        final int targets = countTargets(fullFragment, deltaFragment);
+        if ((_maxFragmentTargets > 0) && (_fragmentTargets + targets > _maxFragmentTargets)) {
+          s_logger.info("Discarding fragments for the current cycle; more than {} targets waiting for delivery", _maxFragmentTargets);
+          if (_latestCycleFragmentCompleted != null) {
+            removeCall(_latestCycleFragmentCompleted);
+            _latestCycleFragmentCompleted = null;
+          }
+          _fragmentTargets = 0;
+          _fragmentsDiscarded = true;
+          return;
+        }
+        _fragmentTargets += targets;
         if (_latestCycleFragmentCompleted != null) {
           // There's a current fragment completed call in the queue - move to end
           putCallToEnd(_latestCycleFragmentCompleted);
@@ -332,6 +405,7 @@ public class MergingViewProcessListener implements ViewResultListener {
           // No existing fragment completed call - add new one
           _latestCycleFragmentCompleted = addCall(new CycleFragmentCompletedCall(fullFragment, deltaFragment));
         }
+        callQueued();
         return;
       }
     } finally {
@@ -362,6 +436,8 @@ public class MergingViewProcessListener implements ViewResultListener {
         }
         _previousCycleFragmentCompleted = _latestCycleFragmentCompleted;
         _latestCycleFragmentCompleted = null;
+        _fragmentTargets = 0;
+        _fragmentsDiscarded = false;
         // Only keep the cycle started call for this failure
         if (_previousCycleStarted != null) {
           removeCall(_previousCycleStarted);
@@ -372,6 +448,7 @@ public class MergingViewProcessListener implements ViewResultListener {
           removeCall(_previousCompilation);
           _previousCompilation = null;
         }
+        callQueued();
         return;
       }
     } finally {
@@ -387,6 +464,7 @@ public class MergingViewProcessListener implements ViewResultListener {
       _lastUpdateMillis.set(System.currentTimeMillis());
       if (!isPassThrough()) {
         addCall(new ProcessCompletedCall());
+        callQueued();
         return;
       }
     } finally {
@@ -403,6 +481,7 @@ public class MergingViewProcessListener implements ViewResultListener {
       getCycleRetainer().replaceRetainedCycle(null);
       if (!isPassThrough()) {
         addCall(new ProcessTerminatedCall(executionInterrupted));
+        callQueued();
         return;
       }
     } finally {
@@ -418,6 +497,7 @@ public class MergingViewProcessListener implements ViewResultListener {
       _lastUpdateMillis.set(System.currentTimeMillis());
       if (!isPassThrough()) {
         addCall(new ClientShutdownCall(e));
+        callQueued();
         return;
       }
     } finally {
@@ -440,6 +520,18 @@ public class MergingViewProcessListener implements ViewResultListener {
     _cycleCompleted = null;
     _previousCycleFragmentCompleted = null;
     _latestCycleFragmentCompleted = null;
+    _fragmentTargets = 0;
+    _fragmentsDiscarded = false;
+  }
+
+  private static int countTargets(final ViewComputationResultModel fullFragment, final ViewDeltaResultModel deltaFragment) {
+    if (fullFragment != null) {
+      return fullFragment.getAllTargets().size();
+    } else if (deltaFragment != null) {
+      return deltaFragment.getAllTargets().size();
+    } else {
+      return 0;
+    }
   }
 
   /**
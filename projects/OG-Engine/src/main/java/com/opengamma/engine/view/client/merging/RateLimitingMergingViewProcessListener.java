@@ -5,29 +5,72 @@
  */
 package com.opengamma.engine.view.client.merging;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.opengamma.engine.resource.EngineResourceManagerInternal;
 import com.opengamma.engine.view.listener.ViewResultListener;
 import com.opengamma.util.ArgumentChecker;
 
 /**
  * Merges view process results to satisfy a specified maximum downstream update rate (given in terms of a minimum period between updates). This maximum rate can be adjusted on-the-fly.
+ * <p>
+ * With no minimum period, updates are normally passed straight through, so the view process delivering them waits for the downstream listener. If streaming is enabled they are instead queued and
+ * delivered as soon as possible by the delivery executor, which should be dedicated to the one downstream listener so that it cannot hold up the deliveries to any others. While the downstream listener keeps up this gives the same sequence of updates; while it lags, the updates waiting for it are merged so that
+ * neither the view process is held up nor does the backlog grow beyond a single merged update.
  */
 public class RateLimitingMergingViewProcessListener extends MergingViewProcessListener {
 
+  private static final Logger s_logger = LoggerFactory.getLogger(RateLimitingMergingViewProcessListener.class);
+
   private static final long MIN_PERIOD = 50;
 
   private final ScheduledExecutorService _timer;
+  private final Executor _deliveryExecutor;
   private ReentrantLock _taskSetupLock = new ReentrantLock();
   private Future<?> _asyncUpdateCheckerTask;
 
   private boolean _isPaused;
 
+  private boolean _isStreaming;
+
+  /**
+   * Whether queued updates should be delivered immediately, asynchronously. Changes only when {@link #_taskSetupLock} is held.
+   */
+  private volatile boolean _isDeliveringImmediately;
+
+  /**
+   * Whether a task to deliver queued updates has been submitted but has not yet started.
+   */
+  private final AtomicBoolean _deliveryRequested = new AtomicBoolean();
+
+  /**
+   * Held while delivering queued updates so that concurrent deliveries cannot reorder them.
+   */
+  private final ReentrantLock _deliveryLock = new ReentrantLock();
+
+  private final Runnable _deliveryTask = new Runnable() {
+    @Override
+    public void run() {
+      _deliveryRequested.set(false);
+      _deliveryLock.lock();
+      try {
+        drain();
+      } finally {
+        _deliveryLock.unlock();
+      }
+    }
+  };
+
   private AtomicLong _minimumUpdatePeriodMillis = new AtomicLong(0);
 
   /**
@@ -36,9 +79,23 @@ public class RateLimitingMergingViewProcessListener extends MergingViewProcessLi
   private AtomicLong _lastUpdateTimeMillis = new AtomicLong();
 
   public RateLimitingMergingViewProcessListener(ViewResultListener underlying, EngineResourceManagerInternal<?> cycleManager, ScheduledExecutorService timer) {
+    this(underlying, cycleManager, timer, timer);
+  }
+
+  /**
+   * Creates an instance.
+   * 
+   * @param underlying the downstream listener, not null
+   * @param cycleManager the cycle manager, not null
+   * @param timer the timer to use for rate limited updates, not null
+   * @param deliveryExecutor the executor to deliver streamed updates on, not null
+   */
+  public RateLimitingMergingViewProcessListener(ViewResultListener underlying, EngineResourceManagerInternal<?> cycleManager, ScheduledExecutorService timer, Executor deliveryExecutor) {
     super(underlying, cycleManager);
     ArgumentChecker.notNull(timer, "timer");
+    ArgumentChecker.notNull(deliveryExecutor, "deliveryExecutor");
     _timer = timer;
+    _deliveryExecutor = deliveryExecutor;
   }
 
   public void terminate() {
@@ -75,6 +132,32 @@ public class RateLimitingMergingViewProcessListener extends MergingViewProcessLi
     invoke(drain);
   }
 
+  //-------------------------------------------------------------------------
+  public boolean isStreaming() {
+    return _isStreaming;
+  }
+
+  /**
+   * Sets whether updates are delivered asynchronously when there is no minimum update period. When streaming, a slow downstream listener does not hold up the view process; updates arriving while
+   * it is busy are merged and delivered together once it returns.
+   * 
+   * @param isStreaming true to deliver updates asynchronously, false to pass them straight through
+   */
+  public void setStreaming(boolean isStreaming) {
+    final Call<?> drain;
+    _taskSetupLock.lock();
+    try {
+      if (_isStreaming == isStreaming) {
+        return;
+      }
+      _isStreaming = isStreaming;
+      drain = updateConfiguration();
+    } finally {
+      _taskSetupLock.unlock();
+    }
+    invoke(drain);
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the minimum period which must have elapsed since the last update before an update is triggered.
@@ -132,15 +215,44 @@ public class RateLimitingMergingViewProcessListener extends MergingViewProcessLi
       return false;
     }
 
-    drain();
+    _deliveryLock.lock();
+    try {
+      drain();
+    } finally {
+      _deliveryLock.unlock();
+    }
     return true;
   }
 
+  @Override
+  protected void callQueued() {
+    if (_isDeliveringImmediately) {
+      requestDelivery();
+    }
+  }
+
+  private void requestDelivery() {
+    if (_deliveryRequested.compareAndSet(false, true)) {
+      try {
+        _deliveryExecutor.execute(_deliveryTask);
+      } catch (RejectedExecutionException e) {
+        // Delivery executor has been shut down; the updates will remain queued
+        s_logger.debug("Can't deliver queued updates: {}", e.getMessage());
+        _deliveryRequested.set(false);
+      }
+    }
+  }
+
   private Call<?> updateConfiguration() {
     long minimumUpdatePeriodMillis = getMinimumUpdatePeriodMillis();
     cancelTimerTask();
-    final Call<?> drain = setPassThrough(minimumUpdatePeriodMillis == 0 && !isPaused());
-    if (!isPaused() && !isPassThrough()) {
+    final boolean immediate = minimumUpdatePeriodMillis == 0 && !isPaused();
+    final Call<?> drain = setPassThrough(immediate && !isStreaming());
+    _isDeliveringImmediately = immediate && isStreaming();
+    if (_isDeliveringImmediately) {
+      // Deliver anything merged while paused or rate limited
+      requestDelivery();
+    } else if (!isPaused() && !isPassThrough()) {
       final Runnable task = new Runnable() {
         @Override
         public void run() {
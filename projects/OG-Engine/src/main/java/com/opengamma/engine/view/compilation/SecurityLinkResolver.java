@@ -8,10 +8,14 @@ package com.opengamma.engine.view.compilation;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -48,6 +52,11 @@ public final class SecurityLinkResolver {
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(SecurityLinkResolver.class);
 
+  /**
+   * The number of securities requested from the underlying source by each bulk request.
+   */
+  private static final int BULK_BATCH_SIZE = 1000;
+
   /**
    * The executor service.
    */
@@ -99,6 +108,7 @@ public final class SecurityLinkResolver {
   @SuppressWarnings("unchecked")
   public void resolveSecurities(final Collection<SecurityLink> securityLinks) {
     ArgumentChecker.noNulls(securityLinks, "securityLinks");
+    prefetchSecurities(securityLinks);
     final ExecutorCompletionService<Pair<ObjectId, ExternalIdBundle>> completionService = new ExecutorCompletionService<Pair<ObjectId, ExternalIdBundle>>(_executorService);
     // Filter the links down to collections of "identical" ones; resolving the same underlying.
     final Map<Pair<ObjectId, ExternalIdBundle>, Object> securityLinkMap = new HashMap<Pair<ObjectId, ExternalIdBundle>, Object>();
@@ -221,6 +231,36 @@ public final class SecurityLinkResolver {
    * @throws RuntimeException if unable to resolve all the securities
    */
   public void resolveSecurities(final PortfolioNode node) {
+    resolveSecurities(getSecurityLinks(node));
+  }
+
+  /**
+   * Resolves, in bulk, the security links on the positions and trades of a portfolio node that can be resolved without individual requests to the underlying source.
+   * <p>
+   * This is intended to be called before a portfolio is traversed so that the traversal does not make a request for each position. Any links that can't be resolved in bulk are left for the
+   * caller to resolve, or report, as it would have done before.
+   * 
+   * @param node the node to resolve, not null
+   * @return the resolved securities, not null
+   */
+  public Collection<Security> prefetchSecurities(final PortfolioNode node) {
+    final Collection<SecurityLink> links = getSecurityLinks(node);
+    prefetchSecurities(links);
+    final Map<ObjectId, Security> securities = new HashMap<ObjectId, Security>();
+    for (SecurityLink link : links) {
+      Security security = link.getTarget();
+      if ((security == null) && _securitySource.isCached(link)) {
+        security = resolveSecurity(link);
+      }
+      if ((security != null) && (security.getUniqueId() != null)) {
+        securities.put(security.getUniqueId().getObjectId(), security);
+      }
+    }
+    s_logger.info("Prefetched {} securities for {} links", securities.size(), links.size());
+    return securities.values();
+  }
+
+  private Collection<SecurityLink> getSecurityLinks(final PortfolioNode node) {
     final Collection<SecurityLink> links = new ArrayList<SecurityLink>(256);
     PortfolioNodeTraverser.depthFirst(new AbstractPortfolioNodeTraversalCallback() {
       @Override
@@ -239,7 +279,85 @@ public final class SecurityLinkResolver {
         }
       }
     }).traverse(node);
-    resolveSecurities(links);
+    return links;
+  }
+
+  /**
+   * Fetches the securities referenced by unresolved links into the cache of this instance, using the bulk operations of the underlying source. Batches are requested in parallel. Securities that
+   * can't be fetched in bulk are ignored; they will be requested individually if the links are resolved.
+   * 
+   * @param securityLinks the links to fetch securities for, not null
+   */
+  private void prefetchSecurities(final Collection<SecurityLink> securityLinks) {
+    final Set<ObjectId> objectIds = new HashSet<ObjectId>();
+    final Set<ExternalIdBundle> bundles = new HashSet<ExternalIdBundle>();
+    for (SecurityLink link : securityLinks) {
+      if ((link.getTarget() == null) && !_securitySource.isCached(link)) {
+        if (link.getObjectId() != null) {
+          objectIds.add(link.getObjectId());
+        } else if ((link.getExternalId() != null) && !link.getExternalId().isEmpty()) {
+          bundles.add(link.getExternalId());
+        }
+      }
+    }
+    if (objectIds.size() + bundles.size() < 2) {
+      // Nothing to gain over individual resolution
+      return;
+    }
+    final List<Callable<Integer>> jobs = new ArrayList<Callable<Integer>>();
+    for (final List<ObjectId> batch : batches(objectIds)) {
+      jobs.add(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          return _securitySource.prefetchObjectIds(batch, _versionCorrection);
+        }
+      });
+    }
+    for (final List<ExternalIdBundle> batch : batches(bundles)) {
+      jobs.add(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          return _securitySource.prefetchBundles(batch, _versionCorrection);
+        }
+      });
+    }
+    s_logger.debug("Submitting {} bulk requests for {} securities", jobs.size(), objectIds.size() + bundles.size());
+    final List<Future<Integer>> futures = new ArrayList<Future<Integer>>(jobs.size());
+    for (Callable<Integer> job : jobs) {
+      futures.add(_executorService.submit(job));
+    }
+    int fetched = 0;
+    for (Future<Integer> future : futures) {
+      try {
+        fetched += future.get();
+      } catch (InterruptedException ex) {
+        Thread.interrupted();
+        s_logger.warn("Interrupted, so didn't finish prefetching securities");
+        for (Future<Integer> cancel : futures) {
+          cancel.cancel(false);
+        }
+        return;
+      } catch (ExecutionException ex) {
+        s_logger.warn("Unable to prefetch securities", ex.getCause());
+      }
+    }
+    s_logger.debug("Prefetched {} of {} securities", fetched, objectIds.size() + bundles.size());
+  }
+
+  private static <T> List<List<T>> batches(final Collection<T> items) {
+    final List<List<T>> batches = new ArrayList<List<T>>((items.size() + BULK_BATCH_SIZE - 1) / BULK_BATCH_SIZE);
+    List<T> batch = null;
+    for (T item : items) {
+      if (batch == null) {
+        batch = new ArrayList<T>(Math.min(BULK_BATCH_SIZE, items.size()));
+        batches.add(batch);
+      }
+      batch.add(item);
+      if (batch.size() == BULK_BATCH_SIZE) {
+        batch = null;
+      }
+    }
+    return batches;
   }
 
   //-------------------------------------------------------------------------
@@ -314,6 +432,37 @@ public final class SecurityLinkResolver {
       }
     }
 
+    boolean isCached(SecurityLink link) {
+      if (link.getObjectId() != null) {
+        return _objectIdCache.containsKey(link.getObjectId());
+      }
+      return (link.getExternalId() != null) && _weakIdCache.containsKey(link.getExternalId());
+    }
+
+    int prefetchObjectIds(Collection<ObjectId> objectIds, VersionCorrection versionCorrection) {
+      final Map<ObjectId, Security> securities = _underlying.get(objectIds, versionCorrection);
+      int count = 0;
+      for (Map.Entry<ObjectId, Security> security : securities.entrySet()) {
+        if (security.getValue() != null) {
+          _objectIdCache.putIfAbsent(security.getKey(), security.getValue());
+          count++;
+        }
+      }
+      return count;
+    }
+
+    int prefetchBundles(Collection<ExternalIdBundle> bundles, VersionCorrection versionCorrection) {
+      final Map<ExternalIdBundle, Security> securities = _underlying.getSingle(bundles, versionCorrection);
+      int count = 0;
+      for (Map.Entry<ExternalIdBundle, Security> security : securities.entrySet()) {
+        if (security.getValue() != null) {
+          _weakIdCache.putIfAbsent(security.getKey(), security.getValue());
+          count++;
+        }
+      }
+      return count;
+    }
+
     @Override
     public Security get(UniqueId uniqueId) {
       Security security = _objectIdCache.get(uniqueId.getObjectId());
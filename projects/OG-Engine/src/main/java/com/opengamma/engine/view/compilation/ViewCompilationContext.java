@@ -12,6 +12,8 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.threeten.bp.Instant;
 
 import com.google.common.collect.Sets;
@@ -23,17 +25,23 @@ import com.opengamma.engine.function.resolver.CompiledFunctionResolver;
 import com.opengamma.engine.function.resolver.ComputationTargetResults;
 import com.opengamma.engine.function.resolver.DefaultCompiledFunctionResolver;
 import com.opengamma.engine.function.resolver.ResolutionRule;
+import com.opengamma.engine.function.resolver.ResolutionRuleTransform;
 import com.opengamma.engine.target.ComputationTargetReference;
+import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
 
 /**
  * Holds context relating to the partially-completed compilation of a view definition, for passing to different stages of the compilation.
  */
 /* package */class ViewCompilationContext {
 
+  private static final Logger s_logger = LoggerFactory.getLogger(ViewCompilationContext.class);
+
   private final ViewDefinition _viewDefinition;
   private final ViewCompilationServices _services;
   private final Collection<DependencyGraphBuilder> _builders;
@@ -43,6 +51,12 @@ import com.opengamma.id.VersionCorrection;
   private final CompiledFunctionResolver _functions;
   private final Collection<ResolutionRule> _rules;
   private final ComputationTargetResolver.AtVersionCorrection _targetResolver;
+  /**
+   * Function resolvers keyed by the resolution rule transformation and default properties of the calculation configurations using them. Configurations that match on both will resolve functions
+   * identically so share the compiled rules and their per-target results.
+   */
+  private final ConcurrentMap<Pair<ResolutionRuleTransform, ValueProperties>, DefaultCompiledFunctionResolver> _functionResolvers =
+      new ConcurrentHashMap<Pair<ResolutionRuleTransform, ValueProperties>, DefaultCompiledFunctionResolver>();
   private Set<UniqueId> _expiredResolutions;
 
   /* package */ViewCompilationContext(final ViewDefinition viewDefinition, final ViewCompilationServices compilationServices,
@@ -72,14 +86,26 @@ import com.opengamma.id.VersionCorrection;
     compilationContext.setComputationTargetResolver(_targetResolver);
     final Collection<ResolutionRule> transformedRules = calcConfig.getResolutionRuleTransform().transform(_rules);
     compilationContext.setComputationTargetResults(new ComputationTargetResults(transformedRules));
-    final DefaultCompiledFunctionResolver functionResolver = new DefaultCompiledFunctionResolver(compilationContext, transformedRules);
-    functionResolver.compileRules();
-    builder.setFunctionResolver(functionResolver);
+    builder.setFunctionResolver(createFunctionResolver(calcConfig, compilationContext, transformedRules));
     compilationContext.init();
     builder.setCompilationContext(compilationContext);
     return builder;
   }
 
+  private DefaultCompiledFunctionResolver createFunctionResolver(final ViewCalculationConfiguration calcConfig, final FunctionCompilationContext compilationContext,
+      final Collection<ResolutionRule> transformedRules) {
+    final Pair<ResolutionRuleTransform, ValueProperties> key = Pairs.of(calcConfig.getResolutionRuleTransform(), calcConfig.getDefaultProperties());
+    final DefaultCompiledFunctionResolver shared = _functionResolvers.get(key);
+    if (shared != null) {
+      s_logger.debug("Sharing function resolution for {} with an equivalent configuration", calcConfig.getName());
+      return new DefaultCompiledFunctionResolver(compilationContext, shared);
+    }
+    final DefaultCompiledFunctionResolver functionResolver = new DefaultCompiledFunctionResolver(compilationContext, transformedRules);
+    functionResolver.compileRules();
+    _functionResolvers.putIfAbsent(key, functionResolver);
+    return functionResolver;
+  }
+
   public ViewDefinition getViewDefinition() {
     return _viewDefinition;
   }
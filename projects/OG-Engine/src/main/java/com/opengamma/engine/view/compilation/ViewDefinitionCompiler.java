@@ -11,6 +11,7 @@ import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -37,6 +38,7 @@ import com.opengamma.core.position.Position;
 import com.opengamma.core.position.PositionSource;
 import com.opengamma.core.position.impl.PortfolioNodeTraverser;
 import com.opengamma.core.security.Security;
+import com.opengamma.engine.CachingComputationTargetResolver;
 import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetResolver;
 import com.opengamma.engine.ComputationTargetSpecification;
@@ -70,6 +72,7 @@ public final class ViewDefinitionCompiler {
 
   private static final Logger s_logger = LoggerFactory.getLogger(ViewDefinitionCompiler.class);
   private static boolean s_striped;
+  private static volatile boolean s_concurrentBuilds = true;
   private static Timer s_fullTimer = new Timer(); // timer for full graph compilation (replaced if registerMetrics called)
   private static Timer s_deltaTimer = new Timer(); // timer for delta graph compilation (replaced if registerMetrics called)
 
@@ -179,18 +182,37 @@ public final class ViewDefinitionCompiler {
 
     protected abstract void compile(DependencyGraphBuilder builder);
 
+    private void completeGraph(final DependencyGraphBuilder builder) {
+      DependencyGraph graph = builder.getDependencyGraph();
+      graph = DependencyGraphImpl.removeUnnecessaryValues(graph);
+      getContext().getGraphs().add(graph);
+      s_logger.debug("Built {}", graph);
+    }
+
     protected void compile() {
-      final Iterator<DependencyGraphBuilder> builders = getContext().getBuilders().iterator();
-      while (builders.hasNext()) {
-        final DependencyGraphBuilder builder = builders.next();
-        compile(builder);
-        // TODO: Use a heuristic to decide whether to let the graph builds run in parallel, or sequentially. We will force sequential builds for the time being.
-        // Wait for the current config's dependency graph to be built before moving to the next view calc config
-        DependencyGraph graph = builder.getDependencyGraph();
-        builders.remove();
-        graph = DependencyGraphImpl.removeUnnecessaryValues(graph);
-        getContext().getGraphs().add(graph);
-        s_logger.debug("Built {}", graph);
+      final Collection<DependencyGraphBuilder> builders = getContext().getBuilders();
+      if (isConcurrentGraphBuilds() && (builders.size() > 1)) {
+        // Populate all of the builders before waiting for any graph so the builds run concurrently. The builders share the background threads of the
+        // factory that created them, so the total thread count remains within its limit however many configurations there are.
+        final List<DependencyGraphBuilder> started = new ArrayList<DependencyGraphBuilder>(builders);
+        s_logger.debug("Building {} dependency graphs concurrently", started.size());
+        for (final DependencyGraphBuilder builder : started) {
+          compile(builder);
+        }
+        // Collect the graphs in configuration order so that the result is the same as a sequential build
+        for (final DependencyGraphBuilder builder : started) {
+          completeGraph(builder);
+          builders.remove(builder);
+        }
+      } else {
+        final Iterator<DependencyGraphBuilder> itr = builders.iterator();
+        while (itr.hasNext()) {
+          final DependencyGraphBuilder builder = itr.next();
+          compile(builder);
+          // Wait for the current config's dependency graph to be built before moving to the next view calc config
+          completeGraph(builder);
+          itr.remove();
+        }
       }
     }
 
@@ -247,6 +269,24 @@ public final class ViewDefinitionCompiler {
       return target.getValue(ComputationTargetType.PORTFOLIO);
     }
 
+    /**
+     * Resolves the securities of the portfolio in bulk, and adds them to the target resolver's cache, before graph building starts. Otherwise each would be requested individually as its position is
+     * first visited.
+     * 
+     * @param portfolio the resolved portfolio, not null
+     */
+    private void prefetchSecurities(final Portfolio portfolio) {
+      if (getContext().getServices().getFunctionCompilationContext().getSecuritySource() == null) {
+        return;
+      }
+      final VersionCorrection versionCorrection = getContext().getResolverVersionCorrection();
+      final Collection<Security> securities = new SecurityLinkResolver(getContext(), versionCorrection).prefetchSecurities(portfolio.getRootNode());
+      final ComputationTargetResolver resolver = getContext().getServices().getFunctionCompilationContext().getRawComputationTargetResolver();
+      if ((resolver instanceof CachingComputationTargetResolver) && !securities.isEmpty()) {
+        ((CachingComputationTargetResolver) resolver).cacheTargets(securities, versionCorrection);
+      }
+    }
+
     protected boolean isPortfolioOutputs() {
       return _portfolioOutputs;
     }
@@ -308,6 +348,7 @@ public final class ViewDefinitionCompiler {
           if (!functionContext.getViewCalculationConfiguration().getAllPortfolioRequirements().isEmpty()) {
             if (_portfolio == null) {
               _portfolio = resolvePortfolio();
+              prefetchSecurities(_portfolio);
               final UniqueId newPortfolioId = _portfolio.getUniqueId();
               final UniqueId oldPortfolioId = resolutions.put(new ComputationTargetSpecification(ComputationTargetType.PORTFOLIO, getContext().getViewDefinition().getPortfolioId()), newPortfolioId);
               if (oldPortfolioId != null) {
@@ -623,6 +664,25 @@ public final class ViewDefinitionCompiler {
     s_striped = useStripes;
   }
 
+  /**
+   * Indicates whether the dependency graphs for the calculation configurations of a view are built concurrently or one after another. Concurrent builds finish sooner when there are several
+   * configurations but the working state of all of the builds must be held in memory at the same time.
+   * 
+   * @return true if the graphs are built concurrently, false to build them sequentially
+   */
+  public static boolean isConcurrentGraphBuilds() {
+    return s_concurrentBuilds;
+  }
+
+  /**
+   * Sets whether to build the dependency graphs for the calculation configurations of a view concurrently.
+   * 
+   * @param concurrentBuilds true to build the graphs concurrently, false to build them sequentially
+   */
+  public static void setConcurrentGraphBuilds(final boolean concurrentBuilds) {
+    s_concurrentBuilds = concurrentBuilds;
+  }
+
   private static void addPortfolioRequirements(final DependencyGraphBuilder builder, final Set<ValueRequirement> alreadyAdded, final ViewCompilationContext context,
       final ViewCalculationConfiguration calcConfig, final Set<UniqueId> includeEvents, final Set<UniqueId> excludeEvents) {
     if (calcConfig.getAllPortfolioRequirements().size() == 0) {
@@ -0,0 +1,333 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cycle;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.engine.cache.CacheSelectHint;
+import com.opengamma.engine.cache.ViewComputationCache;
+import com.opengamma.engine.calcnode.CalculationJob;
+import com.opengamma.engine.calcnode.CalculationJobItem;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.depgraph.impl.DependencyGraphImpl;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.DeltaDefinition;
+import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Dispatches the changed part of a dependency graph for a delta cycle in waves, stopping propagation of a change at any node whose recalculated outputs are not a delta from the previous cycle.
+ * <p>
+ * Each wave contains the changed nodes whose changed inputs have all been resolved. As job results arrive the outputs of the executed nodes are compared with the previous cycle using the
+ * calculation configuration's {@link DeltaDefinition}. If none of a node's outputs is a delta then the previous values are restored to the cache, so that the baseline for later comparisons cannot
+ * drift, and the change goes no further. A changed node is only executed if at least one of its changed inputs turned out to be a delta, or it was changed for another reason such as different
+ * function parameters; otherwise its results from the previous cycle are reused.
+ * <p>
+ * The outputs of a wave that a later changed node consumes are made terminal outputs of the wave's graph. This keeps them in the shared cache, whatever the size of the wave and however it is
+ * planned, so that they can be compared with the previous cycle and read as inputs by the jobs of the next wave.
+ * <p>
+ * Market data is compared exactly, as by {@link LiveDataDeltaCalculator}, so that the inputs shown in the results are always the ones used for the calculations.
+ * <p>
+ * This is only used by the {@link SingleComputationCycleExecutor} thread and is not thread-safe.
+ */
+/* package */class DeltaDispatch {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(DeltaDispatch.class);
+
+  private final SingleComputationCycle _cycle;
+  private final SingleComputationCycle _previousCycle;
+  private final DependencyGraph _graph;
+  private final DeltaDefinition _deltaDefinition;
+
+  /**
+   * The changed nodes that consume the outputs of each changed node.
+   */
+  private final Map<DependencyNode, Collection<DependencyNode>> _dependents = new HashMap<DependencyNode, Collection<DependencyNode>>();
+
+  /**
+   * The number of changed inputs to each changed node that have not been resolved yet.
+   */
+  private final Map<DependencyNode, Integer> _unresolved = new HashMap<DependencyNode, Integer>();
+
+  /**
+   * The changed nodes that must be executed when they become ready.
+   */
+  private final Set<DependencyNode> _dirty = new HashSet<DependencyNode>();
+
+  /**
+   * The nodes in the current wave, keyed by their outputs.
+   */
+  private final Map<ValueSpecification, DependencyNode> _executing = new HashMap<ValueSpecification, DependencyNode>();
+
+  private Collection<DependencyNode> _ready = new ArrayList<DependencyNode>();
+  private Collection<DependencyNode> _reuse = new ArrayList<DependencyNode>();
+  private Set<ValueSpecification> _waveInputs;
+  private int _waveCount;
+  private int _executedCount;
+  private int _reusedCount;
+
+  /**
+   * Creates the dispatch state for a graph.
+   *
+   * @param cycle the cycle being executed, not null
+   * @param previousCycle the previous cycle, not null and still valid
+   * @param graph the whole dependency graph, not null
+   * @param changedNodes the nodes which may need to be executed, not null
+   * @param forcedNodes the nodes which must be executed, not null
+   * @param changedSpecifications the values whose functions have different parameters to the previous cycle, not null
+   * @param deltaDefinition the definition of a delta between cycles, not null
+   */
+  public DeltaDispatch(final SingleComputationCycle cycle, final SingleComputationCycle previousCycle, final DependencyGraph graph, final Set<DependencyNode> changedNodes,
+      final Collection<DependencyNode> forcedNodes, final Set<ValueSpecification> changedSpecifications, final DeltaDefinition deltaDefinition) {
+    _cycle = cycle;
+    _previousCycle = previousCycle;
+    _graph = graph;
+    _deltaDefinition = deltaDefinition;
+    final Collection<DependencyNode> marketData = new ArrayList<DependencyNode>();
+    for (DependencyNode node : changedNodes) {
+      int count = 0;
+      final int inputs = node.getInputCount();
+      for (int i = 0; i < inputs; i++) {
+        final DependencyNode input = node.getInputNode(i);
+        if (changedNodes.contains(input)) {
+          Collection<DependencyNode> dependents = _dependents.get(input);
+          if (dependents == null) {
+            dependents = new ArrayList<DependencyNode>();
+            _dependents.put(input, dependents);
+          }
+          dependents.add(node);
+          count++;
+        }
+      }
+      if (count > 0) {
+        _unresolved.put(node, count);
+        if (forcedNodes.contains(node)) {
+          _dirty.add(node);
+        } else {
+          final int outputs = node.getOutputCount();
+          for (int i = 0; i < outputs; i++) {
+            if (changedSpecifications.contains(node.getOutputValue(i))) {
+              _dirty.add(node);
+              break;
+            }
+          }
+        }
+      } else if (MarketDataSourcingFunction.UNIQUE_ID.equals(node.getFunction().getFunctionId())) {
+        marketData.add(node);
+      } else {
+        _dirty.add(node);
+        _ready.add(node);
+      }
+    }
+    for (DependencyNode node : marketData) {
+      resolved(node, true);
+    }
+  }
+
+  /**
+   * Marks a node as resolved, releasing any dependent nodes for which this was the last changed input.
+   *
+   * @param node the resolved node, not null
+   * @param delta true if the node's outputs are a delta from the previous cycle, false otherwise
+   */
+  private void resolved(final DependencyNode node, final boolean delta) {
+    final Collection<DependencyNode> dependents = _dependents.get(node);
+    if (dependents == null) {
+      return;
+    }
+    for (DependencyNode dependent : dependents) {
+      if (delta) {
+        _dirty.add(dependent);
+      }
+      final int count = _unresolved.get(dependent) - 1;
+      if (count > 0) {
+        _unresolved.put(dependent, count);
+        continue;
+      }
+      _unresolved.remove(dependent);
+      if (_dirty.contains(dependent) || !_cycle.isReusable(_previousCycle, _graph.getCalculationConfigurationName(), dependent)) {
+        _ready.add(dependent);
+      } else {
+        _reuse.add(dependent);
+        resolved(dependent, false);
+      }
+    }
+  }
+
+  /**
+   * Prepares the next wave of nodes for execution. Any nodes from the previous wave which did not produce a result are treated as changed, and any nodes that can reuse their previous results are
+   * copied into the cache.
+   *
+   * @param sharedValues the values already in the shared cache at the start of the cycle, not null
+   * @param fragmentResultModel the fragment result model to add reused terminal outputs to, not null
+   * @param fullResultModel the full result model to add reused terminal outputs to, not null
+   * @return the graph of nodes to execute, or null if there is nothing left to execute
+   */
+  public DependencyGraph nextWave(final Set<ValueSpecification> sharedValues, final InMemoryViewComputationResultModel fragmentResultModel,
+      final InMemoryViewComputationResultModel fullResultModel) {
+    if (!_executing.isEmpty()) {
+      final Collection<DependencyNode> missing = new HashSet<DependencyNode>(_executing.values());
+      _executing.clear();
+      s_logger.warn("No results for {} nodes from delta dispatch wave {}", missing.size(), _waveCount);
+      for (DependencyNode node : missing) {
+        resolved(node, true);
+      }
+    }
+    do {
+      if (!_reuse.isEmpty()) {
+        final Collection<DependencyNode> reuse = _reuse;
+        _reuse = new ArrayList<DependencyNode>();
+        _reusedCount += reuse.size();
+        _cycle.reusePreviousResults(_previousCycle, _graph, reuse, fragmentResultModel, fullResultModel);
+      }
+      if (_ready.isEmpty()) {
+        s_logger.info("Delta dispatch of {} executed {} nodes in {} waves and reused {}", new Object[] {_graph.getCalculationConfigurationName(), _executedCount, _waveCount, _reusedCount });
+        return null;
+      }
+      final Collection<DependencyNode> ready = _ready;
+      _ready = new ArrayList<DependencyNode>();
+      final Collection<DependencyNode> roots = new ArrayList<DependencyNode>(ready.size());
+      final Set<ValueSpecification> waveInputs = new HashSet<ValueSpecification>();
+      final Map<ValueSpecification, Set<ValueRequirement>> graphTerminalOutputs = _graph.getTerminalOutputs();
+      final Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs = new HashMap<ValueSpecification, Set<ValueRequirement>>();
+      nodeLoop: for (DependencyNode node : ready) { //CSIGNORE
+        final int outputs = node.getOutputCount();
+        for (int i = 0; i < outputs; i++) {
+          if (sharedValues.contains(node.getOutputValue(i))) {
+            // Blacklisted, so the error markers are already in the cache
+            resolved(node, true);
+            continue nodeLoop;
+          }
+        }
+        roots.add(node);
+        for (int i = 0; i < outputs; i++) {
+          final ValueSpecification output = node.getOutputValue(i);
+          _executing.put(output, node);
+          final Set<ValueRequirement> requirements = graphTerminalOutputs.get(output);
+          if (requirements != null) {
+            terminalOutputs.put(output, requirements);
+          }
+        }
+        final Collection<DependencyNode> dependents = _dependents.get(node);
+        if (dependents != null) {
+          for (DependencyNode dependent : dependents) {
+            final int dependentInputs = dependent.getInputCount();
+            for (int i = 0; i < dependentInputs; i++) {
+              if (node.equals(dependent.getInputNode(i))) {
+                final ValueSpecification input = dependent.getInputValue(i);
+                if (!terminalOutputs.containsKey(input)) {
+                  terminalOutputs.put(input, Collections.<ValueRequirement>emptySet());
+                }
+              }
+            }
+          }
+        }
+        final int inputs = node.getInputCount();
+        for (int i = 0; i < inputs; i++) {
+          waveInputs.add(node.getInputValue(i));
+        }
+      }
+      if (!roots.isEmpty()) {
+        _waveCount++;
+        _executedCount += roots.size();
+        _waveInputs = waveInputs;
+        s_logger.debug("Delta dispatch wave {} of {} has {} nodes", new Object[] {_waveCount, _graph.getCalculationConfigurationName(), roots.size() });
+        return new DependencyGraphImpl(_graph.getCalculationConfigurationName(), roots, roots.size(), terminalOutputs);
+      }
+    } while (true);
+  }
+
+  /**
+   * Returns the values which must be treated as already calculated when executing the current wave. These are the inputs to the wave's nodes so that no other nodes are executed with them.
+   *
+   * @return the values, not null
+   */
+  public Set<ValueSpecification> getWaveInputs() {
+    return _waveInputs;
+  }
+
+  /**
+   * Compares the outputs of the nodes executed by a job with the previous cycle, resolving each node.
+   *
+   * @param job the job that has completed, not null
+   */
+  public void jobCompleted(final CalculationJob job) {
+    final Collection<DependencyNode> nodes = new ArrayList<DependencyNode>(job.getJobItems().size());
+    final Collection<ValueSpecification> outputs = new ArrayList<ValueSpecification>();
+    for (CalculationJobItem item : job.getJobItems()) {
+      final DependencyNode node = _executing.get(item.getOutputs()[0]);
+      if (node == null) {
+        continue;
+      }
+      nodes.add(node);
+      final int count = node.getOutputCount();
+      for (int i = 0; i < count; i++) {
+        final ValueSpecification output = node.getOutputValue(i);
+        _executing.remove(output);
+        outputs.add(output);
+      }
+    }
+    if (nodes.isEmpty()) {
+      return;
+    }
+    final String calcConfigName = _graph.getCalculationConfigurationName();
+    final ViewComputationCache cache = _cycle.getComputationCache(calcConfigName);
+    final Map<ValueSpecification, Object> newValues = getValues(cache, outputs, job.getCacheSelectHint());
+    final Map<ValueSpecification, Object> previousValues = getValues(_previousCycle.getComputationCache(calcConfigName), outputs, null);
+    final Collection<ComputedValue> restore = new ArrayList<ComputedValue>();
+    for (DependencyNode node : nodes) {
+      final int count = node.getOutputCount();
+      boolean delta = false;
+      for (int i = 0; i < count; i++) {
+        final ValueSpecification output = node.getOutputValue(i);
+        final Object previousValue = previousValues.get(output);
+        if ((previousValue == null) || _deltaDefinition.isValueDelta(previousValue, newValues.get(output))) {
+          delta = true;
+          break;
+        }
+      }
+      if (!delta) {
+        for (int i = 0; i < count; i++) {
+          final ValueSpecification output = node.getOutputValue(i);
+          final Object previousValue = previousValues.get(output);
+          if (!ObjectUtils.equals(previousValue, newValues.get(output))) {
+            restore.add(new ComputedValue(output, previousValue));
+          }
+        }
+      }
+      resolved(node, delta);
+    }
+    if (!restore.isEmpty()) {
+      cache.putValues(restore, job.getCacheSelectHint());
+    }
+  }
+
+  private static Map<ValueSpecification, Object> getValues(final ViewComputationCache cache, final Collection<ValueSpecification> specifications, final CacheSelectHint filter) {
+    final Collection<Pair<ValueSpecification, Object>> values = (filter != null) ? cache.getValues(specifications, filter) : cache.getValues(specifications);
+    final Map<ValueSpecification, Object> result = new HashMap<ValueSpecification, Object>();
+    for (Pair<ValueSpecification, Object> value : values) {
+      if (value.getSecond() != null) {
+        result.put(value.getFirst(), value.getSecond());
+      }
+    }
+    return result;
+  }
+
+}
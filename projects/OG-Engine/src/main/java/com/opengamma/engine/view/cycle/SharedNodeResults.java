@@ -0,0 +1,365 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cycle;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.ViewComputationCache;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.exec.DependencyNodeJobExecutionResult;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Triple;
+
+/**
+ * Results of dependency graph nodes published by view cycles so that the cycles of other views in the same view processor can use them instead of executing their own copies of the nodes.
+ * <p>
+ * A node is identified in the same way as {@link DependencyNode#HASHING_STRATEGY} - its function, target, outputs and inputs, and the identity of the nodes producing those inputs - except that the
+ * market data nodes at the leaves are identified by the values they supplied to the cycle. Nodes with the same identity, evaluated at the same valuation time, version/correction and function
+ * initialization, will produce the same results. Results are held for a small number of such evaluation contexts only; older ones are discarded as newer ones are requested.
+ * <p>
+ * Within an evaluation context, only nodes that have been requested by more than one view process are published, and the number of results held is bounded with the least recently used being
+ * discarded first.
+ */
+public class SharedNodeResults {
+
+  /**
+   * The default number of evaluation contexts to hold results for.
+   */
+  public static final int DEFAULT_MAX_GENERATIONS = 4;
+
+  /**
+   * The default number of node results to hold for each evaluation context.
+   */
+  public static final int DEFAULT_MAX_RESULTS = 100000;
+
+  /**
+   * Identity of a node, independent of the graph that contains it. Keys are made canonical within a {@link Generation} so that the identities of input nodes can be compared by reference.
+   */
+  /* package */static final class NodeKey {
+
+    private final String _functionId;
+    private final FunctionParameters _parameters;
+    private final ComputationTargetSpecification _target;
+    private final ValueSpecification[] _outputs;
+    private final ValueSpecification[] _inputs;
+    /**
+     * For each input, the canonical key of the node producing it. For a market data node, the value of each output.
+     */
+    private final Object[] _producers;
+    private final int _hashCode;
+    /**
+     * The first view process to request the node, or null once requested by another view process.
+     */
+    private volatile UniqueId _requestedBy;
+    private volatile boolean _shared;
+
+    private NodeKey(final DependencyNode node, final Object[] producers) {
+      _functionId = node.getFunction().getFunctionId();
+      _parameters = node.getFunction().getParameters();
+      _target = node.getTarget();
+      _outputs = new ValueSpecification[node.getOutputCount()];
+      int hc = ((_functionId.hashCode() * 31) + _target.hashCode()) * 31;
+      for (int i = 0; i < _outputs.length; i++) {
+        _outputs[i] = node.getOutputValue(i);
+        hc += _outputs[i].hashCode();
+      }
+      hc *= 31;
+      _inputs = new ValueSpecification[node.getInputCount()];
+      for (int i = 0; i < _inputs.length; i++) {
+        _inputs[i] = node.getInputValue(i);
+        hc += _inputs[i].hashCode() + producers[i].hashCode();
+      }
+      if (_inputs.length == 0) {
+        for (Object value : producers) {
+          hc += ObjectUtils.hashCode(value);
+        }
+      }
+      _producers = producers;
+      _hashCode = hc;
+    }
+
+    private void request(final UniqueId viewProcessId) {
+      if (_shared) {
+        return;
+      }
+      synchronized (this) {
+        if (_requestedBy == null) {
+          _requestedBy = viewProcessId;
+        } else if (!_requestedBy.equals(viewProcessId)) {
+          _requestedBy = null;
+          _shared = true;
+        }
+      }
+    }
+
+    /**
+     * Tests whether the node has been requested by more than one view process, and so whether there is any point publishing its result.
+     *
+     * @return true if the node could be shared, false otherwise
+     */
+    public boolean isShared() {
+      return _shared;
+    }
+
+    private static int find(final ValueSpecification[] values, final ValueSpecification value) {
+      for (int i = 0; i < values.length; i++) {
+        if (values[i].equals(value)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof NodeKey)) {
+        return false;
+      }
+      final NodeKey other = (NodeKey) o;
+      if ((_hashCode != other._hashCode) || (_outputs.length != other._outputs.length) || (_inputs.length != other._inputs.length)) {
+        return false;
+      }
+      if (!_functionId.equals(other._functionId) || !_target.equals(other._target) || !ObjectUtils.equals(_parameters, other._parameters)) {
+        return false;
+      }
+      for (int i = 0; i < _outputs.length; i++) {
+        if (find(other._outputs, _outputs[i]) < 0) {
+          return false;
+        }
+      }
+      if (_inputs.length == 0) {
+        // Market data node (or a node without inputs) - compare the output values
+        if (_producers.length != other._producers.length) {
+          return false;
+        }
+        for (int i = 0; i < _producers.length; i++) {
+          final int j = find(other._outputs, _outputs[i]);
+          if (!ObjectUtils.equals(_producers[i], other._producers[j])) {
+            return false;
+          }
+        }
+        return true;
+      }
+      for (int i = 0; i < _inputs.length; i++) {
+        final int j = find(other._inputs, _inputs[i]);
+        // Producer keys are canonical
+        if ((j < 0) || (_producers[i] != other._producers[j])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+  /**
+   * Published result of a node.
+   */
+  /* package */static final class Result {
+
+    private final DependencyNodeJobExecutionResult _jobResult;
+    private final Map<ValueSpecification, Object> _values;
+
+    private Result(final DependencyNodeJobExecutionResult jobResult, final Map<ValueSpecification, Object> values) {
+      _jobResult = jobResult;
+      _values = values;
+    }
+
+    public DependencyNodeJobExecutionResult getJobResult() {
+      return _jobResult;
+    }
+
+    public Map<ValueSpecification, Object> getValues() {
+      return _values;
+    }
+
+  }
+
+  /**
+   * The node keys and results for one evaluation context. Keys are weakly held, so are discarded once no view cycle or published result refers to them.
+   */
+  /* package */static final class Generation {
+
+    private final Interner<NodeKey> _keys = Interners.newWeakInterner();
+    private final Map<NodeKey, Result> _results;
+
+    private Generation(final int maxResults) {
+      _results = new LinkedHashMap<NodeKey, Result>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<NodeKey, Result> eldest) {
+          return size() > maxResults;
+        }
+
+      };
+    }
+
+    private Object[] producers(final DependencyNode node, final Map<DependencyNode, NodeKey> keys, final ViewComputationCache cache) {
+      final int inputs = node.getInputCount();
+      if (inputs == 0) {
+        if (MarketDataSourcingFunction.UNIQUE_ID.equals(node.getFunction().getFunctionId())) {
+          final Object[] values = new Object[node.getOutputCount()];
+          for (int i = 0; i < values.length; i++) {
+            values[i] = cache.getValue(node.getOutputValue(i));
+          }
+          return values;
+        }
+        return new Object[0];
+      }
+      final Object[] producers = new Object[inputs];
+      for (int i = 0; i < inputs; i++) {
+        producers[i] = keys.get(node.getInputNode(i));
+      }
+      return producers;
+    }
+
+    /**
+     * Returns the canonical keys for all of the nodes in a graph, noting that they have been requested by the view process.
+     *
+     * @param graph the graph, not null
+     * @param cache the cache holding the market data for the graph, not null
+     * @param viewProcessId the identifier of the view process requesting the nodes, not null
+     * @return the keys, not null
+     */
+    public Map<DependencyNode, NodeKey> getKeys(final DependencyGraph graph, final ViewComputationCache cache, final UniqueId viewProcessId) {
+      final Map<DependencyNode, NodeKey> keys = new IdentityHashMap<DependencyNode, NodeKey>(graph.getSize());
+      final Deque<DependencyNode> stack = new ArrayDeque<DependencyNode>();
+      final Iterator<DependencyNode> itr = graph.nodeIterator();
+      while (itr.hasNext()) {
+        stack.push(itr.next());
+        while (!stack.isEmpty()) {
+          final DependencyNode node = stack.peek();
+          if (keys.containsKey(node)) {
+            stack.pop();
+            continue;
+          }
+          boolean ready = true;
+          final int inputs = node.getInputCount();
+          for (int i = 0; i < inputs; i++) {
+            final DependencyNode input = node.getInputNode(i);
+            if (!keys.containsKey(input)) {
+              stack.push(input);
+              ready = false;
+            }
+          }
+          if (ready) {
+            stack.pop();
+            final NodeKey key = _keys.intern(new NodeKey(node, producers(node, keys, cache)));
+            key.request(viewProcessId);
+            keys.put(node, key);
+          }
+        }
+      }
+      return keys;
+    }
+
+    public Result get(final NodeKey key) {
+      synchronized (_results) {
+        return _results.get(key);
+      }
+    }
+
+    public void put(final NodeKey key, final DependencyNodeJobExecutionResult jobResult, final Map<ValueSpecification, Object> values) {
+      synchronized (_results) {
+        if (!_results.containsKey(key)) {
+          _results.put(key, new Result(jobResult, values));
+        }
+      }
+    }
+
+    public int size() {
+      synchronized (_results) {
+        return _results.size();
+      }
+    }
+
+  }
+
+  private final int _maxGenerations;
+  private final int _maxResults;
+  private final Map<Triple<Instant, VersionCorrection, Long>, Generation> _generations;
+
+  public SharedNodeResults() {
+    this(DEFAULT_MAX_GENERATIONS);
+  }
+
+  public SharedNodeResults(final int maxGenerations) {
+    this(maxGenerations, DEFAULT_MAX_RESULTS);
+  }
+
+  public SharedNodeResults(final int maxGenerations, final int maxResults) {
+    ArgumentChecker.notNegativeOrZero(maxGenerations, "maxGenerations");
+    ArgumentChecker.notNegativeOrZero(maxResults, "maxResults");
+    _maxGenerations = maxGenerations;
+    _maxResults = maxResults;
+    _generations = new LinkedHashMap<Triple<Instant, VersionCorrection, Long>, Generation>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Triple<Instant, VersionCorrection, Long>, Generation> eldest) {
+        return size() > _maxGenerations;
+      }
+
+    };
+  }
+
+  public int getMaxGenerations() {
+    return _maxGenerations;
+  }
+
+  public int getMaxResults() {
+    return _maxResults;
+  }
+
+  /**
+   * Returns the results for an evaluation context, creating them if necessary. Creating a new one may discard the least recently used.
+   *
+   * @param valuationTime the valuation time, not null
+   * @param versionCorrection the resolution version/correction, not null
+   * @param functionInitId the function initialization identifier
+   * @return the results, not null
+   */
+  /* package */Generation getGeneration(final Instant valuationTime, final VersionCorrection versionCorrection, final long functionInitId) {
+    final Triple<Instant, VersionCorrection, Long> key = Triple.of(valuationTime, versionCorrection, functionInitId);
+    synchronized (_generations) {
+      Generation generation = _generations.get(key);
+      if (generation == null) {
+        generation = new Generation(_maxResults);
+        _generations.put(key, generation);
+      }
+      return generation;
+    }
+  }
+
+}
@@ -29,6 +29,7 @@ import org.threeten.bp.Instant;
 import com.google.common.collect.Maps;
 import com.opengamma.DataNotFoundException;
 import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.cache.CacheSelectHint;
 import com.opengamma.engine.cache.MissingInput;
 import com.opengamma.engine.cache.MissingOutput;
 import com.opengamma.engine.cache.ViewComputationCache;
@@ -63,11 +64,13 @@ import com.opengamma.engine.view.ResultOutputMode;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.ViewResultEntry;
 import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
 import com.opengamma.engine.view.compilation.CompiledViewDefinition;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.ExecutionLogModeSource;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
 import com.opengamma.engine.view.impl.ViewProcessContext;
@@ -76,7 +79,9 @@ import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.log.LogLevel;
+import com.opengamma.util.metric.LatencyRecorder;
 import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
 
 /**
  * Holds all data and actions for a single computation pass. The view cycle may be executed at most once.
@@ -96,6 +101,19 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * Marker for nodes that have not been executed, for example because of blacklist suppression, calculation error or missing input data (perhaps caused by blacklist suppression or calculation
    * errors).
    */
+  /**
+   * Log mode source with no elevated values, used when full logs are suppressed. This must never be modified.
+   */
+  private static final ExecutionLogModeSource INDICATORS_ONLY = new ExecutionLogModeSource();
+
+  // Latency recorder phase names
+  private static final String CREATE_CACHES_PHASE = "SingleComputationCycle.createCaches";
+  private static final String PREPARE_INPUTS_PHASE = "SingleComputationCycle.prepareInputs";
+  private static final String COMPUTE_DELTA_PHASE = "SingleComputationCycle.computeDelta";
+  private static final String REUSE_SHARED_RESULTS_PHASE = "SingleComputationCycle.reuseSharedResults";
+  private static final String EXECUTE_PHASE = "SingleComputationCycle.execute";
+  private static final String POST_EXECUTE_PHASE = "SingleComputationCycle.postExecute";
+
   private static final DependencyNodeJobExecutionResult BLACKLISTED_NODE_JOB_RESULT = new DependencyNodeJobExecutionResult("", CalculationJobResultItemBuilder
       .of(new MutableExecutionLog(ExecutionLogMode.FULL)).withSuppression().toResultItem(), AggregatedExecutionLog.EMPTY);
 
@@ -116,6 +134,10 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
 
   private final Map<String, DependencyNodeJobExecutionResultCache> _jobResultCachesByCalculationConfiguration = new ConcurrentHashMap<String, DependencyNodeJobExecutionResultCache>();
   private final Map<String, ViewComputationCache> _cachesByCalculationConfiguration = new HashMap<String, ViewComputationCache>();
+  private final Map<String, DeltaDispatch> _deltaDispatchByCalculationConfiguration = new HashMap<String, DeltaDispatch>();
+  private final Map<String, Map<DependencyNode, SharedNodeResults.NodeKey>> _sharedNodeKeysByCalculationConfiguration = new HashMap<String, Map<DependencyNode, SharedNodeResults.NodeKey>>();
+  private SharedNodeResults.Generation _sharedNodeResults;
+  private volatile boolean _fullLogsSuppressed;
   private volatile SingleComputationCycleExecutor _executor;
 
   // Output
@@ -123,6 +145,23 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
 
   public SingleComputationCycle(final UniqueId cycleId, final String name, final ComputationResultListener cycleFragmentResultListener, final ViewProcessContext viewProcessContext,
       final CompiledViewDefinitionWithGraphs compiledViewDefinition, final ViewCycleExecutionOptions executionOptions, final VersionCorrection versionCorrection) {
+    this(cycleId, name, cycleFragmentResultListener, viewProcessContext, compiledViewDefinition, executionOptions, versionCorrection, false);
+  }
+
+  /**
+   * Creates a new cycle.
+   * 
+   * @param cycleId the unique identifier of the cycle, not null
+   * @param name the name of the cycle
+   * @param cycleFragmentResultListener the listener to receive result fragments, not null
+   * @param viewProcessContext the view process context, not null
+   * @param compiledViewDefinition the compiled view definition to execute, not null
+   * @param executionOptions the cycle execution options, not null
+   * @param versionCorrection the resolved version/correction, not null
+   * @param columnarResults true to hold the full results in a {@link ColumnarViewComputationResultModel}, false for an {@link InMemoryViewComputationResultModel}
+   */
+  public SingleComputationCycle(final UniqueId cycleId, final String name, final ComputationResultListener cycleFragmentResultListener, final ViewProcessContext viewProcessContext,
+      final CompiledViewDefinitionWithGraphs compiledViewDefinition, final ViewCycleExecutionOptions executionOptions, final VersionCorrection versionCorrection, final boolean columnarResults) {
     ArgumentChecker.notNull(cycleId, "cycleId");
     ArgumentChecker.notNull(cycleFragmentResultListener, "cycleFragmentResultListener");
     ArgumentChecker.notNull(viewProcessContext, "viewProcessContext");
@@ -136,11 +175,14 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     _cycleFragmentResultListener = cycleFragmentResultListener;
     _executionOptions = executionOptions;
     _versionCorrection = versionCorrection;
-    _resultModel = constructTemplateResultModel();
+    _resultModel = columnarResults ? initializeResultModel(new ColumnarViewComputationResultModel()) : constructTemplateResultModel();
   }
 
   protected InMemoryViewComputationResultModel constructTemplateResultModel() {
-    final InMemoryViewComputationResultModel result = new InMemoryViewComputationResultModel();
+    return initializeResultModel(new InMemoryViewComputationResultModel());
+  }
+
+  private InMemoryViewComputationResultModel initializeResultModel(final InMemoryViewComputationResultModel result) {
     result.setViewCycleId(getCycleId());
     result.setViewProcessId(getViewProcessId());
     result.setViewCycleExecutionOptions(getExecutionOptions());
@@ -218,10 +260,69 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     return _versionCorrection;
   }
 
-  protected ExecutionLogModeSource getLogModeSource() {
+  /**
+   * Gets the source of the execution log modes to use for the cycle.
+   * 
+   * @return the log mode source, not null
+   */
+  public ExecutionLogModeSource getLogModeSource() {
+    if (_fullLogsSuppressed) {
+      return INDICATORS_ONLY;
+    }
     return _viewProcessContext.getExecutionLogModeSource();
   }
 
+  /**
+   * Suppresses any full execution logs requested for the values of this cycle, for example to reduce its memory use. This must be called before the cycle is executed.
+   * 
+   * @param fullLogsSuppressed true to produce only log indicators, false to honour the log modes requested of the view process
+   */
+  public void setFullLogsSuppressed(final boolean fullLogsSuppressed) {
+    _fullLogsSuppressed = fullLogsSuppressed;
+  }
+
+  /**
+   * Gets the number of values produced by the dependency graphs of the cycle.
+   * 
+   * @return the number of values
+   */
+  public int getValueCount() {
+    int count = 0;
+    for (final String calcConfigurationName : getAllCalculationConfigurationNames()) {
+      final Iterator<DependencyNode> itr = getDependencyGraph(calcConfigurationName).nodeIterator();
+      while (itr.hasNext()) {
+        count += itr.next().getOutputCount();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Estimates the sizes of values in the result model from the sizes observed by the computation caches when the values were written. Values whose size is not known are not counted.
+   * 
+   * @param maxValues the maximum number of results to inspect
+   * @return the total size of the values, in bytes, and the number of values counted, not null
+   */
+  public Pair<Long, Integer> estimateResultValueSizes(final int maxValues) {
+    long bytes = 0;
+    int count = 0;
+    int inspected = 0;
+    for (final ViewResultEntry result : getResultModel().getAllResults()) {
+      if (inspected++ >= maxValues) {
+        break;
+      }
+      final ViewComputationCache cache = getComputationCache(result.getCalculationConfiguration());
+      if (cache != null) {
+        final Integer size = cache.estimateValueSize(result.getComputedValue());
+        if (size != null) {
+          bytes += size;
+          count++;
+        }
+      }
+    }
+    return Pairs.<Long, Integer>of(bytes, count);
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public UniqueId getUniqueId() {
@@ -316,18 +417,66 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * @return true if execution should continue, false if execution should be suppressed
    */
   public boolean preExecute(final SingleComputationCycle previousCycle, final MarketDataSnapshot marketDataSnapshot, final boolean suppressExecutionOnNoMarketData) {
+    return preExecute(previousCycle, marketDataSnapshot, suppressExecutionOnNoMarketData, false);
+  }
+
+  /**
+   * Prepares the cycle for execution, organising the caches and copying any values salvaged from a previous cycle.
+   * <p>
+   * If delta dispatch is requested then the changed nodes of a delta cycle are executed in waves, stopping propagation at any node whose outputs are not a delta from the previous cycle. The
+   * previous cycle must then remain valid until this cycle has executed.
+   * 
+   * @param previousCycle the previous cycle from which a delta cycle should be performed, or null to perform a full cycle
+   * @param marketDataSnapshot the market data snapshot with which to execute the cycle, not null
+   * @param suppressExecutionOnNoMarketData true if execution is to be suppressed when input data is entirely missing, false otherwise
+   * @param deltaDispatch true to dispatch only the truly affected nodes of a delta cycle, false to dispatch every changed node
+   * @return true if execution should continue, false if execution should be suppressed
+   */
+  public boolean preExecute(final SingleComputationCycle previousCycle, final MarketDataSnapshot marketDataSnapshot, final boolean suppressExecutionOnNoMarketData,
+      final boolean deltaDispatch) {
+    return preExecute(previousCycle, marketDataSnapshot, suppressExecutionOnNoMarketData, deltaDispatch, false);
+  }
+
+  /**
+   * Prepares the cycle for execution, organising the caches and copying any values salvaged from a previous cycle.
+   * <p>
+   * If node results are shared then any node not satisfied from the previous cycle whose result has already been published by the cycle of another view in the same view processor, at the same
+   * valuation time, version/correction and function initialization, and with the same market data inputs, is not executed. The results of the nodes this cycle executes are published when it
+   * completes.
+   * 
+   * @param previousCycle the previous cycle from which a delta cycle should be performed, or null to perform a full cycle
+   * @param marketDataSnapshot the market data snapshot with which to execute the cycle, not null
+   * @param suppressExecutionOnNoMarketData true if execution is to be suppressed when input data is entirely missing, false otherwise
+   * @param deltaDispatch true to dispatch only the truly affected nodes of a delta cycle, false to dispatch every changed node
+   * @param shareNodeResults true to use and publish node results shared with other views, false otherwise
+   * @return true if execution should continue, false if execution should be suppressed
+   */
+  public boolean preExecute(final SingleComputationCycle previousCycle, final MarketDataSnapshot marketDataSnapshot, final boolean suppressExecutionOnNoMarketData,
+      final boolean deltaDispatch, final boolean shareNodeResults) {
     if (_state != ViewCycleState.AWAITING_EXECUTION) {
       throw new IllegalStateException("State must be " + ViewCycleState.AWAITING_EXECUTION);
     }
     _startTime = Instant.now();
     _state = ViewCycleState.EXECUTING;
+    long start = LatencyRecorder.start();
     createAllCaches();
-    if (!prepareInputs(marketDataSnapshot, suppressExecutionOnNoMarketData)) {
+    LatencyRecorder.stop(CREATE_CACHES_PHASE, start);
+    start = LatencyRecorder.start();
+    final boolean inputsPrepared = prepareInputs(marketDataSnapshot, suppressExecutionOnNoMarketData);
+    LatencyRecorder.stop(PREPARE_INPUTS_PHASE, start);
+    if (!inputsPrepared) {
       generateSuppressedOutputs();
       return false;
     }
     if (previousCycle != null) {
-      computeDelta(previousCycle);
+      start = LatencyRecorder.start();
+      computeDelta(previousCycle, deltaDispatch);
+      LatencyRecorder.stop(COMPUTE_DELTA_PHASE, start);
+    }
+    if (shareNodeResults) {
+      start = LatencyRecorder.start();
+      reuseSharedResults();
+      LatencyRecorder.stop(REUSE_SHARED_RESULTS_PHASE, start);
     }
     return true;
   }
@@ -372,9 +521,14 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * Completes the execution cycle.
    */
   public void postExecute() {
+    final long start = LatencyRecorder.start();
+    // Release any references to the previous cycle
+    _deltaDispatchByCalculationConfiguration.clear();
+    publishSharedResults();
     completeResultModel();
     _state = ViewCycleState.EXECUTED;
     _endTime = Instant.now();
+    LatencyRecorder.stop(POST_EXECUTE_PHASE, start);
   }
 
   // REVIEW jonathan 2011-03-18 -- The following comment should be given some sort of 'listed' status for preservation :-)
@@ -388,6 +542,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    */
   public void execute() throws InterruptedException {
     _executor = new SingleComputationCycleExecutor(this);
+    final long start = LatencyRecorder.start();
     try {
       _executor.execute();
     } catch (InterruptedException e) {
@@ -396,6 +551,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
       s_logger.info("Execution interrupted before completion.");
     } finally {
       _executor = null;
+      LatencyRecorder.stop(EXECUTE_PHASE, start);
     }
   }
 
@@ -540,8 +696,9 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * </ul>
    * 
    * @param previousCycle Previous iteration. It must not have been cleaned yet ({@link #releaseResources()}).
+   * @param deltaDispatch true to prepare the changed nodes for execution in waves, false to execute them all
    */
-  private void computeDelta(final SingleComputationCycle previousCycle) {
+  private void computeDelta(final SingleComputationCycle previousCycle, final boolean deltaDispatch) {
     if (previousCycle.getState() != ViewCycleState.EXECUTED) {
       throw new IllegalArgumentException("State of previous cycle must be " + ViewCycleState.EXECUTED);
     }
@@ -555,70 +712,235 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
       final String calcConfig = depGraph.getCalculationConfigurationName();
       final ViewComputationCache cache = getComputationCache(calcConfig);
       final ViewComputationCache previousCache = previousCycle.getComputationCache(calcConfig);
-      final DependencyNodeJobExecutionResultCache jobExecutionResultCache = getJobExecutionResultCache(calcConfig);
-      final DependencyNodeJobExecutionResultCache previousJobExecutionResultCache = previousCycle.getJobExecutionResultCache(calcConfig);
-      final LiveDataDeltaCalculator deltaCalculator = new LiveDataDeltaCalculator(depGraph, cache, previousCache, parameterDelta.getValueSpecifications(calcConfig, previousViewDefinition,
-          viewDefinition));
+      final Set<ValueSpecification> changedSpecifications = parameterDelta.getValueSpecifications(calcConfig, previousViewDefinition, viewDefinition);
+      final LiveDataDeltaCalculator deltaCalculator = new LiveDataDeltaCalculator(depGraph, cache, previousCache, changedSpecifications);
       deltaCalculator.computeDelta();
       s_logger.info("Computed delta for calculation configuration '{}'. {} nodes out of {} require recomputation.", calcConfig, deltaCalculator.getChangedNodes().size(), depGraph.getSize());
-      final Collection<ValueSpecification> specsToCopy = new LinkedList<>();
-      final Collection<ComputedValue> errors = new LinkedList<>();
-      for (final DependencyNode unchangedNode : deltaCalculator.getUnchangedNodes()) {
-        if (MarketDataSourcingFunction.UNIQUE_ID.equals(unchangedNode.getFunction().getFunctionId())) {
-          // Market data is already in the cache, so don't need to copy it across again
-          continue;
+      final Collection<DependencyNode> notReused = reusePreviousResults(previousCycle, depGraph, deltaCalculator.getUnchangedNodes(), fragmentResultModel, fullResultModel);
+      if (deltaDispatch && !deltaCalculator.getChangedNodes().isEmpty()) {
+        // Anything that could not be reused must be executed along with the changed nodes
+        final Set<DependencyNode> changedNodes = new HashSet<DependencyNode>(deltaCalculator.getChangedNodes());
+        changedNodes.addAll(notReused);
+        final ViewCalculationConfiguration calcConfigDefinition = getViewDefinition().getCalculationConfiguration(calcConfig);
+        _deltaDispatchByCalculationConfiguration.put(calcConfig, new DeltaDispatch(this, previousCycle, depGraph, changedNodes, notReused, changedSpecifications,
+            calcConfigDefinition.getDeltaDefinition()));
+      }
+    }
+    if (!fragmentResultModel.getAllResults().isEmpty()) {
+      fragmentResultModel.setCalculationTime(Instant.now());
+      notifyFragmentCompleted(fragmentResultModel);
+    }
+  }
+
+  /**
+   * Reuses the results of nodes from a previous cycle, copying the values into this cycle's cache and result models. Market data sourcing nodes are skipped as the data is already in the cache.
+   * 
+   * @param previousCycle the previous cycle, not null
+   * @param depGraph the dependency graph containing the nodes, not null
+   * @param nodes the nodes whose results should be reused, not null
+   * @param fragmentResultModel the fragment result model to add terminal outputs to, not null
+   * @param fullResultModel the full result model to add terminal outputs to, not null
+   * @return the nodes which could not be reused and must be executed, not null
+   */
+  /* package */Collection<DependencyNode> reusePreviousResults(final SingleComputationCycle previousCycle, final DependencyGraph depGraph, final Collection<DependencyNode> nodes,
+      final InMemoryViewComputationResultModel fragmentResultModel, final InMemoryViewComputationResultModel fullResultModel) {
+    final String calcConfig = depGraph.getCalculationConfigurationName();
+    final ViewComputationCache cache = getComputationCache(calcConfig);
+    final DependencyNodeJobExecutionResultCache jobExecutionResultCache = getJobExecutionResultCache(calcConfig);
+    final DependencyNodeJobExecutionResultCache previousJobExecutionResultCache = previousCycle.getJobExecutionResultCache(calcConfig);
+    final Collection<DependencyNode> notReused = new LinkedList<>();
+    final Collection<ValueSpecification> specsToCopy = new LinkedList<>();
+    final Collection<ComputedValue> errors = new LinkedList<>();
+    for (final DependencyNode unchangedNode : nodes) {
+      if (MarketDataSourcingFunction.UNIQUE_ID.equals(unchangedNode.getFunction().getFunctionId())) {
+        // Market data is already in the cache, so don't need to copy it across again
+        continue;
+      }
+      final DependencyNodeJobExecutionResult previousExecutionResult = previousJobExecutionResultCache.get(unchangedNode);
+      if (!isReusable(calcConfig, unchangedNode, previousExecutionResult)) {
+        notReused.add(unchangedNode);
+        continue;
+      }
+      final int outputs = unchangedNode.getOutputCount();
+      if (previousExecutionResult.getJobResultItem().isFailed()) {
+        for (int i = 0; i < outputs; i++) {
+          errors.add(new ComputedValue(unchangedNode.getOutputValue(i), MissingOutput.SUPPRESSED));
         }
-        final DependencyNodeJobExecutionResult previousExecutionResult = previousJobExecutionResultCache.get(unchangedNode);
-        if (previousExecutionResult == null) {
-          // Nothing to reuse
+      } else {
+        for (int i = 0; i < outputs; i++) {
+          specsToCopy.add(unchangedNode.getOutputValue(i));
+        }
+      }
+      jobExecutionResultCache.put(unchangedNode, previousExecutionResult);
+    }
+    if (!specsToCopy.isEmpty()) {
+      final ComputationCycleQuery reusableResultsQuery = new ComputationCycleQuery();
+      reusableResultsQuery.setCalculationConfigurationName(calcConfig);
+      reusableResultsQuery.setValueSpecifications(specsToCopy);
+      final ComputationResultsResponse reusableResultsQueryResponse = previousCycle.queryResults(reusableResultsQuery);
+      final Map<ValueSpecification, ComputedValueResult> resultsToReuse = reusableResultsQueryResponse.getResults();
+      final Collection<ComputedValue> newValues = new ArrayList<>(resultsToReuse.size());
+      final Map<ValueSpecification, ?> terminalOutputs = depGraph.getTerminalOutputs();
+      for (final ComputedValueResult computedValueResult : resultsToReuse.values()) {
+        final ValueSpecification valueSpec = computedValueResult.getSpecification();
+        if (terminalOutputs.containsKey(valueSpec) && getViewDefinition().getResultModelDefinition().shouldOutputResult(valueSpec, depGraph)) {
+          fragmentResultModel.addValue(calcConfig, computedValueResult);
+          fullResultModel.addValue(calcConfig, computedValueResult);
+        }
+        final Object previousValue = computedValueResult.getValue() != null ? computedValueResult.getValue() : MissingOutput.EVALUATION_ERROR;
+        newValues.add(new ComputedValue(valueSpec, previousValue));
+      }
+      cache.putSharedValues(newValues);
+    }
+    if (!errors.isEmpty()) {
+      cache.putSharedValues(errors);
+    }
+    return notReused;
+  }
+
+  /**
+   * Reuses the results of nodes published by the cycles of other views, copying the values into this cycle's cache and result models. Nodes already satisfied from a previous cycle are left alone.
+   * Any node that cannot be satisfied is noted so that its result can be published once this cycle has executed.
+   * <p>
+   * Calculation configurations with market data manipulation, or executing a delta cycle in waves, neither use nor publish shared results.
+   */
+  private void reuseSharedResults() {
+    final SharedNodeResults.Generation sharedResults = getViewProcessContext().getSharedNodeResults().getGeneration(getValuationTime(), getVersionCorrection(), getFunctionInitId());
+    final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
+    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
+    for (final CompiledViewCalculationConfiguration calcConfiguration : getCompiledViewDefinition().getCompiledCalculationConfigurations()) {
+      final String calcConfig = calcConfiguration.getName();
+      if (!calcConfiguration.getMarketDataSelections().isEmpty() || (getDeltaDispatch(calcConfig) != null)) {
+        continue;
+      }
+      final DependencyGraph depGraph = getDependencyGraph(calcConfig);
+      final ViewComputationCache cache = getComputationCache(calcConfig);
+      final DependencyNodeJobExecutionResultCache jobExecutionResultCache = getJobExecutionResultCache(calcConfig);
+      final Map<DependencyNode, SharedNodeResults.NodeKey> keys = sharedResults.getKeys(depGraph, cache, getViewProcessId());
+      final Map<ValueSpecification, ?> terminalOutputs = depGraph.getTerminalOutputs();
+      final Collection<ComputedValue> newValues = new ArrayList<>();
+      int sharedNodes = 0;
+      final Iterator<Map.Entry<DependencyNode, SharedNodeResults.NodeKey>> itr = keys.entrySet().iterator();
+      while (itr.hasNext()) {
+        final Map.Entry<DependencyNode, SharedNodeResults.NodeKey> entry = itr.next();
+        final DependencyNode node = entry.getKey();
+        if (MarketDataSourcingFunction.UNIQUE_ID.equals(node.getFunction().getFunctionId())) {
+          // Market data is already in the cache, and never published
+          itr.remove();
           continue;
         }
-        if (getLogModeSource().getLogMode(calcConfig, unchangedNode.getOutputValue(0)) == ExecutionLogMode.FULL &&
-            previousExecutionResult.getJobResultItem().getExecutionLog().getEvents() == null) {
-          // Need to rerun calculation to collect logs, so cannot reuse
+        if (jobExecutionResultCache.get(node) != null) {
+          // Reused from the previous cycle; publish it in case another view needs it
           continue;
         }
-        final int outputs = unchangedNode.getOutputCount();
-        if (previousExecutionResult.getJobResultItem().isFailed()) {
-          for (int i = 0; i < outputs; i++) {
-            errors.add(new ComputedValue(unchangedNode.getOutputValue(i), MissingOutput.SUPPRESSED));
-          }
-        } else {
-          for (int i = 0; i < outputs; i++) {
-            specsToCopy.add(unchangedNode.getOutputValue(i));
-          }
+        final SharedNodeResults.Result result = sharedResults.get(entry.getValue());
+        if ((result == null) || !isReusable(calcConfig, node, result.getJobResult())) {
+          continue;
         }
-        jobExecutionResultCache.put(unchangedNode, previousExecutionResult);
-      }
-      if (!specsToCopy.isEmpty()) {
-        final ComputationCycleQuery reusableResultsQuery = new ComputationCycleQuery();
-        reusableResultsQuery.setCalculationConfigurationName(depGraph.getCalculationConfigurationName());
-        reusableResultsQuery.setValueSpecifications(specsToCopy);
-        final ComputationResultsResponse reusableResultsQueryResponse = previousCycle.queryResults(reusableResultsQuery);
-        final Map<ValueSpecification, ComputedValueResult> resultsToReuse = reusableResultsQueryResponse.getResults();
-        final Collection<ComputedValue> newValues = new ArrayList<>(resultsToReuse.size());
-        final Map<ValueSpecification, ?> terminalOutputs = depGraph.getTerminalOutputs();
-        for (final ComputedValueResult computedValueResult : resultsToReuse.values()) {
-          final ValueSpecification valueSpec = computedValueResult.getSpecification();
+        for (final Map.Entry<ValueSpecification, Object> value : result.getValues().entrySet()) {
+          final ValueSpecification valueSpec = value.getKey();
+          newValues.add(new ComputedValue(valueSpec, value.getValue()));
           if (terminalOutputs.containsKey(valueSpec) && getViewDefinition().getResultModelDefinition().shouldOutputResult(valueSpec, depGraph)) {
-            fragmentResultModel.addValue(depGraph.getCalculationConfigurationName(), computedValueResult);
-            fullResultModel.addValue(depGraph.getCalculationConfigurationName(), computedValueResult);
+            final ComputedValueResult computedValueResult = createComputedValueResult(valueSpec, value.getValue(), result.getJobResult());
+            fragmentResultModel.addValue(calcConfig, computedValueResult);
+            fullResultModel.addValue(calcConfig, computedValueResult);
           }
-          final Object previousValue = computedValueResult.getValue() != null ? computedValueResult.getValue() : MissingOutput.EVALUATION_ERROR;
-          newValues.add(new ComputedValue(valueSpec, previousValue));
         }
-        cache.putSharedValues(newValues);
+        jobExecutionResultCache.put(node, result.getJobResult());
+        itr.remove();
+        sharedNodes++;
       }
-      if (!errors.isEmpty()) {
-        cache.putSharedValues(errors);
+      if (!newValues.isEmpty()) {
+        cache.putSharedValues(newValues);
       }
+      s_logger.info("Using shared results for {} nodes out of {} for calculation configuration '{}'", new Object[] {sharedNodes, depGraph.getSize(), calcConfig });
+      getViewProcessContext().getGraphExecutorStatisticsGathererProvider().getStatisticsGatherer(getViewProcessId()).nodesShared(calcConfig, sharedNodes);
+      _sharedNodeKeysByCalculationConfiguration.put(calcConfig, keys);
     }
+    _sharedNodeResults = sharedResults;
     if (!fragmentResultModel.getAllResults().isEmpty()) {
       fragmentResultModel.setCalculationTime(Instant.now());
       notifyFragmentCompleted(fragmentResultModel);
     }
   }
 
+  /**
+   * Publishes the results of the nodes noted by {@link #reuseSharedResults} for the cycles of other views to use. Only nodes that the cycles of another view process have also requested are
+   * published. Failed nodes are not published, nor are nodes with any output held only in a private cache as those values are not visible here.
+   */
+  private void publishSharedResults() {
+    final SharedNodeResults.Generation sharedResults = _sharedNodeResults;
+    if (sharedResults == null) {
+      return;
+    }
+    _sharedNodeResults = null;
+    int published = 0;
+    for (final Map.Entry<String, Map<DependencyNode, SharedNodeResults.NodeKey>> calcConfig : _sharedNodeKeysByCalculationConfiguration.entrySet()) {
+      final ViewComputationCache cache = getComputationCache(calcConfig.getKey());
+      final DependencyNodeJobExecutionResultCache jobExecutionResultCache = getJobExecutionResultCache(calcConfig.getKey());
+      nodeLoop: for (final Map.Entry<DependencyNode, SharedNodeResults.NodeKey> entry : calcConfig.getValue().entrySet()) { //CSIGNORE
+        if (!entry.getValue().isShared()) {
+          // No other view could use it
+          continue;
+        }
+        final DependencyNode node = entry.getKey();
+        final DependencyNodeJobExecutionResult jobExecutionResult = jobExecutionResultCache.get(node);
+        if ((jobExecutionResult == null) || jobExecutionResult.getJobResultItem().isFailed()) {
+          continue;
+        }
+        final int outputs = node.getOutputCount();
+        final Map<ValueSpecification, Object> values = Maps.newHashMapWithExpectedSize(outputs);
+        for (int i = 0; i < outputs; i++) {
+          final ValueSpecification output = node.getOutputValue(i);
+          final Object value = cache.getValue(output, CacheSelectHint.allShared());
+          if (value == null) {
+            continue nodeLoop;
+          }
+          values.put(output, value);
+        }
+        sharedResults.put(entry.getValue(), jobExecutionResult, values);
+        published++;
+      }
+    }
+    _sharedNodeKeysByCalculationConfiguration.clear();
+    s_logger.debug("Published {} node results; {} held for this evaluation context", published, sharedResults.size());
+  }
+
+  /**
+   * Tests whether the result of a node from a previous cycle can be reused in this cycle.
+   * 
+   * @param previousCycle the previous cycle, not null
+   * @param calcConfigName the calculation configuration name, not null
+   * @param node the node to test, not null
+   * @return true if the previous result can be reused, false if the node must be executed
+   */
+  /* package */boolean isReusable(final SingleComputationCycle previousCycle, final String calcConfigName, final DependencyNode node) {
+    return isReusable(calcConfigName, node, previousCycle.getJobExecutionResultCache(calcConfigName).get(node));
+  }
+
+  private boolean isReusable(final String calcConfigName, final DependencyNode node, final DependencyNodeJobExecutionResult previousExecutionResult) {
+    if (previousExecutionResult == null) {
+      // Nothing to reuse
+      return false;
+    }
+    if (getLogModeSource().getLogMode(calcConfigName, node.getOutputValue(0)) == ExecutionLogMode.FULL &&
+        previousExecutionResult.getJobResultItem().getExecutionLog().getEvents() == null) {
+      // Need to rerun calculation to collect logs, so cannot reuse
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the delta dispatch state for a calculation configuration, if the changed nodes from a delta cycle are to be executed in waves.
+   * 
+   * @param calcConfigName the calculation configuration name
+   * @return the dispatch state, or null to execute the graph normally
+   */
+  /* package */DeltaDispatch getDeltaDispatch(final String calcConfigName) {
+    return _deltaDispatchByCalculationConfiguration.get(calcConfigName);
+  }
+
   private void completeResultModel() {
     getResultModel().setCalculationTime(Instant.now());
     getResultModel().setCalculationDuration(getDuration());
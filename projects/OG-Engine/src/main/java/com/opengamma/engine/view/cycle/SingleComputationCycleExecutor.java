@@ -72,9 +72,13 @@ import com.opengamma.util.tuple.Pair;
 
     @Override
     public void run(final SingleComputationCycleExecutor executor) {
+      final ExecutingCalculationConfiguration calcConfig = executor._executing.get(_calculationConfiguration);
+      if ((calcConfig != null) && executor.executeNextWave(calcConfig)) {
+        s_logger.debug("Execution of delta dispatch wave for {} complete", _calculationConfiguration);
+        return;
+      }
       s_logger.info("Execution of {} complete", _calculationConfiguration);
-      final ExecutingCalculationConfiguration calcConfig = executor._executing.remove(_calculationConfiguration);
-
+      executor._executing.remove(_calculationConfiguration);
       if (calcConfig != null) {
         SingleComputationCycle cycle = executor.getCycle();
         final InMemoryViewComputationResultModel fragmentResultModel = cycle.constructTemplateResultModel();
@@ -107,21 +111,55 @@ import com.opengamma.util.tuple.Pair;
 
   private static class ExecutingCalculationConfiguration {
 
-    private final Cancelable _handle;
+    private Cancelable _handle;
     private final DependencyGraph _graph;
     private final DependencyNodeJobExecutionResultCache _resultCache;
     private final ViewComputationCache _computationCache;
     private final Set<ValueSpecification> _terminalOutputs = new HashSet<ValueSpecification>();
+    private final DeltaDispatch _deltaDispatch;
+    private final Set<ValueSpecification> _sharedValues;
+    private final Map<ValueSpecification, FunctionParameters> _parameters;
 
     public ExecutingCalculationConfiguration(final SingleComputationCycle cycle, final DependencyGraph graph, final Cancelable handle) {
       _handle = handle;
       _graph = graph;
       _resultCache = cycle.getJobExecutionResultCache(graph.getCalculationConfigurationName());
       _computationCache = cycle.getComputationCache(graph.getCalculationConfigurationName());
+      _deltaDispatch = null;
+      _sharedValues = null;
+      _parameters = null;
+    }
+
+    public ExecutingCalculationConfiguration(final SingleComputationCycle cycle, final DependencyGraph graph, final DeltaDispatch deltaDispatch, final Set<ValueSpecification> sharedValues,
+        final Map<ValueSpecification, FunctionParameters> parameters) {
+      _graph = graph;
+      _resultCache = cycle.getJobExecutionResultCache(graph.getCalculationConfigurationName());
+      _computationCache = cycle.getComputationCache(graph.getCalculationConfigurationName());
+      _deltaDispatch = deltaDispatch;
+      _sharedValues = sharedValues;
+      _parameters = parameters;
     }
 
     public void cancel() {
-      _handle.cancel(true);
+      if (_handle != null) {
+        _handle.cancel(true);
+      }
+    }
+
+    public void setHandle(final Cancelable handle) {
+      _handle = handle;
+    }
+
+    public DeltaDispatch getDeltaDispatch() {
+      return _deltaDispatch;
+    }
+
+    public Set<ValueSpecification> getSharedValues() {
+      return _sharedValues;
+    }
+
+    public Map<ValueSpecification, FunctionParameters> getParameters() {
+      return _parameters;
     }
 
     public DependencyGraph getDependencyGraph() {
@@ -157,6 +195,7 @@ import com.opengamma.util.tuple.Pair;
   private final BlockingQueue<Event> _events = new LinkedBlockingQueue<Event>();
   private final Map<String, ExecutingCalculationConfiguration> _executing = new HashMap<String, ExecutingCalculationConfiguration>();
   private final SingleComputationCycle _cycle;
+  private DependencyGraphExecutor _graphExecutor;
   private boolean _issueFragmentResults;
 
   public SingleComputationCycleExecutor(final SingleComputationCycle cycle) {
@@ -169,11 +208,21 @@ import com.opengamma.util.tuple.Pair;
 
   public void execute() throws InterruptedException {
     final DependencyGraphExecutor executor = getCycle().getViewProcessContext().getDependencyGraphExecutorFactory().createExecutor(getCycle());
+    _graphExecutor = executor;
     for (final String calcConfigurationName : getCycle().getAllCalculationConfigurationNames()) {
       s_logger.info("Executing plans for calculation configuration {}", calcConfigurationName);
       final DependencyGraph depGraph = getCycle().getDependencyGraph(calcConfigurationName);
       final Set<ValueSpecification> sharedData = getCycle().getSharedValues(calcConfigurationName);
       final Map<ValueSpecification, FunctionParameters> parameters = getCycle().createFunctionParameters(calcConfigurationName);
+      final DeltaDispatch deltaDispatch = getCycle().getDeltaDispatch(calcConfigurationName);
+      if (deltaDispatch != null) {
+        s_logger.info("Submitting changed nodes of {} for execution in waves by {}", depGraph, executor);
+        final ExecutingCalculationConfiguration calcConfig = new ExecutingCalculationConfiguration(getCycle(), depGraph, deltaDispatch, sharedData, parameters);
+        if (executeNextWave(calcConfig)) {
+          _executing.put(calcConfigurationName, calcConfig);
+        }
+        continue;
+      }
       s_logger.info("Submitting {} for execution by {}", depGraph, executor);
       final DependencyGraphExecutionFuture future = executor.execute(depGraph, sharedData, parameters);
       _executing.put(calcConfigurationName, new ExecutingCalculationConfiguration(getCycle(), depGraph, future));
@@ -217,6 +266,32 @@ import com.opengamma.util.tuple.Pair;
     }
   }
 
+  /**
+   * Submits the next wave of a delta dispatch for execution.
+   * 
+   * @param calcConfig the executing calculation configuration, not null
+   * @return true if a wave was submitted, false if the calculation configuration is not using delta dispatch or has no more nodes to execute
+   */
+  private boolean executeNextWave(final ExecutingCalculationConfiguration calcConfig) {
+    final DeltaDispatch deltaDispatch = calcConfig.getDeltaDispatch();
+    if (deltaDispatch == null) {
+      return false;
+    }
+    final InMemoryViewComputationResultModel fragmentResultModel = getCycle().constructTemplateResultModel();
+    final DependencyGraph wave = deltaDispatch.nextWave(calcConfig.getSharedValues(), fragmentResultModel, getCycle().getResultModel());
+    if (!fragmentResultModel.getAllResults().isEmpty()) {
+      fragmentResultModel.setCalculationTime(Instant.now());
+      getCycle().notifyFragmentCompleted(fragmentResultModel);
+    }
+    if (wave == null) {
+      return false;
+    }
+    final DependencyGraphExecutionFuture future = _graphExecutor.execute(wave, deltaDispatch.getWaveInputs(), calcConfig.getParameters());
+    calcConfig.setHandle(future);
+    future.setListener(this);
+    return true;
+  }
+
   private String toString(final String prefix, final Collection<?> values) {
     final StringBuilder sb = new StringBuilder(prefix);
     if (values.size() > 1) {
@@ -322,6 +397,9 @@ import com.opengamma.util.tuple.Pair;
         jobExecutionResultCache.put(outputValueSpec, jobExecutionResult);
       }
     }
+    if (calcConfig.getDeltaDispatch() != null) {
+      calcConfig.getDeltaDispatch().jobCompleted(job);
+    }
     _issueFragmentResults |= !executedTerminalOutputs.isEmpty();
   }
 
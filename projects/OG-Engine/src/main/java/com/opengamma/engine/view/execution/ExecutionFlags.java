@@ -127,6 +127,36 @@ public final class ExecutionFlags {
     return this;
   }
 
+  /**
+   * Adds {@link ViewExecutionFlags#DELTA_DISPATCH}
+   * 
+   * @return this
+   */
+  public ExecutionFlags deltaDispatch() {
+    _flags.add(ViewExecutionFlags.DELTA_DISPATCH);
+    return this;
+  }
+
+  /**
+   * Adds {@link ViewExecutionFlags#COLUMNAR_RESULTS}
+   * 
+   * @return this
+   */
+  public ExecutionFlags columnarResults() {
+    _flags.add(ViewExecutionFlags.COLUMNAR_RESULTS);
+    return this;
+  }
+
+  /**
+   * Adds {@link ViewExecutionFlags#SHARED_NODE_RESULTS}
+   * 
+   * @return this
+   */
+  public ExecutionFlags sharedNodeResults() {
+    _flags.add(ViewExecutionFlags.SHARED_NODE_RESULTS);
+    return this;
+  }
+
   /**
    * Modes of operation for the {@link #parallelCompilation} flag.
    */
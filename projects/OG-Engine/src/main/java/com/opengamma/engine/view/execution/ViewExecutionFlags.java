@@ -112,6 +112,25 @@ public enum ViewExecutionFlags {
   /**
    * Indicates that the results should be stored in batch database.
    */
-  BATCH
+  BATCH,
+
+  /**
+   * Indicates that delta cycles should dispatch only the part of the graph that is truly affected by a change. The changed nodes are executed in waves and propagation stops at any node whose
+   * recalculated outputs are not a delta from the previous cycle under the calculation configuration's {@link com.opengamma.engine.view.DeltaDefinition}. Dependent nodes reuse their previous
+   * results rather than being executed.
+   */
+  DELTA_DISPATCH,
+
+  /**
+   * Indicates that the full results of each cycle should be held in column-oriented arrays rather than as individual result objects. This reduces the memory footprint of large views and allows
+   * deltas between cycles to be calculated column by column; result objects are only created when they are requested.
+   */
+  COLUMNAR_RESULTS,
+
+  /**
+   * Indicates that node results should be shared with the other views of the view processor. A node whose result has already been calculated by another view, at the same valuation time and with
+   * the same market data inputs, is not executed again; the results of the nodes that are executed are published for the other views to use.
+   */
+  SHARED_NODE_RESULTS
 
 }
@@ -0,0 +1,408 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * A column-oriented implementation of the calculation result model.
+ * <p>
+ * Each target is a row and each value name/properties combination is a column. Scalar {@code Double} results are held in primitive arrays and everything else about a result is held by reference
+ * in parallel arrays, so no object is retained per result. {@link ComputedValueResult} instances are only created when they are requested through the {@link ViewCalculationResultModel} methods.
+ * The row and column accessors allow results from two models to be compared directly.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ColumnarViewCalculationResultModel implements ViewCalculationResultModel, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int INITIAL_ROWS = 16;
+
+  private final Map<ComputationTargetSpecification, Integer> _rowIndex = new HashMap<ComputationTargetSpecification, Integer>();
+  private ComputationTargetSpecification[] _rows = new ComputationTargetSpecification[INITIAL_ROWS];
+  private final Map<Pair<String, ValueProperties>, Integer> _columnIndex = new HashMap<Pair<String, ValueProperties>, Integer>();
+  private final List<Column> _columns = new ArrayList<Column>();
+
+  /**
+   * The values for one value name and properties combination, indexed by row.
+   */
+  private static final class Column implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Pair<String, ValueProperties> _key;
+    private ValueSpecification[] _specifications;
+    private double[] _doubles;
+    private final BitSet _isDouble = new BitSet();
+    private Object[] _values;
+    private AggregatedExecutionLog[] _logs;
+    private String[] _computeNodeIds;
+    private Set<ValueSpecification>[] _missingInputs;
+    private InvocationResult[] _invocationResults;
+
+    Column(final Pair<String, ValueProperties> key, final int rows) {
+      _key = key;
+      _specifications = new ValueSpecification[rows];
+      _logs = new AggregatedExecutionLog[rows];
+    }
+
+    private static <T> T[] ensureCapacity(final T[] array, final int rows) {
+      if ((array == null) || (array.length >= rows)) {
+        return array;
+      }
+      return Arrays.copyOf(array, rows);
+    }
+
+    void ensureCapacity(final int rows) {
+      if (_specifications.length < rows) {
+        _specifications = ensureCapacity(_specifications, rows);
+        _logs = ensureCapacity(_logs, rows);
+        if (_doubles != null) {
+          _doubles = Arrays.copyOf(_doubles, rows);
+        }
+        _values = ensureCapacity(_values, rows);
+        _computeNodeIds = ensureCapacity(_computeNodeIds, rows);
+        _missingInputs = ensureCapacity(_missingInputs, rows);
+        _invocationResults = ensureCapacity(_invocationResults, rows);
+      }
+    }
+
+    boolean isPresent(final int row) {
+      return (row < _specifications.length) && (_specifications[row] != null);
+    }
+
+    void setValue(final int row, final Object value) {
+      if (value instanceof Double) {
+        setDouble(row, (Double) value);
+      } else {
+        if (_values == null) {
+          if (value == null) {
+            _isDouble.clear(row);
+            return;
+          }
+          _values = new Object[_specifications.length];
+        }
+        _values[row] = value;
+        _isDouble.clear(row);
+      }
+    }
+
+    void setDouble(final int row, final double value) {
+      if (_doubles == null) {
+        _doubles = new double[_specifications.length];
+      }
+      _doubles[row] = value;
+      _isDouble.set(row);
+      if (_values != null) {
+        _values[row] = null;
+      }
+    }
+
+    Object getValue(final int row) {
+      if (_isDouble.get(row)) {
+        return _doubles[row];
+      } else {
+        return (_values != null) ? _values[row] : null;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    void setMetadata(final int row, final AggregatedExecutionLog log, final String computeNodeId, final Set<ValueSpecification> missingInputs, final InvocationResult invocationResult) {
+      _logs[row] = log;
+      if (computeNodeId != null) {
+        if (_computeNodeIds == null) {
+          _computeNodeIds = new String[_specifications.length];
+        }
+        _computeNodeIds[row] = computeNodeId;
+      } else if (_computeNodeIds != null) {
+        _computeNodeIds[row] = null;
+      }
+      if (missingInputs != null) {
+        if (_missingInputs == null) {
+          _missingInputs = new Set[_specifications.length];
+        }
+        _missingInputs[row] = missingInputs;
+      } else if (_missingInputs != null) {
+        _missingInputs[row] = null;
+      }
+      if (invocationResult != null) {
+        if (_invocationResults == null) {
+          _invocationResults = new InvocationResult[_specifications.length];
+        }
+        _invocationResults[row] = invocationResult;
+      } else if (_invocationResults != null) {
+        _invocationResults[row] = null;
+      }
+    }
+
+    ComputedValueResult getResult(final int row) {
+      return new ComputedValueResult(_specifications[row], getValue(row), _logs[row], (_computeNodeIds != null) ? _computeNodeIds[row] : null,
+          (_missingInputs != null) ? _missingInputs[row] : null, (_invocationResults != null) ? _invocationResults[row] : null);
+    }
+
+    void copy(final int row, final Column from, final int fromRow) {
+      _specifications[row] = from._specifications[fromRow];
+      if (from._isDouble.get(fromRow)) {
+        setDouble(row, from._doubles[fromRow]);
+      } else {
+        setValue(row, (from._values != null) ? from._values[fromRow] : null);
+      }
+      setMetadata(row, from._logs[fromRow], (from._computeNodeIds != null) ? from._computeNodeIds[fromRow] : null, (from._missingInputs != null) ? from._missingInputs[fromRow] : null,
+          (from._invocationResults != null) ? from._invocationResults[fromRow] : null);
+    }
+
+  }
+
+  private int getOrCreateRow(final ComputationTargetSpecification target) {
+    final Integer index = _rowIndex.get(target);
+    if (index != null) {
+      return index;
+    }
+    final int row = _rowIndex.size();
+    if (row == _rows.length) {
+      _rows = Arrays.copyOf(_rows, row * 2);
+    }
+    _rows[row] = target;
+    _rowIndex.put(target, row);
+    return row;
+  }
+
+  private Column getOrCreateColumn(final Pair<String, ValueProperties> key) {
+    final Integer index = _columnIndex.get(key);
+    if (index != null) {
+      return _columns.get(index);
+    }
+    final Column column = new Column(key, _rows.length);
+    _columnIndex.put(key, _columns.size());
+    _columns.add(column);
+    return column;
+  }
+
+  /**
+   * Adds a result, replacing any previous result with the same value name and properties for the target.
+   *
+   * @param value the result to add, not null
+   */
+  public void addValue(final ComputedValueResult value) {
+    ArgumentChecker.notNull(value, "value");
+    final ValueSpecification specification = value.getSpecification();
+    final int row = getOrCreateRow(specification.getTargetSpecification());
+    final Column column = getOrCreateColumn(Pairs.of(specification.getValueName(), specification.getProperties()));
+    column.ensureCapacity(_rows.length);
+    column._specifications[row] = specification;
+    column.setValue(row, value.getValue());
+    column.setMetadata(row, value.getAggregatedExecutionLog(), value.getComputeNodeId(), value.getMissingInputs(), value.getInvocationResult());
+  }
+
+  /**
+   * Adds all of the results from another columnar model, replacing any previous results with the same target, value name and properties. No result objects are created.
+   *
+   * @param other the results to add, not null
+   */
+  public void addAll(final ColumnarViewCalculationResultModel other) {
+    ArgumentChecker.notNull(other, "other");
+    final int rowCount = other.getRowCount();
+    final int[] rows = new int[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      rows[i] = getOrCreateRow(other._rows[i]);
+    }
+    for (Column otherColumn : other._columns) {
+      final Column column = getOrCreateColumn(otherColumn._key);
+      column.ensureCapacity(_rows.length);
+      for (int i = 0; i < rowCount; i++) {
+        if (otherColumn.isPresent(i)) {
+          column.copy(rows[i], otherColumn, i);
+        }
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of rows, one for each target.
+   *
+   * @return the number of rows
+   */
+  public int getRowCount() {
+    return _rowIndex.size();
+  }
+
+  /**
+   * Gets the target for a row.
+   *
+   * @param row the row index
+   * @return the target, not null
+   */
+  public ComputationTargetSpecification getRowTarget(final int row) {
+    return _rows[row];
+  }
+
+  /**
+   * Gets the row for a target.
+   *
+   * @param target the target to search for, not null
+   * @return the row index, or -1 if the target is not in the model
+   */
+  public int getRow(final ComputationTargetSpecification target) {
+    final Integer index = _rowIndex.get(target);
+    return (index != null) ? index : -1;
+  }
+
+  /**
+   * Gets the number of columns, one for each value name and properties combination.
+   *
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return _columns.size();
+  }
+
+  /**
+   * Gets the value name and properties of a column.
+   *
+   * @param column the column index
+   * @return the value name and properties, not null
+   */
+  public Pair<String, ValueProperties> getColumnKey(final int column) {
+    return _columns.get(column)._key;
+  }
+
+  /**
+   * Gets the column for a value name and properties combination.
+   *
+   * @param key the value name and properties, not null
+   * @return the column index, or -1 if there are no results with the name and properties
+   */
+  public int getColumn(final Pair<String, ValueProperties> key) {
+    final Integer index = _columnIndex.get(key);
+    return (index != null) ? index : -1;
+  }
+
+  /**
+   * Tests whether there is a result in a cell.
+   *
+   * @param column the column index
+   * @param row the row index
+   * @return true if there is a result, false otherwise
+   */
+  public boolean isPresent(final int column, final int row) {
+    return _columns.get(column).isPresent(row);
+  }
+
+  /**
+   * Tests whether the result in a cell is held as a primitive double.
+   *
+   * @param column the column index
+   * @param row the row index, of a cell with a result
+   * @return true if the result is a double, false otherwise
+   */
+  public boolean isDouble(final int column, final int row) {
+    return _columns.get(column)._isDouble.get(row);
+  }
+
+  /**
+   * Gets the result in a cell that is held as a primitive double.
+   *
+   * @param column the column index
+   * @param row the row index, of a cell for which {@link #isDouble} is true
+   * @return the value
+   */
+  public double getDouble(final int column, final int row) {
+    return _columns.get(column)._doubles[row];
+  }
+
+  /**
+   * Gets the result value in a cell, boxing it if it is held as a primitive double.
+   *
+   * @param column the column index
+   * @param row the row index, of a cell with a result
+   * @return the value
+   */
+  public Object getValue(final int column, final int row) {
+    return _columns.get(column).getValue(row);
+  }
+
+  /**
+   * Gets the execution log of the result in a cell.
+   *
+   * @param column the column index
+   * @param row the row index, of a cell with a result
+   * @return the execution log, not null
+   */
+  public AggregatedExecutionLog getAggregatedExecutionLog(final int column, final int row) {
+    return _columns.get(column)._logs[row];
+  }
+
+  /**
+   * Creates the result object for a cell.
+   *
+   * @param column the column index
+   * @param row the row index
+   * @return the result, or null if there is no result in the cell
+   */
+  public ComputedValueResult getComputedValueResult(final int column, final int row) {
+    final Column c = _columns.get(column);
+    return c.isPresent(row) ? c.getResult(row) : null;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public Collection<ComputationTargetSpecification> getAllTargets() {
+    return Collections.unmodifiableSet(_rowIndex.keySet());
+  }
+
+  @Override
+  public Map<Pair<String, ValueProperties>, ComputedValueResult> getValues(final ComputationTargetSpecification target) {
+    final Integer row = _rowIndex.get(target);
+    if (row == null) {
+      return null;
+    }
+    final Map<Pair<String, ValueProperties>, ComputedValueResult> values = new HashMap<Pair<String, ValueProperties>, ComputedValueResult>();
+    for (Column column : _columns) {
+      if (column.isPresent(row)) {
+        values.put(column._key, column.getResult(row));
+      }
+    }
+    return Collections.unmodifiableMap(values);
+  }
+
+  @Override
+  public Collection<ComputedValueResult> getAllValues(final ComputationTargetSpecification target) {
+    final Integer row = _rowIndex.get(target);
+    if (row == null) {
+      return null;
+    }
+    final Collection<ComputedValueResult> values = new ArrayList<ComputedValueResult>();
+    for (Column column : _columns) {
+      if (column.isPresent(row)) {
+        values.add(column.getResult(row));
+      }
+    }
+    return Collections.unmodifiableCollection(values);
+  }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewResultEntry;
+import com.opengamma.engine.view.ViewResultModel;
+import com.opengamma.engine.view.ViewTargetResultModel;
+
+/**
+ * Implementation of {@link ViewComputationResultModel} that holds the results of each calculation configuration in a {@link ColumnarViewCalculationResultModel}.
+ * <p>
+ * This is a drop-in replacement for {@link InMemoryViewComputationResultModel} for views with many results. Result objects are created when they are requested rather than being held, and
+ * {@link com.opengamma.engine.view.client.ViewDeltaResultCalculator} compares two columnar models column by column.
+ */
+public class ColumnarViewComputationResultModel extends InMemoryViewComputationResultModel {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Map<String, ColumnarViewCalculationResultModel> _resultsByConfiguration = new HashMap<String, ColumnarViewCalculationResultModel>();
+  private final Set<ComputationTargetSpecification> _targets = new HashSet<ComputationTargetSpecification>();
+
+  public ColumnarViewComputationResultModel() {
+    super();
+  }
+
+  public ColumnarViewComputationResultModel(final ViewResultModel copyFrom) {
+    super();
+    update(copyFrom);
+  }
+
+  @Override
+  public void update(final ViewResultModel delta) {
+    setViewProcessId(delta.getViewProcessId());
+    setViewCycleId(delta.getViewCycleId());
+    setViewCycleExecutionOptions(delta.getViewCycleExecutionOptions());
+    setCalculationTime(delta.getCalculationTime());
+    setCalculationDuration(delta.getCalculationDuration());
+    setVersionCorrection(delta.getVersionCorrection());
+    for (String calculationConfiguration : delta.getCalculationConfigurationNames()) {
+      final ViewCalculationResultModel deltaConfigResults = delta.getCalculationResult(calculationConfiguration);
+      final ColumnarViewCalculationResultModel calcConfigResults = getOrCreateCalculationResult(calculationConfiguration);
+      if (deltaConfigResults instanceof ColumnarViewCalculationResultModel) {
+        calcConfigResults.addAll((ColumnarViewCalculationResultModel) deltaConfigResults);
+        _targets.addAll(deltaConfigResults.getAllTargets());
+      } else {
+        for (ComputationTargetSpecification target : deltaConfigResults.getAllTargets()) {
+          for (ComputedValueResult value : deltaConfigResults.getAllValues(target)) {
+            calcConfigResults.addValue(value);
+            _targets.add(target);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void update(final ViewComputationResultModel delta) {
+    update((ViewResultModel) delta);
+    for (ComputedValue marketData : delta.getAllMarketData()) {
+      addMarketData(marketData);
+    }
+  }
+
+  private ColumnarViewCalculationResultModel getOrCreateCalculationResult(final String calcConfigurationName) {
+    ColumnarViewCalculationResultModel result = _resultsByConfiguration.get(calcConfigurationName);
+    if (result == null) {
+      result = new ColumnarViewCalculationResultModel();
+      _resultsByConfiguration.put(calcConfigurationName, result);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return _targets.isEmpty();
+  }
+
+  @Override
+  public void addValue(final String calcConfigurationName, final ComputedValueResult value) {
+    getOrCreateCalculationResult(calcConfigurationName).addValue(value);
+    _targets.add(value.getSpecification().getTargetSpecification());
+  }
+
+  @Override
+  public Set<ComputationTargetSpecification> getAllTargets() {
+    return Collections.unmodifiableSet(_targets);
+  }
+
+  @Override
+  public Collection<String> getCalculationConfigurationNames() {
+    return Collections.unmodifiableSet(_resultsByConfiguration.keySet());
+  }
+
+  @Override
+  public ViewCalculationResultModel getCalculationResult(final String calcConfigurationName) {
+    return _resultsByConfiguration.get(calcConfigurationName);
+  }
+
+  @Override
+  public ViewTargetResultModel getTargetResult(final ComputationTargetSpecification targetSpecification) {
+    if (!_targets.contains(targetSpecification)) {
+      return null;
+    }
+    final ViewTargetResultModelImpl targetResult = new ViewTargetResultModelImpl();
+    for (Map.Entry<String, ColumnarViewCalculationResultModel> config : _resultsByConfiguration.entrySet()) {
+      final Collection<ComputedValueResult> values = config.getValue().getAllValues(targetSpecification);
+      if (values != null) {
+        for (ComputedValueResult value : values) {
+          targetResult.addValue(config.getKey(), value);
+        }
+      }
+    }
+    return targetResult;
+  }
+
+  @Override
+  public List<ViewResultEntry> getAllResults() {
+    final List<ViewResultEntry> results = new ArrayList<ViewResultEntry>();
+    for (Map.Entry<String, ColumnarViewCalculationResultModel> config : _resultsByConfiguration.entrySet()) {
+      final ColumnarViewCalculationResultModel calcResults = config.getValue();
+      final int columns = calcResults.getColumnCount();
+      final int rows = calcResults.getRowCount();
+      for (int column = 0; column < columns; column++) {
+        for (int row = 0; row < rows; row++) {
+          if (calcResults.isPresent(column, row)) {
+            results.add(new ViewResultEntry(config.getKey(), calcResults.getComputedValueResult(column, row)));
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public Set<String> getAllOutputValueNames() {
+    final Set<String> outputValueNames = new HashSet<String>();
+    for (ColumnarViewCalculationResultModel calcResults : _resultsByConfiguration.values()) {
+      final int columns = calcResults.getColumnCount();
+      for (int column = 0; column < columns; column++) {
+        outputValueNames.add(calcResults.getColumnKey(column).getFirst());
+      }
+    }
+    return outputValueNames;
+  }
+
+}
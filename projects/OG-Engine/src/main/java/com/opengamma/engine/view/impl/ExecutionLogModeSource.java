@@ -5,6 +5,7 @@
  */
 package com.opengamma.engine.view.impl;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -83,6 +84,33 @@ public class ExecutionLogModeSource {
     return modesByConfig.containsKey(output) ? ExecutionLogMode.FULL : ExecutionLogMode.INDICATORS;
   }
 
+  /**
+   * Gets the values in a calculation configuration for which full logging is currently requested. Any other value uses {@link ExecutionLogMode#INDICATORS}.
+   * 
+   * @param calcConfig the calculation configuration, not null
+   * @return the values, not null
+   */
+  public Set<ValueSpecification> getElevatedValues(final String calcConfig) {
+    Map<ValueSpecification, Integer> modesByConfig = _elevatedLogNodes.get(calcConfig);
+    if (modesByConfig == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableSet(modesByConfig.keySet());
+  }
+
+  /**
+   * Gets the number of values, across all calculation configurations, for which full logging is currently requested.
+   * 
+   * @return the number of values
+   */
+  public int getElevatedValueCount() {
+    int count = 0;
+    for (Map<ValueSpecification, Integer> modesByConfig : _elevatedLogNodes.values()) {
+      count += modesByConfig.size();
+    }
+    return count;
+  }
+
   //-------------------------------------------------------------------------
   /*package*/void viewDefinitionCompiled(CompiledViewDefinitionWithGraphs compiledViewDefinition) {
     _lock.lock();
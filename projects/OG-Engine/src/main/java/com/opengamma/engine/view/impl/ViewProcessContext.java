@@ -21,9 +21,11 @@ import com.opengamma.engine.marketdata.resolver.MarketDataProviderResolver;
 import com.opengamma.engine.marketdata.resolver.MarketDataProviderResolverWithOverride;
 import com.opengamma.engine.resource.EngineResourceManagerInternal;
 import com.opengamma.engine.view.compilation.ViewCompilationServices;
+import com.opengamma.engine.view.cycle.SharedNodeResults;
 import com.opengamma.engine.view.cycle.SingleComputationCycle;
 import com.opengamma.engine.view.permission.ViewPermissionProvider;
 import com.opengamma.engine.view.permission.ViewPortfolioPermissionProvider;
+import com.opengamma.engine.view.worker.ViewCycleAdmissionController;
 import com.opengamma.engine.view.worker.ViewProcessWorkerFactory;
 import com.opengamma.engine.view.worker.cache.ViewExecutionCache;
 import com.opengamma.engine.view.worker.cache.ViewExecutionCacheLock;
@@ -67,6 +69,10 @@ public class ViewProcessContext {
 
   private final ViewExecutionCache _executionCache;
 
+  private final SharedNodeResults _sharedNodeResults;
+
+  private final ViewCycleAdmissionController _cycleAdmissionController;
+
   // TODO: [PLAT-3190] Might need to inject this from the view processor so that all workers in the process group can share work
   private final ViewExecutionCacheLock _executionCacheLock = new ViewExecutionCacheLock();
 
@@ -88,6 +94,55 @@ public class ViewProcessContext {
       final EngineResourceManagerInternal<SingleComputationCycle> cycleManager,
       final Supplier<UniqueId> cycleIdentifiers,
       final ViewExecutionCache executionCache) {
+    this(processId, configSource, viewPermissionProvider, viewPortfolioPermissionProvider, marketDataProviderResolver, functionCompilationService, functionResolver, computationCacheSource,
+        computationJobDispatcher, viewProcessWorkerFactory, dependencyGraphBuilderFactory, dependencyGraphExecutorFactory, graphExecutorStatisticsProvider, overrideOperationCompiler, cycleManager,
+        cycleIdentifiers, executionCache, new SharedNodeResults());
+  }
+
+  public ViewProcessContext(
+      final UniqueId processId,
+      final ConfigSource configSource,
+      final ViewPermissionProvider viewPermissionProvider,
+      final ViewPortfolioPermissionProvider viewPortfolioPermissionProvider,
+      final MarketDataProviderResolver marketDataProviderResolver,
+      final CompiledFunctionService functionCompilationService,
+      final FunctionResolver functionResolver,
+      final ViewComputationCacheSource computationCacheSource,
+      final JobDispatcher computationJobDispatcher,
+      final ViewProcessWorkerFactory viewProcessWorkerFactory,
+      final DependencyGraphBuilderFactory dependencyGraphBuilderFactory,
+      final DependencyGraphExecutorFactory dependencyGraphExecutorFactory,
+      final GraphExecutorStatisticsGathererProvider graphExecutorStatisticsProvider,
+      final OverrideOperationCompiler overrideOperationCompiler,
+      final EngineResourceManagerInternal<SingleComputationCycle> cycleManager,
+      final Supplier<UniqueId> cycleIdentifiers,
+      final ViewExecutionCache executionCache,
+      final SharedNodeResults sharedNodeResults) {
+    this(processId, configSource, viewPermissionProvider, viewPortfolioPermissionProvider, marketDataProviderResolver, functionCompilationService, functionResolver, computationCacheSource,
+        computationJobDispatcher, viewProcessWorkerFactory, dependencyGraphBuilderFactory, dependencyGraphExecutorFactory, graphExecutorStatisticsProvider, overrideOperationCompiler, cycleManager,
+        cycleIdentifiers, executionCache, sharedNodeResults, new ViewCycleAdmissionController());
+  }
+
+  public ViewProcessContext(
+      final UniqueId processId,
+      final ConfigSource configSource,
+      final ViewPermissionProvider viewPermissionProvider,
+      final ViewPortfolioPermissionProvider viewPortfolioPermissionProvider,
+      final MarketDataProviderResolver marketDataProviderResolver,
+      final CompiledFunctionService functionCompilationService,
+      final FunctionResolver functionResolver,
+      final ViewComputationCacheSource computationCacheSource,
+      final JobDispatcher computationJobDispatcher,
+      final ViewProcessWorkerFactory viewProcessWorkerFactory,
+      final DependencyGraphBuilderFactory dependencyGraphBuilderFactory,
+      final DependencyGraphExecutorFactory dependencyGraphExecutorFactory,
+      final GraphExecutorStatisticsGathererProvider graphExecutorStatisticsProvider,
+      final OverrideOperationCompiler overrideOperationCompiler,
+      final EngineResourceManagerInternal<SingleComputationCycle> cycleManager,
+      final Supplier<UniqueId> cycleIdentifiers,
+      final ViewExecutionCache executionCache,
+      final SharedNodeResults sharedNodeResults,
+      final ViewCycleAdmissionController cycleAdmissionController) {
     ArgumentChecker.notNull(processId, "processId");
     ArgumentChecker.notNull(configSource, "configSource");
     ArgumentChecker.notNull(viewPermissionProvider, "viewPermissionProvider");
@@ -105,6 +160,8 @@ public class ViewProcessContext {
     ArgumentChecker.notNull(cycleManager, "cycleManager");
     ArgumentChecker.notNull(cycleIdentifiers, "cycleIdentifiers");
     ArgumentChecker.notNull(executionCache, "executionCache");
+    ArgumentChecker.notNull(sharedNodeResults, "sharedNodeResults");
+    ArgumentChecker.notNull(cycleAdmissionController, "cycleAdmissionController");
     _processId = processId;
     _configSource = configSource;
     _viewPermissionProvider = viewPermissionProvider;
@@ -124,6 +181,8 @@ public class ViewProcessContext {
     _cycleManager = cycleManager;
     _cycleIdentifiers = cycleIdentifiers;
     _executionCache = executionCache;
+    _sharedNodeResults = sharedNodeResults;
+    _cycleAdmissionController = cycleAdmissionController;
   }
 
   public UniqueId getProcessId() {
@@ -256,6 +315,24 @@ public class ViewProcessContext {
     return _executionCacheLock;
   }
 
+  /**
+   * Gets the node results shared between the views of the view processor.
+   * 
+   * @return the shared node results, not null
+   */
+  public SharedNodeResults getSharedNodeResults() {
+    return _sharedNodeResults;
+  }
+
+  /**
+   * Gets the controller limiting the memory used by the cycles of the view processor.
+   * 
+   * @return the cycle admission controller, not null
+   */
+  public ViewCycleAdmissionController getCycleAdmissionController() {
+    return _cycleAdmissionController;
+  }
+
   // -------------------------------------------------------------------------
   /**
    * Uses this context to form a {@code ViewCompliationServices} instance.
@@ -52,6 +52,7 @@ import com.opengamma.engine.view.ViewProcessor;
 import com.opengamma.engine.view.client.ViewClient;
 import com.opengamma.engine.view.client.ViewClientImpl;
 import com.opengamma.engine.view.client.ViewResultMode;
+import com.opengamma.engine.view.cycle.SharedNodeResults;
 import com.opengamma.engine.view.cycle.SingleComputationCycle;
 import com.opengamma.engine.view.event.ViewProcessorEventListenerRegistry;
 import com.opengamma.engine.view.execution.ExecutionOptions;
@@ -63,6 +64,7 @@ import com.opengamma.engine.view.listener.ViewResultListenerFactory;
 import com.opengamma.engine.view.permission.ViewPermissionContext;
 import com.opengamma.engine.view.permission.ViewPermissionProvider;
 import com.opengamma.engine.view.permission.ViewPortfolioPermissionProvider;
+import com.opengamma.engine.view.worker.ViewCycleAdmissionController;
 import com.opengamma.engine.view.worker.ViewProcessWorkerFactory;
 import com.opengamma.engine.view.worker.cache.ViewExecutionCache;
 import com.opengamma.id.UniqueId;
@@ -115,6 +117,8 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   private final ViewExecutionCache _executionCache;
 
   // State
+  private final SharedNodeResults _sharedNodeResults = new SharedNodeResults();
+  private final ViewCycleAdmissionController _cycleAdmissionController = new ViewCycleAdmissionController();
   /**
    * ConcurrentHashMap to allow access for querying processes independently and concurrently to client attachment.
    */
@@ -613,6 +617,15 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
     return _viewProcessorEventListenerRegistry;
   }
 
+  /**
+   * Gets the controller limiting the memory used by the cycles of this view processor.
+   * 
+   * @return the cycle admission controller, not null
+   */
+  public ViewCycleAdmissionController getCycleAdmissionController() {
+    return _cycleAdmissionController;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public EngineResourceManagerInternal<SingleComputationCycle> getViewCycleManager() {
@@ -648,7 +661,8 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   private ViewProcessContext createViewProcessContext(UniqueId processId, Supplier<UniqueId> cycleIds) {
     return new ViewProcessContext(processId, _configSource, _viewPermissionProvider, _viewPortfolioPermissionProvider, _marketDataProviderFactoryResolver, _functionCompilationService,
         _functionResolver, _computationCacheSource, _computationJobDispatcher, _viewProcessWorkerFactory, _dependencyGraphBuilderFactory, _dependencyGraphExecutorFactory,
-        _graphExecutionStatistics, _overrideOperationCompiler, _cycleManager, cycleIds, _executionCache);
+        _graphExecutionStatistics, _overrideOperationCompiler, _cycleManager, cycleIds, _executionCache, _sharedNodeResults,
+        _cycleAdmissionController);
   }
 
   private String generateIdValue(final AtomicLong source) {
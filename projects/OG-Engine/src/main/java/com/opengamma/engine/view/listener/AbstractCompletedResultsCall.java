@@ -12,6 +12,7 @@ import org.threeten.bp.Instant;
 import com.google.common.base.Function;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
 
@@ -36,7 +37,11 @@ public abstract class AbstractCompletedResultsCall implements Function<ViewResul
 
   protected InMemoryViewComputationResultModel getViewComputationResultModelCopy() {
     if (_fullCopy == null) {
-      _fullCopy = new InMemoryViewComputationResultModel(_full);
+      if (_full instanceof ColumnarViewComputationResultModel) {
+        _fullCopy = new ColumnarViewComputationResultModel(_full);
+      } else {
+        _fullCopy = new InMemoryViewComputationResultModel(_full);
+      }
       _full = _fullCopy;
     }
     return _fullCopy;
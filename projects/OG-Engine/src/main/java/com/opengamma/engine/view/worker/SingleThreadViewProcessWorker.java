@@ -191,6 +191,11 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
 
   private static final long NANOS_PER_MILLISECOND = 1000000;
 
+  /**
+   * The number of result values sampled from each cycle to maintain the value size estimates used for cycle admission.
+   */
+  private static final int VALUE_SIZE_SAMPLE = 1000;
+
   private final ViewProcessWorkerContext _context;
 
   private final ViewExecutionOptions _executionOptions;
@@ -200,6 +205,9 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
   private final boolean _executeGraphs;
   private final boolean _ignoreCompilationValidity;
   private final boolean _suppressExecutionOnNoMarketData;
+  private final boolean _deltaDispatch;
+  private final boolean _columnarResults;
+  private final boolean _sharedNodeResults;
   /**
    * The changes to the master trigger that must be made during the next cycle.
    * <p>
@@ -322,6 +330,9 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
     _executeGraphs = !executionOptions.getFlags().contains(ViewExecutionFlags.FETCH_MARKET_DATA_ONLY);
     _suppressExecutionOnNoMarketData = executionOptions.getFlags().contains(ViewExecutionFlags.SKIP_CYCLE_ON_NO_MARKET_DATA);
     _ignoreCompilationValidity = executionOptions.getFlags().contains(ViewExecutionFlags.IGNORE_COMPILATION_VALIDITY);
+    _deltaDispatch = executionOptions.getFlags().contains(ViewExecutionFlags.DELTA_DISPATCH);
+    _columnarResults = executionOptions.getFlags().contains(ViewExecutionFlags.COLUMNAR_RESULTS);
+    _sharedNodeResults = executionOptions.getFlags().contains(ViewExecutionFlags.SHARED_NODE_RESULTS);
     _viewDefinition = viewDefinition;
     _specificMarketDataSelectors = extractSpecificSelectors(viewDefinition);
     _marketDataManager = createMarketDataManager(context);
@@ -829,25 +840,35 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
         s_logger.info("Performing delta computation");
       }
     }
-    boolean continueExecution = cycleReference.get().preExecute(deltaCycle, marketDataSnapshot, _suppressExecutionOnNoMarketData);
-    if (_executeGraphs && continueExecution) {
-      try {
-        cycleReference.get().execute();
-      } catch (final InterruptedException e) {
-        Thread.interrupted();
-        // In reality this means that the job has been terminated, and it will end as soon as we return from this method.
-        // In case the thread has been interrupted without terminating the job, we tidy everything up as if the
-        // interrupted cycle never happened so that deltas will be calculated from the previous cycle.
-        s_logger.info("Interrupted while executing a computation cycle. No results will be output from this cycle.");
-        throw e;
-      } catch (final Exception e) {
-        s_logger.error("Error while executing view cycle", e);
-        throw e;
+    final SingleComputationCycle cycle = cycleReference.get();
+    final ViewCycleAdmissionController admissionController = getProcessContext().getCycleAdmissionController();
+    final ViewCycleAdmissionController.Admission admission = admissionController.admit(cycle.getValueCount(), cycle.getLogModeSource().getElevatedValueCount());
+    try {
+      cycle.setFullLogsSuppressed(admission.isDegraded());
+      boolean continueExecution = cycle.preExecute(deltaCycle, marketDataSnapshot, _suppressExecutionOnNoMarketData, _deltaDispatch, _sharedNodeResults);
+      if (_executeGraphs && continueExecution) {
+        try {
+          cycle.execute();
+        } catch (final InterruptedException e) {
+          Thread.interrupted();
+          // In reality this means that the job has been terminated, and it will end as soon as we return from this method.
+          // In case the thread has been interrupted without terminating the job, we tidy everything up as if the
+          // interrupted cycle never happened so that deltas will be calculated from the previous cycle.
+          s_logger.info("Interrupted while executing a computation cycle. No results will be output from this cycle.");
+          throw e;
+        } catch (final Exception e) {
+          s_logger.error("Error while executing view cycle", e);
+          throw e;
+        }
+      } else {
+        s_logger.debug("Skipping graph execution");
       }
-    } else {
-      s_logger.debug("Skipping graph execution");
+      cycle.postExecute();
+      final Pair<Long, Integer> valueSizes = cycle.estimateResultValueSizes(VALUE_SIZE_SAMPLE);
+      admissionController.recordValueSizes(valueSizes.getFirst(), valueSizes.getSecond());
+    } finally {
+      admissionController.release(admission);
     }
-    cycleReference.get().postExecute();
     final long durationNanos = cycleReference.get().getDuration().toNanos();
     final Timer timer = deltaCycle != null ? _deltaCycleTimer : _fullCycleTimer;
     if (timer != null) {
@@ -888,7 +909,7 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
       }
     };
     final SingleComputationCycle cycle = new SingleComputationCycle(cycleId, executionOptions.getName(), streamingResultListener, getProcessContext(), compiledViewDefinition,
-        executionOptions, versionCorrection);
+        executionOptions, versionCorrection, _columnarResults);
     return getProcessContext().getCycleManager().manage(cycle);
   }
 
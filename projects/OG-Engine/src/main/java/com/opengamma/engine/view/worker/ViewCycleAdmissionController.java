@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Limits the memory used by the view cycles of a view processor that are executing at the same time.
+ * <p>
+ * The memory a cycle will use is estimated, before it executes, from the number of values its dependency graphs produce and the average size of the values produced by earlier cycles. Values for
+ * which full execution logs have been requested are charged an additional amount. If the estimate would take the total of the executing cycles over the budget then the cycle is admitted without
+ * the full execution logs if that would fit, otherwise it waits until enough of the executing cycles have completed. Waiting cycles are admitted in the order they arrived. A cycle is always
+ * admitted if no other cycle is executing, so a single view larger than the budget can still run.
+ * <p>
+ * The estimates are approximate. The value sizes are those observed by the computation caches when encoding the results, which are not available for every value.
+ */
+public class ViewCycleAdmissionController {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ViewCycleAdmissionController.class);
+
+  /**
+   * The estimated size of a value, in bytes, used until the sizes of values from completed cycles have been observed.
+   */
+  public static final long DEFAULT_BYTES_PER_VALUE = 256;
+
+  /**
+   * The additional size, in bytes, charged for each value with a full execution log.
+   */
+  public static final long FULL_LOG_BYTES_PER_VALUE = 1024;
+
+  /**
+   * The weight given to the latest observation when updating the average value size.
+   */
+  private static final double VALUE_SIZE_DECAY = 0.2;
+
+  /**
+   * The memory allocated to an admitted cycle. This must be passed to {@link ViewCycleAdmissionController#release} when the cycle has executed.
+   */
+  public static final class Admission {
+
+    private final long _estimate;
+    private final boolean _degraded;
+
+    private Admission(final long estimate, final boolean degraded) {
+      _estimate = estimate;
+      _degraded = degraded;
+    }
+
+    /**
+     * Returns the estimated memory, in bytes, allocated to the cycle.
+     *
+     * @return the estimate
+     */
+    public long getEstimate() {
+      return _estimate;
+    }
+
+    /**
+     * Tests whether the cycle must execute without full execution logs.
+     *
+     * @return true if full execution logs must be suppressed, false otherwise
+     */
+    public boolean isDegraded() {
+      return _degraded;
+    }
+
+  }
+
+  private final Deque<Object> _waiting = new ArrayDeque<Object>();
+  private final AtomicLong _admittedCount = new AtomicLong();
+  private final AtomicLong _degradedCount = new AtomicLong();
+  private final AtomicLong _queuedCount = new AtomicLong();
+  private volatile long _budget;
+  private volatile double _bytesPerValue = DEFAULT_BYTES_PER_VALUE;
+  private long _used;
+  private int _executing;
+
+  /**
+   * Creates a controller with an unlimited budget.
+   */
+  public ViewCycleAdmissionController() {
+    this(Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates a controller.
+   *
+   * @param budget the memory budget in bytes, greater than zero
+   */
+  public ViewCycleAdmissionController(final long budget) {
+    setBudget(budget);
+  }
+
+  /**
+   * Returns the memory budget.
+   *
+   * @return the budget in bytes
+   */
+  public long getBudget() {
+    return _budget;
+  }
+
+  /**
+   * Sets the memory budget. Waiting cycles are reconsidered against the new budget.
+   *
+   * @param budget the memory budget in bytes, greater than zero
+   */
+  public void setBudget(final long budget) {
+    ArgumentChecker.notNegativeOrZero(budget, "budget");
+    synchronized (this) {
+      _budget = budget;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Returns the current average size of a value.
+   *
+   * @return the size in bytes
+   */
+  public double getBytesPerValue() {
+    return _bytesPerValue;
+  }
+
+  /**
+   * Estimates the memory a cycle will use.
+   *
+   * @param valueCount the number of values produced by the cycle
+   * @param fullLogValueCount the number of values for which full execution logs are requested
+   * @return the estimate in bytes
+   */
+  public long estimate(final int valueCount, final int fullLogValueCount) {
+    return (long) (valueCount * _bytesPerValue) + fullLogValueCount * FULL_LOG_BYTES_PER_VALUE;
+  }
+
+  /**
+   * Updates the average value size with the sizes observed from a completed cycle.
+   *
+   * @param bytes the total size of the observed values
+   * @param valueCount the number of values observed
+   */
+  public void recordValueSizes(final long bytes, final int valueCount) {
+    if (valueCount <= 0) {
+      return;
+    }
+    final double observed = (double) bytes / (double) valueCount;
+    // Races between cycles completing at the same time only lose an observation
+    _bytesPerValue = (_bytesPerValue * (1 - VALUE_SIZE_DECAY)) + (observed * VALUE_SIZE_DECAY);
+  }
+
+  private boolean fits(final long estimate) {
+    return (_executing == 0) || (_used + estimate <= _budget);
+  }
+
+  private Admission admitted(final long estimate, final boolean degraded) {
+    _used += estimate;
+    _executing++;
+    _admittedCount.incrementAndGet();
+    if (degraded) {
+      _degradedCount.incrementAndGet();
+    }
+    return new Admission(estimate, degraded);
+  }
+
+  /**
+   * Admits a cycle for execution, waiting if necessary until there is enough memory for it.
+   *
+   * @param valueCount the number of values produced by the cycle
+   * @param fullLogValueCount the number of values for which full execution logs are requested
+   * @return the admission, to be released when the cycle has executed, not null
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public Admission admit(final int valueCount, final int fullLogValueCount) throws InterruptedException {
+    final long full = estimate(valueCount, fullLogValueCount);
+    final long degraded = estimate(valueCount, 0);
+    final Object ticket = new Object();
+    synchronized (this) {
+      _waiting.add(ticket);
+      try {
+        boolean queued = false;
+        do {
+          if (_waiting.peek() == ticket) {
+            if (fits(full)) {
+              return admitted(full, false);
+            }
+            if ((fullLogValueCount > 0) && fits(degraded)) {
+              s_logger.info("Suppressing full execution logs for cycle estimated at {} bytes", full);
+              return admitted(degraded, true);
+            }
+          }
+          if (!queued) {
+            s_logger.info("Cycle estimated at {} bytes waiting for admission; {} of {} bytes in use", new Object[] {degraded, _used, _budget });
+            _queuedCount.incrementAndGet();
+            queued = true;
+          }
+          wait();
+        } while (true);
+      } finally {
+        _waiting.remove(ticket);
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Releases the memory allocated to a cycle that has executed.
+   *
+   * @param admission the admission returned by {@link #admit}, not null
+   */
+  public void release(final Admission admission) {
+    ArgumentChecker.notNull(admission, "admission");
+    synchronized (this) {
+      _used -= admission.getEstimate();
+      _executing--;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Returns the estimated memory allocated to the executing cycles.
+   *
+   * @return the memory in bytes
+   */
+  public synchronized long getUsed() {
+    return _used;
+  }
+
+  /**
+   * Returns the number of cycles executing.
+   *
+   * @return the number of cycles
+   */
+  public synchronized int getExecuting() {
+    return _executing;
+  }
+
+  /**
+   * Returns the number of cycles waiting for admission.
+   *
+   * @return the number of cycles
+   */
+  public synchronized int getQueueDepth() {
+    return _waiting.size();
+  }
+
+  /**
+   * Returns the number of cycles admitted.
+   *
+   * @return the number of cycles
+   */
+  public long getAdmittedCount() {
+    return _admittedCount.get();
+  }
+
+  /**
+   * Returns the number of cycles admitted without their full execution logs.
+   *
+   * @return the number of cycles
+   */
+  public long getDegradedCount() {
+    return _degradedCount.get();
+  }
+
+  /**
+   * Returns the number of cycles that have had to wait for admission.
+   *
+   * @return the number of cycles
+   */
+  public long getQueuedCount() {
+    return _queuedCount.get();
+  }
+
+}
@@ -0,0 +1,388 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.MapMaker;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraphExplorer;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionDefinition;
+import com.opengamma.engine.function.FunctionRepository;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.config.FunctionConfiguration;
+import com.opengamma.engine.function.config.ParameterizedFunctionConfiguration;
+import com.opengamma.engine.target.ComputationTargetReference;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A {@link ViewExecutionCache} that persists compiled view definitions to files in a local directory so that they survive a restart of the engine.
+ * <p>
+ * Each entry is written to its own file, named from a digest of the {@link ViewExecutionCacheKey}, as a compressed serialized record of the dependency graphs, target resolutions and compiled
+ * calculation configurations. The view definition and portfolio are stored by unique identifier and resolved again when the entry is loaded.
+ * <p>
+ * When an entry is loaded from disk it is only used if the function repository has the same hash as when the entry was written and the view definition and portfolio can still be resolved. The
+ * function initialization identifier is then updated to the current one. Changes to the masters since the entry was compiled are detected by the view process worker, which checks the recorded
+ * resolutions against its own version/correction and incrementally compiles any that have changed, exactly as it does for entries from any other cache.
+ */
+public class FileViewExecutionCache implements ViewExecutionCache {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(FileViewExecutionCache.class);
+
+  private static final int MAGIC = 0x4F474356; // "OGCV"
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".cvd";
+
+  private final File _directory;
+  private final CompiledFunctionService _functions;
+  private final ComputationTargetResolver _targetResolver;
+  private final ConcurrentMap<ViewExecutionCacheKey, CompiledViewDefinitionWithGraphs> _frontCache = new MapMaker().weakValues().makeMap();
+  private final Object _hashLock = new Object();
+  private FunctionRepository _hashRepository;
+  private String _hash;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param directory the directory to write the cache files to, not null
+   * @param cfs the compiled function service, holding a computation target resolver, not null
+   */
+  public FileViewExecutionCache(final File directory, final CompiledFunctionService cfs) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.notNull(cfs, "cfs");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new OpenGammaRuntimeException("Couldn't create cache directory " + directory);
+    }
+    _directory = directory;
+    _functions = cfs;
+    _targetResolver = cfs.getFunctionCompilationContext().getRawComputationTargetResolver();
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  public ComputationTargetResolver getTargetResolver() {
+    return _targetResolver;
+  }
+
+  /**
+   * For testing only.
+   */
+  /* package */void clearFrontCache() {
+    _frontCache.clear();
+  }
+
+  /**
+   * Returns a hash of the function repository that compiled graphs depend on. Graphs compiled against a repository with a different hash are not reused.
+   * <p>
+   * The hash covers each function's identifier, class and short name, its default parameters and, if the repository recorded it, the configuration the function was constructed from. It is
+   * computed once for each repository instance.
+   *
+   * @return the hash, not null
+   */
+  protected String getFunctionRepositoryHash() {
+    final FunctionRepository repository = _functions.getInitializedFunctionRepository();
+    synchronized (_hashLock) {
+      if (repository != _hashRepository) {
+        _hash = createFunctionRepositoryHash(repository, _functions.getFunctionRepository());
+        _hashRepository = repository;
+      }
+      return _hash;
+    }
+  }
+
+  private static void update(final MessageDigest digest, final String str) {
+    digest.update(String.valueOf(str).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /* package */static String createFunctionRepositoryHash(final FunctionRepository repository, final FunctionRepository rawRepository) {
+    final List<FunctionDefinition> functions = new ArrayList<FunctionDefinition>(repository.getAllFunctions());
+    Collections.sort(functions, new Comparator<FunctionDefinition>() {
+      @Override
+      public int compare(final FunctionDefinition o1, final FunctionDefinition o2) {
+        return o1.getUniqueId().compareTo(o2.getUniqueId());
+      }
+    });
+    final MessageDigest digest = createDigest();
+    for (FunctionDefinition function : functions) {
+      update(digest, function.getUniqueId());
+      update(digest, function.getClass().getName());
+      update(digest, function.getShortName());
+      // Parameters without a meaningful string form give a different hash on each restart, so entries using them are never reused rather than reused when stale
+      update(digest, String.valueOf(function.getDefaultParameters()));
+      if (rawRepository instanceof InMemoryFunctionRepository) {
+        final FunctionConfiguration configuration = ((InMemoryFunctionRepository) rawRepository).getFunctionConfiguration(function.getUniqueId());
+        if (configuration instanceof ParameterizedFunctionConfiguration) {
+          for (String parameter : ((ParameterizedFunctionConfiguration) configuration).getParameter()) {
+            update(digest, parameter);
+          }
+        }
+      }
+      digest.update((byte) 1);
+    }
+    return toHex(digest.digest());
+  }
+
+  protected long getFunctionInitId() {
+    return _functions.getFunctionCompilationContext().getFunctionInitId();
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new OpenGammaRuntimeException("SHA-1 not available", e);
+    }
+  }
+
+  private static String toHex(final byte[] bytes) {
+    final StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  /* package */File getFile(final ViewExecutionCacheKey key) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(key);
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't serialize " + key, e);
+    }
+    return new File(_directory, toHex(createDigest().digest(bytes.toByteArray())) + SUFFIX);
+  }
+
+  /**
+   * The persisted form of a compiled view definition.
+   */
+  private static final class Entry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ViewExecutionCacheKey _key;
+    private final String _functionRepositoryHash;
+    private final VersionCorrection _versionCorrection;
+    private final String _compilationId;
+    private final UniqueId _viewDefinition;
+    private final Collection<DependencyGraph> _graphs;
+    private final Map<ComputationTargetReference, UniqueId> _resolutions;
+    private final UniqueId _portfolio;
+    private final Collection<CompiledViewCalculationConfiguration> _calcConfigs;
+    private final Instant _validFrom;
+    private final Instant _validTo;
+
+    private Entry(final ViewExecutionCacheKey key, final String functionRepositoryHash, final CompiledViewDefinitionWithGraphs viewDef) {
+      _key = key;
+      _functionRepositoryHash = functionRepositoryHash;
+      _versionCorrection = viewDef.getResolverVersionCorrection();
+      _compilationId = viewDef.getCompilationIdentifier();
+      _viewDefinition = viewDef.getViewDefinition().getUniqueId();
+      final Collection<DependencyGraphExplorer> graphs = viewDef.getDependencyGraphExplorers();
+      _graphs = new ArrayList<DependencyGraph>(graphs.size());
+      for (DependencyGraphExplorer explorer : graphs) {
+        _graphs.add(explorer.getWholeGraph());
+      }
+      _resolutions = new HashMap<ComputationTargetReference, UniqueId>(viewDef.getResolvedIdentifiers());
+      _portfolio = (viewDef.getPortfolio() != null) ? viewDef.getPortfolio().getUniqueId() : null;
+      _calcConfigs = new ArrayList<CompiledViewCalculationConfiguration>(viewDef.getCompiledCalculationConfigurations());
+      _validFrom = viewDef.getValidFrom();
+      _validTo = viewDef.getValidTo();
+    }
+
+  }
+
+  private void write(final File file, final Entry entry) throws IOException {
+    final File temp = File.createTempFile("cvd", ".tmp", _directory);
+    try {
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+        final DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.flush();
+        final DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+        final ObjectOutputStream body = new ObjectOutputStream(deflater);
+        body.writeObject(entry);
+        body.flush();
+        deflater.finish();
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      if (temp.exists() && !temp.delete()) {
+        s_logger.warn("Couldn't delete temporary file {}", temp);
+      }
+    }
+  }
+
+  private static Entry read(final File file) throws IOException, ClassNotFoundException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      final DataInputStream header = new DataInputStream(in);
+      if ((header.readInt() != MAGIC) || (header.readInt() != VERSION)) {
+        return null;
+      }
+      final ObjectInputStream body = new ObjectInputStream(new InflaterInputStream(in));
+      return (Entry) body.readObject();
+    }
+  }
+
+  private CompiledViewDefinitionWithGraphs load(final ViewExecutionCacheKey key) {
+    final File file = getFile(key);
+    if (!file.exists()) {
+      return null;
+    }
+    final Entry entry;
+    try {
+      entry = read(file);
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      s_logger.warn("Couldn't read {} for {} - {}", new Object[] {file, key, e.getMessage() });
+      s_logger.debug("Caught exception", e);
+      discard(file);
+      return null;
+    }
+    if ((entry == null) || !key.equals(entry._key)) {
+      s_logger.info("Discarding unrecognised cache file {}", file);
+      discard(file);
+      return null;
+    }
+    if (!getFunctionRepositoryHash().equals(entry._functionRepositoryHash)) {
+      s_logger.info("Function repository has changed since {} was compiled", key);
+      discard(file);
+      return null;
+    }
+    final ComputationTarget viewDefinition = getTargetResolver().resolve(new ComputationTargetSpecification(ComputationTargetType.of(ViewDefinition.class), entry._viewDefinition),
+        VersionCorrection.LATEST);
+    if (viewDefinition == null) {
+      s_logger.info("View definition {} no longer available", entry._viewDefinition);
+      discard(file);
+      return null;
+    }
+    Portfolio portfolio = null;
+    if (entry._portfolio != null) {
+      final ComputationTarget target = getTargetResolver().resolve(new ComputationTargetSpecification(ComputationTargetType.PORTFOLIO, entry._portfolio), entry._versionCorrection);
+      if (target == null) {
+        s_logger.info("Portfolio {} no longer available", entry._portfolio);
+        discard(file);
+        return null;
+      }
+      portfolio = (Portfolio) target.getValue();
+    }
+    // The function repository is unchanged so the graphs are valid for the current initialization
+    return new CompiledViewDefinitionWithGraphsImpl(entry._versionCorrection, entry._compilationId, (ViewDefinition) viewDefinition.getValue(), entry._graphs, entry._resolutions, portfolio,
+        getFunctionInitId(), entry._calcConfigs, entry._validFrom, entry._validTo);
+  }
+
+  private static void discard(final File file) {
+    if (!file.delete()) {
+      s_logger.warn("Couldn't delete {}", file);
+    }
+  }
+
+  @Override
+  public CompiledViewDefinitionWithGraphs getCompiledViewDefinitionWithGraphs(final ViewExecutionCacheKey key) {
+    CompiledViewDefinitionWithGraphs viewDefinition = _frontCache.get(key);
+    if (viewDefinition != null) {
+      s_logger.debug("Front cache hit CompiledViewDefinitionWithGraphs for {}", key);
+      return viewDefinition;
+    }
+    synchronized (this) {
+      viewDefinition = _frontCache.get(key);
+      if (viewDefinition != null) {
+        return viewDefinition;
+      }
+      viewDefinition = load(key);
+      if (viewDefinition != null) {
+        s_logger.debug("File cache hit CompiledViewDefinitionWithGraphs for {}", key);
+        _frontCache.put(key, viewDefinition);
+      } else {
+        s_logger.debug("File cache miss CompiledViewDefinitionWithGraphs for {}", key);
+      }
+      return viewDefinition;
+    }
+  }
+
+  @Override
+  public void setCompiledViewDefinitionWithGraphs(final ViewExecutionCacheKey key, final CompiledViewDefinitionWithGraphs viewDefinition) {
+    final CompiledViewDefinitionWithGraphs existing = _frontCache.put(key, viewDefinition);
+    if (existing == viewDefinition) {
+      return;
+    }
+    s_logger.info("Storing CompiledViewDefinitionWithGraphs for {}", key);
+    final File file = getFile(key);
+    synchronized (this) {
+      try {
+        write(file, new Entry(key, getFunctionRepositoryHash(), viewDefinition));
+      } catch (IOException e) {
+        // The entry is still in the front cache; the next restart will just have to recompile it
+        s_logger.warn("Couldn't write {} for {} - {}", new Object[] {file, key, e.getMessage() });
+        s_logger.debug("Caught exception", e);
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    _frontCache.clear();
+    s_logger.info("Clearing all CompiledViewDefinitionWithGraphs");
+    synchronized (this) {
+      final File[] files = _directory.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          if (file.getName().endsWith(SUFFIX)) {
+            discard(file);
+          }
+        }
+      }
+    }
+  }
+
+}
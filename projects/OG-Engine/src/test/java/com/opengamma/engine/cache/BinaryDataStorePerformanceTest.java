@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.AssertJUnit.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.monitor.OperationTimer;
+import com.opengamma.util.test.TestGroup;
+import com.sleepycat.je.Environment;
+
+/**
+ * Compares the put/get throughput, and the heap retained by a full cycle, of the {@link BinaryDataStore} implementations.
+ */
+@Test(groups = TestGroup.INTEGRATION)
+public class BinaryDataStorePerformanceTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(BinaryDataStorePerformanceTest.class);
+
+  private static final int NUM_ENTRIES = 200000;
+  private static final int NUM_CYCLES = 5;
+  private static final int MIN_ENTRY_SIZE = 50;
+  private static final int MAX_ENTRY_SIZE = 1000;
+
+  private File _dbDir;
+  private Environment _dbEnvironment;
+  private byte[][] _values;
+
+  @BeforeClass
+  public void init() {
+    final Random random = new Random(1L);
+    _values = new byte[NUM_ENTRIES][];
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      _values[i] = new byte[MIN_ENTRY_SIZE + random.nextInt(MAX_ENTRY_SIZE - MIN_ENTRY_SIZE)];
+      random.nextBytes(_values[i]);
+    }
+    _dbDir = new File(System.getProperty("java.io.tmpdir"), "BinaryDataStorePerformanceTest-" + System.currentTimeMillis());
+    _dbDir.mkdirs();
+    _dbEnvironment = BerkeleyDBViewComputationCacheSource.constructDatabaseEnvironment(_dbDir, false);
+  }
+
+  @AfterClass(alwaysRun = true)
+  public void cleanup() {
+    if (_dbEnvironment != null) {
+      _dbEnvironment.close();
+    }
+    try {
+      FileUtils.deleteDirectory(_dbDir);
+    } catch (IOException ioe) {
+      s_logger.warn("Unable to recursively delete directory {}", _dbDir);
+    }
+  }
+
+  private static long usedHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private void benchmark(final String name, final BinaryDataStoreFactory factory, final int numEntries) {
+    for (int cycle = 0; cycle < NUM_CYCLES; cycle++) {
+      final long heapBefore = usedHeap();
+      final BinaryDataStore store = factory.createDataStore(new ViewComputationCacheKey(UniqueId.of("Cycle", name + cycle), "Default"));
+      OperationTimer timer = new OperationTimer(s_logger, "{} writing {} entries", name, numEntries);
+      for (int i = 0; i < numEntries; i++) {
+        // Copy to mimic a freshly encoded value that would otherwise be garbage
+        store.put(i, _values[i].clone());
+      }
+      final long putMillis = timer.finished();
+      final long heapRetained = usedHeap() - heapBefore;
+      timer = new OperationTimer(s_logger, "{} reading {} entries", name, numEntries);
+      for (int i = 0; i < numEntries; i++) {
+        assertNotNull(store.get(i));
+      }
+      final long getMillis = timer.finished();
+      store.delete();
+      s_logger.info("{} cycle {}: {} puts/sec, {} gets/sec, {} heap bytes retained", new Object[] {name, cycle, (numEntries * 1000.0) / Math.max(putMillis, 1),
+          (numEntries * 1000.0) / Math.max(getMillis, 1), heapRetained });
+    }
+  }
+
+  public void inMemory() {
+    benchmark("InMemory", new InMemoryBinaryDataStoreFactory(), NUM_ENTRIES);
+  }
+
+  public void offHeap() {
+    benchmark("OffHeap", new OffHeapBinaryDataStoreFactory(), NUM_ENTRIES);
+  }
+
+  public void memoryMapped() {
+    benchmark("MemoryMapped", new OffHeapBinaryDataStoreFactory(OffHeapBinaryDataStoreFactory.DEFAULT_SEGMENT_SIZE, OffHeapBinaryDataStoreFactory.DEFAULT_MAX_POOLED_SEGMENTS, _dbDir),
+        NUM_ENTRIES);
+  }
+
+  public void berkeleyDB() {
+    // The BerkeleyDB store is considerably slower; use fewer entries to keep the run time reasonable
+    benchmark("BerkeleyDB", new BerkeleyDBBinaryDataStoreFactory(_dbEnvironment), NUM_ENTRIES / 20);
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.monitor.OperationTimer;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link InterningIdentifierMap} class.
+ */
+@Test(groups = TestGroup.INTEGRATION)
+public class InterningIdentifierMapTest extends AbstractIdentifierMapTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(InterningIdentifierMapTest.class);
+
+  @Override
+  protected IdentifierMap createIdentifierMap(final String testName) {
+    return new InterningIdentifierMap();
+  }
+
+  private static ValueSpecification[] createSpecifications(final int count, final String valueName) {
+    final ValueProperties properties = ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get();
+    final ValueSpecification[] specifications = new ValueSpecification[count];
+    for (int i = 0; i < count; i++) {
+      specifications[i] = new ValueSpecification(valueName, ComputationTargetSpecification.of(UniqueId.of("scheme", Integer.toString(i))), properties);
+    }
+    return specifications;
+  }
+
+  @Test(groups = TestGroup.UNIT)
+  public void testArrayOperations() {
+    final InterningIdentifierMap map = new InterningIdentifierMap(4);
+    final ValueSpecification[] specifications = createSpecifications(10000, "Value");
+    final long[] identifiers = map.getIdentifiers(specifications);
+    assertEquals(specifications.length, map.size());
+    for (int i = 0; i < specifications.length; i++) {
+      assertEquals(identifiers[i], map.getIdentifier(specifications[i]));
+      assertSame(specifications[i], map.getValueSpecification(identifiers[i]));
+    }
+    final ValueSpecification[] resolved = map.getValueSpecifications(identifiers);
+    for (int i = 0; i < specifications.length; i++) {
+      assertSame(specifications[i], resolved[i]);
+    }
+    // Equal but distinct instances map to the same identifiers
+    final long[] identifiers2 = map.getIdentifiers(createSpecifications(10000, "Value"));
+    for (int i = 0; i < specifications.length; i++) {
+      assertEquals(identifiers[i], identifiers2[i]);
+    }
+    assertEquals(specifications.length, map.size());
+    assertNull(map.getValueSpecification(0L));
+    assertNull(map.getValueSpecification(Long.MAX_VALUE));
+    assertNull(map.getValueSpecifications(new long[] {-1L })[0]);
+  }
+
+  @Test(groups = TestGroup.UNIT)
+  public void testConcurrentAllocation() throws Exception {
+    final InterningIdentifierMap map = new InterningIdentifierMap();
+    final ValueSpecification[] specifications = createSpecifications(50000, "Value");
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(executor.submit(new Callable<long[]>() {
+          @Override
+          public long[] call() {
+            final long[] identifiers = new long[specifications.length];
+            for (int j = 0; j < specifications.length; j++) {
+              identifiers[j] = map.getIdentifier(specifications[j]);
+            }
+            return identifiers;
+          }
+        }));
+      }
+      final long[] expected = futures.get(0).get();
+      for (Future<long[]> future : futures) {
+        final long[] identifiers = future.get();
+        for (int i = 0; i < specifications.length; i++) {
+          assertEquals(expected[i], identifiers[i]);
+        }
+      }
+      assertEquals(specifications.length, map.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Throughput at the scale of a large view; needs a heap of several gigabytes.
+   */
+  public void tenMillionThroughput() {
+    final int count = 10000000;
+    final int batchSize = 1000;
+    final InterningIdentifierMap map = new InterningIdentifierMap();
+    final ValueSpecification[] specifications = createSpecifications(count, "Value");
+    final ValueSpecification[] batch = new ValueSpecification[batchSize];
+    OperationTimer timer = new OperationTimer(s_logger, "Allocating {} identifiers", count);
+    for (int i = 0; i < count; i += batchSize) {
+      System.arraycopy(specifications, i, batch, 0, batchSize);
+      map.getIdentifiers(batch);
+    }
+    long millis = timer.finished();
+    s_logger.info("Allocated {} identifiers at {} /sec", count, (count * 1000.0) / Math.max(millis, 1));
+    timer = new OperationTimer(s_logger, "Looking up {} identifiers", count);
+    for (int i = 0; i < count; i += batchSize) {
+      System.arraycopy(specifications, i, batch, 0, batchSize);
+      map.getValueSpecifications(map.getIdentifiers(batch));
+    }
+    millis = timer.finished();
+    s_logger.info("Round-tripped {} identifiers at {} /sec", count, (count * 1000.0) / Math.max(millis, 1));
+    assertEquals(count, map.size());
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link OffHeapBinaryDataStore} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class OffHeapBinaryDataStoreTest {
+
+  private static byte[] data(final int length, final int seed) {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (seed + i);
+    }
+    return data;
+  }
+
+  public void testPutGet() {
+    final OffHeapBinaryDataStoreFactory factory = new OffHeapBinaryDataStoreFactory(1024, 4);
+    final BinaryDataStore store = factory.createDataStore(null);
+    assertNull(store.get(1L));
+    store.put(1L, data(10, 1));
+    store.put(2L, data(0, 2));
+    store.put(3L, data(500, 3));
+    assertEquals(store.get(1L), data(10, 1));
+    assertEquals(store.get(2L), data(0, 2));
+    assertEquals(store.get(3L), data(500, 3));
+    assertNull(store.get(4L));
+    store.put(1L, data(20, 4));
+    assertEquals(store.get(1L), data(20, 4));
+  }
+
+  public void testSegmentOverflow() {
+    final OffHeapBinaryDataStoreFactory factory = new OffHeapBinaryDataStoreFactory(256, 4);
+    final OffHeapBinaryDataStore store = (OffHeapBinaryDataStore) factory.createDataStore(null);
+    for (int i = 0; i < 100; i++) {
+      store.put(i, data(i, i));
+    }
+    // Larger than a segment
+    store.put(1000L, data(1000, 7));
+    for (int i = 0; i < 100; i++) {
+      assertEquals(store.get(i), data(i, i));
+    }
+    assertEquals(store.get(1000L), data(1000, 7));
+  }
+
+  public void testBulk() {
+    final OffHeapBinaryDataStoreFactory factory = new OffHeapBinaryDataStoreFactory(1024, 4);
+    final BinaryDataStore store = factory.createDataStore(null);
+    final Map<Long, byte[]> values = new HashMap<Long, byte[]>();
+    for (int i = 0; i < 50; i++) {
+      values.put((long) i, data(i + 1, i));
+    }
+    store.put(values);
+    final Map<Long, byte[]> result = store.get(Arrays.asList(0L, 10L, 49L, 50L));
+    assertEquals(result.size(), 3);
+    assertEquals(result.get(0L), data(1, 0));
+    assertEquals(result.get(10L), data(11, 10));
+    assertEquals(result.get(49L), data(50, 49));
+  }
+
+  public void testDeleteReleasesSegments() {
+    final OffHeapBinaryDataStoreFactory factory = new OffHeapBinaryDataStoreFactory(256, 2);
+    final OffHeapBinaryDataStore store = (OffHeapBinaryDataStore) factory.createDataStore(null);
+    for (int i = 0; i < 100; i++) {
+      store.put(i, data(100, i));
+    }
+    assertEquals(factory.getPooledSegments(), 0);
+    store.delete();
+    assertEquals(store.getReservedBytes(), 0L);
+    assertEquals(factory.getPooledSegments(), 2);
+    final OffHeapBinaryDataStore store2 = (OffHeapBinaryDataStore) factory.createDataStore(null);
+    store2.put(1L, data(100, 1));
+    assertEquals(factory.getPooledSegments(), 1);
+    assertEquals(store2.get(1L), data(100, 1));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testPutAfterDelete() {
+    final BinaryDataStore store = new OffHeapBinaryDataStoreFactory(256, 2).createDataStore(null);
+    store.delete();
+    store.put(1L, data(1, 1));
+  }
+
+  public void testFactoryBeanDisabled() {
+    final OffHeapBinaryDataStoreFactoryFactoryBean bean = new OffHeapBinaryDataStoreFactoryFactoryBean();
+    bean.afterPropertiesSet();
+    assertTrue(bean.getObject() instanceof InMemoryBinaryDataStoreFactory);
+  }
+
+  public void testFactoryBeanEnabled() {
+    final OffHeapBinaryDataStoreFactoryFactoryBean bean = new OffHeapBinaryDataStoreFactoryFactoryBean();
+    bean.setEnabled(true);
+    bean.setSegmentSize(1024);
+    bean.setMappedFileDirectory("");
+    bean.afterPropertiesSet();
+    final OffHeapBinaryDataStoreFactory factory = (OffHeapBinaryDataStoreFactory) bean.getObject();
+    assertEquals(factory.getSegmentSize(), 1024);
+    assertNull(factory.getMappedFileDirectory());
+  }
+
+}
@@ -6,6 +6,7 @@
 package com.opengamma.engine.calcnode;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
@@ -23,6 +24,7 @@ import com.opengamma.engine.cache.AbstractIdentifierMap;
 import com.opengamma.engine.cache.CacheSelectHint;
 import com.opengamma.engine.cache.IdentifierMap;
 import com.opengamma.engine.cache.InMemoryIdentifierMap;
+import com.opengamma.engine.cache.InterningIdentifierMap;
 import com.opengamma.engine.function.EmptyFunctionParameters;
 import com.opengamma.engine.target.ComputationTargetType;
 import com.opengamma.engine.value.ValueProperties;
@@ -94,6 +96,32 @@ public class CalculationJobTest extends AbstractFudgeBuilderTestCase {
     assertEquals(outputSpec, outputItem.getOutputs()[0]);
   }
 
+  public void fudgeEncodingInterningIdentifierMap() {
+    final InterningIdentifierMap identifierMap = new InterningIdentifierMap();
+    final CalculationJobSpecification spec = new CalculationJobSpecification(UniqueId.of("Test", "ViewCycle"), "config", Instant.now(), 1L);
+    final ComputationTargetSpecification targetSpec = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Scheme", "Value"));
+    final ValueSpecification outputSpec = ValueSpecification.of("Foo", ComputationTargetType.PRIMITIVE, UniqueId.of("Scheme", "Value2"),
+        ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get());
+    final ValueSpecification inputSpec = ValueSpecification.of("Foo", ComputationTargetType.PRIMITIVE, UniqueId.of("Scheme", "Value3"),
+        ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get());
+    final List<CalculationJobItem> items = Arrays.asList(
+        new CalculationJobItem("1", new EmptyFunctionParameters(), targetSpec, Sets.newHashSet(inputSpec), Sets.newHashSet(outputSpec), ExecutionLogMode.INDICATORS),
+        new CalculationJobItem("2", new EmptyFunctionParameters(), targetSpec, Sets.newHashSet(outputSpec), Collections.<ValueSpecification>emptySet(), ExecutionLogMode.INDICATORS));
+    final CalculationJob inputJob = new CalculationJob(spec, 1L, VersionCorrection.LATEST, null, items, CacheSelectHint.privateValues(Collections.singleton(outputSpec)));
+    inputJob.convertValueSpecifications(identifierMap);
+    assertEquals(2, identifierMap.size());
+    final CalculationJob outputJob = cycleObject(CalculationJob.class, inputJob);
+    assertNotNull(outputJob);
+    AbstractIdentifierMap.resolveIdentifiers(identifierMap, outputJob);
+    assertEquals(2, outputJob.getJobItems().size());
+    assertEquals(inputSpec, outputJob.getJobItems().get(0).getInputs()[0]);
+    assertEquals(outputSpec, outputJob.getJobItems().get(0).getOutputs()[0]);
+    assertEquals(outputSpec, outputJob.getJobItems().get(1).getInputs()[0]);
+    assertEquals(0, outputJob.getJobItems().get(1).getOutputs().length);
+    assertTrue(outputJob.getCacheSelectHint().isPrivateValue(outputSpec));
+    assertFalse(outputJob.getCacheSelectHint().isPrivateValue(inputSpec));
+  }
+
   public void fudgeEncodingComputationTarget() {
     final CalculationJobSpecification jobSpec = new CalculationJobSpecification(UniqueId.of("Test", "ViewCycle"), "config", Instant.now(), 1L);
     final ComputationTargetSpecification target1 = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Scheme", "1"));
@@ -11,6 +11,7 @@ import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
 import java.util.Set;
 
 import org.testng.annotations.Test;
@@ -18,6 +19,7 @@ import org.testng.annotations.Test;
 import com.google.common.collect.Iterables;
 import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.CacheSelectHint;
 import com.opengamma.engine.cache.ViewComputationCache;
 import com.opengamma.engine.function.FunctionExecutionContext;
 import com.opengamma.engine.function.FunctionInputs;
@@ -31,12 +33,15 @@ import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.ExecutionLog;
 import com.opengamma.engine.view.ExecutionLogMode;
+import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.async.AsynchronousExecution;
 import com.opengamma.util.log.LogBridge;
 import com.opengamma.util.log.LogEvent;
 import com.opengamma.util.log.LogLevel;
 import com.opengamma.util.log.SimpleLogEvent;
 import com.opengamma.util.log.ThreadLocalLogEventListener;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.metric.OpenGammaMetricRegistry;
 import com.opengamma.util.test.TestGroup;
 import com.opengamma.util.test.TestLifecycle;
 
@@ -98,6 +103,105 @@ public class CalculationNodeTest {
     }
   }
 
+  public void mockFunctionInvocationPrefetchedInputs() throws Exception {
+    TestLifecycle.begin();
+    try {
+      final MockFunction mockFunction = CalculationNodeUtils.getMockFunction();
+      final TestCalculationNode calcNode = CalculationNodeUtils.getTestCalcNode(mockFunction);
+      calcNode.setUsePrefetchInputs(true);
+      TestLifecycle.register(calcNode);
+      final CalculationJob singleJob = CalculationNodeUtils.getCalculationJob(mockFunction);
+      final CalculationJobItem jobItem = singleJob.getJobItems().get(0);
+      final CalculationJob calcJob = new CalculationJob(singleJob.getSpecification(), 0L, singleJob.getResolverVersionCorrection(), null, Arrays.asList(jobItem, jobItem),
+          CacheSelectHint.allShared());
+      final ValueSpecification inputSpec = CalculationNodeUtils.getMockFunctionInputs(mockFunction).iterator().next();
+      final ViewComputationCache cache = calcNode.getCache(calcJob.getSpecification());
+      cache.putSharedValue(new ComputedValue(inputSpec, "Just an input object"));
+      final long hitsMarked = OpenGammaMetricRegistry.getDetailedInstance().meter("SimpleCalculationNode.prefetchHit").getCount();
+
+      final CalculationJobResult jobResult = calcNode.executeJob(calcJob);
+      assertEquals(2, jobResult.getResultItems().size());
+      for (final CalculationJobResultItem resultItem : jobResult.getResultItems()) {
+        assertEquals(InvocationResult.SUCCESS, resultItem.getResult());
+      }
+      // The input was fetched once for the job and then served to both items
+      assertEquals(2, calcNode.getPrefetchHitCount());
+      assertEquals(0, calcNode.getPrefetchMissCount());
+      // The process-wide meter includes these hits, and any from nodes in other tests
+      assertTrue(OpenGammaMetricRegistry.getDetailedInstance().meter("SimpleCalculationNode.prefetchHit").getCount() >= hitsMarked + 2);
+    } finally {
+      TestLifecycle.end();
+    }
+  }
+
+  public void mockFunctionInvocationMemoized() throws Exception {
+    TestLifecycle.begin();
+    try {
+      final MockFunction mockFunction = CalculationNodeUtils.getMockFunction();
+      final TestCalculationNode calcNode = CalculationNodeUtils.getTestCalcNode(mockFunction);
+      final MemoizedFunctionResults memoizedResults = new MemoizedFunctionResults(OpenGammaFudgeContext.getInstance());
+      calcNode.setMemoizedResults(memoizedResults);
+      TestLifecycle.register(calcNode);
+      final CalculationJob calcJob = CalculationNodeUtils.getCalculationJob(mockFunction);
+      final ValueSpecification inputSpec = CalculationNodeUtils.getMockFunctionInputs(mockFunction).iterator().next();
+      final ViewComputationCache cache = calcNode.getCache(calcJob.getSpecification());
+      cache.putSharedValue(new ComputedValue(inputSpec, "Just an input object"));
+
+      assertEquals(InvocationResult.SUCCESS, calcNode.executeJob(calcJob).getResultItems().get(0).getResult());
+      assertEquals(0, memoizedResults.getHitCount());
+      assertEquals(1, memoizedResults.getMissCount());
+      // Same input value - result is reused
+      assertEquals(InvocationResult.SUCCESS, calcNode.executeJob(calcJob).getResultItems().get(0).getResult());
+      assertEquals(1, memoizedResults.getHitCount());
+      assertEquals("Nothing we care about", cache.getValue(mockFunction.getResultSpec()));
+      // Changed input value - function is invoked
+      cache.putSharedValue(new ComputedValue(inputSpec, "A different input object"));
+      assertEquals(InvocationResult.SUCCESS, calcNode.executeJob(calcJob).getResultItems().get(0).getResult());
+      assertEquals(1, memoizedResults.getHitCount());
+      assertEquals(2, memoizedResults.getMissCount());
+      // Same input value at a different valuation time - function is invoked
+      final CalculationJobSpecification spec = calcJob.getSpecification();
+      final CalculationJob laterJob = new CalculationJob(new CalculationJobSpecification(spec.getViewCycleId(), spec.getCalcConfigName(), spec.getValuationTime().plusSeconds(1),
+          spec.getJobId()), calcJob.getFunctionInitializationIdentifier(), calcJob.getResolverVersionCorrection(), null, calcJob.getJobItems(), calcJob.getCacheSelectHint());
+      assertEquals(InvocationResult.SUCCESS, calcNode.executeJob(laterJob).getResultItems().get(0).getResult());
+      assertEquals(1, memoizedResults.getHitCount());
+      assertEquals(3, memoizedResults.getMissCount());
+    } finally {
+      TestLifecycle.end();
+    }
+  }
+
+  public void mockFunctionInvocationMemoizedVersionCorrection() throws Exception {
+    TestLifecycle.begin();
+    try {
+      final MockFunction mockFunction = CalculationNodeUtils.getMockFunction();
+      final TestCalculationNode calcNode = CalculationNodeUtils.getTestCalcNode(mockFunction);
+      final MemoizedFunctionResults memoizedResults = new MemoizedFunctionResults(OpenGammaFudgeContext.getInstance());
+      calcNode.setMemoizedResults(memoizedResults);
+      TestLifecycle.register(calcNode);
+      final CalculationJob calcJob = CalculationNodeUtils.getCalculationJob(mockFunction);
+      final ValueSpecification inputSpec = CalculationNodeUtils.getMockFunctionInputs(mockFunction).iterator().next();
+      final ViewComputationCache cache = calcNode.getCache(calcJob.getSpecification());
+      cache.putSharedValue(new ComputedValue(inputSpec, "Just an input object"));
+      assertEquals(InvocationResult.SUCCESS, calcNode.executeJob(calcJob).getResultItems().get(0).getResult());
+      assertEquals(0, memoizedResults.getHitCount());
+      assertEquals(1, memoizedResults.getMissCount());
+      // Same job and input value resolved at a different version/correction - function is invoked
+      final VersionCorrection versionCorrection = VersionCorrection.ofVersionAsOf(calcJob.getSpecification().getValuationTime());
+      final CalculationJob correctedJob = new CalculationJob(calcJob.getSpecification(), calcJob.getFunctionInitializationIdentifier(), versionCorrection, null,
+          calcJob.getJobItems(), calcJob.getCacheSelectHint());
+      assertEquals(InvocationResult.SUCCESS, calcNode.executeJob(correctedJob).getResultItems().get(0).getResult());
+      assertEquals(0, memoizedResults.getHitCount());
+      assertEquals(2, memoizedResults.getMissCount());
+      // The same version/correction again - result is reused
+      assertEquals(InvocationResult.SUCCESS, calcNode.executeJob(correctedJob).getResultItems().get(0).getResult());
+      assertEquals(1, memoizedResults.getHitCount());
+      assertEquals(2, memoizedResults.getMissCount());
+    } finally {
+      TestLifecycle.end();
+    }
+  }
+
   //-------------------------------------------------------------------------
   public void testLogIndicators() throws Exception {
     TestLifecycle.begin();
@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.calcnode;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.CacheSelectHint;
+import com.opengamma.engine.cache.ViewComputationCache;
+import com.opengamma.engine.calcnode.stats.CalculationNodeStatisticsGatherer;
+import com.opengamma.engine.calcnode.stats.DiscardingInvocationStatisticsGatherer;
+import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.test.TestCalculationNode;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ExecutionLogMode;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.log.ThreadLocalLogEventListener;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.test.TestLifecycle;
+import com.opengamma.util.test.Timeout;
+
+/**
+ * Tests the {@link ForkJoinLocalNodeJobInvoker} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ForkJoinLocalNodeJobInvokerTest {
+
+  private static final long TIMEOUT = Timeout.standardTimeoutMillis();
+
+  private static final ComputationTargetSpecification TARGET = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Scheme", "Target"));
+
+  private static ValueSpecification value(final String name) {
+    return ValueSpecification.of(name, ComputationTargetType.PRIMITIVE, UniqueId.of("Scheme", name), ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+  }
+
+  private static CalculationJobItem item(final ValueSpecification[] inputs, final ValueSpecification... outputs) {
+    return new CalculationJobItem("Test", new EmptyFunctionParameters(), TARGET, Arrays.asList(inputs), Arrays.asList(outputs), ExecutionLogMode.INDICATORS);
+  }
+
+  private static ValueSpecification[] inputs(final ValueSpecification... inputs) {
+    return inputs;
+  }
+
+  public void testPartitionIndependentItems() {
+    final List<CalculationJobItem> items = Arrays.asList(item(inputs(), value("A")), item(inputs(), value("B")), item(inputs(), value("C")), item(inputs(), value("D")));
+    final List<int[]> parts = ForkJoinLocalNodeJobInvoker.partition(items, 2);
+    assertEquals(2, parts.size());
+    assertEquals(2, parts.get(0).length);
+    assertEquals(2, parts.get(1).length);
+  }
+
+  public void testPartitionDependentItems() {
+    final ValueSpecification a = value("A");
+    final ValueSpecification b = value("B");
+    final ValueSpecification c = value("C");
+    final ValueSpecification d = value("D");
+    // 0 -> 1 -> 3 and 2 -> 4 form two components; item 5 is independent
+    final List<CalculationJobItem> items = Arrays.asList(item(inputs(), a), item(inputs(a), b), item(inputs(), c), item(inputs(b), d), item(inputs(c), value("E")), item(inputs(), value("F")));
+    final List<int[]> parts = ForkJoinLocalNodeJobInvoker.partition(items, 8);
+    assertEquals(3, parts.size());
+    assertTrue(Arrays.equals(new int[] {0, 1, 3 }, parts.get(0)));
+    assertTrue(Arrays.equals(new int[] {2, 4 }, parts.get(1)));
+    assertTrue(Arrays.equals(new int[] {5 }, parts.get(2)));
+  }
+
+  public void testPartitionSingleComponent() {
+    final ValueSpecification a = value("A");
+    final ValueSpecification b = value("B");
+    final List<CalculationJobItem> items = Arrays.asList(item(inputs(), a), item(inputs(a), b), item(inputs(a, b), value("C")));
+    final List<int[]> parts = ForkJoinLocalNodeJobInvoker.partition(items, 4);
+    assertEquals(1, parts.size());
+    assertTrue(Arrays.equals(new int[] {0, 1, 2 }, parts.get(0)));
+  }
+
+  public void testPartitionPreservesOrder() {
+    final ValueSpecification a = value("A");
+    final List<CalculationJobItem> items = Arrays.asList(item(inputs(), a), item(inputs(), value("B")), item(inputs(), value("C")), item(inputs(a), value("D")));
+    for (int[] part : ForkJoinLocalNodeJobInvoker.partition(items, 2)) {
+      for (int i = 1; i < part.length; i++) {
+        assertTrue(part[i - 1] < part[i]);
+      }
+    }
+  }
+
+  public void testInvokeWithOneNode() {
+    TestLifecycle.begin();
+    try {
+      final TestCalculationNode node = new TestCalculationNode();
+      TestLifecycle.register(node);
+      final ForkJoinLocalNodeJobInvoker invoker = new ForkJoinLocalNodeJobInvoker(node);
+      TestLifecycle.register(invoker);
+      final TestJobInvocationReceiver receiver = new TestJobInvocationReceiver();
+      final CalculationJob job = JobDispatcherTest.createTestJob();
+      assertTrue(invoker.invoke(job, receiver));
+      final CalculationJobResult jobResult = receiver.waitForCompletionResult(TIMEOUT);
+      assertNotNull(jobResult);
+      assertEquals(job.getSpecification(), jobResult.getSpecification());
+    } finally {
+      TestLifecycle.end();
+    }
+  }
+
+  /**
+   * Function that records the execution context it was invoked with, so that the node each item ran on can be identified, and takes long enough that forked parts overlap.
+   */
+  private static final class RecordingFunction extends MockFunction {
+
+    private final Set<FunctionExecutionContext> _contexts;
+
+    public RecordingFunction(final String uniqueId, final ComputationTarget target, final Set<FunctionExecutionContext> contexts) {
+      super(uniqueId, target);
+      _contexts = contexts;
+    }
+
+    @Override
+    public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target, final Set<ValueRequirement> desiredValues) {
+      _contexts.add(executionContext);
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return super.execute(executionContext, inputs, target, desiredValues);
+    }
+
+  }
+
+  private static RecordingFunction recordingFunction(final String name, final ComputationTarget target, final Set<FunctionExecutionContext> contexts) {
+    final RecordingFunction function = new RecordingFunction(name, target, contexts);
+    function.addResult(new ValueSpecification(name, target.toSpecification(), ValueProperties.with(ValuePropertyNames.FUNCTION, name).get()), name + " value");
+    return function;
+  }
+
+  public void testForkAcrossNodes() throws Exception {
+    TestLifecycle.begin();
+    try {
+      final ComputationTarget target = new ComputationTarget(ComputationTargetType.CURRENCY, Currency.USD);
+      final Set<FunctionExecutionContext> contexts = Collections.newSetFromMap(new ConcurrentHashMap<FunctionExecutionContext, Boolean>());
+      final RecordingFunction fnA = recordingFunction("A", target, contexts);
+      final RecordingFunction fnB = recordingFunction("B", target, contexts);
+      final RecordingFunction fnC = recordingFunction("C", target, contexts);
+      final RecordingFunction fnD = recordingFunction("D", target, contexts);
+      final TestCalculationNode node1 = new TestCalculationNode();
+      final InMemoryFunctionRepository functions = (InMemoryFunctionRepository) node1.getFunctionCompilationService().getFunctionRepositoryFactory().constructRepository(Instant.now());
+      functions.addFunction(fnA);
+      functions.addFunction(fnB);
+      functions.addFunction(fnC);
+      functions.addFunction(fnD);
+      node1.getFunctionCompilationService().initialize();
+      TestLifecycle.register(node1);
+      // The second node shares the cache and functions of the first, as the nodes of a local invoker do
+      final SimpleCalculationNode node2 = new SimpleCalculationNode(node1.getCacheSource(), node1.getFunctionCompilationService(), new FunctionExecutionContext(), "node2",
+          Executors.newCachedThreadPool(), new DiscardingInvocationStatisticsGatherer(), new CalculationNodeLogEventListener(new ThreadLocalLogEventListener()));
+      final ForkJoinLocalNodeJobInvoker invoker = new ForkJoinLocalNodeJobInvoker(Arrays.<SimpleCalculationNode>asList(node1, node2));
+      final JobDispatcher dispatcher = new JobDispatcher(invoker);
+      final AtomicLong executionNanos = new AtomicLong();
+      final CountDownLatch statistics = new CountDownLatch(1);
+      dispatcher.setStatisticsGatherer(new CalculationNodeStatisticsGatherer() {
+
+        @Override
+        public void jobCompleted(final String nodeId, final int jobItems, final long executionTime, final long duration) {
+          executionNanos.set(executionTime);
+          statistics.countDown();
+        }
+
+        @Override
+        public void jobFailed(final String nodeId, final long duration) {
+        }
+
+      });
+      final ValueSpecification input1 = value("Input1");
+      final ValueSpecification input2 = value("Input2");
+      final ValueSpecification missing = value("Missing");
+      final ValueSpecification a = fnA.getResultSpec();
+      final ValueSpecification b = fnB.getResultSpec();
+      final ValueSpecification c = fnC.getResultSpec();
+      // B consumes the output of A and D the output of C, giving two parts that can run on different nodes. D is also missing an input so that its result can be told apart
+      final List<CalculationJobItem> items = Arrays.asList(
+          new CalculationJobItem("A", new EmptyFunctionParameters(), target.toSpecification(), Collections.singleton(input1), Collections.singleton(a), ExecutionLogMode.INDICATORS),
+          new CalculationJobItem("C", new EmptyFunctionParameters(), target.toSpecification(), Collections.singleton(input2), Collections.singleton(c), ExecutionLogMode.INDICATORS),
+          new CalculationJobItem("B", new EmptyFunctionParameters(), target.toSpecification(), Collections.singleton(a), Collections.singleton(b), ExecutionLogMode.INDICATORS),
+          new CalculationJobItem("D", new EmptyFunctionParameters(), target.toSpecification(), Arrays.asList(c, missing), Collections.singleton(fnD.getResultSpec()), ExecutionLogMode.INDICATORS));
+      final CalculationJob job = new CalculationJob(JobDispatcherTest.createTestJobSpec(), 0L, VersionCorrection.LATEST, null, items, CacheSelectHint.allShared());
+      final ViewComputationCache cache = node1.getCacheSource().getCache(job.getSpecification().getViewCycleId(), job.getSpecification().getCalcConfigName());
+      cache.putSharedValue(new ComputedValue(input1, "Input 1"));
+      cache.putSharedValue(new ComputedValue(input2, "Input 2"));
+      try {
+        final TestJobResultReceiver receiver = new TestJobResultReceiver();
+        dispatcher.dispatchJob(job, receiver);
+        final CalculationJobResult result = receiver.waitForResult(TIMEOUT);
+        assertNotNull(result);
+        assertEquals(job.getSpecification(), result.getSpecification());
+        // Both nodes were used
+        assertEquals(2, contexts.size());
+        // The result items are in the order of the original job items, and B found the output of A
+        assertEquals(4, result.getResultItems().size());
+        assertEquals(InvocationResult.SUCCESS, result.getResultItems().get(0).getResult());
+        assertEquals(InvocationResult.SUCCESS, result.getResultItems().get(1).getResult());
+        assertEquals(InvocationResult.SUCCESS, result.getResultItems().get(2).getResult());
+        assertEquals(InvocationResult.MISSING_INPUTS, result.getResultItems().get(3).getResult());
+        assertEquals(Collections.singleton(missing), result.getResultItems().get(3).getMissingInputs());
+        assertEquals("B value", cache.getValue(b));
+        assertEquals("C value", cache.getValue(c));
+        // The statistics report the summed execution time of the parts, each item taking at least 50ms
+        assertTrue(statistics.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue(executionNanos.get() >= TimeUnit.MILLISECONDS.toNanos(150));
+      } finally {
+        node2.getExecutorService().shutdown();
+      }
+    } finally {
+      TestLifecycle.end();
+    }
+  }
+
+  public void testForkable() {
+    final ForkJoinLocalNodeJobInvoker invoker = new ForkJoinLocalNodeJobInvoker(Collections.<SimpleCalculationNode>emptyList());
+    final List<CalculationJobItem> items = Arrays.asList(item(inputs(), value("A")), item(inputs(), value("B")));
+    assertTrue(invoker.isForkable(new CalculationJob(JobDispatcherTest.createTestJobSpec(), 0L, VersionCorrection.LATEST, null, items, CacheSelectHint.allPrivate())));
+    // A job that waits for another must not be split into parts that would not wait
+    assertFalse(invoker.isForkable(new CalculationJob(JobDispatcherTest.createTestJobSpec(), 0L, VersionCorrection.LATEST, new long[] {1L }, items, CacheSelectHint.allPrivate())));
+    assertFalse(invoker.isForkable(new CalculationJob(JobDispatcherTest.createTestJobSpec(), 0L, VersionCorrection.LATEST, null, items.subList(0, 1), CacheSelectHint.allPrivate())));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testMinimumForkItems() {
+    new ForkJoinLocalNodeJobInvoker(Collections.<SimpleCalculationNode>emptyList()).setMinimumForkItems(1);
+  }
+
+}
@@ -6,11 +6,17 @@
 package com.opengamma.engine.calcnode;
 
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsgEnvelope;
@@ -119,4 +125,56 @@ public class RemoteNodeJobInvokerTest {
     }
   }
 
+  public void pipelinedInvocation() throws InterruptedException {
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      final JobDispatcher jobDispatcher = new JobDispatcher();
+      final Ready initialMessage = new Ready(1, "Test");
+      final DirectFudgeConnection conduit = new DirectFudgeConnection(s_fudgeContext);
+      final RemoteNodeJobInvoker jobInvoker = new RemoteNodeJobInvoker(executor, initialMessage, conduit.getEnd1(), new InMemoryIdentifierMap(), new FunctionCosts(),
+          new DummyFunctionBlacklistQuery(), new DummyFunctionBlacklistMaintainer());
+      jobInvoker.setPipelineDepth(2);
+      jobDispatcher.registerJobInvoker(jobInvoker);
+      final FudgeConnection remoteNode = conduit.getEnd2();
+      final BlockingQueue<Execute> received = new LinkedBlockingQueue<Execute>();
+      remoteNode.setFudgeMessageReceiver(new FudgeMessageReceiver() {
+        @Override
+        public void messageReceived(FudgeContext fudgeContext, FudgeMsgEnvelope msgEnvelope) {
+          final FudgeDeserializer dcontext = new FudgeDeserializer(fudgeContext);
+          final RemoteCalcNodeMessage message = dcontext.fudgeMsgToObject(RemoteCalcNodeMessage.class, msgEnvelope.getMessage());
+          assertTrue(message instanceof Execute);
+          received.add((Execute) message);
+        }
+      });
+      final TestJobResultReceiver[] resultReceivers = new TestJobResultReceiver[4];
+      for (int i = 0; i < resultReceivers.length; i++) {
+        resultReceivers[i] = new TestJobResultReceiver();
+        jobDispatcher.dispatchJob(JobDispatcherTest.createTestJob(), resultReceivers[i]);
+      }
+      // The node has capacity for one job, but three are sent before any results come back
+      final List<Execute> jobs = new ArrayList<Execute>();
+      for (int i = 0; i < 3; i++) {
+        final Execute job = received.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        assertNotNull(job);
+        jobs.add(job);
+      }
+      assertNull(received.poll(TIMEOUT / 10, TimeUnit.MILLISECONDS));
+      // Completing one frees a slot for the fourth
+      final FudgeSerializer scontext = new FudgeSerializer(s_fudgeContext);
+      for (Execute job : jobs) {
+        final Result result = new Result(JobDispatcherTest.createTestJobResult(job.getJob().getSpecification(), 0, "Test"));
+        remoteNode.getFudgeMessageSender().send(FudgeSerializer.addClassHeader(scontext.objectToFudgeMsg(result), result.getClass(), RemoteCalcNodeMessage.class));
+      }
+      final Execute job = received.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+      assertNotNull(job);
+      final Result result = new Result(JobDispatcherTest.createTestJobResult(job.getJob().getSpecification(), 0, "Test"));
+      remoteNode.getFudgeMessageSender().send(FudgeSerializer.addClassHeader(scontext.objectToFudgeMsg(result), result.getClass(), RemoteCalcNodeMessage.class));
+      for (int i = 0; i < resultReceivers.length; i++) {
+        assertNotNull(resultReceivers[i].waitForResult(TIMEOUT));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
 }
@@ -0,0 +1,230 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.MapComputationTargetResolver;
+import com.opengamma.engine.function.AbstractFunction;
+import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.resolver.CompiledFunctionResolver;
+import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
+import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.test.TestLifecycle;
+
+/**
+ * Compares the resolution rate, allocation rate and thread scaling of the {@link RunQueueFactory} implementations when building synthetic graphs.
+ * <p>
+ * Each target has a chain of {@link #DEPTH} values, each produced by a function requiring the next value in the chain, so a graph for {@code n} targets has {@code n * DEPTH} nodes. The graph sizes
+ * can be overridden with a comma separated list of node counts in the {@code DependencyGraphBuildPerformanceTest.nodes} system property.
+ */
+@Test(groups = TestGroup.INTEGRATION, singleThreaded = true)
+public class DependencyGraphBuildPerformanceTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(DependencyGraphBuildPerformanceTest.class);
+
+  private static final int DEPTH = 10;
+  private static final int NUM_CYCLES = 3;
+  private static final int[] THREADS = new int[] {0, 1, 2, 4, 8 };
+  private static final String VALUE_NAME = "Value";
+
+  private CompiledFunctionResolver _functionResolver;
+  private FunctionCompilationContext _context;
+  private Instant _now;
+
+  /**
+   * Produces one level of the value chain on any primitive target.
+   */
+  private static final class ChainFunction extends AbstractFunction.NonCompiledInvoker {
+
+    private final int _level;
+
+    public ChainFunction(final int level) {
+      _level = level;
+      setUniqueId("Chain" + level);
+    }
+
+    @Override
+    public ComputationTargetType getTargetType() {
+      return ComputationTargetType.PRIMITIVE;
+    }
+
+    @Override
+    public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+      return Collections.singleton(new ValueSpecification(VALUE_NAME + _level, target.toSpecification(), createValueProperties().get()));
+    }
+
+    @Override
+    public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+      if (_level == DEPTH - 1) {
+        return Collections.emptySet();
+      }
+      return Collections.singleton(new ValueRequirement(VALUE_NAME + (_level + 1), target.toSpecification()));
+    }
+
+    @Override
+    public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target, final Set<ValueRequirement> desiredValues) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  @BeforeMethod
+  public void init() {
+    TestLifecycle.begin();
+    _now = Instant.now();
+    final InMemoryFunctionRepository functions = new InMemoryFunctionRepository();
+    for (int i = 0; i < DEPTH; i++) {
+      functions.addFunction(new ChainFunction(i));
+    }
+    _context = new FunctionCompilationContext();
+    final ComputationTargetResolver targetResolver = new MapComputationTargetResolver();
+    _context.setRawComputationTargetResolver(targetResolver);
+    _context.setComputationTargetResolver(targetResolver.atVersionCorrection(VersionCorrection.of(_now, _now)));
+    final CompiledFunctionService compilationService = new CompiledFunctionService(functions, new CachingFunctionRepositoryCompiler(), _context);
+    TestLifecycle.register(compilationService);
+    compilationService.initialize();
+    _functionResolver = new DefaultFunctionResolver(compilationService).compile(_now);
+  }
+
+  @AfterMethod
+  public void done() {
+    TestLifecycle.end();
+  }
+
+  private static int[] getNodeCounts() {
+    final String nodes = System.getProperty("DependencyGraphBuildPerformanceTest.nodes", "10000,100000");
+    final String[] split = nodes.split(",");
+    final int[] counts = new int[split.length];
+    for (int i = 0; i < split.length; i++) {
+      counts[i] = Integer.parseInt(split[i].trim());
+    }
+    return counts;
+  }
+
+  private static Map<String, RunQueueFactory> getRunQueueFactories() {
+    final Map<String, RunQueueFactory> factories = new LinkedHashMap<String, RunQueueFactory>();
+    factories.put("FifoLinkedList", RunQueueFactory.getFifoLinkedList());
+    factories.put("LifoLinkedList", RunQueueFactory.getLifoLinkedList());
+    factories.put("ConcurrentLinkedQueue", RunQueueFactory.getConcurrentLinkedQueue());
+    factories.put("ConcurrentStack", RunQueueFactory.getConcurrentStack());
+    factories.put("Ordered", RunQueueFactory.getOrdered());
+    factories.put("WorkStealing", RunQueueFactory.getWorkStealing());
+    return factories;
+  }
+
+  /**
+   * Returns the number of bytes allocated by all live threads, or -1 if the JVM cannot measure it.
+   */
+  private static long allocatedBytes() {
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    final com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+    if (!sunThreads.isThreadAllocatedMemorySupported() || !sunThreads.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    long total = 0;
+    for (long allocated : sunThreads.getThreadAllocatedBytes(sunThreads.getAllThreadIds())) {
+      if (allocated > 0) {
+        total += allocated;
+      }
+    }
+    return total;
+  }
+
+  private Collection<ValueRequirement> createRequirements(final int targets) {
+    final List<ValueRequirement> requirements = new ArrayList<ValueRequirement>(targets);
+    for (int i = 0; i < targets; i++) {
+      requirements.add(new ValueRequirement(VALUE_NAME + "0", new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Target", Integer.toString(i)))));
+    }
+    return requirements;
+  }
+
+  private DependencyGraphBuilder createBuilder(final RunQueueFactory runQueue, final int threads) {
+    final DependencyGraphBuilder builder = new DependencyGraphBuilder(DependencyGraphBuilderFactory.getDefaultExecutor(), runQueue);
+    builder.setMarketDataAvailabilityProvider(new FixedMarketDataAvailabilityProvider());
+    builder.setCompilationContext(_context);
+    builder.setFunctionResolver(_functionResolver);
+    builder.setCalculationConfigurationName("Default");
+    builder.setDisableFailureReporting(true);
+    builder.setMaxAdditionalThreads(threads);
+    return builder;
+  }
+
+  private void benchmark(final String name, final RunQueueFactory runQueue, final int nodes) {
+    final int targets = nodes / DEPTH;
+    final Collection<ValueRequirement> requirements = createRequirements(targets);
+    for (int threads : THREADS) {
+      double nodesPerSecond = 0;
+      double stepsPerSecond = 0;
+      double bytesPerSecond = 0;
+      for (int cycle = 0; cycle < NUM_CYCLES; cycle++) {
+        final DependencyGraphBuilder builder = createBuilder(runQueue, threads);
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        builder.addTarget(requirements);
+        final DependencyGraph graph = builder.getDependencyGraph();
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        final long allocatedAfter = allocatedBytes();
+        assertEquals(targets * DEPTH, graph.getSize());
+        // Ignore the first cycle as a warm-up
+        if (cycle > 0) {
+          nodesPerSecond += graph.getSize() / seconds;
+          stepsPerSecond += builder.getCompletedSteps() / seconds;
+          if ((allocatedBefore >= 0) && (allocatedAfter >= 0)) {
+            bytesPerSecond += (allocatedAfter - allocatedBefore) / seconds;
+          }
+        }
+      }
+      final int measured = NUM_CYCLES - 1;
+      s_logger.info("{}, {} nodes, {} additional threads: {} nodes/sec, {} steps/sec, {} MB/sec allocated", new Object[] {name, nodes, threads, nodesPerSecond / measured,
+          stepsPerSecond / measured, bytesPerSecond / measured / (1024 * 1024) });
+    }
+  }
+
+  public void runQueues() {
+    for (int nodes : getNodeCounts()) {
+      for (Map.Entry<String, RunQueueFactory> factory : getRunQueueFactories().entrySet()) {
+        benchmark(factory.getKey(), factory.getValue(), nodes);
+      }
+    }
+  }
+
+}
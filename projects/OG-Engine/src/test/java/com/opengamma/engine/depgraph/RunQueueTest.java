@@ -11,7 +11,9 @@ import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -188,4 +190,48 @@ public class RunQueueTest {
     testLIFO(RunQueueFactory.getOrdered());
   }
 
+  public void testWorkStealingRunQueue() {
+    testSpeed(RunQueueFactory.getWorkStealing());
+    testLIFO(RunQueueFactory.getWorkStealing());
+  }
+
+  public void testWorkStealingRunQueueSteal() throws InterruptedException, ExecutionException {
+    final WorkStealingRunQueue queue = (WorkStealingRunQueue) RunQueueFactory.getWorkStealing().createRunQueue();
+    final ContextRunnable r1 = runnable();
+    final ContextRunnable r2 = runnable();
+    final ContextRunnable r3 = runnable();
+    _executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        queue.add(r1);
+        queue.add(r2);
+      }
+    }).get();
+    queue.add(r3);
+    assertEquals(queue.getDequeCount(), 2);
+    assertEquals(queue.size(), 3);
+    // Own work first, then the oldest work from the other thread
+    assertSame(queue.take(), r3);
+    assertSame(queue.take(), r1);
+    assertSame(queue.take(), r2);
+    assertTrue(queue.isEmpty());
+    assertEquals(queue.take(), null);
+  }
+
+  public void testWorkStealingRunQueueTakeOnly() throws InterruptedException, ExecutionException {
+    final WorkStealingRunQueue queue = (WorkStealingRunQueue) RunQueueFactory.getWorkStealing().createRunQueue();
+    final ContextRunnable r1 = runnable();
+    queue.add(r1);
+    // A thread that only steals does not get a deque of its own
+    final ContextRunnable stolen = _executor.submit(new Callable<ContextRunnable>() {
+      @Override
+      public ContextRunnable call() {
+        return queue.take();
+      }
+    }).get();
+    assertSame(stolen, r1);
+    assertEquals(queue.getDequeCount(), 1);
+    assertTrue(queue.isEmpty());
+  }
+
 }
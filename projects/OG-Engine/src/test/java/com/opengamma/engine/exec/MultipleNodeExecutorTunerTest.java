@@ -99,4 +99,39 @@ public class MultipleNodeExecutorTunerTest {
     assertTrue(age.get() >= 300);
   }
 
+  public void testCostModelNodeCount() {
+    final MultipleNodeExecutorFactory factory = Mockito.mock(MultipleNodeExecutorFactory.class);
+    final MultipleNodeExecutorTuner tuner = new MultipleNodeExecutorTuner(factory);
+    final JobDispatcher dispatcher = Mockito.mock(JobDispatcher.class);
+    final Map<String, Collection<Capability>> capabilities = new HashMap<String, Collection<Capability>>();
+    capabilities.put("A", Arrays.asList(Capability.parameterInstanceOf(PlatformCapabilities.NODE_COUNT, 10d)));
+    capabilities.put("B", Arrays.asList(Capability.parameterInstanceOf(PlatformCapabilities.NODE_COUNT, 4d)));
+    Mockito.when(dispatcher.getAllCapabilities()).thenReturn(capabilities);
+    Mockito.when(factory.getMaximumConcurrency()).thenReturn(7);
+    Mockito.when(factory.getTargetJobCost()).thenReturn(1000L);
+    tuner.setJobDispatcher(dispatcher);
+    tuner.run();
+    Mockito.verify(factory, Mockito.times(1)).setNodeCount(14);
+    Mockito.verify(factory, Mockito.times(1)).invalidateCache();
+    Mockito.when(factory.getNodeCount()).thenReturn(14);
+    tuner.run();
+    Mockito.verify(factory, Mockito.times(1)).setNodeCount(14);
+    Mockito.verify(factory, Mockito.times(1)).invalidateCache();
+  }
+
+  public void testCostDrift() {
+    final MultipleNodeExecutorFactory factory = Mockito.mock(MultipleNodeExecutorFactory.class);
+    final MultipleNodeExecutorTuner tuner = new MultipleNodeExecutorTuner(factory);
+    tuner.run();
+    Mockito.verifyZeroInteractions(factory);
+    tuner.setCostDriftThreshold(0.25);
+    assertEquals(tuner.getCostDriftThreshold(), 0.25);
+    tuner.run();
+    Mockito.verify(factory, Mockito.times(1)).isCostModelStale(0.25);
+    Mockito.verify(factory, Mockito.never()).invalidateCache();
+    Mockito.when(factory.isCostModelStale(0.25)).thenReturn(true);
+    tuner.run();
+    Mockito.verify(factory, Mockito.times(1)).invalidateCache();
+  }
+
 }
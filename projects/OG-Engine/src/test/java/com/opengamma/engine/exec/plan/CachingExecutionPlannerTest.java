@@ -144,6 +144,17 @@ public class CachingExecutionPlannerTest {
     assertFalse(bk.equals(ak));
   }
 
+  public void testCacheKey_fullLogValues() {
+    final TestDependencyGraphBuilder graph = testGraphBuilder("Default");
+    final ValueSpecification value = graph.addNode("Foo", ComputationTargetSpecification.NULL).addTerminalOutput("Bar");
+    final CacheKey ak = new CacheKey(graph.buildGraph(), 0, Collections.<ValueSpecification>emptySet(), Collections.<ValueSpecification, FunctionParameters>emptyMap(),
+        Collections.singleton(value));
+    final CacheKey bk = new CacheKey(graph.buildGraph(), 0, Collections.<ValueSpecification>emptySet(), Collections.<ValueSpecification, FunctionParameters>emptyMap(),
+        Collections.<ValueSpecification>emptySet());
+    assertFalse(ak.equals(bk));
+    assertFalse(bk.equals(ak));
+  }
+
   public void testCacheKey_serialization() throws Exception {
     final CacheKey a = new CacheKey(testGraphBuilder("Default").buildGraph(), 0, Collections.<ValueSpecification>emptySet(), Collections.<ValueSpecification, FunctionParameters>emptyMap());
     final ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -179,6 +190,25 @@ public class CachingExecutionPlannerTest {
     }
   }
 
+  public void testCache_logMode() {
+    final CachingExecutionPlanner cache = new CachingExecutionPlanner(createExecutionPlanner(), _cacheManager);
+    try {
+      final DependencyGraph graph = testGraphBuilder("Default").buildGraph();
+      final ValueSpecification value = graph.getTerminalOutputs().keySet().iterator().next();
+      final ExecutionLogModeSource fullLogs = Mockito.mock(ExecutionLogModeSource.class);
+      Mockito.when(fullLogs.getElevatedValues("Default")).thenReturn(Collections.singleton(value));
+      final GraphExecutionPlan plan1 = cache.createPlan(graph, fullLogs, 0, Collections.<ValueSpecification>emptySet(), Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      // A cycle with full logs suppressed must not reuse the plan made with full logs
+      final GraphExecutionPlan plan2 = cache.createPlan(graph, new ExecutionLogModeSource(), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      assertNotSame(plan2, plan1);
+      final GraphExecutionPlan plan3 = cache.createPlan(graph, fullLogs, 0, Collections.<ValueSpecification>emptySet(), Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      assertSame(plan3, plan1);
+    } finally {
+      cache.shutdown();
+    }
+  }
+
   public void testCache_mismatch() {
     final CachingExecutionPlanner cache = new CachingExecutionPlanner(createExecutionPlanner(), _cacheManager);
     try {
@@ -21,6 +21,7 @@ import org.testng.annotations.Test;
 import com.google.common.collect.ImmutableSet;
 import com.opengamma.engine.cache.CacheSelectHint;
 import com.opengamma.engine.calcnode.CalculationJobItem;
+import com.opengamma.engine.calcnode.stats.FunctionCosts;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder;
 import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder.NodeBuilder;
@@ -532,4 +533,58 @@ public class MultipleNodeExecutionPlannerTest {
     assertEquals(gatherColours(plan), 3);
   }
 
+  public void testCostModelJobCostLimits() {
+    final MultipleNodeExecutionPlanner planner = new MultipleNodeExecutionPlanner();
+    planner.setTargetJobCost(1000);
+    planner.setNodeCount(10);
+    // Large graph; the target caps the job cost
+    assertEquals(planner.getCostModelMaximumJobCost(1000000), 1000);
+    // Small graph; spread over the nodes
+    assertEquals(planner.getCostModelMaximumJobCost(8000), 200);
+    // Tiny graph; bounded below by the minimum job cost
+    planner.setMinimumJobCost(50);
+    assertEquals(planner.getCostModelMaximumJobCost(400), 50);
+    // Bounded above by the maximum job cost
+    planner.setMaximumJobCost(100);
+    assertEquals(planner.getCostModelMaximumJobCost(1000000), 100);
+  }
+
+  public void testCostModelPlan() {
+    final MultipleNodeExecutionPlanner planner = createPlanner(1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    final FunctionCosts costs = new FunctionCosts();
+    planner.setFunctionCosts(costs);
+    planner.setTargetJobCost(Long.MAX_VALUE);
+    planner.setNodeCount(1);
+    final DependencyGraph graph = graphBuilder().buildGraph();
+    GraphExecutionPlan plan = plan(planner, graph, ImmutableSet.of(_testValuex2, _testValuex3));
+    final int singleNodeJobs = plan.getTotalJobs();
+    planner.setNodeCount(100);
+    plan = plan(planner, graph, ImmutableSet.of(_testValuex2, _testValuex3));
+    // Spreading over more nodes should not produce fewer jobs
+    assertTrue(plan.getTotalJobs() >= singleNodeJobs);
+    assertFalse(planner.isCostModelStale(0.25));
+    // Make the mock function much more expensive
+    costs.functionInvoked("Default", "Mock", 1, 1000000d, 1d, 1d);
+    assertTrue(planner.isCostModelStale(0.25));
+    // Drift has been reported; it is not reported again until the graph is re-planned
+    assertFalse(planner.isCostModelStale(0.25));
+    plan(planner, graph, ImmutableSet.of(_testValuex2, _testValuex3));
+    assertFalse(planner.isCostModelStale(0.25));
+  }
+
+  public void testCostModelPlanSameConfigurationName() {
+    final MultipleNodeExecutionPlanner planner = createPlanner(1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    final FunctionCosts costs = new FunctionCosts();
+    planner.setFunctionCosts(costs);
+    planner.setTargetJobCost(Long.MAX_VALUE);
+    final DependencyGraph graph1 = graphBuilder().buildGraph();
+    final DependencyGraph graph2 = graphBuilder().buildGraph();
+    plan(planner, graph1, ImmutableSet.of(_testValuex2, _testValuex3));
+    costs.functionInvoked("Default", "Mock", 1, 1000000d, 1d, 1d);
+    // Planning another graph with the same configuration name at the new costs must not hide the drift from the costs the first was planned with
+    plan(planner, graph2, ImmutableSet.of(_testValuex2, _testValuex3));
+    assertTrue(planner.isCostModelStale(0.25));
+    assertFalse(planner.isCostModelStale(0.25));
+  }
+
 }
@@ -5,8 +5,11 @@
  */
 package com.opengamma.engine.fudgemsg;
 
+import static org.testng.Assert.assertSame;
+
 import org.testng.annotations.Test;
 
+import com.opengamma.engine.MemoryUtils;
 import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.util.test.AbstractFudgeBuilderTestCase;
 import com.opengamma.util.test.TestGroup;
@@ -36,4 +39,11 @@ public class ValuePropertiesBuilderTest extends AbstractFudgeBuilderTestCase {
   public void testOptionalValues() {
     assertEncodeDecodeCycle(ValueProperties.class, ValueProperties.builder().withOptional("OptAny").withOptional("OptSome").with("OptSome", "a").get());
   }
+
+  public void testDecodesCanonicalInstance() {
+    final ValueProperties properties = MemoryUtils.instance(ValueProperties.builder().with("One", "a").with("Two", "b", "c").get());
+    assertSame(cycleObject(ValueProperties.class, properties), properties);
+    assertSame(cycleObject(ValueProperties.class, ValueProperties.builder().with("One", "a").with("Two", "b", "c").get()), properties);
+  }
+
 }
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.fudgemsg;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.AbstractFudgeBuilderTestCase;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Compares the heap retained by, and the cost of comparing, value specifications decoded from Fudge messages with and without reduction to canonical instances.
+ * <p>
+ * This is the pattern seen on a calculation node, where the same specifications are decoded for every job of every cycle.
+ */
+@Test(groups = TestGroup.INTEGRATION, singleThreaded = true)
+public class ValueSpecificationInterningPerformanceTest extends AbstractFudgeBuilderTestCase {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ValueSpecificationInterningPerformanceTest.class);
+
+  private static final int NUM_DISTINCT = 2000;
+  private static final int NUM_DECODES = 200000;
+
+  private static ValueSpecification createSpecification(final int i) {
+    return new ValueSpecification("Value" + (i % 10), new ComputationTargetSpecification(ComputationTargetType.POSITION, UniqueId.of("Test", Integer.toString(i))),
+        ValueProperties.with(ValuePropertyNames.FUNCTION, "Function" + (i % 10)).with(ValuePropertyNames.CURRENCY, "USD").with("Curve", "Discounting", "Forward").get());
+  }
+
+  /**
+   * Equivalent to decoding without reducing to canonical instances; every component is a new object.
+   */
+  private static ValueSpecification copy(final ValueSpecification spec) {
+    final ComputationTargetSpecification target = spec.getTargetSpecification();
+    return new ValueSpecification(spec.getValueName(), new ComputationTargetSpecification(target.getType(), target.getUniqueId()), spec.getProperties().copy().get());
+  }
+
+  private static long usedHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private long compare(final List<ValueSpecification> decoded, final Set<ValueSpecification> lookup) {
+    final long start = System.nanoTime();
+    int found = 0;
+    for (int pass = 0; pass < 10; pass++) {
+      for (ValueSpecification spec : decoded) {
+        if (lookup.contains(spec)) {
+          found++;
+        }
+      }
+    }
+    assertEquals(10 * decoded.size(), found);
+    return System.nanoTime() - start;
+  }
+
+  public void testInterning() {
+    final FudgeMsg[] messages = new FudgeMsg[NUM_DISTINCT];
+    final Set<ValueSpecification> lookup = new HashSet<ValueSpecification>();
+    for (int i = 0; i < NUM_DISTINCT; i++) {
+      final ValueSpecification spec = createSpecification(i);
+      messages[i] = getFudgeSerializer().objectToFudgeMsg(spec);
+      lookup.add(getFudgeDeserializer().fudgeMsgToObject(ValueSpecification.class, messages[i]));
+    }
+    long heap = usedHeap();
+    long start = System.nanoTime();
+    final List<ValueSpecification> canonical = new ArrayList<ValueSpecification>(NUM_DECODES);
+    for (int i = 0; i < NUM_DECODES; i++) {
+      canonical.add(getFudgeDeserializer().fudgeMsgToObject(ValueSpecification.class, messages[i % NUM_DISTINCT]));
+    }
+    final long canonicalDecode = System.nanoTime() - start;
+    final long canonicalHeap = usedHeap() - heap;
+    final long canonicalCompare = compare(canonical, lookup);
+    canonical.clear();
+    heap = usedHeap();
+    start = System.nanoTime();
+    final List<ValueSpecification> copies = new ArrayList<ValueSpecification>(NUM_DECODES);
+    for (int i = 0; i < NUM_DECODES; i++) {
+      copies.add(copy(getFudgeDeserializer().fudgeMsgToObject(ValueSpecification.class, messages[i % NUM_DISTINCT])));
+    }
+    final long copyDecode = System.nanoTime() - start;
+    final long copyHeap = usedHeap() - heap;
+    final long copyCompare = compare(copies, lookup);
+    s_logger.info("Canonical instances: decode {}ms, retained {}Kb, compare {}ms", new Object[] {canonicalDecode / 1000000, canonicalHeap / 1024, canonicalCompare / 1000000 });
+    s_logger.info("Distinct instances: decode {}ms, retained {}Kb, compare {}ms", new Object[] {copyDecode / 1000000, copyHeap / 1024, copyCompare / 1000000 });
+  }
+
+}
@@ -40,7 +40,7 @@ public class ManagementServiceTest {
 
   private static final String ANOTHER_TEST_VIEW = "ANOTHER_TEST_VIEW";
   private static final Logger s_logger = LoggerFactory.getLogger(ManagementServiceTest.class);
-  private static final int MBEANS_IN_TEST_VIEWPROCESSOR = 1;
+  private static final int MBEANS_IN_TEST_VIEWPROCESSOR = 2;
   private MBeanServer _mBeanServer;
   private TotallingGraphStatisticsGathererProvider _statisticsProvider;
   private ViewProcessorTestEnvironment _env;
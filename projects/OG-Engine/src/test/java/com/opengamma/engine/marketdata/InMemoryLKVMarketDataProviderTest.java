@@ -17,6 +17,8 @@ import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.marketdata.spec.LiveMarketDataSpecification;
 import com.opengamma.engine.marketdata.spec.MarketData;
 import com.opengamma.engine.target.ComputationTargetRequirement;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.id.ExternalId;
@@ -91,4 +93,24 @@ public class InMemoryLKVMarketDataProviderTest {
     assertEquals(snapshot.query(fooNull), "FooValue3");
   }
 
+  public void testSnapshotIsolatedFromUpdates() {
+    final InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    final ValueSpecification foo = new ValueSpecification("Foo", ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+    final ValueSpecification bar = new ValueSpecification("Bar", ComputationTargetSpecification.NULL, ValueProperties.with(ValuePropertyNames.FUNCTION, "Test").get());
+    provider.addValue(foo, "FooValue1");
+    provider.addValue(bar, "BarValue1");
+    final InMemoryLKVMarketDataSnapshot snapshot = provider.snapshot(MarketData.live());
+    snapshot.init();
+    provider.addValue(foo, "FooValue2");
+    provider.removeValue(bar);
+    assertEquals(provider.getAllValueKeys(), ImmutableSet.of(foo));
+    assertEquals(snapshot.getAllValueKeys(), ImmutableSet.of(foo, bar));
+    assertEquals(snapshot.query(foo), "FooValue1");
+    assertEquals(snapshot.query(bar), "BarValue1");
+    final InMemoryLKVMarketDataSnapshot snapshot2 = provider.snapshot(MarketData.live());
+    snapshot2.init();
+    assertEquals(snapshot2.query(foo), "FooValue2");
+    assertNull(snapshot2.query(bar));
+  }
+
 }
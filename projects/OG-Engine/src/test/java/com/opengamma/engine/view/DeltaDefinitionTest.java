@@ -38,6 +38,10 @@ public class DeltaDefinitionTest {
     // Just check that the comparer is being used - its own tests check that it actually works 
     assertFalse(dd.isDelta(createComputedValue(123.1234567), createComputedValue(123.1239999)));
     assertTrue(dd.isDelta(createComputedValue(123.1234567), createComputedValue(123.12555555)));
+    assertFalse(dd.isValueDelta(123.1234567, 123.1239999));
+    assertTrue(dd.isValueDelta(123.1234567, 123.12555555));
+    assertTrue(dd.isValueDelta(null, 123.0));
+    assertFalse(dd.isValueDelta("abc", "abc"));
   }
   
   private void doBasicTests(DeltaDefinition dd) {
@@ -388,6 +388,32 @@ public class MergingViewProcessListenerTest {
     assertEquals(model.getAllResults().iterator().next().getComputedValue().getValue(), v);
   }
 
+  public void testFragmentTargetLimit() {
+    final ViewResultListener underlying = Mockito.mock(ViewResultListener.class);
+    final EngineResourceManagerInternal<?> cycleManager = new EngineResourceManagerImpl<EngineResource>();
+    final MergingViewProcessListener listener = new MergingViewProcessListener(underlying, cycleManager);
+    listener.setPassThrough(false);
+    listener.setMaxFragmentTargets(2);
+    assertEquals(listener.getMaxFragmentTargets(), 2);
+    listener.cycleFragmentCompleted(fullFragment(0, "A"), deltaFragment(0, "A"));
+    listener.cycleFragmentCompleted(fullFragment(1, "A"), deltaFragment(1, "A"));
+    // Exceeds the limit; the fragments for this cycle are discarded
+    listener.cycleFragmentCompleted(fullFragment(2, "A"), deltaFragment(2, "A"));
+    listener.cycleFragmentCompleted(fullFragment(0, "A"), deltaFragment(0, "A"));
+    final ViewComputationResultModel fullResult = fullResult("A");
+    final ViewDeltaResultModel deltaResult = deltaResult("A");
+    listener.cycleCompleted(fullResult, deltaResult);
+    // The next cycle starts afresh
+    final ViewComputationResultModel fullFragment = fullFragment(0, "B");
+    final ViewDeltaResultModel deltaFragment = deltaFragment(0, "B");
+    listener.cycleFragmentCompleted(fullFragment, deltaFragment);
+    Mockito.verifyZeroInteractions(underlying);
+    listener.drain();
+    Mockito.verify(underlying).cycleCompleted(fullResult, deltaResult);
+    Mockito.verify(underlying).cycleFragmentCompleted(fullFragment, deltaFragment);
+    Mockito.verifyNoMoreInteractions(underlying);
+  }
+
   public void testReset() {
     final ViewResultListener underlying = Mockito.mock(ViewResultListener.class);
     final EngineResourceManagerInternal<?> cycleManager = new EngineResourceManagerImpl<EngineResource>();
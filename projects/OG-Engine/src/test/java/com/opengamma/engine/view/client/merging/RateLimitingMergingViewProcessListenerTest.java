@@ -11,14 +11,18 @@ import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 import org.threeten.bp.Instant;
 
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.resource.EngineResourceManagerImpl;
 import com.opengamma.engine.test.TestViewResultListener;
@@ -27,6 +31,7 @@ import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValuePropertyNames;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDeltaResultModel;
 import com.opengamma.engine.view.ViewResultEntry;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
@@ -183,6 +188,83 @@ public class RateLimitingMergingViewProcessListenerTest {
     }
   }
 
+  @Test
+  public void testStreamingToSlowListener() throws InterruptedException {
+    final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+    try {
+      final TestViewResultListener testListener = new TestViewResultListener() {
+        @Override
+        public void cycleCompleted(final ViewComputationResultModel fullResult, final ViewDeltaResultModel deltaResult) {
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            throw new OpenGammaRuntimeException("Interrupted", e);
+          }
+          super.cycleCompleted(fullResult, deltaResult);
+        }
+      };
+      final RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), executor);
+      mergingListener.setStreaming(true);
+      final long start = System.currentTimeMillis();
+      Instant last = null;
+      for (int i = 0; i < 100; i++) {
+        final InMemoryViewComputationResultModel model = new InMemoryViewComputationResultModel();
+        last = now();
+        model.setCalculationTime(last);
+        mergingListener.cycleCompleted(model, null);
+        Thread.sleep(1);
+      }
+      // The slow listener must not hold up the producer
+      final long duration = System.currentTimeMillis() - start;
+      assertTrue("Producer took " + duration + "ms", duration < 1000);
+      // The backlog is merged, so fewer deliveries are made but the last is always the latest result
+      Instant delivered = null;
+      int deliveries = 0;
+      while (!last.equals(delivered)) {
+        delivered = testListener.getCycleCompleted(Timeout.standardTimeoutMillis()).getFullResult().getCalculationTime();
+        deliveries++;
+      }
+      assertTrue(deliveries < 100);
+      testListener.assertNoCalls();
+      mergingListener.terminate();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testStreamingOnDeliveryExecutor() throws InterruptedException {
+    final ScheduledExecutorService timer = Executors.newScheduledThreadPool(1);
+    final ExecutorService delivery = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        return new Thread(r, "Delivery");
+      }
+    });
+    try {
+      final AtomicReference<String> deliveryThread = new AtomicReference<String>();
+      final TestViewResultListener testListener = new TestViewResultListener() {
+        @Override
+        public void cycleCompleted(final ViewComputationResultModel fullResult, final ViewDeltaResultModel deltaResult) {
+          deliveryThread.set(Thread.currentThread().getName());
+          super.cycleCompleted(fullResult, deltaResult);
+        }
+      };
+      final RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), timer, delivery);
+      mergingListener.setStreaming(true);
+      final InMemoryViewComputationResultModel model = new InMemoryViewComputationResultModel();
+      model.setCalculationTime(now());
+      mergingListener.cycleCompleted(model, null);
+      testListener.getCycleCompleted(Timeout.standardTimeoutMillis());
+      assertEquals("Delivery", deliveryThread.get());
+      testListener.assertNoCalls();
+      mergingListener.terminate();
+    } finally {
+      delivery.shutdown();
+      timer.shutdown();
+    }
+  }
+
   private ViewDeltaResultModel getDeltaResult(final int value) {
     final InMemoryViewDeltaResultModel deltaResult = new InMemoryViewDeltaResultModel();
     deltaResult.setCalculationTime(now());
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+import com.opengamma.core.position.impl.SimplePortfolioNode;
+import com.opengamma.core.position.impl.SimplePosition;
+import com.opengamma.core.security.Security;
+import com.opengamma.core.security.SecuritySource;
+import com.opengamma.core.security.impl.SimpleSecurity;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ExternalScheme;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link SecurityLinkResolver} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class SecurityLinkResolverTest {
+
+  private static final int NUM_SECURITIES = 2500;
+  private static final ExternalScheme SCHEME = ExternalScheme.of("Test");
+
+  private static ExternalIdBundle bundle(final int i) {
+    return ExternalId.of(SCHEME, "Sec" + i).toBundle();
+  }
+
+  private static SimplePortfolioNode createPortfolio(final int missing) {
+    final SimplePortfolioNode root = new SimplePortfolioNode(UniqueId.of("Node", "Root"), "Root");
+    for (int i = 0; i < NUM_SECURITIES + missing; i++) {
+      // Two positions in each security
+      root.addPosition(new SimplePosition(UniqueId.of("Pos", i + "A"), BigDecimal.ONE, bundle(i)));
+      root.addPosition(new SimplePosition(UniqueId.of("Pos", i + "B"), BigDecimal.ONE, bundle(i)));
+    }
+    return root;
+  }
+
+  private static SecuritySource createSecuritySource() {
+    final SecuritySource securities = Mockito.mock(SecuritySource.class);
+    Mockito.when(securities.getSingle(Mockito.<Collection<ExternalIdBundle>>any(), Mockito.eq(VersionCorrection.LATEST))).thenAnswer(new Answer<Map<ExternalIdBundle, Security>>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Map<ExternalIdBundle, Security> answer(final InvocationOnMock invocation) {
+        final Map<ExternalIdBundle, Security> result = new HashMap<ExternalIdBundle, Security>();
+        for (ExternalIdBundle bundle : (Collection<ExternalIdBundle>) invocation.getArguments()[0]) {
+          final int i = Integer.parseInt(bundle.getValue(SCHEME).substring(3));
+          if (i < NUM_SECURITIES) {
+            result.put(bundle, new SimpleSecurity(UniqueId.of("Sec", Integer.toString(i)), bundle, "TEST", "Sec" + i));
+          }
+        }
+        return result;
+      }
+    });
+    return securities;
+  }
+
+  public void testBulkResolution() {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final SecuritySource securities = createSecuritySource();
+      final SimplePortfolioNode root = createPortfolio(0);
+      new SecurityLinkResolver(executor, securities, VersionCorrection.LATEST).resolveSecurities(root);
+      // One request for each batch, none for individual securities
+      Mockito.verify(securities, Mockito.times(3)).getSingle(Mockito.<Collection<ExternalIdBundle>>any(), Mockito.eq(VersionCorrection.LATEST));
+      Mockito.verify(securities, Mockito.never()).getSingle(Mockito.any(ExternalIdBundle.class), Mockito.any(VersionCorrection.class));
+      for (int i = 0; i < root.getPositions().size(); i++) {
+        assertEquals(bundle(i / 2), root.getPositions().get(i).getSecurity().getExternalIdBundle());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testPrefetchIgnoresMissing() {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final SecuritySource securities = createSecuritySource();
+      final SimplePortfolioNode root = createPortfolio(10);
+      final Collection<Security> prefetched = new SecurityLinkResolver(executor, securities, VersionCorrection.LATEST).prefetchSecurities(root);
+      assertEquals(NUM_SECURITIES, prefetched.size());
+      Mockito.verify(securities, Mockito.never()).getSingle(Mockito.any(ExternalIdBundle.class), Mockito.any(VersionCorrection.class));
+      assertSame(root.getPositions().get(0).getSecurity(), root.getPositions().get(1).getSecurity());
+      assertNull(root.getPositions().get(2 * NUM_SECURITIES).getSecurityLink().getTarget());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
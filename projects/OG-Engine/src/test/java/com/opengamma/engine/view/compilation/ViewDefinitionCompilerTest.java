@@ -49,6 +49,7 @@ import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
 import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
 import com.opengamma.engine.target.ComputationTargetType;
 import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.view.ResultOutputMode;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewDefinition;
@@ -313,6 +314,62 @@ public class ViewDefinitionCompilerTest {
     }
   }
 
+  public void testConcurrentMatchesSequential() {
+    TestLifecycle.begin();
+    final boolean concurrent = ViewDefinitionCompiler.isConcurrentGraphBuilds();
+    try {
+      final ViewDefinition viewDefinition = new ViewDefinition("Test", "jonathan");
+      final ExternalId secIdentifier1 = ExternalId.of("SEC", "1");
+      final SimpleSecurity sec1 = new SimpleSecurity("My Sec");
+      sec1.addExternalId(secIdentifier1);
+      final InMemorySecuritySource securitySource = new InMemorySecuritySource();
+      securitySource.addSecurity(sec1);
+      final UniqueId t1 = UniqueId.of("TestScheme", "t1");
+      final InMemoryFunctionRepository functionRepo = new InMemoryFunctionRepository();
+      final MockFunction f1 = MockFunction.getMockFunction("f1", new ComputationTarget(ComputationTargetType.PRIMITIVE, t1), 42);
+      final MockFunction f2 = MockFunction.getMockFunction("f2", new ComputationTarget(ComputationTargetType.SECURITY, sec1), 60, f1);
+      functionRepo.addFunction(f1);
+      functionRepo.addFunction(f2);
+      final FunctionCompilationContext compilationContext = new FunctionCompilationContext();
+      compilationContext.setFunctionInitId(123);
+      final CompiledFunctionService cfs = new CompiledFunctionService(functionRepo, new CachingFunctionRepositoryCompiler(), compilationContext);
+      TestLifecycle.register(cfs);
+      cfs.initialize();
+      final DefaultFunctionResolver functionResolver = new DefaultFunctionResolver(cfs);
+      final DefaultCachingComputationTargetResolver computationTargetResolver = new DefaultCachingComputationTargetResolver(new DefaultComputationTargetResolver(securitySource),
+          _cacheManager);
+      compilationContext.setRawComputationTargetResolver(computationTargetResolver);
+      final ViewCompilationServices compilationServices = new ViewCompilationServices(new FixedMarketDataAvailabilityProvider(), functionResolver, compilationContext,
+          cfs.getExecutorService(), new DependencyGraphBuilderFactory());
+      // Config1 and Config2 can share function resolution; Config3 has different defaults so can't
+      for (int i = 1; i <= 3; i++) {
+        final ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(viewDefinition, "Config" + i);
+        if (i == 3) {
+          calcConfig.setDefaultProperties(ValueProperties.with("Foo", "Bar").get());
+        }
+        calcConfig.addSpecificRequirement(f2.getResultSpec().toRequirementSpecification());
+        calcConfig.addSpecificRequirement(f1.getResultSpec().toRequirementSpecification());
+        viewDefinition.addViewCalculationConfiguration(calcConfig);
+      }
+      final Instant now = Instant.now();
+      ViewDefinitionCompiler.setConcurrentGraphBuilds(false);
+      final CompiledViewDefinitionWithGraphsImpl sequential = ViewDefinitionCompiler.compile(viewDefinition, compilationServices, now, VersionCorrection.of(now, now));
+      ViewDefinitionCompiler.setConcurrentGraphBuilds(true);
+      final CompiledViewDefinitionWithGraphsImpl parallel = ViewDefinitionCompiler.compile(viewDefinition, compilationServices, now, VersionCorrection.of(now, now));
+      assertEquals(3, parallel.getDependencyGraphExplorers().size());
+      for (int i = 1; i <= 3; i++) {
+        final DependencyGraph expected = sequential.getDependencyGraphExplorer("Config" + i).getWholeGraph();
+        final DependencyGraph actual = parallel.getDependencyGraphExplorer("Config" + i).getWholeGraph();
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getTerminalOutputs(), actual.getTerminalOutputs());
+      }
+      assertEquals(sequential.getComputationTargets(), parallel.getComputationTargets());
+    } finally {
+      ViewDefinitionCompiler.setConcurrentGraphBuilds(concurrent);
+      TestLifecycle.end();
+    }
+  }
+
   public void testCancel() throws Exception {
     TestLifecycle.begin();
     try {
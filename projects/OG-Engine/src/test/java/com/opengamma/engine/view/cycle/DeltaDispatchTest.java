@@ -0,0 +1,354 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cycle;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.ImmutableSet;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.ViewComputationCache;
+import com.opengamma.engine.calcnode.CalculationJob;
+import com.opengamma.engine.calcnode.CalculationJobResult;
+import com.opengamma.engine.calcnode.CalculationJobResultItem;
+import com.opengamma.engine.calcnode.CalculationJobSpecification;
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.calcnode.JobDispatcher;
+import com.opengamma.engine.calcnode.LocalNodeJobInvoker;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.depgraph.impl.DependencyGraphImpl;
+import com.opengamma.engine.depgraph.impl.DependencyNodeFunctionImpl;
+import com.opengamma.engine.depgraph.impl.DependencyNodeImpl;
+import com.opengamma.engine.exec.DependencyGraphExecutorFactory;
+import com.opengamma.engine.exec.MultipleNodeExecutorFactory;
+import com.opengamma.engine.exec.SingleNodeExecutorFactory;
+import com.opengamma.engine.exec.stats.DiscardingGraphStatisticsGathererProvider;
+import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.test.CalculationNodeUtils;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.test.TestCalculationNode;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.DeltaDefinition;
+import com.opengamma.engine.view.NumberDeltaComparer;
+import com.opengamma.engine.view.impl.ExecutionLogModeSource;
+import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
+import com.opengamma.engine.view.impl.ViewProcessContext;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.test.TestLifecycle;
+import com.opengamma.util.test.Timeout;
+
+/**
+ * Tests the {@link DeltaDispatch} class, planning and executing each wave on a calculation node.
+ */
+@Test(groups = TestGroup.UNIT, singleThreaded = true)
+public class DeltaDispatchTest {
+
+  private static final String CALC_CONFIG = "test";
+  private static final UniqueId CYCLE_ID = UniqueId.of("Test", "ViewCycle", "1");
+  private static final UniqueId PREVIOUS_CYCLE_ID = UniqueId.of("Test", "ViewCycle", "0");
+
+  private DependencyGraph _graph;
+  private final DependencyNode[] _node = new DependencyNode[5];
+  private final ValueSpecification[] _value = new ValueSpecification[_node.length];
+  /**
+   * The value each function will produce when it is next executed. A function with no value produces no output.
+   */
+  private final Map<ValueSpecification, Object> _outputs = new HashMap<ValueSpecification, Object>();
+
+  private ViewComputationCache _cache;
+  private SingleComputationCycle _cycle;
+  private SingleComputationCycle _previousCycle;
+  private final List<CalculationJob> _jobs = new ArrayList<CalculationJob>();
+  private final List<CalculationJobResult> _jobResults = new ArrayList<CalculationJobResult>();
+
+  @DataProvider(name = "executors")
+  Object[][] data_executors() {
+    final MultipleNodeExecutorFactory multipleNode = new MultipleNodeExecutorFactory();
+    multipleNode.afterPropertiesSet();
+    return new Object[][] { {multipleNode }, {new SingleNodeExecutorFactory() } };
+  }
+
+  private ComputationTargetSpecification getTarget(final String name) {
+    return new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("testdomain", name));
+  }
+
+  private ValueSpecification getValue(final String valueName, final String node, final String functionId) {
+    return new ValueSpecification(valueName, getTarget(node), ValueProperties.with(ValuePropertyNames.FUNCTION, functionId).get());
+  }
+
+  private MockFunction getFunction(final String node, final ValueSpecification output) {
+    final MockFunction function = new MockFunction(node, new ComputationTarget(getTarget(node), UniqueId.of("testdomain", node))) {
+      @Override
+      public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+          final Set<ValueRequirement> desiredValues) {
+        final Object value = _outputs.get(output);
+        if (value == null) {
+          return Collections.emptySet();
+        }
+        return Collections.singleton(new ComputedValue(output, value));
+      }
+    };
+    function.addResult(output, null);
+    return function;
+  }
+
+  /**
+   * Creates the test graph (data flows downwards - 0 & 1 are market data nodes) and a calculation node that can execute it.
+   *
+   * <pre>
+   *         0   1
+   *          \ / \
+   *           2   3
+   *            \ /
+   *             4
+   * </pre>
+   */
+  private TestCalculationNode createTestGraph() {
+    _value[0] = getValue("MarketValue", "Node0", MarketDataSourcingFunction.UNIQUE_ID);
+    _value[1] = getValue("MarketValue", "Node1", MarketDataSourcingFunction.UNIQUE_ID);
+    _value[2] = getValue("IntermediateValue", "Node2", "Node2");
+    _value[3] = getValue("IntermediateValue", "Node3", "Node3");
+    _value[4] = getValue("TerminalValue", "Node4", "Node4");
+    final MockFunction[] functions = new MockFunction[] {getFunction("Node2", _value[2]), getFunction("Node3", _value[3]), getFunction("Node4", _value[4]) };
+    _node[0] = new DependencyNodeImpl(DependencyNodeFunctionImpl.of(MarketDataSourcingFunction.UNIQUE_ID, EmptyFunctionParameters.INSTANCE), getTarget("Node0"),
+        Collections.singleton(_value[0]), Collections.<ValueSpecification, DependencyNode>emptyMap());
+    _node[1] = new DependencyNodeImpl(DependencyNodeFunctionImpl.of(MarketDataSourcingFunction.UNIQUE_ID, EmptyFunctionParameters.INSTANCE), getTarget("Node1"),
+        Collections.singleton(_value[1]), Collections.<ValueSpecification, DependencyNode>emptyMap());
+    final Map<ValueSpecification, DependencyNode> inputs2 = new HashMap<ValueSpecification, DependencyNode>();
+    inputs2.put(_value[0], _node[0]);
+    inputs2.put(_value[1], _node[1]);
+    _node[2] = new DependencyNodeImpl(DependencyNodeFunctionImpl.of(functions[0]), getTarget("Node2"), Collections.singleton(_value[2]), inputs2);
+    _node[3] = new DependencyNodeImpl(DependencyNodeFunctionImpl.of(functions[1]), getTarget("Node3"), Collections.singleton(_value[3]),
+        Collections.singletonMap(_value[1], _node[1]));
+    final Map<ValueSpecification, DependencyNode> inputs4 = new HashMap<ValueSpecification, DependencyNode>();
+    inputs4.put(_value[2], _node[2]);
+    inputs4.put(_value[3], _node[3]);
+    _node[4] = new DependencyNodeImpl(DependencyNodeFunctionImpl.of(functions[2]), getTarget("Node4"), Collections.singleton(_value[4]), inputs4);
+    _graph = new DependencyGraphImpl(CALC_CONFIG, Collections.singleton(_node[4]), _node.length, Collections.singletonMap(_value[4],
+        Collections.singleton(new ValueRequirement("TerminalValue", getTarget("Node4")))));
+    final TestCalculationNode calcNode = new TestCalculationNode();
+    for (MockFunction function : functions) {
+      CalculationNodeUtils.configureTestCalcNode(calcNode, function);
+    }
+    return calcNode;
+  }
+
+  private void put(final ViewComputationCache cache, final int id, final Object value) {
+    cache.putSharedValue(new ComputedValue(_value[id], value));
+  }
+
+  private ViewComputationCache getCache(final TestCalculationNode calcNode, final UniqueId cycleId) {
+    return calcNode.getCache(new CalculationJobSpecification(cycleId, CALC_CONFIG, Instant.now(), 0L));
+  }
+
+  private SingleComputationCycle createCycle(final TestCalculationNode calcNode) {
+    final Instant now = Instant.now();
+    final ViewProcessContext context = mock(ViewProcessContext.class);
+    when(context.getComputationJobDispatcher()).thenReturn(new JobDispatcher(new LocalNodeJobInvoker(calcNode)));
+    when(context.getGraphExecutorStatisticsGathererProvider()).thenReturn(new DiscardingGraphStatisticsGathererProvider());
+    final SingleComputationCycle cycle = mock(SingleComputationCycle.class);
+    when(cycle.getUniqueId()).thenReturn(CYCLE_ID);
+    when(cycle.getValuationTime()).thenReturn(now);
+    when(cycle.getVersionCorrection()).thenReturn(VersionCorrection.of(now, now));
+    when(cycle.getViewProcessContext()).thenReturn(context);
+    when(cycle.getViewProcessId()).thenReturn(UniqueId.of("View", "Test"));
+    when(cycle.getLogModeSource()).thenReturn(new ExecutionLogModeSource());
+    when(cycle.getComputationCache(CALC_CONFIG)).thenReturn(_cache);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        synchronized (_jobs) {
+          _jobs.add((CalculationJob) invocation.getArguments()[0]);
+          _jobResults.add((CalculationJobResult) invocation.getArguments()[1]);
+        }
+        return null;
+      }
+    }).when(cycle).jobCompleted(any(CalculationJob.class), any(CalculationJobResult.class));
+    return cycle;
+  }
+
+  private DeltaDispatch setUp(final Collection<DependencyNode> forcedNodes) {
+    TestLifecycle.begin();
+    final TestCalculationNode calcNode = createTestGraph();
+    TestLifecycle.register(calcNode);
+    _cache = getCache(calcNode, CYCLE_ID);
+    final ViewComputationCache previousCache = getCache(calcNode, PREVIOUS_CYCLE_ID);
+    _cycle = createCycle(calcNode);
+    _previousCycle = mock(SingleComputationCycle.class);
+    when(_previousCycle.getComputationCache(CALC_CONFIG)).thenReturn(previousCache);
+    when(_cycle.isReusable(same(_previousCycle), anyString(), any(DependencyNode.class))).thenReturn(Boolean.TRUE);
+    put(previousCache, 2, 1.0);
+    put(previousCache, 3, 2.0);
+    put(previousCache, 4, 3.0);
+    put(_cache, 0, 10.0);
+    put(_cache, 1, 20.0);
+    final DeltaDefinition deltaDefinition = new DeltaDefinition();
+    deltaDefinition.setNumberComparer(new NumberDeltaComparer(2));
+    return new DeltaDispatch(_cycle, _previousCycle, _graph, ImmutableSet.copyOf(_node), forcedNodes, Collections.<ValueSpecification>emptySet(), deltaDefinition);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    _outputs.clear();
+    _jobs.clear();
+    _jobResults.clear();
+    TestLifecycle.end();
+  }
+
+  private DependencyGraph nextWave(final DeltaDispatch dispatch) {
+    return dispatch.nextWave(Collections.<ValueSpecification>emptySet(), new InMemoryViewComputationResultModel(), new InMemoryViewComputationResultModel());
+  }
+
+  /**
+   * Plans and executes a wave, as {@link SingleComputationCycleExecutor} does, passing the completed jobs to the dispatch.
+   */
+  private void execute(final DependencyGraphExecutorFactory factory, final DeltaDispatch dispatch, final DependencyGraph wave) throws Exception {
+    factory.createExecutor(_cycle).execute(wave, dispatch.getWaveInputs(), Collections.<ValueSpecification, FunctionParameters>emptyMap())
+        .get(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS);
+    for (CalculationJob job : _jobs) {
+      dispatch.jobCompleted(job);
+    }
+  }
+
+  private Set<DependencyNode> roots(final DependencyGraph graph) {
+    final Set<DependencyNode> roots = new HashSet<DependencyNode>();
+    for (int i = 0; i < graph.getRootCount(); i++) {
+      roots.add(graph.getRootNode(i));
+    }
+    return roots;
+  }
+
+  private void assertSucceeded() {
+    for (CalculationJobResult jobResult : _jobResults) {
+      for (CalculationJobResultItem item : jobResult.getResultItems()) {
+        assertEquals(InvocationResult.SUCCESS, item.getResult());
+      }
+    }
+  }
+
+  @Test(dataProvider = "executors")
+  public void testFirstWave(final DependencyGraphExecutorFactory factory) throws Exception {
+    final DeltaDispatch dispatch = setUp(Collections.<DependencyNode>emptySet());
+    final DependencyGraph wave = nextWave(dispatch);
+    assertNotNull(wave);
+    assertEquals(ImmutableSet.of(_node[2], _node[3]), roots(wave));
+    assertTrue(dispatch.getWaveInputs().containsAll(Arrays.asList(_value[0], _value[1])));
+    // Node 4 consumes both outputs, so they must be shared with the next wave
+    assertEquals(ImmutableSet.of(_value[2], _value[3]), wave.getTerminalOutputs().keySet());
+    _outputs.put(_value[2], 1.0);
+    _outputs.put(_value[3], 2.0);
+    execute(factory, dispatch, wave);
+    assertFalse(_jobs.isEmpty());
+    for (CalculationJob job : _jobs) {
+      assertFalse(job.getCacheSelectHint().isPrivateValue(_value[2]));
+      assertFalse(job.getCacheSelectHint().isPrivateValue(_value[3]));
+    }
+    assertSucceeded();
+  }
+
+  @Test(dataProvider = "executors")
+  public void testNoDeltaStopsPropagation(final DependencyGraphExecutorFactory factory) throws Exception {
+    final DeltaDispatch dispatch = setUp(Collections.<DependencyNode>emptySet());
+    _outputs.put(_value[2], 1.001);
+    _outputs.put(_value[3], 2.0);
+    execute(factory, dispatch, nextWave(dispatch));
+    assertSucceeded();
+    // The previous value is restored so that the baseline cannot drift
+    assertEquals(1.0, _cache.getValue(_value[2]));
+    assertNull(nextWave(dispatch));
+    verify(_cycle).reusePreviousResults(same(_previousCycle), same(_graph), eq(Arrays.asList(_node[4])), any(InMemoryViewComputationResultModel.class),
+        any(InMemoryViewComputationResultModel.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test(dataProvider = "executors")
+  public void testDeltaPropagates(final DependencyGraphExecutorFactory factory) throws Exception {
+    final DeltaDispatch dispatch = setUp(Collections.<DependencyNode>emptySet());
+    _outputs.put(_value[2], 1.5);
+    _outputs.put(_value[3], 2.0);
+    _outputs.put(_value[4], 3.5);
+    execute(factory, dispatch, nextWave(dispatch));
+    assertEquals(1.5, _cache.getValue(_value[2]));
+    final DependencyGraph wave = nextWave(dispatch);
+    assertNotNull(wave);
+    assertEquals(ImmutableSet.of(_node[4]), roots(wave));
+    assertEquals(ImmutableSet.of(_value[4]), wave.getTerminalOutputs().keySet());
+    _jobs.clear();
+    execute(factory, dispatch, wave);
+    // Node 4 could only execute if the first wave's outputs were shared
+    assertSucceeded();
+    assertEquals(3.5, _cache.getValue(_value[4]));
+    assertNull(nextWave(dispatch));
+    verify(_cycle, never()).reusePreviousResults(any(SingleComputationCycle.class), any(DependencyGraph.class), any(Collection.class), any(InMemoryViewComputationResultModel.class),
+        any(InMemoryViewComputationResultModel.class));
+  }
+
+  @Test(dataProvider = "executors")
+  public void testForcedNodeExecutes(final DependencyGraphExecutorFactory factory) throws Exception {
+    final DeltaDispatch dispatch = setUp(Collections.singleton(_node[4]));
+    _outputs.put(_value[2], 1.0);
+    _outputs.put(_value[3], 2.0);
+    execute(factory, dispatch, nextWave(dispatch));
+    final DependencyGraph wave = nextWave(dispatch);
+    assertNotNull(wave);
+    assertEquals(ImmutableSet.of(_node[4]), roots(wave));
+  }
+
+  @Test(dataProvider = "executors")
+  public void testMissingResultIsDelta(final DependencyGraphExecutorFactory factory) throws Exception {
+    final DeltaDispatch dispatch = setUp(Collections.<DependencyNode>emptySet());
+    _outputs.put(_value[3], 2.0);
+    execute(factory, dispatch, nextWave(dispatch));
+    // No result for node 2, so node 4 must be executed
+    final DependencyGraph wave = nextWave(dispatch);
+    assertNotNull(wave);
+    assertEquals(ImmutableSet.of(_node[4]), roots(wave));
+  }
+
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cycle;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.InMemoryViewComputationCacheSource;
+import com.opengamma.engine.cache.ViewComputationCache;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraphExplorer;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder.NodeBuilder;
+import com.opengamma.engine.depgraph.impl.DependencyGraphExplorerImpl;
+import com.opengamma.engine.depgraph.impl.DependencyNodeFunctionImpl;
+import com.opengamma.engine.exec.DependencyNodeJobExecutionResult;
+import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link SharedNodeResults} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class SharedNodeResultsTest {
+
+  private static final Instant NOW = Instant.now();
+  private static final UniqueId VIEW_PROCESS_A = UniqueId.of("Test", "ViewProcess", "A");
+  private static final UniqueId VIEW_PROCESS_B = UniqueId.of("Test", "ViewProcess", "B");
+
+  private final InMemoryViewComputationCacheSource _cacheSource = new InMemoryViewComputationCacheSource(FudgeContext.GLOBAL_DEFAULT);
+  private int _cacheCount;
+
+  private static ComputationTargetSpecification getTarget(final String name) {
+    return new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("testdomain", name));
+  }
+
+  /**
+   * Creates the test graph (data flows downwards - 0 & 1 are market data nodes), as another view would, and returns the nodes.
+   *
+   * <pre>
+   *         0   1
+   *          \ / \
+   *           2   3
+   *            \ /
+   *             4
+   * </pre>
+   */
+  private static DependencyNode[] createTestGraph(final DependencyGraph[] graph) {
+    final TestDependencyGraphBuilder gb = new TestDependencyGraphBuilder("test");
+    final NodeBuilder n0 = gb.addNode(MarketDataSourcingFunction.INSTANCE, getTarget("Node0"));
+    final NodeBuilder n1 = gb.addNode(MarketDataSourcingFunction.INSTANCE, getTarget("Node1"));
+    final NodeBuilder n2 = gb.addNode(DependencyNodeFunctionImpl.of("Mock", EmptyFunctionParameters.INSTANCE), getTarget("Node2"));
+    final NodeBuilder n3 = gb.addNode(DependencyNodeFunctionImpl.of("Mock", EmptyFunctionParameters.INSTANCE), getTarget("Node3"));
+    final NodeBuilder n4 = gb.addNode(DependencyNodeFunctionImpl.of("Mock", EmptyFunctionParameters.INSTANCE), getTarget("Node4"));
+    final ValueSpecification[] value = new ValueSpecification[5];
+    value[0] = n0.addOutput("MarketValue");
+    n2.addInput(value[0]);
+    value[1] = n1.addOutput("MarketValue");
+    n2.addInput(value[1]);
+    n3.addInput(value[1]);
+    value[2] = n2.addOutput("IntermediateValue");
+    n4.addInput(value[2]);
+    value[3] = n3.addOutput("IntermediateValue");
+    n4.addInput(value[3]);
+    value[4] = n4.addTerminalOutput("TerminalValue");
+    graph[0] = gb.buildGraph();
+    final DependencyGraphExplorer dge = new DependencyGraphExplorerImpl(graph[0]);
+    final DependencyNode[] nodes = new DependencyNode[value.length];
+    for (int i = 0; i < value.length; i++) {
+      nodes[i] = dge.getNodeProducing(value[i]);
+    }
+    return nodes;
+  }
+
+  private ViewComputationCache createCache(final DependencyNode[] nodes, final Object marketData0, final Object marketData1) {
+    final ViewComputationCache cache = _cacheSource.getCache(UniqueId.of("Test", "ViewCycle", Integer.toString(_cacheCount++)), "test");
+    cache.putSharedValue(new ComputedValue(nodes[0].getOutputValue(0), marketData0));
+    cache.putSharedValue(new ComputedValue(nodes[1].getOutputValue(0), marketData1));
+    return cache;
+  }
+
+  private static SharedNodeResults.Generation generation() {
+    return new SharedNodeResults().getGeneration(NOW, VersionCorrection.LATEST, 0L);
+  }
+
+  public void testKeysEqualAcrossGraphs() {
+    final SharedNodeResults.Generation generation = generation();
+    final DependencyGraph[] graphA = new DependencyGraph[1];
+    final DependencyNode[] nodesA = createTestGraph(graphA);
+    final DependencyGraph[] graphB = new DependencyGraph[1];
+    final DependencyNode[] nodesB = createTestGraph(graphB);
+    final Map<DependencyNode, SharedNodeResults.NodeKey> keysA = generation.getKeys(graphA[0], createCache(nodesA, 1.0, 2.0), VIEW_PROCESS_A);
+    final Map<DependencyNode, SharedNodeResults.NodeKey> keysB = generation.getKeys(graphB[0], createCache(nodesB, 1.0, 2.0), VIEW_PROCESS_B);
+    assertEquals(nodesA.length, keysA.size());
+    for (int i = 0; i < nodesA.length; i++) {
+      assertNotSame(nodesA[i], nodesB[i]);
+      assertSame(keysA.get(nodesA[i]), keysB.get(nodesB[i]));
+    }
+  }
+
+  public void testKeysDependOnMarketData() {
+    final SharedNodeResults.Generation generation = generation();
+    final DependencyGraph[] graphA = new DependencyGraph[1];
+    final DependencyNode[] nodesA = createTestGraph(graphA);
+    final DependencyGraph[] graphB = new DependencyGraph[1];
+    final DependencyNode[] nodesB = createTestGraph(graphB);
+    final Map<DependencyNode, SharedNodeResults.NodeKey> keysA = generation.getKeys(graphA[0], createCache(nodesA, 1.0, 2.0), VIEW_PROCESS_A);
+    final Map<DependencyNode, SharedNodeResults.NodeKey> keysB = generation.getKeys(graphB[0], createCache(nodesB, 1.0, 2.5), VIEW_PROCESS_B);
+    assertSame(keysA.get(nodesA[0]), keysB.get(nodesB[0]));
+    for (int i = 1; i < nodesA.length; i++) {
+      assertNotSame(keysA.get(nodesA[i]), keysB.get(nodesB[i]));
+      assertEquals(false, keysA.get(nodesA[i]).equals(keysB.get(nodesB[i])));
+    }
+  }
+
+  public void testPublishedResults() {
+    final SharedNodeResults.Generation generation = generation();
+    final DependencyGraph[] graphA = new DependencyGraph[1];
+    final DependencyNode[] nodesA = createTestGraph(graphA);
+    final DependencyGraph[] graphB = new DependencyGraph[1];
+    final DependencyNode[] nodesB = createTestGraph(graphB);
+    final Map<DependencyNode, SharedNodeResults.NodeKey> keysA = generation.getKeys(graphA[0], createCache(nodesA, 1.0, 2.0), VIEW_PROCESS_A);
+    final DependencyNodeJobExecutionResult jobResult = mock(DependencyNodeJobExecutionResult.class);
+    generation.put(keysA.get(nodesA[2]), jobResult, Collections.<ValueSpecification, Object>singletonMap(nodesA[2].getOutputValue(0), 3.0));
+    assertEquals(1, generation.size());
+    final Map<DependencyNode, SharedNodeResults.NodeKey> keysB = generation.getKeys(graphB[0], createCache(nodesB, 1.0, 2.0), VIEW_PROCESS_B);
+    final SharedNodeResults.Result result = generation.get(keysB.get(nodesB[2]));
+    assertSame(jobResult, result.getJobResult());
+    assertEquals(3.0, result.getValues().get(nodesB[2].getOutputValue(0)));
+    assertNull(generation.get(keysB.get(nodesB[3])));
+    // The first result published is kept
+    generation.put(keysB.get(nodesB[2]), mock(DependencyNodeJobExecutionResult.class), Collections.<ValueSpecification, Object>singletonMap(nodesB[2].getOutputValue(0), 4.0));
+    assertSame(jobResult, generation.get(keysA.get(nodesA[2])).getJobResult());
+  }
+
+  public void testSharedOnlyWhenRequestedByAnotherView() {
+    final SharedNodeResults.Generation generation = generation();
+    final DependencyGraph[] graphA = new DependencyGraph[1];
+    final DependencyNode[] nodesA = createTestGraph(graphA);
+    final DependencyGraph[] graphB = new DependencyGraph[1];
+    final DependencyNode[] nodesB = createTestGraph(graphB);
+    final Map<DependencyNode, SharedNodeResults.NodeKey> keysA = generation.getKeys(graphA[0], createCache(nodesA, 1.0, 2.0), VIEW_PROCESS_A);
+    assertFalse(keysA.get(nodesA[2]).isShared());
+    // Later cycles of the same view process don't make the node shareable
+    generation.getKeys(graphA[0], createCache(nodesA, 1.0, 2.0), VIEW_PROCESS_A);
+    assertFalse(keysA.get(nodesA[2]).isShared());
+    final Map<DependencyNode, SharedNodeResults.NodeKey> keysB = generation.getKeys(graphB[0], createCache(nodesB, 1.0, 2.5), VIEW_PROCESS_B);
+    assertFalse(keysA.get(nodesA[2]).isShared());
+    assertFalse(keysB.get(nodesB[2]).isShared());
+    generation.getKeys(graphB[0], createCache(nodesB, 1.0, 2.0), VIEW_PROCESS_B);
+    assertTrue(keysA.get(nodesA[2]).isShared());
+  }
+
+  public void testMaxResults() {
+    final SharedNodeResults.Generation generation = new SharedNodeResults(1, 2).getGeneration(NOW, VersionCorrection.LATEST, 0L);
+    final DependencyGraph[] graph = new DependencyGraph[1];
+    final DependencyNode[] nodes = createTestGraph(graph);
+    final Map<DependencyNode, SharedNodeResults.NodeKey> keys = generation.getKeys(graph[0], createCache(nodes, 1.0, 2.0), VIEW_PROCESS_A);
+    final DependencyNodeJobExecutionResult jobResult = mock(DependencyNodeJobExecutionResult.class);
+    for (int i = 2; i < nodes.length; i++) {
+      generation.put(keys.get(nodes[i]), jobResult, Collections.<ValueSpecification, Object>singletonMap(nodes[i].getOutputValue(0), (double) i));
+      if (i == 3) {
+        // Touch the first so that the second is the least recently used
+        assertNotNull(generation.get(keys.get(nodes[2])));
+      }
+    }
+    assertEquals(2, generation.size());
+    assertNotNull(generation.get(keys.get(nodes[2])));
+    assertNull(generation.get(keys.get(nodes[3])));
+    assertNotNull(generation.get(keys.get(nodes[4])));
+  }
+
+  public void testGenerations() {
+    final SharedNodeResults results = new SharedNodeResults(2);
+    final SharedNodeResults.Generation generation = results.getGeneration(NOW, VersionCorrection.LATEST, 0L);
+    assertSame(generation, results.getGeneration(NOW, VersionCorrection.LATEST, 0L));
+    assertNotSame(generation, results.getGeneration(NOW, VersionCorrection.LATEST, 1L));
+    assertNotSame(generation, results.getGeneration(NOW.plusSeconds(1), VersionCorrection.LATEST, 0L));
+    // Least recently used is discarded
+    final SharedNodeResults.Generation recent = results.getGeneration(NOW.plusSeconds(1), VersionCorrection.LATEST, 0L);
+    assertSame(recent, results.getGeneration(NOW.plusSeconds(1), VersionCorrection.LATEST, 0L));
+    assertNotSame(generation, results.getGeneration(NOW, VersionCorrection.LATEST, 0L));
+  }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.Sets;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.NumberDeltaComparer;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.client.ViewDeltaResultCalculator;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link ColumnarViewComputationResultModel} and {@link ColumnarViewCalculationResultModel} classes.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ColumnarViewComputationResultModelTest {
+
+  private static final ComputationTargetSpecification TARGET_1 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "1"));
+  private static final ComputationTargetSpecification TARGET_2 = new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "2"));
+  private static final ValueProperties PROPERTIES = ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get();
+
+  private static ComputedValueResult result(final String valueName, final ComputationTargetSpecification target, final Object value) {
+    return new ComputedValueResult(new ValueSpecification(valueName, target, PROPERTIES), value, AggregatedExecutionLog.EMPTY);
+  }
+
+  private static ColumnarViewComputationResultModel model(final double pv1, final double pv2, final String name2) {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel();
+    model.setCalculationTime(Instant.now());
+    model.addValue("Default", result("PV", TARGET_1, pv1));
+    model.addValue("Default", result("PV", TARGET_2, pv2));
+    model.addValue("Default", result("Name", TARGET_2, name2));
+    return model;
+  }
+
+  private static ViewDefinition viewDefinition() {
+    final ViewDefinition viewDefinition = new ViewDefinition("Test", "user");
+    final ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(viewDefinition, "Default");
+    calcConfig.getDeltaDefinition().setNumberComparer(new NumberDeltaComparer(2));
+    viewDefinition.addViewCalculationConfiguration(calcConfig);
+    return viewDefinition;
+  }
+
+  private static Collection<ComputedValueResult> deltaValues(final ViewDeltaResultModel delta, final ComputationTargetSpecification target) {
+    final ViewCalculationResultModel calcResult = delta.getCalculationResult("Default");
+    return (calcResult != null) ? calcResult.getAllValues(target) : null;
+  }
+
+  public void testModel() {
+    ViewComputationResultModelImplTest.checkModel(new ColumnarViewComputationResultModel());
+  }
+
+  public void testValues() {
+    final ColumnarViewComputationResultModel model = model(1.0, 2.0, "Foo");
+    assertFalse(model.isEmpty());
+    assertEquals(Sets.newHashSet(TARGET_1, TARGET_2), model.getAllTargets());
+    assertEquals(Sets.newHashSet("PV", "Name"), model.getAllOutputValueNames());
+    assertEquals(3, model.getAllResults().size());
+    final ViewCalculationResultModel calcResult = model.getCalculationResult("Default");
+    assertEquals(Sets.newHashSet(result("PV", TARGET_2, 2.0), result("Name", TARGET_2, "Foo")), new HashSet<ComputedValueResult>(calcResult.getAllValues(TARGET_2)));
+    assertEquals(1, calcResult.getValues(TARGET_1).size());
+    assertEquals(result("PV", TARGET_1, 1.0), calcResult.getValues(TARGET_1).values().iterator().next());
+    assertEquals(Sets.newHashSet(result("PV", TARGET_2, 2.0), result("Name", TARGET_2, "Foo")), new HashSet<ComputedValueResult>(model.getTargetResult(TARGET_2).getAllValues("Default")));
+    assertNull(calcResult.getValues(new ComputationTargetSpecification(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "3"))));
+  }
+
+  public void testReplaceValue() {
+    final ColumnarViewComputationResultModel model = model(1.0, 2.0, "Foo");
+    model.addValue("Default", result("PV", TARGET_2, "Error"));
+    model.addValue("Default", result("Name", TARGET_2, 3.0));
+    final ViewCalculationResultModel calcResult = model.getCalculationResult("Default");
+    assertEquals(Sets.newHashSet(result("PV", TARGET_2, "Error"), result("Name", TARGET_2, 3.0)), new HashSet<ComputedValueResult>(calcResult.getAllValues(TARGET_2)));
+  }
+
+  public void testCopy() {
+    final ColumnarViewComputationResultModel model = model(1.0, 2.0, "Foo");
+    final InMemoryViewComputationResultModel inMemory = new InMemoryViewComputationResultModel(model);
+    final ColumnarViewComputationResultModel columnarCopy = new ColumnarViewComputationResultModel(model);
+    final ColumnarViewComputationResultModel inMemoryCopy = new ColumnarViewComputationResultModel(inMemory);
+    assertEquals(new HashSet<Object>(model.getAllResults()), new HashSet<Object>(inMemory.getAllResults()));
+    assertEquals(new HashSet<Object>(model.getAllResults()), new HashSet<Object>(columnarCopy.getAllResults()));
+    assertEquals(new HashSet<Object>(model.getAllResults()), new HashSet<Object>(inMemoryCopy.getAllResults()));
+    columnarCopy.update(model(1.5, 2.0, "Bar"));
+    assertEquals(Sets.newHashSet(result("PV", TARGET_2, 2.0), result("Name", TARGET_2, "Bar")),
+        new HashSet<ComputedValueResult>(columnarCopy.getCalculationResult("Default").getAllValues(TARGET_2)));
+  }
+
+  public void testDelta() {
+    final ColumnarViewComputationResultModel previous = model(1.0, 2.0, "Foo");
+    final ColumnarViewComputationResultModel current = model(1.001, 2.5, "Foo");
+    final ViewDeltaResultModel delta = ViewDeltaResultCalculator.computeDeltaModel(viewDefinition(), previous, current);
+    assertNull(deltaValues(delta, TARGET_1));
+    assertEquals(Sets.newHashSet(result("PV", TARGET_2, 2.5)), new HashSet<ComputedValueResult>(deltaValues(delta, TARGET_2)));
+  }
+
+  public void testDeltaMatchesInMemory() {
+    final ColumnarViewComputationResultModel previous = model(1.0, 2.0, "Foo");
+    final ColumnarViewComputationResultModel current = new ColumnarViewComputationResultModel();
+    current.addValue("Default", result("PV", TARGET_1, 1.5));
+    current.addValue("Default", result("Name", TARGET_2, "Bar"));
+    current.addValue("Default", result("PV", TARGET_2, "Error"));
+    final ViewDeltaResultModel columnarDelta = ViewDeltaResultCalculator.computeDeltaModel(viewDefinition(), previous, current);
+    final ViewDeltaResultModel inMemoryDelta = ViewDeltaResultCalculator.computeDeltaModel(viewDefinition(), new InMemoryViewComputationResultModel(previous),
+        new InMemoryViewComputationResultModel(current));
+    assertEquals(new HashSet<Object>(inMemoryDelta.getAllResults()), new HashSet<Object>(columnarDelta.getAllResults()));
+    assertEquals(3, columnarDelta.getAllResults().size());
+  }
+
+}
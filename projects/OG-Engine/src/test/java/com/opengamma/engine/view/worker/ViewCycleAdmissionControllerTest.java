@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link ViewCycleAdmissionController} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ViewCycleAdmissionControllerTest {
+
+  private static final long TIMEOUT = 5000;
+
+  private static long bytes(final int values) {
+    return values * ViewCycleAdmissionController.DEFAULT_BYTES_PER_VALUE;
+  }
+
+  private static Thread admitLater(final ViewCycleAdmissionController controller, final int values, final int fullLogValues,
+      final BlockingQueue<ViewCycleAdmissionController.Admission> admitted) {
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          admitted.add(controller.admit(values, fullLogValues));
+        } catch (InterruptedException e) {
+          // Test will fail
+        }
+      }
+    };
+    thread.start();
+    return thread;
+  }
+
+  private static void waitForQueue(final ViewCycleAdmissionController controller, final int depth) throws InterruptedException {
+    final long timeout = System.currentTimeMillis() + TIMEOUT;
+    while (controller.getQueueDepth() != depth) {
+      assertTrue(System.currentTimeMillis() < timeout);
+      Thread.sleep(10);
+    }
+  }
+
+  public void testUnlimited() throws InterruptedException {
+    final ViewCycleAdmissionController controller = new ViewCycleAdmissionController();
+    final ViewCycleAdmissionController.Admission a = controller.admit(1000, 100);
+    final ViewCycleAdmissionController.Admission b = controller.admit(1000, 100);
+    assertFalse(a.isDegraded());
+    assertFalse(b.isDegraded());
+    assertEquals(2, controller.getExecuting());
+    assertEquals(2 * controller.estimate(1000, 100), controller.getUsed());
+    controller.release(a);
+    controller.release(b);
+    assertEquals(0, controller.getExecuting());
+    assertEquals(0, controller.getUsed());
+    assertEquals(2, controller.getAdmittedCount());
+  }
+
+  public void testFirstCycleAlwaysAdmitted() throws InterruptedException {
+    final ViewCycleAdmissionController controller = new ViewCycleAdmissionController(bytes(10));
+    final ViewCycleAdmissionController.Admission admission = controller.admit(1000, 100);
+    assertFalse(admission.isDegraded());
+    controller.release(admission);
+  }
+
+  public void testDegradedAdmission() throws InterruptedException {
+    final ViewCycleAdmissionController controller = new ViewCycleAdmissionController(bytes(100) + ViewCycleAdmissionController.FULL_LOG_BYTES_PER_VALUE);
+    final ViewCycleAdmissionController.Admission a = controller.admit(50, 0);
+    final ViewCycleAdmissionController.Admission b = controller.admit(50, 10);
+    assertTrue(b.isDegraded());
+    assertEquals(bytes(50), b.getEstimate());
+    assertEquals(1, controller.getDegradedCount());
+    controller.release(a);
+    controller.release(b);
+  }
+
+  public void testQueuedAdmission() throws InterruptedException {
+    final ViewCycleAdmissionController controller = new ViewCycleAdmissionController(bytes(100));
+    final ViewCycleAdmissionController.Admission a = controller.admit(80, 0);
+    final BlockingQueue<ViewCycleAdmissionController.Admission> admitted = new LinkedBlockingQueue<ViewCycleAdmissionController.Admission>();
+    admitLater(controller, 50, 0, admitted);
+    waitForQueue(controller, 1);
+    // A smaller cycle that would fit must not overtake the waiting one
+    admitLater(controller, 10, 0, admitted);
+    waitForQueue(controller, 2);
+    assertNull(admitted.poll(100, TimeUnit.MILLISECONDS));
+    controller.release(a);
+    final ViewCycleAdmissionController.Admission b = admitted.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+    assertEquals(bytes(50), b.getEstimate());
+    final ViewCycleAdmissionController.Admission c = admitted.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+    assertEquals(bytes(10), c.getEstimate());
+    assertEquals(0, controller.getQueueDepth());
+    assertEquals(2, controller.getQueuedCount());
+    controller.release(b);
+    controller.release(c);
+  }
+
+  public void testBudgetIncreaseAdmitsWaiting() throws InterruptedException {
+    final ViewCycleAdmissionController controller = new ViewCycleAdmissionController(bytes(100));
+    final ViewCycleAdmissionController.Admission a = controller.admit(80, 0);
+    final BlockingQueue<ViewCycleAdmissionController.Admission> admitted = new LinkedBlockingQueue<ViewCycleAdmissionController.Admission>();
+    admitLater(controller, 50, 0, admitted);
+    waitForQueue(controller, 1);
+    controller.setBudget(bytes(200));
+    final ViewCycleAdmissionController.Admission b = admitted.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+    assertEquals(2, controller.getExecuting());
+    controller.release(a);
+    controller.release(b);
+  }
+
+  public void testValueSizeHistory() {
+    final ViewCycleAdmissionController controller = new ViewCycleAdmissionController();
+    assertEquals((double) ViewCycleAdmissionController.DEFAULT_BYTES_PER_VALUE, controller.getBytesPerValue());
+    controller.recordValueSizes(0, 0);
+    assertEquals((double) ViewCycleAdmissionController.DEFAULT_BYTES_PER_VALUE, controller.getBytesPerValue());
+    for (int i = 0; i < 100; i++) {
+      controller.recordValueSizes(64000, 1000);
+    }
+    assertEquals(64.0, controller.getBytesPerValue(), 0.01);
+    assertEquals(64000, controller.estimate(1000, 0));
+  }
+
+}
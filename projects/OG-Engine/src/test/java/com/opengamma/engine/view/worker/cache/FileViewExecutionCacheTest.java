@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.mockito.Mockito;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.ImmutableMap;
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.core.position.impl.SimplePortfolio;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder.NodeBuilder;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.config.FunctionConfigurationBundle;
+import com.opengamma.engine.function.config.FunctionRepositoryFactory;
+import com.opengamma.engine.function.config.ParameterizedFunctionConfiguration;
+import com.opengamma.engine.function.config.RepositoryFactoryTest.MockSingleArgumentFunction;
+import com.opengamma.engine.target.ComputationTargetReference;
+import com.opengamma.engine.target.ComputationTargetRequirement;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfigurationImpl;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link FileViewExecutionCache} class.
+ */
+@Test(groups = TestGroup.UNIT, singleThreaded = true)
+public class FileViewExecutionCacheTest {
+
+  private final Instant _now = Instant.now();
+  private File _directory;
+  private InMemoryFunctionRepository _functions;
+  private FunctionCompilationContext _context;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    _directory = Files.createTempDirectory("FileViewExecutionCacheTest").toFile();
+    _functions = new InMemoryFunctionRepository();
+    _functions.addFunction(MockFunction.getMockFunction("f1", new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "1")), 42));
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    final File[] files = _directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    _directory.delete();
+  }
+
+  private Portfolio createPortfolio() {
+    return new SimplePortfolio(UniqueId.of("Portfolio", "0", "V"), "Portfolio");
+  }
+
+  private ViewDefinition createViewDefinition() {
+    final ViewDefinition viewDefinition = new ViewDefinition("TestView", UniqueId.of("Portfolio", "0"), "TestUser");
+    viewDefinition.setUniqueId(UniqueId.of("View", "0", "V"));
+    return viewDefinition;
+  }
+
+  private DependencyGraph createDependencyGraph() {
+    final TestDependencyGraphBuilder gb = new TestDependencyGraphBuilder("Default");
+    final NodeBuilder n1 = gb.addNode("Foo", ComputationTargetSpecification.NULL);
+    n1.addTerminalOutput("Foo");
+    final NodeBuilder n2 = gb.addNode("Bar", ComputationTargetSpecification.NULL);
+    n1.addInput(n2.addOutput("Bar"));
+    return gb.buildGraph();
+  }
+
+  private CompiledViewDefinitionWithGraphs createCompiledViewDefinitionWithGraphs() {
+    final ViewDefinition viewDefinition = createViewDefinition();
+    viewDefinition.addViewCalculationConfiguration(new ViewCalculationConfiguration(viewDefinition, "Default"));
+    final DependencyGraph graph = createDependencyGraph();
+    final Collection<DependencyGraph> graphs = Collections.singleton(graph);
+    final Collection<CompiledViewCalculationConfiguration> calcConfigs = Collections.<CompiledViewCalculationConfiguration>singleton(CompiledViewCalculationConfigurationImpl.of(graph));
+    final Map<ComputationTargetReference, UniqueId> resolutions = ImmutableMap.<ComputationTargetReference, UniqueId>of(new ComputationTargetRequirement(ComputationTargetType.SECURITY,
+        ExternalId.of("Security", "Foo")), UniqueId.of("Sec", "0"));
+    return new CompiledViewDefinitionWithGraphsImpl(VersionCorrection.of(_now, _now), "", viewDefinition, graphs, resolutions, createPortfolio(), 1L, calcConfigs, null, null);
+  }
+
+  private FileViewExecutionCache createCache(final long functionInitId) {
+    final ComputationTargetResolver targetResolver = Mockito.mock(ComputationTargetResolver.class);
+    Mockito.when(targetResolver.resolve(new ComputationTargetSpecification(ComputationTargetType.PORTFOLIO, UniqueId.of("Portfolio", "0", "V")), VersionCorrection.of(_now, _now)))
+        .thenReturn(new ComputationTarget(ComputationTargetType.PORTFOLIO, createPortfolio()));
+    Mockito.when(targetResolver.resolve(new ComputationTargetSpecification(ComputationTargetType.of(ViewDefinition.class), UniqueId.of("View", "0", "V")), VersionCorrection.LATEST))
+        .thenReturn(new ComputationTarget(ComputationTargetType.of(ViewDefinition.class), createViewDefinition()));
+    _context = new FunctionCompilationContext();
+    _context.setRawComputationTargetResolver(targetResolver);
+    _context.setFunctionInitId(functionInitId);
+    final CompiledFunctionService cfs = Mockito.mock(CompiledFunctionService.class);
+    Mockito.when(cfs.getFunctionCompilationContext()).thenReturn(_context);
+    Mockito.when(cfs.getInitializedFunctionRepository()).thenReturn(_functions);
+    Mockito.when(cfs.getFunctionRepository()).thenReturn(_functions);
+    return new FileViewExecutionCache(_directory, cfs);
+  }
+
+  public void testCaching() {
+    final FileViewExecutionCache cache = createCache(1L);
+    final CompiledViewDefinitionWithGraphs object = createCompiledViewDefinitionWithGraphs();
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    // Miss
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key));
+    // Store
+    cache.setCompiledViewDefinitionWithGraphs(key, object);
+    assertTrue(cache.getFile(key).exists());
+    // Hit the front cache
+    assertSame(cache.getCompiledViewDefinitionWithGraphs(key), object);
+    // Hit the file
+    cache.clearFrontCache();
+    final CompiledViewDefinitionWithGraphs cachedObject = cache.getCompiledViewDefinitionWithGraphs(key);
+    assertNotNull(cachedObject);
+    assertNotSame(cachedObject, object);
+    assertEquals(cachedObject.getCompiledCalculationConfigurations(), object.getCompiledCalculationConfigurations());
+    assertEquals(cachedObject.getComputationTargets(), object.getComputationTargets());
+    assertEquals(cachedObject.getPortfolio(), object.getPortfolio());
+    assertEquals(cachedObject.getResolvedIdentifiers(), object.getResolvedIdentifiers());
+    assertEquals(cachedObject.getResolverVersionCorrection(), object.getResolverVersionCorrection());
+    // Hit the front cache
+    assertSame(cache.getCompiledViewDefinitionWithGraphs(key), cachedObject);
+  }
+
+  public void testRestart() {
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    createCache(1L).setCompiledViewDefinitionWithGraphs(key, createCompiledViewDefinitionWithGraphs());
+    // New instance, new function initialization, same function repository
+    final CompiledViewDefinitionWithGraphs cachedObject = createCache(2L).getCompiledViewDefinitionWithGraphs(key);
+    assertNotNull(cachedObject);
+    assertEquals(((CompiledViewDefinitionWithGraphsImpl) cachedObject).getFunctionInitId(), 2L);
+  }
+
+  public void testFunctionRepositoryChanged() {
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    final FileViewExecutionCache cache = createCache(1L);
+    cache.setCompiledViewDefinitionWithGraphs(key, createCompiledViewDefinitionWithGraphs());
+    _functions.addFunction(MockFunction.getMockFunction("f2", new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "2")), 42));
+    assertNull(createCache(2L).getCompiledViewDefinitionWithGraphs(key));
+    assertFalse(cache.getFile(key).exists());
+  }
+
+  private static InMemoryFunctionRepository createParameterizedRepository(final String parameter) {
+    final FunctionConfigurationBundle configuration = new FunctionConfigurationBundle();
+    configuration.addFunctions(new ParameterizedFunctionConfiguration(MockSingleArgumentFunction.class.getName(), Collections.singleton(parameter)));
+    return FunctionRepositoryFactory.constructRepository(configuration);
+  }
+
+  public void testFunctionRepositoryHashParameters() {
+    final InMemoryFunctionRepository repositoryA1 = createParameterizedRepository("A");
+    final InMemoryFunctionRepository repositoryA2 = createParameterizedRepository("A");
+    // Same identifiers, classes and names but constructed with a different parameter
+    final InMemoryFunctionRepository repositoryB = createParameterizedRepository("B");
+    final String hashA = FileViewExecutionCache.createFunctionRepositoryHash(repositoryA1, repositoryA1);
+    assertEquals(FileViewExecutionCache.createFunctionRepositoryHash(repositoryA2, repositoryA2), hashA);
+    assertNotEquals(FileViewExecutionCache.createFunctionRepositoryHash(repositoryB, repositoryB), hashA);
+  }
+
+  public void testFunctionRepositoryHashOncePerRepository() {
+    final FileViewExecutionCache cache = createCache(1L);
+    final String hash = cache.getFunctionRepositoryHash();
+    assertSame(cache.getFunctionRepositoryHash(), hash);
+    _functions = createParameterizedRepository("A");
+    final FileViewExecutionCache cache2 = createCache(1L);
+    assertNotEquals(cache2.getFunctionRepositoryHash(), hash);
+  }
+
+  public void testClear() {
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    final FileViewExecutionCache cache = createCache(1L);
+    cache.setCompiledViewDefinitionWithGraphs(key, createCompiledViewDefinitionWithGraphs());
+    cache.clear();
+    assertFalse(cache.getFile(key).exists());
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key));
+  }
+
+}
@@ -67,8 +67,12 @@ public class DataViewClientResource extends AbstractRestfulJmsResultPublisher {
   public static final String PATH_SET_MINIMUM_LOG_MODE = "logMode";
 
   public static final String PATH_UPDATE_PERIOD = "updatePeriod";
+  public static final String PATH_STREAMING_RESULTS = "streamingResults";
+  public static final String PATH_MAX_FRAGMENT_TARGETS = "maxFragmentTargets";
   
   public static final String UPDATE_PERIOD_FIELD = "updatePeriod";
+  public static final String STREAMING_RESULTS_FIELD = "streamingResults";
+  public static final String MAX_FRAGMENT_TARGETS_FIELD = "maxFragmentTargets";
   public static final String VIEW_CYCLE_ACCESS_SUPPORTED_FIELD = "isViewCycleAccessSupported";
   public static final String PATH_VIEW_PROCESS_CONTEXT_MAP = "viewProcessContextMap";
   //CSON: just constants
@@ -195,6 +199,26 @@ public class DataViewClientResource extends AbstractRestfulJmsResultPublisher {
     return responseOk();
   }
 
+  @PUT
+  @Path(PATH_STREAMING_RESULTS)
+  @Consumes(FudgeRest.MEDIA)
+  public Response setStreamingResults(FudgeMsg msg) {
+    updateLastAccessed();
+    boolean streaming = msg.getBoolean(STREAMING_RESULTS_FIELD);
+    getViewClient().setStreamingResults(streaming);
+    return responseOk();
+  }
+
+  @PUT
+  @Path(PATH_MAX_FRAGMENT_TARGETS)
+  @Consumes(FudgeRest.MEDIA)
+  public Response setMaxFragmentTargets(FudgeMsg msg) {
+    updateLastAccessed();
+    int maxTargets = msg.getInt(MAX_FRAGMENT_TARGETS_FIELD);
+    getViewClient().setMaxFragmentTargets(maxTargets);
+    return responseOk();
+  }
+
   //-------------------------------------------------------------------------
   @GET
   @Path(PATH_RESULT_MODE)
@@ -253,6 +253,22 @@ public class RemoteViewClient extends AbstractRestfulJmsResultConsumer<ViewResul
     getClient().accessFudge(uri).put(msg);
   }
 
+  @Override
+  public void setStreamingResults(boolean streaming) {
+    URI uri = getUri(getBaseUri(), DataViewClientResource.PATH_STREAMING_RESULTS);
+    MutableFudgeMsg msg = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    msg.add(DataViewClientResource.STREAMING_RESULTS_FIELD, streaming);
+    getClient().accessFudge(uri).put(msg);
+  }
+
+  @Override
+  public void setMaxFragmentTargets(int maxTargets) {
+    URI uri = getUri(getBaseUri(), DataViewClientResource.PATH_MAX_FRAGMENT_TARGETS);
+    MutableFudgeMsg msg = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    msg.add(DataViewClientResource.MAX_FRAGMENT_TARGETS_FIELD, maxTargets);
+    getClient().accessFudge(uri).put(msg);
+  }
+
   @Override
   public void setViewProcessContextMap(Map<String, String> context) {
     URI uri = getUri(getBaseUri(), DataViewClientResource.PATH_VIEW_PROCESS_CONTEXT_MAP);
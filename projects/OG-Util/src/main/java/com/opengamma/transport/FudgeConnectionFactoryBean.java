@@ -10,6 +10,7 @@ import java.util.concurrent.ExecutorService;
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsg;
 
+import com.opengamma.transport.socket.SocketChannelFudgeConnection;
 import com.opengamma.transport.socket.SocketEndPointDescriptionProvider;
 import com.opengamma.transport.socket.SocketFudgeConnection;
 import com.opengamma.util.ArgumentChecker;
@@ -61,11 +62,18 @@ public class FudgeConnectionFactoryBean extends SingletonFactoryBean<FudgeConnec
   protected FudgeConnection createObject() {
     final FudgeMsg endPoint = resolveEndPointDescription();
     ArgumentChecker.notNull(endPoint, "endPointDescription");
-    if (SocketEndPointDescriptionProvider.TYPE_VALUE.equals(endPoint.getString(SocketEndPointDescriptionProvider.TYPE_KEY))) {
+    final String type = endPoint.getString(SocketEndPointDescriptionProvider.TYPE_KEY);
+    if (SocketEndPointDescriptionProvider.TYPE_VALUE.equals(type)) {
       final SocketFudgeConnection connection = (getExecutorService() != null) ? new SocketFudgeConnection(getFudgeContext(), getExecutorService()) : new SocketFudgeConnection(getFudgeContext());
       connection.setServer(endPoint);
       return connection;
     }
+    if (SocketEndPointDescriptionProvider.CHANNEL_TYPE_VALUE.equals(type)) {
+      final SocketChannelFudgeConnection connection = (getExecutorService() != null) ? new SocketChannelFudgeConnection(getFudgeContext(), getExecutorService())
+          : new SocketChannelFudgeConnection(getFudgeContext());
+      connection.setServer(endPoint);
+      return connection;
+    }
     throw new IllegalArgumentException("Don't know how to create end-point " + endPoint);
   }
 
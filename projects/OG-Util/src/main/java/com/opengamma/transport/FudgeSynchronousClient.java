@@ -132,11 +132,43 @@ public abstract class FudgeSynchronousClient implements FudgeMessageReceiver {
    * @return the result
    */
   protected FudgeMsg sendRequestAndWaitForResponse(FudgeMsg requestMsg, long correlationId) {
-    ClientRequestHolder requestHolder = new ClientRequestHolder();
-    _pendingRequests.put(correlationId, requestHolder);
+    return waitForResponse(sendRequest(requestMsg, correlationId));
+  }
+
+  /**
+   * Sends the message without waiting for the response. Several requests may be sent in this way before waiting
+   * for any of the responses, allowing the transport and remote end to process them in a pipeline.
+   * <p>
+   * The caller must pass the returned handle to {@link #waitForResponse} to collect the response, or to
+   * {@link #abandonRequest} if it will not wait for it, to release the resources associated with the request.
+   * 
+   * @param requestMsg  the message, not null
+   * @param correlationId  the message id
+   * @return the handle to wait for the response with, not null
+   */
+  protected PendingRequest sendRequest(FudgeMsg requestMsg, long correlationId) {
+    final PendingRequest request = new PendingRequest(correlationId);
+    _pendingRequests.put(correlationId, request._holder);
     try {
       s_logger.debug("Sending message {}", correlationId);
       getMessageSender().send(requestMsg);
+    } catch (RuntimeException e) {
+      _pendingRequests.remove(correlationId);
+      throw e;
+    }
+    return request;
+  }
+
+  /**
+   * Waits for the response to a message sent by {@link #sendRequest}.
+   * 
+   * @param request  the handle returned when the message was sent, not null
+   * @return the result
+   */
+  protected FudgeMsg waitForResponse(PendingRequest request) {
+    final long correlationId = request.getCorrelationId();
+    final ClientRequestHolder requestHolder = request._holder;
+    try {
       try {
         s_logger.debug("Blocking for message result");
         requestHolder.latch.await(getTimeoutInMilliseconds(), TimeUnit.MILLISECONDS);
@@ -157,6 +189,17 @@ public abstract class FudgeSynchronousClient implements FudgeMessageReceiver {
     }
   }
 
+  /**
+   * Releases a message sent by {@link #sendRequest} whose response will not be waited for. Any response that
+   * arrives later is discarded.
+   * 
+   * @param request  the handle returned when the message was sent, not null
+   */
+  protected void abandonRequest(PendingRequest request) {
+    _pendingRequests.remove(request.getCorrelationId());
+    s_logger.debug("Request {} abandoned", request.getCorrelationId());
+  }
+
   protected void sendMessage(FudgeMsg message) {
     getMessageSender().send(message);
   }
@@ -198,6 +241,24 @@ public abstract class FudgeSynchronousClient implements FudgeMessageReceiver {
   protected abstract Long getCorrelationIdFromReply(FudgeMsg reply);
 
   //-------------------------------------------------------------------------
+  /**
+   * Handle to a request that has been sent but whose response has not yet been collected.
+   */
+  protected static final class PendingRequest {
+
+    private final long _correlationId;
+    private final ClientRequestHolder _holder = new ClientRequestHolder();
+
+    private PendingRequest(final long correlationId) {
+      _correlationId = correlationId;
+    }
+
+    public long getCorrelationId() {
+      return _correlationId;
+    }
+
+  }
+
   /**
    * Data holder.
    */
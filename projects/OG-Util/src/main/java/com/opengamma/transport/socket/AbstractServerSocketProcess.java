@@ -106,7 +106,7 @@ public abstract class AbstractServerSocketProcess implements Lifecycle, EndPoint
     s_logger.info("Binding to {}:{}", getBindAddress(), getPortNumber());
     try {
       // NOTE kirk 2010-05-12 -- Backlog of 50 from ServerSocket.
-      _serverSocket = new ServerSocket(getPortNumber(), 50, getBindAddress());
+      _serverSocket = createServerSocket(getPortNumber(), 50, getBindAddress());
       if (getPortNumber() == 0) {
         s_logger.info("Received inbound port {}", _serverSocket.getLocalPort());
       }
@@ -168,6 +168,28 @@ public abstract class AbstractServerSocketProcess implements Lifecycle, EndPoint
   protected void cleanupPreAccept() {
   }
 
+  /**
+   * Creates the server socket to accept connections on.
+   * 
+   * @param portNumber the port to bind to, or 0 for any free port
+   * @param backlog the maximum length of the queue of incoming connections
+   * @param bindAddress the address to bind to, or null for all local addresses
+   * @return the bound server socket, not null
+   * @throws IOException if the socket could not be created or bound
+   */
+  protected ServerSocket createServerSocket(final int portNumber, final int backlog, final InetAddress bindAddress) throws IOException {
+    return new ServerSocket(portNumber, backlog, bindAddress);
+  }
+
+  /**
+   * Returns the type of end-point published by {@link #getEndPointDescription}, identifying the wire protocol used on accepted connections.
+   * 
+   * @return the end-point type, not null
+   */
+  protected String getEndPointType() {
+    return SocketEndPointDescriptionProvider.TYPE_VALUE;
+  }
+
   protected ExecutorService getExecutorService() {
     return _executorService;
   }
@@ -194,7 +216,7 @@ public abstract class AbstractServerSocketProcess implements Lifecycle, EndPoint
   @Override
   public FudgeMsg getEndPointDescription(final FudgeContext fudgeContext) {
     final MutableFudgeMsg desc = fudgeContext.newMessage();
-    desc.add(SocketEndPointDescriptionProvider.TYPE_KEY, SocketEndPointDescriptionProvider.TYPE_VALUE);
+    desc.add(SocketEndPointDescriptionProvider.TYPE_KEY, getEndPointType());
     final InetAddress addr = _serverSocket.getInetAddress();
     if (addr != null) {
       if (addr.isAnyLocalAddress()) {
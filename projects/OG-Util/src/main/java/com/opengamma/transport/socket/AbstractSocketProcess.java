@@ -90,7 +90,7 @@ public abstract class AbstractSocketProcess implements Lifecycle, EndPointDescri
    */
   public void setServer(final FudgeMsg endPoint) {
     ArgumentChecker.notNull(endPoint, "endPoint");
-    if (!SocketEndPointDescriptionProvider.TYPE_VALUE.equals(endPoint.getString(SocketEndPointDescriptionProvider.TYPE_KEY))) {
+    if (!getEndPointType().equals(endPoint.getString(SocketEndPointDescriptionProvider.TYPE_KEY))) {
       throw new IllegalArgumentException("End point is not a ServerSocket - " + endPoint);
     }
     final Collection<InetAddress> addresses = new HashSet<InetAddress>();
@@ -141,7 +141,7 @@ public abstract class AbstractSocketProcess implements Lifecycle, EndPointDescri
     InputStream is = null;
     for (InetAddress addr : getInetAddresses()) {
       try {
-        _socket = new Socket();
+        _socket = createSocket();
         _socket.connect(new InetSocketAddress(addr, getPortNumber()), 3000);
         s_logger.debug("Connected to {}:{}", addr, getPortNumber());
         os = _socket.getOutputStream();
@@ -191,6 +191,25 @@ public abstract class AbstractSocketProcess implements Lifecycle, EndPointDescri
     return (e instanceof SocketException) && "Socket closed".equals(e.getMessage());
   }
 
+  /**
+   * Creates an unconnected socket to open the remote connection with.
+   * 
+   * @return the socket, not null
+   * @throws IOException if the socket could not be created
+   */
+  protected Socket createSocket() throws IOException {
+    return new Socket();
+  }
+
+  /**
+   * Returns the type of end-point this process can connect to, identifying the wire protocol it uses.
+   * 
+   * @return the end-point type, not null
+   */
+  protected String getEndPointType() {
+    return SocketEndPointDescriptionProvider.TYPE_VALUE;
+  }
+
   protected abstract void socketOpened(Socket socket, BufferedOutputStream os, BufferedInputStream is);
 
   protected void socketClosed() {
@@ -199,7 +218,7 @@ public abstract class AbstractSocketProcess implements Lifecycle, EndPointDescri
   @Override
   public FudgeMsg getEndPointDescription(final FudgeContext fudgeContext) {
     final MutableFudgeMsg desc = fudgeContext.newMessage();
-    desc.add(SocketEndPointDescriptionProvider.TYPE_KEY, SocketEndPointDescriptionProvider.TYPE_VALUE);
+    desc.add(SocketEndPointDescriptionProvider.TYPE_KEY, getEndPointType());
     if (getInetAddresses() != null) {
       for (InetAddress addr : getInetAddresses()) {
         desc.add(SocketEndPointDescriptionProvider.ADDRESS_KEY, addr.getHostAddress());
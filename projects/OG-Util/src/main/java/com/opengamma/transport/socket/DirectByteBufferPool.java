@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Pool of direct byte buffers for socket I/O. Direct buffers are expensive to allocate and are only released by the garbage collector, so are recycled rather than allocated for each message.
+ * Buffers are pooled in power-of-two size classes; requests larger than the largest class are allocated, and released, directly.
+ */
+/* package */final class DirectByteBufferPool {
+
+  /**
+   * The smallest buffer size, as a power of two (4Kb).
+   */
+  private static final int MIN_SHIFT = 12;
+
+  /**
+   * The largest pooled buffer size, as a power of two (16Mb).
+   */
+  private static final int MAX_SHIFT = 24;
+
+  private static final DirectByteBufferPool s_instance = new DirectByteBufferPool(8);
+
+  private final BlockingQueue<ByteBuffer>[] _pools;
+
+  /**
+   * Creates a new pool.
+   *
+   * @param maxPooled the maximum number of buffers to retain in each size class
+   */
+  @SuppressWarnings("unchecked")
+  public DirectByteBufferPool(final int maxPooled) {
+    ArgumentChecker.isTrue(maxPooled > 0, "maxPooled");
+    _pools = new BlockingQueue[MAX_SHIFT - MIN_SHIFT + 1];
+    for (int i = 0; i < _pools.length; i++) {
+      _pools[i] = new ArrayBlockingQueue<ByteBuffer>(maxPooled);
+    }
+  }
+
+  /**
+   * Returns the pool shared by all connections in this JVM.
+   *
+   * @return the shared pool, not null
+   */
+  public static DirectByteBufferPool getInstance() {
+    return s_instance;
+  }
+
+  private static int getShift(final int size) {
+    return Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(size - 1));
+  }
+
+  /**
+   * Returns a cleared buffer with at least the requested capacity. The buffer should be passed to {@link #release} when no longer needed.
+   *
+   * @param size the minimum capacity required
+   * @return the buffer, not null
+   */
+  public ByteBuffer acquire(final int size) {
+    final int shift = getShift(size);
+    if (shift > MAX_SHIFT) {
+      return ByteBuffer.allocateDirect(size);
+    }
+    final ByteBuffer buffer = _pools[shift - MIN_SHIFT].poll();
+    if (buffer != null) {
+      buffer.clear();
+      return buffer;
+    }
+    return ByteBuffer.allocateDirect(1 << shift);
+  }
+
+  /**
+   * Returns a buffer to the pool. The buffer must not be used by the caller after it has been released.
+   *
+   * @param buffer the buffer previously returned by {@link #acquire}, not null
+   */
+  public void release(final ByteBuffer buffer) {
+    final int capacity = buffer.capacity();
+    final int shift = getShift(capacity);
+    if ((shift <= MAX_SHIFT) && (capacity == (1 << shift))) {
+      // If the pool is already full the buffer is left for the garbage collector
+      _pools[shift - MIN_SHIFT].offer(buffer);
+    }
+  }
+
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.wire.FudgeDataOutputStreamWriter;
+import org.fudgemsg.wire.FudgeMsgReader;
+import org.fudgemsg.wire.FudgeMsgWriter;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Reads and writes Fudge messages on a socket channel as length-prefixed frames. Each frame is a 4 byte length followed by that many bytes of Fudge encoded message envelope.
+ * <p>
+ * Messages are encoded directly into, and decoded directly from, pooled direct buffers so that there is no intermediate heap copy of the message and the kernel can transfer the frame without the
+ * additional copy it would make from a heap buffer. A whole frame is written with a single channel operation, so concurrent senders do not interleave and may pipeline messages without waiting for
+ * any response.
+ * <p>
+ * Writing is thread-safe. Reading is not, and must be performed by a single thread.
+ */
+/* package */final class FramedFudgeMessageChannel {
+
+  /**
+   * The size of the frame header.
+   */
+  private static final int HEADER_SIZE = 4;
+
+  /**
+   * The initial buffer size used when encoding a message.
+   */
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+
+  /**
+   * The largest frame that will be accepted (256Mb). Anything larger is taken as a corrupt stream.
+   */
+  private static final int MAX_FRAME_SIZE = 1 << 28;
+
+  /**
+   * The size of the heap arrays used to batch the single byte reads and writes of the Fudge stream classes into bulk buffer operations.
+   */
+  private static final int STAGE_SIZE = 512;
+
+  private final FudgeContext _fudgeContext;
+  private final SocketChannel _channel;
+  private final DirectByteBufferPool _buffers;
+  private final ByteBuffer _header = ByteBuffer.allocateDirect(HEADER_SIZE);
+  /**
+   * Staging array for the reader; reading is single threaded.
+   */
+  private final byte[] _readStage = new byte[STAGE_SIZE];
+  private final Object _writeLock = new Object();
+
+  /**
+   * Writes to a pooled buffer, replacing it with a larger one when full.
+   * <p>
+   * The Fudge writer produces most of its output a few bytes at a time. These are gathered in a small heap array and transferred to the direct buffer in bulk, as a single byte put on a direct
+   * buffer costs far more than an array store.
+   */
+  private final class BufferOutputStream extends OutputStream {
+
+    private ByteBuffer _buffer = _buffers.acquire(INITIAL_BUFFER_SIZE);
+    private final byte[] _stage = new byte[STAGE_SIZE];
+    private int _staged;
+
+    private void ensureCapacity(final int bytes) {
+      if (_buffer.remaining() < bytes) {
+        final ByteBuffer buffer = _buffers.acquire(Math.max(_buffer.capacity() << 1, _buffer.position() + bytes));
+        _buffer.flip();
+        buffer.put(_buffer);
+        _buffers.release(_buffer);
+        _buffer = buffer;
+      }
+    }
+
+    private void flushStage() {
+      if (_staged > 0) {
+        ensureCapacity(_staged);
+        _buffer.put(_stage, 0, _staged);
+        _staged = 0;
+      }
+    }
+
+    @Override
+    public void write(final int b) {
+      if (_staged == STAGE_SIZE) {
+        flushStage();
+      }
+      _stage[_staged++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      if (len > STAGE_SIZE - _staged) {
+        flushStage();
+        if (len >= STAGE_SIZE) {
+          ensureCapacity(len);
+          _buffer.put(b, off, len);
+          return;
+        }
+      }
+      System.arraycopy(b, off, _stage, _staged, len);
+      _staged += len;
+    }
+
+    /**
+     * Transfers any staged bytes and returns the buffer.
+     *
+     * @return the buffer holding everything written
+     */
+    private ByteBuffer getBuffer() {
+      flushStage();
+      return _buffer;
+    }
+
+  }
+
+  /**
+   * Reads from a buffer.
+   * <p>
+   * The Fudge reader consumes most of its input a few bytes at a time. These are served from a small heap array that is refilled from the direct buffer in bulk.
+   */
+  private static final class BufferInputStream extends InputStream {
+
+    private final ByteBuffer _buffer;
+    private final byte[] _stage;
+    private int _stagePosition;
+    private int _stageLimit;
+
+    public BufferInputStream(final ByteBuffer buffer, final byte[] stage) {
+      _buffer = buffer;
+      _stage = stage;
+    }
+
+    private boolean fillStage() {
+      final int count = Math.min(_stage.length, _buffer.remaining());
+      if (count == 0) {
+        return false;
+      }
+      _buffer.get(_stage, 0, count);
+      _stagePosition = 0;
+      _stageLimit = count;
+      return true;
+    }
+
+    @Override
+    public int read() {
+      if ((_stagePosition == _stageLimit) && !fillStage()) {
+        return -1;
+      }
+      return _stage[_stagePosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+      if (len == 0) {
+        return 0;
+      }
+      int count = Math.min(len, _stageLimit - _stagePosition);
+      if (count > 0) {
+        System.arraycopy(_stage, _stagePosition, b, off, count);
+        _stagePosition += count;
+      }
+      final int direct = Math.min(len - count, _buffer.remaining());
+      if (direct > 0) {
+        _buffer.get(b, off + count, direct);
+        count += direct;
+      }
+      return (count > 0) ? count : -1;
+    }
+
+    @Override
+    public int available() {
+      return (_stageLimit - _stagePosition) + _buffer.remaining();
+    }
+
+  }
+
+  public FramedFudgeMessageChannel(final FudgeContext fudgeContext, final SocketChannel channel) {
+    this(fudgeContext, channel, DirectByteBufferPool.getInstance());
+  }
+
+  public FramedFudgeMessageChannel(final FudgeContext fudgeContext, final SocketChannel channel, final DirectByteBufferPool buffers) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(channel, "channel");
+    ArgumentChecker.notNull(buffers, "buffers");
+    _fudgeContext = fudgeContext;
+    _channel = channel;
+    _buffers = buffers;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  public SocketChannel getChannel() {
+    return _channel;
+  }
+
+  /**
+   * Encodes a message and writes it as a single frame.
+   *
+   * @param message the message to write, not null
+   * @throws IOException if the channel could not be written to
+   */
+  public void write(final FudgeMsg message) throws IOException {
+    final BufferOutputStream out = new BufferOutputStream();
+    try {
+      out._buffer.position(HEADER_SIZE);
+      final FudgeDataOutputStreamWriter writer = new FudgeDataOutputStreamWriter(_fudgeContext, out);
+      writer.setFlushOnEnvelopeComplete(false);
+      final FudgeMsgWriter msgWriter = new FudgeMsgWriter(writer);
+      msgWriter.writeMessage(message);
+      msgWriter.flush();
+      final ByteBuffer buffer = out.getBuffer();
+      buffer.flip();
+      buffer.putInt(0, buffer.limit() - HEADER_SIZE);
+      synchronized (_writeLock) {
+        do {
+          _channel.write(buffer);
+        } while (buffer.hasRemaining());
+      }
+    } finally {
+      _buffers.release(out._buffer);
+    }
+  }
+
+  private void readFully(final ByteBuffer buffer) throws IOException {
+    do {
+      if (_channel.read(buffer) < 0) {
+        throw new EOFException();
+      }
+    } while (buffer.hasRemaining());
+  }
+
+  /**
+   * Reads the next frame and decodes the message from it.
+   *
+   * @return the message envelope, or null if the channel was closed by the remote end at a frame boundary
+   * @throws IOException if the channel could not be read from or the frame is invalid
+   */
+  public FudgeMsgEnvelope read() throws IOException {
+    _header.clear();
+    if (_channel.read(_header) < 0) {
+      return null;
+    }
+    if (_header.hasRemaining()) {
+      readFully(_header);
+    }
+    final int length = _header.getInt(0);
+    if ((length <= 0) || (length > MAX_FRAME_SIZE)) {
+      throw new IOException("Invalid frame length " + length);
+    }
+    final ByteBuffer buffer = _buffers.acquire(length);
+    try {
+      buffer.limit(length);
+      readFully(buffer);
+      buffer.flip();
+      final FudgeMsgReader reader = _fudgeContext.createMessageReader(new BufferInputStream(buffer, _readStage));
+      final FudgeMsgEnvelope envelope = reader.nextMessageEnvelope();
+      if (envelope == null) {
+        throw new IOException("Empty frame of " + length + " bytes");
+      }
+      return envelope;
+    } finally {
+      _buffers.release(buffer);
+    }
+  }
+
+  /**
+   * Closes the underlying channel.
+   *
+   * @throws IOException if the channel could not be closed
+   */
+  public void close() throws IOException {
+    _channel.close();
+  }
+
+  @Override
+  public String toString() {
+    return _channel.toString();
+  }
+
+}
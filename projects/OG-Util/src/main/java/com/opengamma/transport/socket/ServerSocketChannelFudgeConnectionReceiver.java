@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.ExecutorService;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.wire.FudgeRuntimeIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.transport.FudgeConnection;
+import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.transport.FudgeConnectionStateListener;
+import com.opengamma.transport.FudgeMessageReceiver;
+import com.opengamma.transport.FudgeMessageSender;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.TerminatableJob;
+import com.opengamma.util.TerminatableJobContainer;
+
+/**
+ * Listens on a server socket channel and passes FudgeConnections to an underlying FudgeConnectionReceiver. This is the server end of {@link SocketChannelFudgeConnection}, exchanging messages as
+ * length-prefixed frames using pooled direct buffers.
+ */
+public class ServerSocketChannelFudgeConnectionReceiver extends AbstractServerSocketProcess {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ServerSocketChannelFudgeConnectionReceiver.class);
+
+  private final FudgeConnectionReceiver _underlying;
+  private final FudgeContext _fudgeContext;
+
+  private final TerminatableJobContainer _connectionJobs = new TerminatableJobContainer();
+
+  public ServerSocketChannelFudgeConnectionReceiver(final FudgeContext fudgeContext, final FudgeConnectionReceiver underlying) {
+    _fudgeContext = fudgeContext;
+    _underlying = underlying;
+  }
+
+  public ServerSocketChannelFudgeConnectionReceiver(final FudgeContext fudgeContext, final FudgeConnectionReceiver underlying, final ExecutorService executorService) {
+    super(executorService);
+    _fudgeContext = fudgeContext;
+    _underlying = underlying;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  public FudgeConnectionReceiver getUnderlying() {
+    return _underlying;
+  }
+
+  @Override
+  protected ServerSocket createServerSocket(final int portNumber, final int backlog, final InetAddress bindAddress) throws IOException {
+    final ServerSocketChannel channel = ServerSocketChannel.open();
+    channel.socket().bind(new InetSocketAddress(bindAddress, portNumber), backlog);
+    return channel.socket();
+  }
+
+  @Override
+  protected String getEndPointType() {
+    return SocketEndPointDescriptionProvider.CHANNEL_TYPE_VALUE;
+  }
+
+  @Override
+  protected void socketOpened(final Socket socket) {
+    ArgumentChecker.notNull(socket, "socket");
+    s_logger.info("Opened socket to remote side {}", socket.getRemoteSocketAddress());
+    try {
+      socket.setTcpNoDelay(true);
+    } catch (IOException e) {
+      s_logger.warn("Unable to disable Nagle's algorithm for socket {}", socket, e);
+    }
+    final ConnectionJob job = new ConnectionJob(new FramedFudgeMessageChannel(getFudgeContext(), socket.getChannel()));
+    _connectionJobs.addJobAndStartThread(job, "Connection dispatch " + socket.getRemoteSocketAddress());
+  }
+
+  @Override
+  protected void cleanupPreAccept() {
+    _connectionJobs.cleanupTerminatedInstances();
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    _connectionJobs.terminateAll();
+  }
+
+  private class ConnectionJob extends TerminatableJob {
+
+    private final FramedFudgeMessageChannel _channel;
+    private final FudgeMessageSender _sender;
+    private final FudgeConnection _connection;
+    private volatile FudgeMessageReceiver _receiver;
+    private volatile FudgeConnectionStateListener _listener;
+
+    ConnectionJob(final FramedFudgeMessageChannel channel) {
+      _channel = channel;
+      _sender = new FudgeMessageSender() {
+
+        @Override
+        public FudgeContext getFudgeContext() {
+          return ServerSocketChannelFudgeConnectionReceiver.this.getFudgeContext();
+        }
+
+        @Override
+        public void send(final FudgeMsg message) {
+          try {
+            _channel.write(message);
+          } catch (IOException e) {
+            terminateWithError("Unable to write message to underlying channel - terminating connection", e);
+            throw new FudgeRuntimeIOException(e);
+          }
+        }
+
+        @Override
+        public String toString() {
+          return _channel.getChannel().socket().getRemoteSocketAddress().toString();
+        }
+
+      };
+      _connection = new FudgeConnection() {
+
+        @Override
+        public FudgeMessageSender getFudgeMessageSender() {
+          return _sender;
+        }
+
+        @Override
+        public void setFudgeMessageReceiver(final FudgeMessageReceiver receiver) {
+          _receiver = receiver;
+        }
+
+        @Override
+        public void setConnectionStateListener(final FudgeConnectionStateListener listener) {
+          _listener = listener;
+        }
+
+        @Override
+        public String toString() {
+          return "FudgeConnection (channel) from " + _channel.getChannel().socket().getRemoteSocketAddress();
+        }
+
+      };
+    }
+
+    @Override
+    protected void runOneCycle() {
+      if (!_channel.getChannel().isOpen()) {
+        terminate();
+        return;
+      }
+      final FudgeMsgEnvelope envelope;
+      try {
+        envelope = _channel.read();
+      } catch (IOException e) {
+        terminateWithError("Unable to read message from underlying channel - terminating connection", e);
+        return;
+      }
+      if (envelope == null) {
+        terminateWithError("Nothing available on channel - terminating connection", null);
+        return;
+      }
+      final FudgeMessageReceiver receiver = _receiver;
+      if (receiver != null) {
+        final ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+          executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+              dispatchReceiver(receiver, envelope);
+            }
+          });
+        } else {
+          dispatchReceiver(receiver, envelope);
+        }
+      } else {
+        try {
+          getUnderlying().connectionReceived(getFudgeContext(), envelope, _connection);
+        } catch (Exception e) {
+          s_logger.warn("Unable to dispatch connection to receiver", e);
+        }
+      }
+    }
+
+    private void dispatchReceiver(final FudgeMessageReceiver receiver, final FudgeMsgEnvelope envelope) {
+      try {
+        receiver.messageReceived(getFudgeContext(), envelope);
+      } catch (Exception e) {
+        s_logger.warn("Unable to dispatch message to receiver", e);
+      }
+    }
+
+    private void terminateWithError(final String errorMessage, final Exception cause) {
+      if ((cause != null) && !_channel.getChannel().isOpen()) {
+        s_logger.info("Connection terminated");
+      } else if (cause != null) {
+        s_logger.warn(errorMessage, cause);
+      } else {
+        s_logger.info(errorMessage);
+      }
+      terminate();
+      final FudgeConnectionStateListener listener = _listener;
+      if (listener != null) {
+        listener.connectionFailed(_connection, cause);
+      }
+    }
+
+    @Override
+    public void terminate() {
+      if (_channel.getChannel().isOpen()) {
+        try {
+          s_logger.debug("Closing channel");
+          _channel.close();
+        } catch (IOException ex) {
+          s_logger.warn("Couldn't close channel to release blocked I/O", ex.getMessage());
+        }
+      }
+      super.terminate();
+    }
+
+  }
+
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.wire.FudgeRuntimeIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.transport.FudgeConnection;
+import com.opengamma.transport.FudgeConnectionStateListener;
+import com.opengamma.transport.FudgeMessageReceiver;
+import com.opengamma.transport.FudgeMessageSender;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.TerminatableJob;
+
+/**
+ * A socket channel implementation of {@link FudgeConnection} for use with a {@link ServerSocketChannelFudgeConnectionReceiver}.
+ * <p>
+ * Messages are sent as length-prefixed frames using pooled direct buffers rather than as a continuous Fudge stream through buffered socket streams. Each message is written in full by the sending
+ * thread, so a sender can pipeline any number of messages without waiting for responses.
+ */
+public class SocketChannelFudgeConnection extends AbstractSocketProcess implements FudgeConnection {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(SocketChannelFudgeConnection.class);
+
+  private final FudgeContext _fudgeContext;
+  private final ExecutorService _executorService;
+  private volatile FramedFudgeMessageChannel _channel;
+  private volatile FudgeMessageReceiver _receiver;
+  private TerminatableJob _receiverJob;
+  private volatile FudgeConnectionStateListener _stateListener;
+
+  /**
+   * Prevents re-entrant calls to startIfNecessary if a message is sent as part of a connection reset callback.
+   */
+  private final ThreadLocal<Boolean> _isStarting = new ThreadLocal<Boolean>();
+
+  private final FudgeMessageSender _sender = new FudgeMessageSender() {
+
+    @Override
+    public FudgeContext getFudgeContext() {
+      return _fudgeContext;
+    }
+
+    @Override
+    public void send(final FudgeMsg message) {
+      if (_isStarting.get() == null) {
+        _isStarting.set(Boolean.TRUE);
+        try {
+          startIfNecessary();
+        } catch (OpenGammaRuntimeException e) {
+          if (e.getCause() instanceof IOException) {
+            notifyConnectionFailed((IOException) e.getCause());
+          }
+          throw e;
+        } finally {
+          _isStarting.remove();
+        }
+      }
+      final FramedFudgeMessageChannel channel = _channel;
+      if (channel == null) {
+        s_logger.info("Connection terminated - message not sent");
+        throw new FudgeRuntimeIOException(new IOException("Connection closed"));
+      }
+      try {
+        channel.write(message);
+      } catch (IOException e) {
+        if (!channel.getChannel().isOpen()) {
+          s_logger.info("Connection terminated - message not sent");
+        } else {
+          s_logger.warn("I/O exception during send - {} - stopping socket to flush error", e.getMessage());
+          stop();
+          notifyConnectionFailed(e);
+        }
+        throw new FudgeRuntimeIOException(e);
+      }
+    }
+
+  };
+
+  /**
+   * Creates a connection where received messages are processed inline with channel read operations.
+   *
+   * @param fudgeContext the Fudge context, not null
+   */
+  public SocketChannelFudgeConnection(final FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _fudgeContext = fudgeContext;
+    _executorService = null;
+  }
+
+  /**
+   * Creates a connection where received messages run out of thread to the channel reader using the given {@link ExecutorService}.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param executorService an executor service to run received messages via, not null
+   */
+  public SocketChannelFudgeConnection(final FudgeContext fudgeContext, final ExecutorService executorService) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(executorService, "executorService");
+    _fudgeContext = fudgeContext;
+    _executorService = executorService;
+  }
+
+  @Override
+  protected Socket createSocket() throws IOException {
+    final Socket socket = SocketChannel.open().socket();
+    socket.setTcpNoDelay(true);
+    return socket;
+  }
+
+  @Override
+  protected String getEndPointType() {
+    return SocketEndPointDescriptionProvider.CHANNEL_TYPE_VALUE;
+  }
+
+  /**
+   * Note that the message sender may be called concurrently. Each message is written in full before the call returns, but successful completion of a {@link FudgeMessageSender#send} does not
+   * guarantee message arrival.
+   *
+   * @return the Fudge message sender component of the connection
+   */
+  @Override
+  public FudgeMessageSender getFudgeMessageSender() {
+    return _sender;
+  }
+
+  @Override
+  public void setFudgeMessageReceiver(final FudgeMessageReceiver receiver) {
+    _receiver = receiver;
+  }
+
+  @Override
+  protected void socketOpened(final Socket socket, final BufferedOutputStream os, final BufferedInputStream is) {
+    final FramedFudgeMessageChannel channel = new FramedFudgeMessageChannel(_fudgeContext, socket.getChannel());
+    _channel = channel;
+    _receiverJob = new TerminatableJob() {
+
+      @Override
+      protected void runOneCycle() {
+        final FudgeMsgEnvelope envelope;
+        try {
+          envelope = channel.read();
+        } catch (IOException e) {
+          if (!channel.getChannel().isOpen()) {
+            s_logger.info("Connection terminated");
+          } else {
+            s_logger.warn("I/O exception during recv - {} - stopping socket to flush error", e.getMessage());
+            stop();
+            notifyConnectionFailed(e);
+          }
+          terminate();
+          return;
+        }
+        if (envelope == null) {
+          s_logger.info("Nothing available on channel. Terminating connection");
+          stop();
+          terminate();
+          return;
+        }
+        final FudgeMessageReceiver receiver = _receiver;
+        if (receiver != null) {
+          if (_executorService != null) {
+            _executorService.execute(new Runnable() {
+              @Override
+              public void run() {
+                dispatch(receiver, envelope);
+              }
+            });
+          } else {
+            dispatch(receiver, envelope);
+          }
+        }
+      }
+
+      private void dispatch(final FudgeMessageReceiver receiver, final FudgeMsgEnvelope envelope) {
+        try {
+          receiver.messageReceived(_fudgeContext, envelope);
+        } catch (Exception e) {
+          s_logger.warn("Unable to dispatch message to receiver", e);
+        }
+      }
+
+    };
+    final Thread thread = new Thread(_receiverJob, "Incoming " + socket.getRemoteSocketAddress());
+    thread.setDaemon(true);
+    thread.start();
+    final FudgeConnectionStateListener stateListener = _stateListener;
+    if (stateListener != null) {
+      stateListener.connectionReset(this);
+    }
+  }
+
+  @Override
+  protected void socketClosed() {
+    final FramedFudgeMessageChannel channel = _channel;
+    _channel = null;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        s_logger.warn("Unable to close channel {}", channel, e);
+      }
+    }
+    if (_receiverJob != null) {
+      _receiverJob.terminate();
+    }
+  }
+
+  @Override
+  public void setConnectionStateListener(final FudgeConnectionStateListener listener) {
+    _stateListener = listener;
+  }
+
+  protected void notifyConnectionFailed(final Exception e) {
+    final FudgeConnectionStateListener stateListener = _stateListener;
+    if (stateListener != null) {
+      try {
+        stateListener.connectionFailed(this, e);
+      } catch (Exception e2) {
+        s_logger.warn("Error notifying state listener of connection failure", e2);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("FudgeConnection (channel) to ");
+    sb.append(getInetAddresses());
+    sb.append(':');
+    sb.append(getPortNumber());
+    if (!isRunning()) {
+      sb.append(" (not connected)");
+    }
+    return sb.toString();
+  }
+
+}
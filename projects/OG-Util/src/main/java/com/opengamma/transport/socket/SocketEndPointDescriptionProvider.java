@@ -18,7 +18,7 @@ import com.opengamma.util.ArgumentChecker;
 public class SocketEndPointDescriptionProvider implements EndPointDescriptionProvider {
 
   /**
-   * Type of connection. Always {@link #TYPE_VALUE}.
+   * Type of connection. Either {@link #TYPE_VALUE} or {@link #CHANNEL_TYPE_VALUE}.
    */
   public static final String TYPE_KEY = "type";
 
@@ -27,6 +27,12 @@ public class SocketEndPointDescriptionProvider implements EndPointDescriptionPro
    */
   public static final String TYPE_VALUE = "Socket";
 
+  /**
+   * Value of the type of connection for a socket carrying length-prefixed message frames, as used by {@link SocketChannelFudgeConnection} and
+   * {@link ServerSocketChannelFudgeConnectionReceiver}.
+   */
+  public static final String CHANNEL_TYPE_VALUE = "SocketChannel";
+
   /**
    * Connection address.
    */
@@ -37,6 +43,11 @@ public class SocketEndPointDescriptionProvider implements EndPointDescriptionPro
    */
   public static final String PORT_KEY = "port";
 
+  /**
+   * The type of connection. Defaults to {@link #TYPE_VALUE}.
+   */
+  private String _type = TYPE_VALUE;
+
   /**
    * The address to connect to. Defaults to the local host.
    */
@@ -47,6 +58,25 @@ public class SocketEndPointDescriptionProvider implements EndPointDescriptionPro
    */
   private int _port;
 
+  /**
+   * Sets the connection type.
+   * 
+   * @param type the type of connection, not null
+   */
+  public void setType(final String type) {
+    ArgumentChecker.notNull(type, "type");
+    _type = type;
+  }
+
+  /**
+   * Returns the connection type.
+   * 
+   * @return the type of connection, not null
+   */
+  public String getType() {
+    return _type;
+  }
+
   /**
    * Sets the connection address.
    * 
@@ -89,7 +119,7 @@ public class SocketEndPointDescriptionProvider implements EndPointDescriptionPro
   @Override
   public FudgeMsg getEndPointDescription(final FudgeContext fudgeContext) {
     final MutableFudgeMsg msg = fudgeContext.newMessage();
-    msg.add(TYPE_KEY, TYPE_VALUE);
+    msg.add(TYPE_KEY, getType());
     msg.add(ADDRESS_KEY, getAddress());
     msg.add(PORT_KEY, getPort());
     return msg;
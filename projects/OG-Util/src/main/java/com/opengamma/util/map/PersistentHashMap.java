@@ -0,0 +1,431 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.map;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Immutable hash map that shares structure between versions.
+ * <p>
+ * The entries are held in a hash array mapped trie. Creating a new version of the map with an entry added, replaced or removed copies only the path from the root to the affected leaf, so is
+ * O(log32 n) in time and space, and the previous version remains valid and unchanged. This makes it suitable for holding a frequently updated data set from which consistent point-in-time views
+ * must be taken cheaply - the view is just a reference to the current version. Versions which are no longer referenced are reclaimed by the garbage collector.
+ * <p>
+ * Null keys are not supported. The {@link Map} mutation methods are not supported; use {@link #with} and {@link #without} instead.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  /**
+   * Maximum depth of the trie; seven levels of bitmap nodes consume the 32-bit hash, with a collision node beneath.
+   */
+  private static final int MAX_DEPTH = 8;
+
+  private static final Object NOT_FOUND = new Object();
+
+  private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<Object, Object>(null, 0);
+
+  /**
+   * Node of the trie. The array holds key/value pairs; a null key indicates that the value is a child node.
+   */
+  private abstract static class Node {
+
+    private final Object[] _array;
+
+    protected Node(final Object[] array) {
+      _array = array;
+    }
+
+    protected Object[] getArray() {
+      return _array;
+    }
+
+    protected abstract Object get(int shift, int hash, Object key);
+
+    protected abstract Node with(int shift, int hash, Object key, Object value, boolean[] added);
+
+    /**
+     * Returns the node without the key, this node if the key was not present, or null if the node would be empty.
+     */
+    protected abstract Node without(int shift, int hash, Object key);
+
+  }
+
+  /**
+   * Node with a sparse array of up to 32 slots, indexed by five bits of the hash.
+   */
+  private static final class BitmapNode extends Node {
+
+    private static final BitmapNode EMPTY_NODE = new BitmapNode(0, new Object[0]);
+
+    private final int _bitmap;
+
+    public BitmapNode(final int bitmap, final Object[] array) {
+      super(array);
+      _bitmap = bitmap;
+    }
+
+    private static int bit(final int shift, final int hash) {
+      return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private int index(final int bit) {
+      return Integer.bitCount(_bitmap & (bit - 1)) << 1;
+    }
+
+    private Node replace(final int index, final Object key, final Object value) {
+      final Object[] array = getArray().clone();
+      array[index] = key;
+      array[index + 1] = value;
+      return new BitmapNode(_bitmap, array);
+    }
+
+    private static Node createNode(final int shift, final Object key1, final Object value1, final int hash2, final Object key2, final Object value2) {
+      final int hash1 = hash(key1);
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2 });
+      }
+      final boolean[] added = new boolean[1];
+      return EMPTY_NODE.with(shift, hash1, key1, value1, added).with(shift, hash2, key2, value2, added);
+    }
+
+    @Override
+    protected Object get(final int shift, final int hash, final Object key) {
+      final int bit = bit(shift, hash);
+      if ((_bitmap & bit) == 0) {
+        return NOT_FOUND;
+      }
+      final int index = index(bit);
+      final Object[] array = getArray();
+      final Object k = array[index];
+      if (k == null) {
+        return ((Node) array[index + 1]).get(shift + BITS, hash, key);
+      }
+      return key.equals(k) ? array[index + 1] : NOT_FOUND;
+    }
+
+    @Override
+    protected Node with(final int shift, final int hash, final Object key, final Object value, final boolean[] added) {
+      final int bit = bit(shift, hash);
+      final int index = index(bit);
+      final Object[] array = getArray();
+      if ((_bitmap & bit) == 0) {
+        final Object[] newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, index);
+        newArray[index] = key;
+        newArray[index + 1] = value;
+        System.arraycopy(array, index, newArray, index + 2, array.length - index);
+        added[0] = true;
+        return new BitmapNode(_bitmap | bit, newArray);
+      }
+      final Object k = array[index];
+      final Object v = array[index + 1];
+      if (k == null) {
+        final Node child = ((Node) v).with(shift + BITS, hash, key, value, added);
+        return (child == v) ? this : replace(index, null, child);
+      }
+      if (key.equals(k)) {
+        return (value == v) ? this : replace(index, k, value);
+      }
+      added[0] = true;
+      return replace(index, null, createNode(shift + BITS, k, v, hash, key, value));
+    }
+
+    @Override
+    protected Node without(final int shift, final int hash, final Object key) {
+      final int bit = bit(shift, hash);
+      if ((_bitmap & bit) == 0) {
+        return this;
+      }
+      final int index = index(bit);
+      final Object[] array = getArray();
+      final Object k = array[index];
+      if (k == null) {
+        final Node child = ((Node) array[index + 1]).without(shift + BITS, hash, key);
+        if (child == array[index + 1]) {
+          return this;
+        }
+        if (child != null) {
+          return replace(index, null, child);
+        }
+      } else if (!key.equals(k)) {
+        return this;
+      }
+      if (_bitmap == bit) {
+        return null;
+      }
+      final Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(array, index + 2, newArray, index, newArray.length - index);
+      return new BitmapNode(_bitmap & ~bit, newArray);
+    }
+
+  }
+
+  /**
+   * Node holding keys that have the same hash.
+   */
+  private static final class CollisionNode extends Node {
+
+    private final int _hash;
+
+    public CollisionNode(final int hash, final Object[] array) {
+      super(array);
+      _hash = hash;
+    }
+
+    private int find(final Object key) {
+      final Object[] array = getArray();
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    protected Object get(final int shift, final int hash, final Object key) {
+      if (hash != _hash) {
+        return NOT_FOUND;
+      }
+      final int index = find(key);
+      return (index < 0) ? NOT_FOUND : getArray()[index + 1];
+    }
+
+    @Override
+    protected Node with(final int shift, final int hash, final Object key, final Object value, final boolean[] added) {
+      if (hash != _hash) {
+        // Push this node down beneath a bitmap node that can distinguish the hashes
+        final Node node = new BitmapNode(BitmapNode.bit(shift, _hash), new Object[] {null, this });
+        return node.with(shift, hash, key, value, added);
+      }
+      final Object[] array = getArray();
+      final int index = find(key);
+      if (index < 0) {
+        final Object[] newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        newArray[array.length] = key;
+        newArray[array.length + 1] = value;
+        added[0] = true;
+        return new CollisionNode(_hash, newArray);
+      }
+      if (array[index + 1] == value) {
+        return this;
+      }
+      final Object[] newArray = array.clone();
+      newArray[index + 1] = value;
+      return new CollisionNode(_hash, newArray);
+    }
+
+    @Override
+    protected Node without(final int shift, final int hash, final Object key) {
+      if (hash != _hash) {
+        return this;
+      }
+      final int index = find(key);
+      if (index < 0) {
+        return this;
+      }
+      final Object[] array = getArray();
+      if (array.length == 2) {
+        return null;
+      }
+      final Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(array, index + 2, newArray, index, newArray.length - index);
+      return new CollisionNode(_hash, newArray);
+    }
+
+  }
+
+  /**
+   * Depth first iterator over the entries of the trie.
+   */
+  private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+    private final Object[][] _arrays = new Object[MAX_DEPTH][];
+    private final int[] _indices = new int[MAX_DEPTH];
+    private int _depth;
+    private Map.Entry<K, V> _next;
+
+    public EntryIterator(final Node root) {
+      if (root != null) {
+        _arrays[0] = root.getArray();
+        _depth = 0;
+        advance();
+      } else {
+        _depth = -1;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      while (_depth >= 0) {
+        final Object[] array = _arrays[_depth];
+        final int index = _indices[_depth];
+        if (index >= array.length) {
+          _depth--;
+          continue;
+        }
+        _indices[_depth] = index + 2;
+        if (array[index] != null) {
+          _next = new AbstractMap.SimpleImmutableEntry<K, V>((K) array[index], (V) array[index + 1]);
+          return;
+        }
+        _depth++;
+        _arrays[_depth] = ((Node) array[index + 1]).getArray();
+        _indices[_depth] = 0;
+      }
+      _next = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _next != null;
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      final Map.Entry<K, V> next = _next;
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      advance();
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  private final Node _root;
+  private final int _size;
+  private Set<Map.Entry<K, V>> _entrySet;
+
+  private PersistentHashMap(final Node root, final int size) {
+    _root = root;
+    _size = size;
+  }
+
+  /**
+   * Returns the empty map.
+   *
+   * @param <K> key type
+   * @param <V> value type
+   * @return the empty map, not null
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentHashMap<K, V> of() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  private static int hash(final Object key) {
+    final int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns a version of this map with the given entry added or replaced. This map is not modified.
+   *
+   * @param key the key, not null
+   * @param value the value
+   * @return the new version of the map, or this map if it already contains the same value instance for the key, not null
+   */
+  public PersistentHashMap<K, V> with(final K key, final V value) {
+    ArgumentChecker.notNull(key, "key");
+    final boolean[] added = new boolean[1];
+    final Node root = ((_root != null) ? _root : BitmapNode.EMPTY_NODE).with(0, hash(key), key, value, added);
+    if (root == _root) {
+      return this;
+    }
+    return new PersistentHashMap<K, V>(root, added[0] ? _size + 1 : _size);
+  }
+
+  /**
+   * Returns a version of this map with the given key removed. This map is not modified.
+   *
+   * @param key the key to remove
+   * @return the new version of the map, or this map if the key was not present, not null
+   */
+  public PersistentHashMap<K, V> without(final Object key) {
+    if ((key == null) || (_root == null)) {
+      return this;
+    }
+    final Node root = _root.without(0, hash(key), key);
+    if (root == _root) {
+      return this;
+    }
+    if (root == null) {
+      return of();
+    }
+    return new PersistentHashMap<K, V>(root, _size - 1);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public int size() {
+    return _size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    if ((key == null) || (_root == null)) {
+      return false;
+    }
+    return _root.get(0, hash(key), key) != NOT_FOUND;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(final Object key) {
+    if ((key == null) || (_root == null)) {
+      return null;
+    }
+    final Object value = _root.get(0, hash(key), key);
+    return (value != NOT_FOUND) ? (V) value : null;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    if (_entrySet == null) {
+      _entrySet = new AbstractSet<Map.Entry<K, V>>() {
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+          return new EntryIterator<K, V>(_root);
+        }
+
+        @Override
+        public int size() {
+          return _size;
+        }
+
+      };
+    }
+    return _entrySet;
+  }
+
+}
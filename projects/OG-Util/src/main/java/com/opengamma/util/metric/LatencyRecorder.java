@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.metric;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Records the latency of named phases into timers backed by a {@link LogLinearReservoir} in the summary {@link OpenGammaMetricRegistry}, from which
+ * they are reported (and exported through JMX) with their percentiles and maximum.
+ * <p>
+ * Recording is off unless the {@code opengamma.metrics.latency} system property is {@code true} or {@link #setEnabled} is called. When off, the cost of
+ * an instrumented phase is a read of a volatile field.
+ * <pre>
+ * final long start = LatencyRecorder.start();
+ * ...
+ * LatencyRecorder.stop("Phase.name", start);
+ * </pre>
+ */
+public final class LatencyRecorder {
+
+  /**
+   * The system property that enables recording at startup.
+   */
+  public static final String ENABLED_PROPERTY = "opengamma.metrics.latency";
+
+  /**
+   * The value returned by {@link #start} when recording is disabled.
+   */
+  public static final long NOT_STARTED = Long.MIN_VALUE;
+
+  private static volatile boolean s_enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+  private static final ConcurrentMap<String, Timer> s_timers = new ConcurrentHashMap<String, Timer>();
+
+  private static volatile MetricRegistry s_registry;
+
+  /**
+   * Restricted constructor.
+   */
+  private LatencyRecorder() {
+  }
+
+  public static boolean isEnabled() {
+    return s_enabled;
+  }
+
+  public static void setEnabled(final boolean enabled) {
+    s_enabled = enabled;
+  }
+
+  /**
+   * Marks the start of a phase.
+   *
+   * @return the start time to pass to {@link #stop}
+   */
+  public static long start() {
+    return s_enabled ? System.nanoTime() : NOT_STARTED;
+  }
+
+  /**
+   * Marks the end of a phase, recording its latency if recording was enabled when the phase started.
+   *
+   * @param name the name of the phase, not null
+   * @param start the value returned by {@link #start}
+   */
+  public static void stop(final String name, final long start) {
+    if (start != NOT_STARTED) {
+      getTimer(name).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Records the latency of a phase timed by the caller, if recording is enabled.
+   *
+   * @param name the name of the phase, not null
+   * @param nanos the latency in nanoseconds
+   */
+  public static void record(final String name, final long nanos) {
+    if (s_enabled) {
+      getTimer(name).update(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Returns the timer for a phase, registering it if necessary.
+   *
+   * @param name the name of the phase, not null
+   * @return the timer, not null
+   */
+  public static Timer getTimer(final String name) {
+    if (OpenGammaMetricRegistry.getSummaryInstance() == s_registry) {
+      final Timer timer = s_timers.get(name);
+      if (timer != null) {
+        return timer;
+      }
+    }
+    return register(name);
+  }
+
+  private static synchronized Timer register(final String name) {
+    // The component system may replace the registry at startup; timers must be registered with the current one
+    final MetricRegistry registry = OpenGammaMetricRegistry.getSummaryInstance();
+    if (registry != s_registry) {
+      s_timers.clear();
+      s_registry = registry;
+    }
+    Timer timer = s_timers.get(name);
+    if (timer == null) {
+      try {
+        timer = s_registry.register(name, new Timer(new LogLinearReservoir()));
+      } catch (IllegalArgumentException e) {
+        // Already registered by another class loader or component; share it
+        timer = s_registry.getTimers().get(name);
+        if (timer == null) {
+          throw e;
+        }
+      }
+      s_timers.put(name, timer);
+    }
+    return timer;
+  }
+
+}
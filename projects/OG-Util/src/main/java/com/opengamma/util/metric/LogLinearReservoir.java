@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.metric;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * A {@link Reservoir} that counts every value in a fixed set of buckets, in the style of an HDR histogram.
+ * <p>
+ * Values below {@code 2^(precisionBits + 1)} are counted exactly. Larger values are counted in buckets whose width doubles with each power of two, giving
+ * each a fixed number of sub-buckets, so that a quantile is reported to within a relative error of {@code 2^-precisionBits}. Unlike the sampling
+ * reservoirs, the maximum and the high percentiles are never lost to sampling, updates are lock-free and the memory used does not depend on the number of
+ * values. The counts are cumulative until {@link #reset} is called.
+ */
+public class LogLinearReservoir implements Reservoir {
+
+  /**
+   * The default precision, giving quantiles to within 1%.
+   */
+  public static final int DEFAULT_PRECISION_BITS = 7;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final int _precisionBits;
+  private final int _subBuckets;
+  private final AtomicLongArray _counts;
+  private final AtomicLong _count = new AtomicLong();
+  private final AtomicLong _sum = new AtomicLong();
+  private final AtomicLong _min = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong _max = new AtomicLong(Long.MIN_VALUE);
+
+  /**
+   * Creates a reservoir with the default precision.
+   */
+  public LogLinearReservoir() {
+    this(DEFAULT_PRECISION_BITS);
+  }
+
+  /**
+   * Creates a reservoir.
+   *
+   * @param precisionBits the number of bits of each value to count exactly, from 1 to 16
+   */
+  public LogLinearReservoir(final int precisionBits) {
+    if ((precisionBits < 1) || (precisionBits > 16)) {
+      throw new IllegalArgumentException("precisionBits must be between 1 and 16");
+    }
+    _precisionBits = precisionBits;
+    _subBuckets = 1 << precisionBits;
+    // Exact counts for [0, 2 * subBuckets), then subBuckets for each higher power of two up to 2^62
+    _counts = new AtomicLongArray((2 * _subBuckets) + ((62 - precisionBits) * _subBuckets));
+  }
+
+  /* package */int bucket(final long value) {
+    if (value < 2 * _subBuckets) {
+      return (int) value;
+    }
+    final int shift = (63 - Long.numberOfLeadingZeros(value)) - _precisionBits;
+    return (2 * _subBuckets) + ((shift - 1) * _subBuckets) + (int) ((value >>> shift) - _subBuckets);
+  }
+
+  /* package */long bucketValue(final int bucket) {
+    if (bucket < 2 * _subBuckets) {
+      return bucket;
+    }
+    final int index = bucket - (2 * _subBuckets);
+    final int shift = (index / _subBuckets) + 1;
+    final long lower = ((long) (_subBuckets + (index % _subBuckets))) << shift;
+    // The middle of the bucket
+    return lower + (1L << (shift - 1));
+  }
+
+  @Override
+  public int size() {
+    final long count = _count.get();
+    return (count > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) count;
+  }
+
+  @Override
+  public void update(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    _counts.incrementAndGet(bucket(value));
+    _count.incrementAndGet();
+    _sum.addAndGet(value);
+    long current = _min.get();
+    while ((value < current) && !_min.compareAndSet(current, value)) {
+      current = _min.get();
+    }
+    current = _max.get();
+    while ((value > current) && !_max.compareAndSet(current, value)) {
+      current = _max.get();
+    }
+  }
+
+  /**
+   * Discards all of the values counted so far.
+   */
+  public void reset() {
+    for (int i = 0; i < _counts.length(); i++) {
+      _counts.set(i, 0);
+    }
+    _count.set(0);
+    _sum.set(0);
+    _min.set(Long.MAX_VALUE);
+    _max.set(Long.MIN_VALUE);
+  }
+
+  @Override
+  public Snapshot getSnapshot() {
+    final long[] counts = new long[_counts.length()];
+    long count = 0;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = _counts.get(i);
+      count += counts[i];
+    }
+    // Concurrent updates may have changed the other totals; the bucket counts are the authority
+    return new BucketSnapshot(counts, count, _sum.get(), _min.get(), _max.get());
+  }
+
+  /**
+   * Snapshot of the bucket counts.
+   */
+  private final class BucketSnapshot extends Snapshot {
+
+    private final long[] _bucketCounts;
+    private final long _total;
+    private final long _snapshotSum;
+    private final long _snapshotMin;
+    private final long _snapshotMax;
+
+    private BucketSnapshot(final long[] counts, final long total, final long sum, final long min, final long max) {
+      super(new long[0]);
+      _bucketCounts = counts;
+      _total = total;
+      _snapshotSum = sum;
+      _snapshotMin = (total > 0) ? min : 0;
+      _snapshotMax = (total > 0) ? max : 0;
+    }
+
+    private long clamp(final long value) {
+      return Math.max(_snapshotMin, Math.min(_snapshotMax, value));
+    }
+
+    @Override
+    public double getValue(final double quantile) {
+      if ((quantile < 0.0) || (quantile > 1.0) || Double.isNaN(quantile)) {
+        throw new IllegalArgumentException(quantile + " is not in [0..1]");
+      }
+      if (_total == 0) {
+        return 0.0;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(quantile * _total));
+      long seen = 0;
+      for (int i = 0; i < _bucketCounts.length; i++) {
+        seen += _bucketCounts[i];
+        if (seen >= rank) {
+          return clamp(bucketValue(i));
+        }
+      }
+      return _snapshotMax;
+    }
+
+    /**
+     * Returns the representative value of each bucket, repeated for each value counted in it. This is expensive if many values have been counted.
+     *
+     * @return the values, not null
+     */
+    @Override
+    public long[] getValues() {
+      final long[] values = new long[size()];
+      int j = 0;
+      for (int i = 0; (i < _bucketCounts.length) && (j < values.length); i++) {
+        final long value = clamp(bucketValue(i));
+        for (long k = 0; (k < _bucketCounts[i]) && (j < values.length); k++) {
+          values[j++] = value;
+        }
+      }
+      return values;
+    }
+
+    @Override
+    public int size() {
+      return (_total > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) _total;
+    }
+
+    @Override
+    public long getMax() {
+      return _snapshotMax;
+    }
+
+    @Override
+    public long getMin() {
+      return _snapshotMin;
+    }
+
+    @Override
+    public double getMean() {
+      if (_total == 0) {
+        return 0.0;
+      }
+      return (double) _snapshotSum / (double) _total;
+    }
+
+    @Override
+    public double getStdDev() {
+      if (_total <= 1) {
+        return 0.0;
+      }
+      final double mean = getMean();
+      double sum = 0;
+      for (int i = 0; i < _bucketCounts.length; i++) {
+        if (_bucketCounts[i] > 0) {
+          final double diff = clamp(bucketValue(i)) - mean;
+          sum += diff * diff * _bucketCounts[i];
+        }
+      }
+      return Math.sqrt(sum / (_total - 1));
+    }
+
+    @Override
+    public void dump(final OutputStream output) {
+      final PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8));
+      try {
+        for (int i = 0; i < _bucketCounts.length; i++) {
+          if (_bucketCounts[i] > 0) {
+            out.printf("%d %d%n", clamp(bucketValue(i)), _bucketCounts[i]);
+          }
+        }
+      } finally {
+        out.close();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.transport.CollectingFudgeMessageReceiver;
+import com.opengamma.transport.FudgeConnection;
+import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.transport.FudgeMessageReceiver;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.test.Timeout;
+
+/**
+ * Tests the SocketChannelFudgeConnection and ServerSocketChannelFudgeConnectionReceiver classes
+ */
+@Test(groups = TestGroup.INTEGRATION, singleThreaded = true)
+public class SocketChannelFudgeConnectionConduitTest {
+
+  private final AtomicInteger _counter = new AtomicInteger();
+
+  private FudgeMsg createMessage() {
+    final MutableFudgeMsg message = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    message.add("counter", _counter.incrementAndGet());
+    return message;
+  }
+
+  private SocketChannelFudgeConnection createClient(final ServerSocketChannelFudgeConnectionReceiver server) {
+    final SocketChannelFudgeConnection client = new SocketChannelFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    client.setServer(server.getEndPointDescription(FudgeContext.GLOBAL_DEFAULT));
+    return client;
+  }
+
+  public void simpleTest() throws Exception {
+    final FudgeMsg testMessage1 = createMessage();
+    final FudgeMsg testMessage2 = createMessage();
+    // receiver will respond to testMessage1 with testMessage2
+    final FudgeConnectionReceiver serverReceiver = new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(FudgeContext fudgeContext, FudgeMsgEnvelope message, FudgeConnection connection) {
+        assertEquals(testMessage1, message.getMessage());
+        connection.getFudgeMessageSender().send(testMessage2);
+      }
+    };
+    final ServerSocketChannelFudgeConnectionReceiver server = new ServerSocketChannelFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, serverReceiver);
+    server.setBindAddress(InetAddress.getLocalHost());
+    server.start();
+    final SocketChannelFudgeConnection client = createClient(server);
+    final CollectingFudgeMessageReceiver clientReceiver = new CollectingFudgeMessageReceiver();
+    client.setFudgeMessageReceiver(clientReceiver);
+    client.getFudgeMessageSender().send(testMessage1);
+    final FudgeMsgEnvelope envelope = clientReceiver.waitForMessage(Timeout.standardTimeoutMillis());
+    assertNotNull(envelope);
+    assertEquals(testMessage2, envelope.getMessage());
+    client.stop();
+    server.stop();
+  }
+
+  public void largeMessageTest() throws Exception {
+    // Larger than the initial encoding buffer so that it must grow
+    final MutableFudgeMsg testMessage = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    for (int i = 0; i < 100000; i++) {
+      testMessage.add("value", (double) i);
+    }
+    final CollectingFudgeMessageReceiver serverMessages = new CollectingFudgeMessageReceiver();
+    final FudgeConnectionReceiver serverReceiver = new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(FudgeContext fudgeContext, FudgeMsgEnvelope message, FudgeConnection connection) {
+        serverMessages.messageReceived(fudgeContext, message);
+      }
+    };
+    final ServerSocketChannelFudgeConnectionReceiver server = new ServerSocketChannelFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, serverReceiver);
+    server.setBindAddress(InetAddress.getLocalHost());
+    server.start();
+    final SocketChannelFudgeConnection client = createClient(server);
+    client.getFudgeMessageSender().send(testMessage);
+    final FudgeMsgEnvelope envelope = serverMessages.waitForMessage(Timeout.standardTimeoutMillis());
+    assertNotNull(envelope);
+    assertEquals(testMessage, envelope.getMessage());
+    client.stop();
+    server.stop();
+  }
+
+  private class MessageReadWrite extends Thread implements FudgeMessageReceiver {
+
+    private static final int NUM_MESSAGES = 1000;
+
+    private FudgeConnection _connection;
+    private int _received;
+
+    @Override
+    public void run() {
+      for (int i = 0; i < NUM_MESSAGES; i++) {
+        _connection.getFudgeMessageSender().send(createMessage());
+      }
+    }
+
+    @Override
+    public synchronized void messageReceived(FudgeContext fudgeContext, FudgeMsgEnvelope msgEnvelope) {
+      _received++;
+      if (_received == NUM_MESSAGES) {
+        notify();
+      } else if (_received > NUM_MESSAGES) {
+        fail("Too many messages received");
+      }
+    }
+
+    public synchronized boolean waitForMessages() throws InterruptedException {
+      final long period = Timeout.standardTimeoutMillis();
+      final long timeout = System.currentTimeMillis() + period;
+      while ((_received < NUM_MESSAGES) && (System.currentTimeMillis() < timeout)) {
+        wait(period);
+      }
+      return _received == NUM_MESSAGES;
+    }
+
+  }
+
+  public void pipelinedIOTest() throws Exception {
+    final MessageReadWrite serverThread = new MessageReadWrite();
+    final FudgeConnectionReceiver serverReceiver = new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope envelope, final FudgeConnection connection) {
+        serverThread.messageReceived(fudgeContext, envelope);
+        serverThread._connection = connection;
+        connection.setFudgeMessageReceiver(serverThread);
+        serverThread.start();
+      }
+    };
+    final ServerSocketChannelFudgeConnectionReceiver server = new ServerSocketChannelFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, serverReceiver);
+    server.setBindAddress(InetAddress.getLocalHost());
+    server.start();
+    final SocketChannelFudgeConnection client = createClient(server);
+    // both ends send a stream of messages without waiting for any response
+    final MessageReadWrite clientThread = new MessageReadWrite();
+    clientThread._connection = client;
+    client.setFudgeMessageReceiver(clientThread);
+    clientThread.start();
+    assertTrue(serverThread.waitForMessages());
+    assertTrue(clientThread.waitForMessages());
+    server.stop();
+    client.stop();
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link PersistentHashMap} implementation.
+ */
+@Test(groups = TestGroup.UNIT)
+public class PersistentHashMapTest {
+
+  /**
+   * Key with a controlled hash code.
+   */
+  private static final class Key {
+
+    private final String _name;
+    private final int _hash;
+
+    public Key(final String name, final int hash) {
+      _name = name;
+      _hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return _hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return (o instanceof Key) && _name.equals(((Key) o)._name);
+    }
+
+  }
+
+  public void testBasicOperations() {
+    final PersistentHashMap<String, String> empty = PersistentHashMap.of();
+    assertTrue(empty.isEmpty());
+    assertEquals(empty.size(), 0);
+    final PersistentHashMap<String, String> map1 = empty.with("A", "Foo");
+    final PersistentHashMap<String, String> map2 = map1.with("B", "Bar");
+    assertFalse(map2.isEmpty());
+    assertEquals(map2.size(), 2);
+    assertEquals(map2.get("A"), "Foo");
+    assertEquals(map2.get("B"), "Bar");
+    assertNull(map2.get("C"));
+    assertTrue(map2.containsKey("A"));
+    assertFalse(map2.containsKey("C"));
+    final PersistentHashMap<String, String> map3 = map2.with("A", "Cow").without("B");
+    assertEquals(map3.size(), 1);
+    assertEquals(map3.get("A"), "Cow");
+    assertFalse(map3.containsKey("B"));
+    assertTrue(map3.without("A").isEmpty());
+    // Earlier versions are unchanged
+    assertTrue(empty.isEmpty());
+    assertEquals(map1.size(), 1);
+    assertEquals(map2.get("A"), "Foo");
+    assertEquals(map2.get("B"), "Bar");
+  }
+
+  public void testNoChange() {
+    final String value = "Foo";
+    final PersistentHashMap<String, String> map = PersistentHashMap.<String, String>of().with("A", value);
+    assertSame(map.with("A", value), map);
+    assertSame(map.without("B"), map);
+  }
+
+  public void testNullValue() {
+    final PersistentHashMap<String, String> map = PersistentHashMap.<String, String>of().with("A", null);
+    assertEquals(map.size(), 1);
+    assertTrue(map.containsKey("A"));
+    assertNull(map.get("A"));
+  }
+
+  public void testCollisions() {
+    final Key a = new Key("A", 42);
+    final Key b = new Key("B", 42);
+    final Key c = new Key("C", 42 + (1 << 20));
+    PersistentHashMap<Key, String> map = PersistentHashMap.of();
+    map = map.with(a, "A").with(b, "B").with(c, "C");
+    assertEquals(map.size(), 3);
+    assertEquals(map.get(a), "A");
+    assertEquals(map.get(b), "B");
+    assertEquals(map.get(c), "C");
+    assertNull(map.get(new Key("D", 42)));
+    map = map.without(a);
+    assertEquals(map.size(), 2);
+    assertNull(map.get(a));
+    assertEquals(map.get(b), "B");
+    assertEquals(map.entrySet().size(), 2);
+    map = map.without(b).without(c);
+    assertTrue(map.isEmpty());
+  }
+
+  public void testAgainstHashMap() {
+    final Random random = new Random(1L);
+    final Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+    PersistentHashMap<Integer, Integer> map = PersistentHashMap.of();
+    PersistentHashMap<Integer, Integer> snapshot = null;
+    Map<Integer, Integer> expectedSnapshot = null;
+    for (int i = 0; i < 100000; i++) {
+      final Integer key = random.nextInt(5000);
+      if (random.nextInt(4) == 0) {
+        expected.remove(key);
+        map = map.without(key);
+      } else {
+        expected.put(key, i);
+        map = map.with(key, i);
+      }
+      assertEquals(map.size(), expected.size());
+      if (i == 50000) {
+        snapshot = map;
+        expectedSnapshot = new HashMap<Integer, Integer>(expected);
+      }
+    }
+    assertEquals(map, expected);
+    assertEquals(expected, map);
+    assertEquals(map.hashCode(), expected.hashCode());
+    assertEquals(snapshot, expectedSnapshot);
+  }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.metric;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.Snapshot;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link LogLinearReservoir} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class LogLinearReservoirTest {
+
+  private static void assertWithin(final double expected, final double actual, final double relative) {
+    assertTrue(expected + " != " + actual, Math.abs(expected - actual) <= expected * relative);
+  }
+
+  public void testBuckets() {
+    final LogLinearReservoir reservoir = new LogLinearReservoir();
+    int last = -1;
+    for (long value = 0; value < 1L << 20; value++) {
+      final int bucket = reservoir.bucket(value);
+      assertTrue(bucket == last || bucket == last + 1);
+      last = bucket;
+      assertWithin(value, reservoir.bucketValue(bucket), 1.0 / 128);
+    }
+    reservoir.bucket(Long.MAX_VALUE);
+  }
+
+  public void testSmallValuesExact() {
+    final LogLinearReservoir reservoir = new LogLinearReservoir();
+    for (int i = 1; i <= 100; i++) {
+      reservoir.update(i);
+    }
+    final Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(100, snapshot.size());
+    assertEquals(50.0, snapshot.getMedian());
+    assertEquals(99.0, snapshot.get99thPercentile());
+    assertEquals(1, snapshot.getMin());
+    assertEquals(100, snapshot.getMax());
+    assertEquals(50.5, snapshot.getMean());
+  }
+
+  public void testPercentiles() {
+    final LogLinearReservoir reservoir = new LogLinearReservoir();
+    // Latencies of 1ms to 10s in nanoseconds
+    for (int i = 1; i <= 10000; i++) {
+      reservoir.update(i * 1000000L);
+    }
+    final Snapshot snapshot = reservoir.getSnapshot();
+    assertWithin(5000000000.0, snapshot.getMedian(), 0.01);
+    assertWithin(9900000000.0, snapshot.get99thPercentile(), 0.01);
+    assertEquals(10000000000L, snapshot.getMax());
+    assertEquals(1000000L, snapshot.getMin());
+    assertEquals(10000, snapshot.getValues().length);
+  }
+
+  public void testReset() {
+    final LogLinearReservoir reservoir = new LogLinearReservoir();
+    reservoir.update(42);
+    reservoir.update(-1);
+    assertEquals(0, reservoir.getSnapshot().getMin());
+    reservoir.reset();
+    final Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(0, snapshot.size());
+    assertEquals(0.0, snapshot.getMedian());
+    assertEquals(0, snapshot.getMax());
+  }
+
+}